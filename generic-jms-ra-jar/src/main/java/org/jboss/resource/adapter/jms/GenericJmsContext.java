@@ -15,6 +15,8 @@ import jakarta.jms.BytesMessage;
 import jakarta.jms.ConnectionMetaData;
 import jakarta.jms.Destination;
 import jakarta.jms.ExceptionListener;
+import jakarta.jms.InvalidDestinationException;
+import jakarta.jms.InvalidDestinationRuntimeException;
 import jakarta.jms.JMSConsumer;
 import jakarta.jms.JMSContext;
 import jakarta.jms.JMSException;
@@ -32,7 +34,6 @@ import jakarta.jms.TextMessage;
 import jakarta.jms.Topic;
 import org.jboss.logging.Logger;
 import org.jboss.resource.adapter.jms.util.JMSProducerUtils;
-import org.jboss.resource.adapter.jms.util.TibcojmsUtils;
 
 /**
  * @author <a href="http://jmesnil.net/">Jeff Mesnil</a> (c) 2016 Red Hat inc.
@@ -199,27 +200,46 @@ public class GenericJmsContext implements JMSContext {
 
     @Override
     public JMSConsumer createConsumer(Destination destination) {
+        checkNotPartitioned(destination);
         return session.getJMSContext().createConsumer(destination);
     }
 
     @Override
     public JMSConsumer createConsumer(Destination destination, String messageSelector) {
+        checkNotPartitioned(destination);
         return session.getJMSContext().createConsumer(destination, messageSelector);
     }
 
     @Override
     public JMSConsumer createConsumer(Destination destination, String messageSelector, boolean noLocal) {
+        checkNotPartitioned(destination);
         return session.getJMSContext().createConsumer(destination, messageSelector, noLocal);
     }
 
     @Override
     public Queue createQueue(String queueName) {
-        return session.getJMSContext().createQueue(queueName);
+        JmsDestinationCache cache = session.getDestinationCache();
+        Queue result = cache != null ? (Queue) cache.get(JmsConnectionFactory.QUEUE, queueName) : null;
+        if (result == null) {
+            result = session.getJMSContext().createQueue(queueName);
+            if (cache != null) {
+                cache.put(JmsConnectionFactory.QUEUE, queueName, result);
+            }
+        }
+        return result;
     }
 
     @Override
     public Topic createTopic(String topicName) {
-        return session.getJMSContext().createTopic(topicName);
+        JmsDestinationCache cache = session.getDestinationCache();
+        Topic result = cache != null ? (Topic) cache.get(JmsConnectionFactory.TOPIC, topicName) : null;
+        if (result == null) {
+            result = session.getJMSContext().createTopic(topicName);
+            if (cache != null) {
+                cache.put(JmsConnectionFactory.TOPIC, topicName, result);
+            }
+        }
+        return result;
     }
 
     @Override
@@ -254,11 +274,13 @@ public class GenericJmsContext implements JMSContext {
 
     @Override
     public QueueBrowser createBrowser(Queue queue) {
+        checkNotPartitioned(queue);
         return session.getJMSContext().createBrowser(queue);
     }
 
     @Override
     public QueueBrowser createBrowser(Queue queue, String messageSelector) {
+        checkNotPartitioned(queue);
         return session.getJMSContext().createBrowser(queue, messageSelector);
     }
 
@@ -281,4 +303,17 @@ public class GenericJmsContext implements JMSContext {
     public void acknowledge() {
         session.getJMSContext().acknowledge();
     }
+
+    /**
+     * Reject a partitioned queue, only the producers of a session route to its partitions
+     *
+     * @param destination the destination
+     */
+    private static void checkNotPartitioned(Destination destination) {
+        try {
+            JmsPartitionedQueue.checkNotPartitioned(destination);
+        } catch (InvalidDestinationException e) {
+            throw new InvalidDestinationRuntimeException(e.getMessage(), e.getErrorCode(), e);
+        }
+    }
 }
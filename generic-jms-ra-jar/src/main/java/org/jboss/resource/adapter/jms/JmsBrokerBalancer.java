@@ -0,0 +1,269 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Spreads the managed connections of a managed connection factory over the brokers of a cluster, one
+ * connection factory per broker.
+ * <p>
+ * A broker is unhealthy for the retry interval after a connection to it failed, or reported an error to its
+ * exception listener. The unhealthy brokers are only tried once all the healthy ones failed, so a new managed
+ * connection fails over to a healthy broker immediately.
+ */
+public class JmsBrokerBalancer {
+    /**
+     * Rotate over the brokers
+     */
+    public static final String ROUND_ROBIN = "round-robin";
+
+    /**
+     * Prefer the broker with the fewest open managed connections
+     */
+    public static final String LEAST_IN_FLIGHT = "least-in-flight";
+
+    /**
+     * Pick the brokers at random in proportion to their weight
+     */
+    public static final String WEIGHTED = "weighted";
+
+    /**
+     * The brokers
+     */
+    private final List<Broker> brokers;
+
+    /**
+     * The selection policy
+     */
+    private final String policy;
+
+    /**
+     * The time an unhealthy broker is skipped in milliseconds
+     */
+    private final long retryInterval;
+
+    /**
+     * The number of selections, for the rotation
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Create a new balancer
+     *
+     * @param connectionFactories the comma-separated jndi names of the connection factories
+     * @param weights             the comma-separated weights of the connection factories, null for the same weight
+     * @param policy              the selection policy, null for round-robin
+     * @param retryInterval       the time an unhealthy broker is skipped in milliseconds
+     * @throws IllegalArgumentException for an unknown policy or an invalid weight
+     */
+    public JmsBrokerBalancer(String connectionFactories, String weights, String policy, long retryInterval) {
+        this.policy = policy != null && !policy.trim().isEmpty() ? policy.trim() : ROUND_ROBIN;
+        if (!ROUND_ROBIN.equals(this.policy) && !LEAST_IN_FLIGHT.equals(this.policy) && !WEIGHTED.equals(this.policy)) {
+            throw new IllegalArgumentException("Unknown load balancing policy " + policy);
+        }
+        this.retryInterval = retryInterval;
+
+        String[] names = connectionFactories.split(",");
+        String[] weightList = weights != null && !weights.trim().isEmpty() ? weights.split(",") : new String[0];
+        List<Broker> list = new ArrayList<>(names.length);
+        for (int i = 0; i < names.length; ++i) {
+            String name = names[i].trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            int weight = 1;
+            if (i < weightList.length) {
+                weight = Integer.parseInt(weightList[i].trim());
+                if (weight < 1) {
+                    throw new IllegalArgumentException("Invalid weight " + weight + " for " + name);
+                }
+            }
+            list.add(new Broker(name, weight));
+        }
+        if (list.isEmpty()) {
+            throw new IllegalArgumentException("No connection factory in " + connectionFactories);
+        }
+        this.brokers = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * @return the brokers
+     */
+    public List<Broker> getBrokers() {
+        return brokers;
+    }
+
+    /**
+     * Select the brokers to connect to, in the order to try them
+     *
+     * @return the brokers selected by the policy first, then the other healthy brokers and last the unhealthy
+     * brokers, the first to recover first
+     */
+    public List<Broker> select() {
+        if (brokers.size() == 1) {
+            return brokers;
+        }
+        long now = System.currentTimeMillis();
+        int offset = (int) (sequence.getAndIncrement() % brokers.size());
+        List<Broker> healthy = new ArrayList<>(brokers.size());
+        List<Broker> unhealthy = new ArrayList<>(0);
+        for (int i = 0; i < brokers.size(); ++i) {
+            Broker broker = brokers.get((offset + i) % brokers.size());
+            if (broker.isHealthy(now)) {
+                healthy.add(broker);
+            } else {
+                unhealthy.add(broker);
+            }
+        }
+
+        if (healthy.size() > 1) {
+            int first = 0;
+            if (LEAST_IN_FLIGHT.equals(policy)) {
+                for (int i = 1; i < healthy.size(); ++i) {
+                    if (healthy.get(i).getInFlight() < healthy.get(first).getInFlight()) {
+                        first = i;
+                    }
+                }
+            } else if (WEIGHTED.equals(policy)) {
+                int total = 0;
+                for (Broker broker : healthy) {
+                    total += broker.weight;
+                }
+                int pick = ThreadLocalRandom.current().nextInt(total);
+                while (pick >= healthy.get(first).weight) {
+                    pick -= healthy.get(first).weight;
+                    ++first;
+                }
+            }
+            if (first != 0) {
+                healthy.add(0, healthy.remove(first));
+            }
+        }
+
+        if (!unhealthy.isEmpty()) {
+            unhealthy.sort((a, b) -> Long.compare(a.unhealthyUntil, b.unhealthyUntil));
+            healthy.addAll(unhealthy);
+        }
+        return healthy;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "(policy=" + policy + " brokers=" + Arrays.toString(brokers.toArray()) + ')';
+    }
+
+    /**
+     * A broker reached through a connection factory
+     */
+    public final class Broker {
+        /**
+         * The jndi name of the connection factory
+         */
+        private final String connectionFactory;
+
+        /**
+         * The weight
+         */
+        private final int weight;
+
+        /**
+         * The number of open managed connections
+         */
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        /**
+         * The number of failures
+         */
+        private final AtomicLong failures = new AtomicLong();
+
+        /**
+         * The time until the broker is unhealthy
+         */
+        private volatile long unhealthyUntil = 0;
+
+        Broker(String connectionFactory, int weight) {
+            this.connectionFactory = connectionFactory;
+            this.weight = weight;
+        }
+
+        /**
+         * @return the jndi name of the connection factory
+         */
+        public String getConnectionFactory() {
+            return connectionFactory;
+        }
+
+        /**
+         * @return the weight
+         */
+        public int getWeight() {
+            return weight;
+        }
+
+        /**
+         * @return the number of open managed connections
+         */
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        /**
+         * @return the number of failures
+         */
+        public long getFailures() {
+            return failures.get();
+        }
+
+        /**
+         * @return whether the broker is healthy
+         */
+        public boolean isHealthy() {
+            return isHealthy(System.currentTimeMillis());
+        }
+
+        boolean isHealthy(long now) {
+            return unhealthyUntil <= now;
+        }
+
+        /**
+         * A managed connection was opened on the broker
+         */
+        void connected() {
+            inFlight.incrementAndGet();
+            unhealthyUntil = 0;
+        }
+
+        /**
+         * A managed connection to the broker was closed
+         */
+        void disconnected() {
+            inFlight.decrementAndGet();
+        }
+
+        /**
+         * A connection to the broker failed
+         */
+        void failed() {
+            failures.incrementAndGet();
+            if (brokers.size() > 1) {
+                // A single broker is always selected, healthy or not
+                unhealthyUntil = System.currentTimeMillis() + retryInterval;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return connectionFactory + "(weight=" + weight + " inFlight=" + inFlight + " failures=" + failures
+                    + " healthy=" + isHealthy() + ')';
+        }
+    }
+}
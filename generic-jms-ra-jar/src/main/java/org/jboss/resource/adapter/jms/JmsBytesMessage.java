@@ -4,8 +4,15 @@
  */
 package org.jboss.resource.adapter.jms;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
 import jakarta.jms.BytesMessage;
 import jakarta.jms.JMSException;
+import jakarta.jms.MessageEOFException;
+import jakarta.jms.MessageFormatException;
 
 /**
  * A wrapper for a message
@@ -13,6 +20,21 @@ import jakarta.jms.JMSException;
  * @author <a href="mailto:adrian@jboss.com">Adrian Brock</a>
  */
 public class JmsBytesMessage extends JmsMessage implements BytesMessage {
+    /**
+     * The decompressed body, null when the body is not compressed
+     */
+    private byte[] body;
+
+    /**
+     * The stream reading the decompressed body
+     */
+    private DataInputStream in;
+
+    /**
+     * Whether the body was checked for compression
+     */
+    private boolean checked = false;
+
     /**
      * Create a new wrapper
      *
@@ -25,79 +47,206 @@ public class JmsBytesMessage extends JmsMessage implements BytesMessage {
 
     @Override
     public long getBodyLength() throws JMSException {
+        if (decompressed() != null) {
+            return body.length;
+        }
         return ((BytesMessage) message).getBodyLength();
     }
 
     @Override
     public boolean readBoolean() throws JMSException {
+        DataInputStream in = decompressed();
+        if (in != null) {
+            try {
+                return in.readBoolean();
+            } catch (IOException e) {
+                throw readFailure(e);
+            }
+        }
         return ((BytesMessage) message).readBoolean();
     }
 
     @Override
     public byte readByte() throws JMSException {
+        DataInputStream in = decompressed();
+        if (in != null) {
+            try {
+                return in.readByte();
+            } catch (IOException e) {
+                throw readFailure(e);
+            }
+        }
         return ((BytesMessage) message).readByte();
     }
 
     @Override
     public int readBytes(byte[] value, int length) throws JMSException {
+        DataInputStream in = decompressed();
+        if (in != null) {
+            if (length < 0 || length > value.length) {
+                throw new IndexOutOfBoundsException("length=" + length);
+            }
+            try {
+                int count = in.read(value, 0, Math.min(length, in.available()));
+                return count == 0 && length > 0 ? -1 : count;
+            } catch (IOException e) {
+                throw readFailure(e);
+            }
+        }
         return ((BytesMessage) message).readBytes(value, length);
     }
 
     @Override
     public int readBytes(byte[] value) throws JMSException {
+        if (decompressed() != null) {
+            return readBytes(value, value.length);
+        }
         return ((BytesMessage) message).readBytes(value);
     }
 
     @Override
     public char readChar() throws JMSException {
+        DataInputStream in = decompressed();
+        if (in != null) {
+            try {
+                return in.readChar();
+            } catch (IOException e) {
+                throw readFailure(e);
+            }
+        }
         return ((BytesMessage) message).readChar();
     }
 
     @Override
     public double readDouble() throws JMSException {
+        DataInputStream in = decompressed();
+        if (in != null) {
+            try {
+                return in.readDouble();
+            } catch (IOException e) {
+                throw readFailure(e);
+            }
+        }
         return ((BytesMessage) message).readDouble();
     }
 
     @Override
     public float readFloat() throws JMSException {
+        DataInputStream in = decompressed();
+        if (in != null) {
+            try {
+                return in.readFloat();
+            } catch (IOException e) {
+                throw readFailure(e);
+            }
+        }
         return ((BytesMessage) message).readFloat();
     }
 
     @Override
     public int readInt() throws JMSException {
+        DataInputStream in = decompressed();
+        if (in != null) {
+            try {
+                return in.readInt();
+            } catch (IOException e) {
+                throw readFailure(e);
+            }
+        }
         return ((BytesMessage) message).readInt();
     }
 
     @Override
     public long readLong() throws JMSException {
+        DataInputStream in = decompressed();
+        if (in != null) {
+            try {
+                return in.readLong();
+            } catch (IOException e) {
+                throw readFailure(e);
+            }
+        }
         return ((BytesMessage) message).readLong();
     }
 
     @Override
     public short readShort() throws JMSException {
+        DataInputStream in = decompressed();
+        if (in != null) {
+            try {
+                return in.readShort();
+            } catch (IOException e) {
+                throw readFailure(e);
+            }
+        }
         return ((BytesMessage) message).readShort();
     }
 
     @Override
     public int readUnsignedByte() throws JMSException {
+        DataInputStream in = decompressed();
+        if (in != null) {
+            try {
+                return in.readUnsignedByte();
+            } catch (IOException e) {
+                throw readFailure(e);
+            }
+        }
         return ((BytesMessage) message).readUnsignedByte();
     }
 
     @Override
     public int readUnsignedShort() throws JMSException {
+        DataInputStream in = decompressed();
+        if (in != null) {
+            try {
+                return in.readUnsignedShort();
+            } catch (IOException e) {
+                throw readFailure(e);
+            }
+        }
         return ((BytesMessage) message).readUnsignedShort();
     }
 
     @Override
     public String readUTF() throws JMSException {
+        DataInputStream in = decompressed();
+        if (in != null) {
+            try {
+                return in.readUTF();
+            } catch (IOException e) {
+                throw readFailure(e);
+            }
+        }
         return ((BytesMessage) message).readUTF();
     }
 
     @Override
     public void reset() throws JMSException {
+        if (decompressed() != null) {
+            in = new DataInputStream(new ByteArrayInputStream(body));
+            return;
+        }
         ((BytesMessage) message).reset();
     }
 
+    @Override
+    public void clearBody() throws JMSException {
+        super.clearBody();
+        checked = false;
+        body = null;
+        in = null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getBody(Class<T> c) throws JMSException {
+        if (decompressed() != null && c.isAssignableFrom(byte[].class)) {
+            return (T) body.clone();
+        }
+        return super.getBody(c);
+    }
+
     @Override
     public void writeBoolean(boolean value) throws JMSException {
         ((BytesMessage) message).writeBoolean(value);
@@ -157,4 +306,26 @@ public class JmsBytesMessage extends JmsMessage implements BytesMessage {
     public void writeUTF(String value) throws JMSException {
         ((BytesMessage) message).writeUTF(value);
     }
+
+    /**
+     * @return the stream reading the decompressed body, null when the body is not compressed
+     */
+    private DataInputStream decompressed() throws JMSException {
+        if (!checked) {
+            // The writes after clearBody() go to the message uncompressed
+            body = isCompressed() ? JmsMessageCompressor.decompress((BytesMessage) message) : null;
+            in = body != null ? new DataInputStream(new ByteArrayInputStream(body)) : null;
+            checked = true;
+        }
+        return in;
+    }
+
+    private static JMSException readFailure(IOException e) {
+        JMSException jmse = e instanceof EOFException
+                ? new MessageEOFException("Unexpected end of the message body")
+                : new MessageFormatException("Unable to read the message body: " + e);
+        jmse.setLinkedException(e);
+        jmse.initCause(e);
+        return jmse;
+    }
 }
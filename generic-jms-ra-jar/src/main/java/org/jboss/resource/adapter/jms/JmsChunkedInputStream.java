@@ -0,0 +1,187 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageFormatException;
+
+/**
+ * A stream over the chunks sent by {@link JmsChunkedMessages}, receiving each chunk from the consumer when
+ * the previous one has been read.
+ * <p>
+ * The chunks of a stream must arrive in order and without the chunks of another stream in between: a
+ * consumer shared by several concurrent streams should select a single group with a JMSXGroupID selector.
+ * The chunks are acknowledged with the session, so a transacted session or a client acknowledged one
+ * keeps the whole stream on the destination until it has been read.
+ */
+public class JmsChunkedInputStream extends InputStream {
+    /**
+     * The consumer
+     */
+    private final MessageConsumer consumer;
+
+    /**
+     * The time to wait for a chunk in milliseconds
+     */
+    private final long timeout;
+
+    /**
+     * The group id of the chunks
+     */
+    private final String groupId;
+
+    /**
+     * The sequence number of the current chunk
+     */
+    private int sequence;
+
+    /**
+     * The body of the current chunk
+     */
+    private byte[] chunk;
+
+    /**
+     * The read position in the current chunk
+     */
+    private int position;
+
+    /**
+     * Whether the current chunk is the last one
+     */
+    private boolean last;
+
+    /**
+     * The last chunk received
+     */
+    private Message lastMessage;
+
+    /**
+     * Create a new stream starting with its first chunk
+     *
+     * @param consumer the consumer receiving the next chunks
+     * @param first    the first chunk
+     * @param timeout  the time to wait for each of the next chunks in milliseconds
+     * @throws JMSException when the message is not the first chunk of a stream
+     */
+    public JmsChunkedInputStream(MessageConsumer consumer, Message first, long timeout) throws JMSException {
+        this.consumer = consumer;
+        this.timeout = timeout;
+        this.groupId = first.getStringProperty(JmsChunkedMessages.GROUP_ID_PROPERTY);
+        if (groupId == null || !first.propertyExists(JmsChunkedMessages.LAST_CHUNK_PROPERTY)) {
+            throw new MessageFormatException("Not a chunk " + first);
+        }
+        accept(first, 1);
+    }
+
+    /**
+     * @return the group id of the chunks
+     */
+    public String getGroupId() {
+        return groupId;
+    }
+
+    /**
+     * @return the last chunk received, to acknowledge the stream with a client acknowledged session
+     */
+    public Message getLastMessage() {
+        return lastMessage;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return chunk[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int count = Math.min(len, chunk.length - position);
+        System.arraycopy(chunk, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return chunk != null ? chunk.length - position : 0;
+    }
+
+    @Override
+    public void close() {
+        chunk = null;
+        last = true;
+    }
+
+    /**
+     * Receive the next chunk once the current one has been read
+     *
+     * @return false at the end of the stream
+     */
+    private boolean fill() throws IOException {
+        while (chunk == null || position == chunk.length) {
+            if (last) {
+                return false;
+            }
+            Message message;
+            try {
+                message = consumer.receive(timeout);
+            } catch (JMSException e) {
+                throw new IOException("Unable to receive chunk " + (sequence + 1) + " of stream " + groupId, e);
+            }
+            if (message == null) {
+                throw new IOException("Timed out waiting for chunk " + (sequence + 1) + " of stream " + groupId);
+            }
+            try {
+                if (!groupId.equals(message.getStringProperty(JmsChunkedMessages.GROUP_ID_PROPERTY))) {
+                    throw new IOException("Received " + message + " instead of chunk " + (sequence + 1) + " of stream " + groupId);
+                }
+                accept(message, sequence + 1);
+            } catch (JMSException e) {
+                throw new IOException("Invalid chunk " + (sequence + 1) + " of stream " + groupId, e);
+            }
+        }
+        return true;
+    }
+
+    private void accept(Message message, int expected) throws JMSException {
+        int seq = message.getIntProperty(JmsChunkedMessages.GROUP_SEQ_PROPERTY);
+        if (seq != expected) {
+            throw new MessageFormatException("Received chunk " + seq + " instead of chunk " + expected + " of stream " + groupId);
+        }
+        if (!(message instanceof BytesMessage)) {
+            throw new MessageFormatException("Chunk " + seq + " of stream " + groupId + " is not a bytes message");
+        }
+        BytesMessage bytes = (BytesMessage) message;
+        byte[] body = new byte[(int) bytes.getBodyLength()];
+        bytes.readBytes(body);
+        chunk = body;
+        position = 0;
+        sequence = seq;
+        last = message.getBooleanProperty(JmsChunkedMessages.LAST_CHUNK_PROPERTY);
+        lastMessage = message;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "(groupId=" + groupId + " sequence=" + sequence + " last=" + last + ')';
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
+
+import jakarta.jms.BytesMessage;
+import jakarta.jms.Destination;
+import jakarta.jms.JMSException;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Sends a stream as a group of bytes messages, the chunks, so a payload larger than the heap or than the
+ * maximum message size of the provider can travel through JMS.
+ * <p>
+ * The chunks of a stream share a JMSXGroupID, are numbered from 1 by JMSXGroupSeq and the last one carries
+ * the {@link #LAST_CHUNK_PROPERTY} property set to true. Only two chunks are held in memory while sending, and
+ * {@link JmsChunkedInputStream} holds one while receiving.
+ */
+public final class JmsChunkedMessages {
+    private static final Logger log = Logger.getLogger(JmsChunkedMessages.class);
+
+    /**
+     * The group id property of the chunks
+     */
+    public static final String GROUP_ID_PROPERTY = "JMSXGroupID";
+
+    /**
+     * The sequence number property of the chunks
+     */
+    public static final String GROUP_SEQ_PROPERTY = "JMSXGroupSeq";
+
+    /**
+     * The property marking the last chunk of a stream
+     */
+    public static final String LAST_CHUNK_PROPERTY = "GenericJmsRaLastChunk";
+
+    /**
+     * The default chunk size
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+    private JmsChunkedMessages() {
+    }
+
+    /**
+     * Send a stream as chunks
+     *
+     * @param session     the session
+     * @param destination the destination
+     * @param in          the stream, read to its end but not closed
+     * @param chunkSize   the maximum size of a chunk
+     * @return the group id of the chunks
+     * @throws JMSException for any error
+     */
+    static String send(Session session, Destination destination, InputStream in, int chunkSize) throws JMSException {
+        if (chunkSize <= 0) {
+            throw new JMSException("Invalid chunk size " + chunkSize);
+        }
+        String groupId = UUID.randomUUID().toString();
+        MessageProducer producer = session.createProducer(destination);
+        try {
+            byte[] chunk = new byte[chunkSize];
+            byte[] next = new byte[chunkSize];
+            int length = read(in, chunk);
+            int sequence = 0;
+            while (true) {
+                // Read ahead to know whether this chunk is the last one
+                int nextLength = length == chunkSize ? read(in, next) : 0;
+                boolean last = nextLength == 0;
+
+                BytesMessage message = session.createBytesMessage();
+                message.writeBytes(chunk, 0, length);
+                message.setStringProperty(GROUP_ID_PROPERTY, groupId);
+                message.setIntProperty(GROUP_SEQ_PROPERTY, ++sequence);
+                message.setBooleanProperty(LAST_CHUNK_PROPERTY, last);
+                producer.send(message);
+
+                if (last) {
+                    break;
+                }
+                byte[] swap = chunk;
+                chunk = next;
+                next = swap;
+                length = nextLength;
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Sent stream " + groupId + " to " + destination + " in " + sequence + " chunks");
+            }
+            return groupId;
+        } finally {
+            producer.close();
+        }
+    }
+
+    private static int read(InputStream in, byte[] buffer) throws JMSException {
+        try {
+            return in.readNBytes(buffer, 0, buffer.length);
+        } catch (IOException e) {
+            JMSException jmse = new JMSException("Unable to read the stream: " + e);
+            jmse.setLinkedException(e);
+            jmse.initCause(e);
+            throw jmse;
+        }
+    }
+}
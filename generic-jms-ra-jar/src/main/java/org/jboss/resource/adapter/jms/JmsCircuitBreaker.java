@@ -0,0 +1,312 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.jms.IllegalStateException;
+import jakarta.jms.IllegalStateRuntimeException;
+import jakarta.jms.InvalidClientIDException;
+import jakarta.jms.InvalidClientIDRuntimeException;
+import jakarta.jms.InvalidDestinationException;
+import jakarta.jms.InvalidDestinationRuntimeException;
+import jakarta.jms.InvalidSelectorException;
+import jakarta.jms.InvalidSelectorRuntimeException;
+import jakarta.jms.JMSException;
+import jakarta.jms.JMSRuntimeException;
+import jakarta.jms.JMSSecurityException;
+import jakarta.jms.JMSSecurityRuntimeException;
+import jakarta.jms.MessageFormatException;
+import jakarta.jms.MessageFormatRuntimeException;
+import jakarta.jms.MessageNotReadableException;
+import jakarta.jms.MessageNotWriteableException;
+import jakarta.jms.MessageNotWriteableRuntimeException;
+import jakarta.jms.ResourceAllocationException;
+import jakarta.jms.ResourceAllocationRuntimeException;
+import jakarta.jms.TransactionInProgressException;
+import jakarta.jms.TransactionInProgressRuntimeException;
+import jakarta.resource.ResourceException;
+
+import org.jboss.resource.adapter.jms.logging.JmsLogger;
+
+/**
+ * Fails the outbound allocations and sends of a managed connection factory fast while its brokers are down.
+ * <p>
+ * The breaker opens after a number of consecutive failed connections or sends, and then rejects the allocations
+ * and sends at once, without waiting for a pooled connection, a connection setup or the lock of a managed
+ * connection. Once the open time elapsed, a single attempt goes through to probe the broker: its success closes
+ * the breaker, its failure opens it again. Another probe is let through if the outcome of the previous one is not
+ * reported within the open time.
+ * <p>
+ * Only the connection failures count: the errors of the application, such as an invalid destination, a message
+ * format error or a closed session, say nothing about the broker. An attempt failing with them does not change
+ * the state of the breaker, except that a probe failing with them lets the next attempt probe the broker at once.
+ */
+public class JmsCircuitBreaker {
+    private static final JmsLogger log = JmsLogger.getLogger(JmsCircuitBreaker.class);
+
+    /**
+     * The state of a breaker
+     */
+    public enum State {
+        /**
+         * The attempts go through
+         */
+        CLOSED,
+        /**
+         * The attempts are rejected
+         */
+        OPEN,
+        /**
+         * A probe goes through, the other attempts are rejected
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * The name of the breaker, for the logs
+     */
+    private final String name;
+
+    /**
+     * The number of consecutive failures opening the breaker
+     */
+    private final int failureThreshold;
+
+    /**
+     * The time the breaker stays open in milliseconds
+     */
+    private final long openMillis;
+
+    /**
+     * The state
+     */
+    private volatile State state = State.CLOSED;
+
+    /**
+     * The number of consecutive failures
+     */
+    private volatile int consecutiveFailures = 0;
+
+    /**
+     * The time of the next probe
+     */
+    private volatile long probeTime = 0;
+
+    /**
+     * The number of times the breaker opened
+     */
+    private final AtomicLong trips = new AtomicLong();
+
+    /**
+     * The number of rejected attempts
+     */
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * The number of failures
+     */
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Create a new breaker
+     *
+     * @param name             the name of the breaker, for the logs
+     * @param failureThreshold the number of consecutive failures opening the breaker
+     * @param openMillis       the time the breaker stays open in milliseconds
+     */
+    public JmsCircuitBreaker(String name, int failureThreshold, long openMillis) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("Invalid failure threshold " + failureThreshold);
+        }
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Check an attempt may go through
+     *
+     * @throws ResourceAllocationException while the breaker is open, or half-open with a probe in progress
+     */
+    public void acquire() throws ResourceAllocationException {
+        if (state == State.CLOSED) {
+            return;
+        }
+        long retry;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (state == State.CLOSED) {
+                return;
+            }
+            if (now >= probeTime) {
+                // Let this attempt probe the broker
+                state = State.HALF_OPEN;
+                probeTime = now + openMillis;
+                return;
+            }
+            retry = probeTime - now;
+        }
+        rejected.incrementAndGet();
+        throw new ResourceAllocationException("The circuit breaker of " + name + " is open, retry in " + retry + " ms");
+    }
+
+    /**
+     * Record a successful attempt
+     */
+    public void success() {
+        if (state == State.CLOSED && consecutiveFailures == 0) {
+            return;
+        }
+        boolean closed = false;
+        synchronized (this) {
+            consecutiveFailures = 0;
+            if (state != State.CLOSED) {
+                state = State.CLOSED;
+                closed = true;
+            }
+        }
+        if (closed) {
+            log.circuitBreakerClosed(name);
+        }
+    }
+
+    /**
+     * Record the outcome of an attempt
+     *
+     * @param failure the failure of the attempt, null when it succeeded
+     */
+    public void completed(Throwable failure) {
+        if (failure == null) {
+            success();
+        } else if (isConnectionFailure(failure)) {
+            failure();
+        } else {
+            inconclusive();
+        }
+    }
+
+    /**
+     * Record an attempt whose outcome says nothing about the broker, letting the next attempt probe the broker
+     * at once if the breaker is half-open
+     */
+    public void inconclusive() {
+        if (state != State.HALF_OPEN) {
+            return;
+        }
+        synchronized (this) {
+            if (state == State.HALF_OPEN) {
+                probeTime = System.currentTimeMillis();
+            }
+        }
+    }
+
+    /**
+     * Record a failed attempt
+     */
+    public void failure() {
+        failures.incrementAndGet();
+        boolean opened = false;
+        synchronized (this) {
+            ++consecutiveFailures;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+                state = State.OPEN;
+                probeTime = System.currentTimeMillis() + openMillis;
+                opened = true;
+            }
+        }
+        if (opened) {
+            trips.incrementAndGet();
+            log.circuitBreakerOpened(name, consecutiveFailures, openMillis);
+        }
+    }
+
+    /**
+     * Whether a failure tells the broker cannot be reached, rather than an error of the application, a lock
+     * timeout or the blocking timeout of the pool. A resource exception is judged by its JMS cause, the connection
+     * setup wrapping the failures of the provider
+     *
+     * @param failure the failure
+     * @return true for the failures of the connection to the broker
+     */
+    public static boolean isConnectionFailure(Throwable failure) {
+        if (failure instanceof JMSException) {
+            return (failure instanceof IllegalStateException
+                    || failure instanceof InvalidClientIDException
+                    || failure instanceof InvalidDestinationException
+                    || failure instanceof InvalidSelectorException
+                    || failure instanceof JMSSecurityException
+                    || failure instanceof MessageFormatException
+                    || failure instanceof MessageNotReadableException
+                    || failure instanceof MessageNotWriteableException
+                    || failure instanceof ResourceAllocationException
+                    || failure instanceof TransactionInProgressException) == false;
+        }
+        if (failure instanceof JMSRuntimeException) {
+            return (failure instanceof IllegalStateRuntimeException
+                    || failure instanceof InvalidClientIDRuntimeException
+                    || failure instanceof InvalidDestinationRuntimeException
+                    || failure instanceof InvalidSelectorRuntimeException
+                    || failure instanceof JMSSecurityRuntimeException
+                    || failure instanceof MessageFormatRuntimeException
+                    || failure instanceof MessageNotWriteableRuntimeException
+                    || failure instanceof ResourceAllocationRuntimeException
+                    || failure instanceof TransactionInProgressRuntimeException) == false;
+        }
+        if (failure instanceof jakarta.resource.spi.ResourceAllocationException) {
+            // No pooled connection within the blocking timeout, the pool is busy whatever the state of the broker
+            return false;
+        }
+        if (failure instanceof ResourceException) {
+            Throwable cause = failure.getCause();
+            if (cause instanceof JMSException || cause instanceof JMSRuntimeException || cause instanceof ResourceException) {
+                return isConnectionFailure(cause);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the state
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return the number of consecutive failures
+     */
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * @return the number of times the breaker opened
+     */
+    public long getTrips() {
+        return trips.get();
+    }
+
+    /**
+     * @return the number of attempts rejected while the breaker was open
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * @return the number of failed attempts
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "(name=" + name + " state=" + state + " consecutiveFailures=" + consecutiveFailures
+                + " trips=" + trips + " rejected=" + rejected + ')';
+    }
+}
@@ -23,4 +23,12 @@ public interface JmsConnectionFactory extends ConnectionFactory, TopicConnection
    int QUEUE = 1;
    int TOPIC = 2;
    int JMS_CONTEXT = 3;
+
+   /**
+    * Get the request-reply facility of the managed connection factory, which shares a single
+    * reply queue between all the requests.
+    *
+    * @return the request-reply facility
+    */
+   JmsRequestReply getRequestReply();
 }
@@ -195,6 +195,11 @@ public class JmsConnectionFactoryImpl implements JmsConnectionFactory, Reference
         return s;
     }
 
+    @Override
+    public JmsRequestReply getRequestReply() {
+        return ((JmsManagedConnectionFactory) mcf).getRequestReply();
+    }
+
     // -- JMS 2.0
     @Override
     public JMSContext createContext() {
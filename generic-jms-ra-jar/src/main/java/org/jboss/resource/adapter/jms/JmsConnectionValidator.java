@@ -0,0 +1,88 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import java.lang.ref.WeakReference;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Probes the idle managed connections of a managed connection factory in the background, so the broken
+ * connections are reported to the connection manager and destroyed before a request gets them.
+ * <p>
+ * The validations run on the timer of the resource adapter, which is cancelled when the resource adapter stops.
+ * A validator only holds a weak reference to its factory and stops once the factory is collected.
+ */
+public class JmsConnectionValidator extends TimerTask {
+    private static final Logger log = Logger.getLogger(JmsConnectionValidator.class);
+
+    /**
+     * The managed connection factory
+     */
+    private final WeakReference<JmsManagedConnectionFactory> mcf;
+
+    /**
+     * The number of connections found broken
+     */
+    private volatile long invalidated = 0;
+
+    private JmsConnectionValidator(JmsManagedConnectionFactory mcf) {
+        this.mcf = new WeakReference<>(mcf);
+    }
+
+    /**
+     * Start validating the idle connections of a managed connection factory
+     *
+     * @param mcf      the managed connection factory
+     * @param timer    the timer of the resource adapter
+     * @param interval the time between two validations in milliseconds
+     * @return the validator
+     */
+    public static JmsConnectionValidator start(JmsManagedConnectionFactory mcf, Timer timer, long interval) {
+        JmsConnectionValidator validator = new JmsConnectionValidator(mcf);
+        timer.schedule(validator, interval, interval);
+        return validator;
+    }
+
+    /**
+     * Stop the validations
+     */
+    public void stop() {
+        cancel();
+    }
+
+    /**
+     * @return the number of connections found broken
+     */
+    public long getInvalidatedCount() {
+        return invalidated;
+    }
+
+    @Override
+    public void run() {
+        JmsManagedConnectionFactory mcf = this.mcf.get();
+        if (mcf == null) {
+            stop();
+            return;
+        }
+        try {
+            for (JmsManagedConnection mc : mcf.getManagedConnections()) {
+                // A failed connection stays in the factory until the pool destroys it, it is only counted once
+                if (mc.isIdle() && mc.isValid() == false && mc.invalidate()) {
+                    ++invalidated;
+                }
+            }
+        } catch (Throwable t) {
+            log.warn("Error validating the connections of " + mcf, t);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "(invalidated=" + invalidated + ')';
+    }
+}
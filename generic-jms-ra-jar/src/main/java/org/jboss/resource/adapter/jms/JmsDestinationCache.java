@@ -0,0 +1,165 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import jakarta.jms.Destination;
+
+import org.jboss.logging.Logger;
+
+/**
+ * The queues and topics created by name by the sessions of a managed connection factory, so
+ * createQueue() and createTopic() only reach the provider the first time a name is used.
+ * <p>
+ * The cache is shared by all the managed connections of the factory and bounded, the least recently
+ * used destinations are dropped first. A destination the provider reports as invalid is dropped too.
+ */
+public class JmsDestinationCache {
+    private static final Logger log = Logger.getLogger(JmsDestinationCache.class);
+
+    /**
+     * The maximum number of destinations
+     */
+    private final int maxSize;
+
+    /**
+     * The destinations by type and name, least recently used first
+     */
+    private final LinkedHashMap<Key, Destination> destinations;
+
+    /**
+     * The number of destinations found in the cache
+     */
+    private long hits = 0;
+
+    /**
+     * The number of destinations created because they were not cached
+     */
+    private long misses = 0;
+
+    /**
+     * Create a new destination cache
+     *
+     * @param maxSize the maximum number of destinations
+     */
+    public JmsDestinationCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.destinations = new LinkedHashMap<Key, Destination>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Destination> eldest) {
+                return size() > JmsDestinationCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get a cached destination
+     *
+     * @param type the type of destination, {@link JmsConnectionFactory#QUEUE} or {@link JmsConnectionFactory#TOPIC}
+     * @param name the name of the destination
+     * @return the destination or null when it is not cached
+     */
+    public synchronized Destination get(int type, String name) {
+        Destination destination = destinations.get(new Key(type, name));
+        if (destination != null) {
+            ++hits;
+        } else {
+            ++misses;
+        }
+        return destination;
+    }
+
+    /**
+     * Cache a destination
+     *
+     * @param type        the type of destination, {@link JmsConnectionFactory#QUEUE} or {@link JmsConnectionFactory#TOPIC}
+     * @param name        the name of the destination
+     * @param destination the destination
+     */
+    public synchronized void put(int type, String name, Destination destination) {
+        if (name != null && destination != null) {
+            destinations.put(new Key(type, name), destination);
+        }
+    }
+
+    /**
+     * Drop a destination the provider reported as invalid
+     *
+     * @param destination the destination
+     */
+    public synchronized void invalidate(Destination destination) {
+        if (destination == null) {
+            return;
+        }
+        for (Iterator<Destination> i = destinations.values().iterator(); i.hasNext(); ) {
+            if (destination.equals(i.next())) {
+                i.remove();
+                log.debug("Invalidated cached destination " + destination);
+            }
+        }
+    }
+
+    /**
+     * @return the number of destinations found in the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of destinations created because they were not cached
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of cached destinations
+     */
+    public synchronized int size() {
+        return destinations.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return super.toString() + "(maxSize=" + maxSize + " size=" + destinations.size() + " hits=" + hits + " misses=" + misses + ')';
+    }
+
+    /**
+     * The type and name of a destination
+     */
+    private static final class Key {
+        private final int type;
+        private final String name;
+
+        Key(int type, String name) {
+            this.type = type;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return type == other.type && Objects.equals(name, other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type + Objects.hashCode(name);
+        }
+    }
+}
@@ -6,10 +6,13 @@ package org.jboss.resource.adapter.jms;
 
 import org.jboss.resource.adapter.jms.util.SecurityActions;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.Vector;
 import java.util.concurrent.TimeUnit;
@@ -49,8 +52,10 @@ import jakarta.resource.spi.SecurityException;
 import javax.security.auth.Subject;
 import javax.transaction.xa.XAResource;
 
-import org.jboss.logging.Logger;
 import org.jboss.resource.adapter.jms.inflow.JmsActivation;
+import org.jboss.resource.adapter.jms.jfr.JmsLockWaitEvent;
+import org.jboss.resource.adapter.jms.logging.JmsLogger;
+import org.jboss.resource.adapter.jms.util.JmsProviderProfiles;
 
 /**
  * <p>
@@ -129,7 +134,7 @@ import org.jboss.resource.adapter.jms.inflow.JmsActivation;
  */
 public class JmsManagedConnection implements ManagedConnection, ExceptionListener {
 
-    private static final Logger log = Logger.getLogger(JmsManagedConnection.class);
+    private static final JmsLogger log = JmsLogger.getLogger(JmsManagedConnection.class);
 
     private JmsManagedConnectionFactory mcf;
     private JmsConnectionRequestInfo info;
@@ -137,6 +142,7 @@ public class JmsManagedConnection implements ManagedConnection, ExceptionListene
     private String pwd;
     private volatile boolean isSetUp;
     private volatile boolean isDestroyed;
+    private volatile boolean isFailed;
 
     private ReentrantLock lock = new ReentrantLock(true);
 
@@ -148,12 +154,24 @@ public class JmsManagedConnection implements ManagedConnection, ExceptionListene
     private boolean xaTransacted = false;
     private JMSContext context = null;
     private XAJMSContext xaContext = null;
+    private JmsProducerCache producerCache = null;
+    private JmsBrokerBalancer.Broker broker = null;
 
     /**
      * Holds all current JmsSession handles.
      */
     private Set<JmsSession> handles = Collections.synchronizedSet(new HashSet<>());
 
+    /**
+     * The handles sharing the connection in its transaction, created without the connection manager.
+     */
+    private final Set<JmsSession> sharedHandles = new HashSet<>();
+
+    /**
+     * The handles of the connection manager closed while shared handles are still open.
+     */
+    private final Set<JmsSession> deferredCloses = new LinkedHashSet<>();
+
     /**
      * The event listeners
      */
@@ -236,6 +254,66 @@ public class JmsManagedConnection implements ManagedConnection, ExceptionListene
         return handle;
     }
 
+    /**
+     * Create a handle sharing the connection with the handles of the same transaction. The connection manager
+     * does not know this handle, its close is never reported: the close of the handles allocated by the
+     * connection manager is deferred until all the shared handles are closed.
+     *
+     * @param info the request info
+     * @return the handle
+     * @throws ResourceException when the connection is destroyed or failed
+     */
+    JmsSession shareHandle(final JmsConnectionRequestInfo info) throws ResourceException {
+        if (isDestroyed || isFailed) {
+            throw new IllegalStateException("ManagedConnection can not be shared: " + this);
+        }
+        JmsSession handle = new JmsSession(this, info);
+        synchronized (sharedHandles) {
+            handles.add(handle);
+            sharedHandles.add(handle);
+        }
+        return handle;
+    }
+
+    /**
+     * @param handle a handle
+     * @return whether other handles of the transaction still use the connection
+     */
+    boolean isSharedWith(final JmsSession handle) {
+        synchronized (sharedHandles) {
+            if (sharedHandles.isEmpty()) {
+                return false;
+            }
+            return handles.size() > (handles.contains(handle) ? 1 : 0);
+        }
+    }
+
+    /**
+     * Remove a closed handle.
+     *
+     * @param handle the handle
+     * @return the handles allocated by the connection manager whose close is to be reported, in the order they
+     * were closed
+     */
+    List<JmsSession> closeHandle(final JmsSession handle) {
+        synchronized (sharedHandles) {
+            handles.remove(handle);
+            if (sharedHandles.remove(handle)) {
+                if (sharedHandles.isEmpty() && deferredCloses.isEmpty() == false) {
+                    List<JmsSession> closed = new ArrayList<>(deferredCloses);
+                    deferredCloses.clear();
+                    return closed;
+                }
+                return Collections.emptyList();
+            }
+            if (sharedHandles.isEmpty() == false) {
+                deferredCloses.add(handle);
+                return Collections.emptyList();
+            }
+            return Collections.singletonList(handle);
+        }
+    }
+
     /**
      * Destroy all handles.
      *
@@ -256,7 +334,11 @@ public class JmsManagedConnection implements ManagedConnection, ExceptionListene
         }
 
         // clear the handles map
-        handles.clear();
+        synchronized (sharedHandles) {
+            handles.clear();
+            sharedHandles.clear();
+            deferredCloses.clear();
+        }
     }
 
     /**
@@ -278,7 +360,7 @@ public class JmsManagedConnection implements ManagedConnection, ExceptionListene
             try {
                 con.setExceptionListener(null);
             } catch (JMSException e) {
-                log.debug("Error unsetting the exception listener " + this, e);
+                log.errorUnsettingExceptionListener(this, e);
             }
 
             destroyHandles();
@@ -290,20 +372,23 @@ public class JmsManagedConnection implements ManagedConnection, ExceptionListene
                 if (context != null) {
                     context.close();
                 }
+                if (producerCache != null) {
+                    producerCache.close();
+                }
                 // Close session and connection
                 try {
                     if (session != null) {
                         session.close();
                     }
                 } catch (JMSException e) {
-                    log.debug("Error closing session " + this, e);
+                    log.errorClosingSession(this, e);
                 }
                 try {
                     if (xaTransacted && xaSession != null) {
                         xaSession.close();
                     }
                 } catch (JMSException e) {
-                    log.debug("Error closing xaSession " + this, e);
+                    log.errorClosingXASession(this, e);
                 }
                     
                 con.close();
@@ -311,6 +396,10 @@ public class JmsManagedConnection implements ManagedConnection, ExceptionListene
                 throw new ResourceException("Could not properly close the session and connection", e);
             } finally {
                 isDestroyed = true;
+                mcf.removeManagedConnection(this);
+                if (broker != null) {
+                    broker.disconnected();
+                }
             }
         }
     }
@@ -386,8 +475,51 @@ public class JmsManagedConnection implements ManagedConnection, ExceptionListene
         }
     }
 
+    /**
+     * Check that the physical connection still reaches the broker with the probe of its provider profile.
+     * The probe does not take the lock of the managed connection, the connections being thread safe.
+     *
+     * @return false when the connection is destroyed, failed or does not answer the probe
+     */
+    boolean isValid() {
+        if (isDestroyed || isFailed) {
+            return false;
+        }
+        try {
+            JmsProviderProfiles.getProfile(con.getClass()).ping(con);
+            return true;
+        } catch (Throwable t) {
+            log.failedValidation(this, t);
+            return false;
+        }
+    }
+
+    /**
+     * @return whether the connection has no handle
+     */
+    boolean isIdle() {
+        return handles.isEmpty();
+    }
+
+    /**
+     * Report a connection that failed its validation to the connection manager, which destroys it
+     *
+     * @return false when the failure of the connection was already reported
+     */
+    boolean invalidate() {
+        if (isFailed) {
+            // Already reported
+            return false;
+        }
+        onException(new JMSException("The connection failed its validation: " + this));
+        return true;
+    }
+
     protected void lock() {
+        JmsLockWaitEvent event = new JmsLockWaitEvent();
+        event.begin();
         lock.lock();
+        event.complete(this, true);
     }
 
     protected void tryLock() throws JMSException {
@@ -396,12 +528,18 @@ public class JmsManagedConnection implements ManagedConnection, ExceptionListene
             lock();
             return;
         }
+        JmsLockWaitEvent event = new JmsLockWaitEvent();
+        event.begin();
+        boolean acquired = false;
         try {
-            if (lock.tryLock(tryLock, TimeUnit.SECONDS) == false) {
+            acquired = lock.tryLock(tryLock, TimeUnit.SECONDS);
+            if (acquired == false) {
                 throw new ResourceAllocationException("Unable to obtain lock in " + tryLock + " seconds: " + this);
             }
         } catch (InterruptedException e) {
             throw new ResourceAllocationException("Interrupted attempting lock: " + this);
+        } finally {
+            event.complete(this, acquired);
         }
     }
 
@@ -539,7 +677,15 @@ public class JmsManagedConnection implements ManagedConnection, ExceptionListene
             return;
         }
 
-        log.warn("Handling jms exception failure: " + this, exception);
+        log.handlingFailure(this, exception);
+        isFailed = true;
+        if (broker != null) {
+            broker.failed();
+        }
+        JmsCircuitBreaker breaker = mcf.getCircuitBreaker();
+        if (breaker != null) {
+            breaker.failure();
+        }
 
         // We need to unlock() before sending the connection error to the
         // event listeners. Otherwise the lock won't be in sync once
@@ -568,6 +714,15 @@ public class JmsManagedConnection implements ManagedConnection, ExceptionListene
         return session;
     }
 
+    /**
+     * Get the cache of the idle message producers of the session.
+     *
+     * @return the producer cache or null when the producers are closed.
+     */
+    protected JmsProducerCache getProducerCache() {
+        return producerCache;
+    }
+
     /**
      * Get the JMSContext for this connection.
      * @return the JMSContext for this connection.
@@ -626,7 +781,10 @@ public class JmsManagedConnection implements ManagedConnection, ExceptionListene
      * @param handle The handle to remove.
      */
     protected void removeHandle(final JmsSession handle) {
-        handles.remove(handle);
+        synchronized (sharedHandles) {
+            handles.remove(handle);
+            sharedHandles.remove(handle);
+        }
     }
 
     // --- Used by MCF
@@ -683,16 +841,33 @@ public class JmsManagedConnection implements ManagedConnection, ExceptionListene
                 SecurityActions.setThreadContextClassLoader(JmsManagedConnection.class.getClassLoader());
 
                 Context jndiContext = JmsActivation.convertStringToContext(mcf.getJndiParameters());
-                Object factory;
                 boolean transacted = info.isTransacted();
                 int ack = transacted ? Session.SESSION_TRANSACTED : info.getAcknowledgeMode();
 
-                String connectionFactory = mcf.getConnectionFactory();
-                if (connectionFactory == null) {
-                    throw new IllegalStateException("No configured 'connectionFactory'.");
+                // Fail over to the next broker until a connection is created
+                List<JmsBrokerBalancer.Broker> candidates = mcf.getBrokerBalancer().select();
+                JmsBrokerBalancer.Broker selected = null;
+                Exception failure = null;
+                for (JmsBrokerBalancer.Broker candidate : candidates) {
+                    try {
+                        Object factory = jndiContext.lookup(candidate.getConnectionFactory());
+                        con = createConnection(factory, user, pwd, transacted, ack);
+                        selected = candidate;
+                        break;
+                    } catch (NamingException | JMSException e) {
+                        candidate.failed();
+                        if (candidates.size() > 1) {
+                            log.brokerUnavailable(candidate.getConnectionFactory(), e);
+                        }
+                        failure = e;
+                    }
+                }
+                if (selected == null) {
+                    if (failure instanceof NamingException) {
+                        throw (NamingException) failure;
+                    }
+                    throw (JMSException) failure;
                 }
-                factory = jndiContext.lookup(connectionFactory);
-                con = createConnection(factory, user, pwd, transacted, ack);
 
                 if (con instanceof XAConnection && transacted) {
                     switch (mcf.getProperties().getType()) {
@@ -732,8 +907,16 @@ public class JmsManagedConnection implements ManagedConnection, ExceptionListene
                     log.trace("created connection: " + con);
                 }
 
-                log.debug("xaSession=" + xaSession + ", Session=" + session);
-                log.debug("transacted=" + transacted + ", ack=" + ack);
+                Integer producerCacheSize = mcf.getProducerCacheSize();
+                if (producerCacheSize != null && producerCacheSize > 0) {
+                    producerCache = new JmsProducerCache(producerCacheSize);
+                }
+
+                log.connectionSessions(xaSession, session);
+                log.connectionTransacted(transacted, ack);
+                // Only counted once the setup succeeded, destroy() uncounts it
+                selected.connected();
+                broker = selected;
                 isSetUp = true;
             } catch (NamingException | JMSException e) {
                 throw new ResourceException("Unable to setup connection", e);
@@ -764,8 +947,8 @@ public class JmsManagedConnection implements ManagedConnection, ExceptionListene
             throw new IllegalArgumentException("factory is null");
         }
 
-        log.debug("using connection factory: " + factory);
-        log.debug("using username/password: " + String.valueOf(username) + "/-- not shown --");
+        log.usingConnectionFactory(factory);
+        log.usingUserName(username);
 
         Connection connection = null;
 
@@ -857,7 +1040,7 @@ public class JmsManagedConnection implements ManagedConnection, ExceptionListene
                         break;
                 }
             }
-            log.debug("created XAConnection: " + connection);
+            log.createdXAConnection(connection);
         } else if (factory instanceof ConnectionFactory) {
             ConnectionFactory nonXAConnFactory = (ConnectionFactory) factory;
             if (username != null) {
@@ -942,7 +1125,7 @@ public class JmsManagedConnection implements ManagedConnection, ExceptionListene
                 }
             }
 
-            log.debug("created " + mcf.getProperties().getSessionDefaultType() + " connection: " + connection);
+            log.createdConnection(mcf.getProperties().getSessionDefaultType(), connection);
         } else {
             throw new IllegalArgumentException("factory is invalid: " + factory);
         }
@@ -950,12 +1133,7 @@ public class JmsManagedConnection implements ManagedConnection, ExceptionListene
     }
 
     private boolean hasMethod(Object object, String method) {
-        try {
-            object.getClass().getMethod(method);
-        } catch (NoSuchMethodException | java.lang.SecurityException ex) {
-            return false;
-        }
-        return true;
+        return JmsProviderProfiles.hasMethod(object.getClass(), method);
     }
 
     private Session createSession(Connection connection, boolean xaTransacted, int ack) throws JMSException {
@@ -968,10 +1146,10 @@ public class JmsManagedConnection implements ManagedConnection, ExceptionListene
 
         if (isJMS_2_0(connection)) {
             internalSession = connection.createSession();
-            log.debug("Session " + internalSession + " created with createSession()");
+            log.createdSession(internalSession);
         } else {
             internalSession = connection.createSession(xaTransacted, ack);
-            log.debug("Session " + internalSession + " created with createSession(" + xaTransacted + ", " + ack + ")");
+            log.createdSession(internalSession, xaTransacted, ack);
         }
         return internalSession;
     }
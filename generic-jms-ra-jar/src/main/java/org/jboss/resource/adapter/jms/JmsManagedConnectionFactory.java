@@ -5,18 +5,31 @@
 package org.jboss.resource.adapter.jms;
 
 import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
+import java.util.Timer;
+import java.util.concurrent.ConcurrentHashMap;
 
 import jakarta.jms.ConnectionMetaData;
+import jakarta.jms.Destination;
+import jakarta.jms.JMSException;
 import jakarta.resource.ResourceException;
 import jakarta.resource.spi.ConnectionManager;
 import jakarta.resource.spi.ConnectionRequestInfo;
 import jakarta.resource.spi.ManagedConnection;
 import jakarta.resource.spi.ManagedConnectionFactory;
+import jakarta.resource.spi.ResourceAdapter;
+import jakarta.resource.spi.ResourceAdapterAssociation;
+import jakarta.resource.spi.ValidatingManagedConnectionFactory;
 import javax.security.auth.Subject;
 
 import org.jboss.logging.Logger;
+import org.jboss.resource.adapter.jms.codec.DeflateCodec;
+import org.jboss.resource.adapter.jms.codec.JmsMessageCodec;
+import org.jboss.resource.adapter.jms.codec.JmsMessageCodecs;
 import org.jboss.resource.adapter.jms.util.Strings;
 
 /**
@@ -25,7 +38,8 @@ import org.jboss.resource.adapter.jms.util.Strings;
  * @author <a href="mailto:peter.antman@tim.se">Peter Antman </a>.
  * @author <a href="mailto:adrian@jboss.com">Adrian Brock</a>
  */
-public class JmsManagedConnectionFactory implements ManagedConnectionFactory {
+public class JmsManagedConnectionFactory implements ManagedConnectionFactory, ValidatingManagedConnectionFactory,
+        ResourceAdapterAssociation {
     private static final long serialVersionUID = -923483284031773011L;
 
     private static final Logger log = Logger.getLogger(JmsManagedConnection.class);
@@ -55,6 +69,121 @@ public class JmsManagedConnectionFactory implements ManagedConnectionFactory {
      */
     private Boolean jms_2_0 = true;
 
+    /**
+     * The number of idle message producers cached by each managed connection, 0 to close them.
+     */
+    private Integer producerCacheSize = 0;
+
+    /**
+     * The number of queues and topics cached by name, 0 to create them on each call.
+     */
+    private Integer destinationCacheSize = 0;
+
+    /**
+     * The minimum size of the text and bytes message bodies compressed on send, 0 to never compress.
+     */
+    private Integer compressionThreshold = 0;
+
+    /**
+     * The name of the codec compressing the message bodies.
+     */
+    private String compressionCodec = DeflateCodec.NAME;
+
+    /**
+     * How the broker of a new managed connection is selected when there are several connection factories.
+     */
+    private String loadBalancingPolicy = JmsBrokerBalancer.ROUND_ROBIN;
+
+    /**
+     * The comma-separated weights of the connection factories for the weighted policy.
+     */
+    private String connectionFactoryWeights;
+
+    /**
+     * The time a broker is skipped after a failure in milliseconds.
+     */
+    private Integer brokerRetryInterval = 30000;
+
+    /**
+     * The semicolon-separated name=partitions pairs of the partitioned queues.
+     */
+    private String partitionedDestinations;
+
+    /**
+     * The message property holding the partition key.
+     */
+    private String partitionKeyProperty = "JMSXGroupID";
+
+    /**
+     * The time between two validations of the idle managed connections in milliseconds, 0 to not validate them.
+     */
+    private Integer backgroundValidationMillis = 0;
+
+    /**
+     * The number of consecutive failed connections or sends opening the circuit breaker, 0 for no circuit breaker.
+     */
+    private Integer circuitBreakerFailureThreshold = 0;
+
+    /**
+     * The time the circuit breaker stays open in milliseconds.
+     */
+    private Integer circuitBreakerOpenMillis = 30000;
+
+    /**
+     * The circuit breaker, created on first use
+     */
+    private transient volatile JmsCircuitBreaker circuitBreaker;
+
+    /**
+     * Whether the sessions created in a transaction share its managed connection.
+     */
+    private Boolean transactionScopedSessions = false;
+
+    /**
+     * The key of the managed connections bound to a transaction, created on first use
+     */
+    private transient volatile Object transactionKey;
+
+    /**
+     * The open managed connections, created on first use
+     */
+    private transient volatile Set<JmsManagedConnection> managedConnections;
+
+    /**
+     * The background validator, started with the first managed connection
+     */
+    private transient volatile JmsConnectionValidator validator;
+
+    /**
+     * The balancer of the managed connections over the connection factories, created on first use
+     */
+    private transient volatile JmsBrokerBalancer brokerBalancer;
+
+    /**
+     * The partitioned queues by name, created on first use
+     */
+    private transient volatile Map<String, JmsPartitionedQueue> partitionedQueues;
+
+    /**
+     * The destination cache shared by the managed connections, created on first use
+     */
+    private transient volatile JmsDestinationCache destinationCache;
+
+    /**
+     * The request-reply facility, created on first use
+     */
+    private transient volatile JmsRequestReply requestReply;
+
+    /**
+     * The message compressor, created on first use
+     */
+    private transient volatile JmsMessageCompressor compressor;
+
+    /**
+     * The resource adapter
+     */
+    private transient ResourceAdapter resourceAdapter;
+
     public JmsManagedConnectionFactory() {
         // empty
     }
@@ -109,6 +238,17 @@ public class JmsManagedConnectionFactory implements ManagedConnectionFactory {
             log.trace("created new managed connection: " + mc);
         }
 
+        getManagedConnections().add(mc);
+        if (validator == null && backgroundValidationMillis != null && backgroundValidationMillis > 0
+                && resourceAdapter instanceof JmsResourceAdapter) {
+            synchronized (this) {
+                Timer timer = ((JmsResourceAdapter) resourceAdapter).getTimer();
+                if (validator == null && timer != null) {
+                    validator = JmsConnectionValidator.start(this, timer, backgroundValidationMillis);
+                }
+            }
+        }
+
         return mc;
     }
 
@@ -174,6 +314,27 @@ public class JmsManagedConnectionFactory implements ManagedConnectionFactory {
         return null;
     }
 
+    /**
+     * Find the managed connections whose physical connection is broken, with the probe of the provider profile
+     * of each connection.
+     */
+    @Override
+    public Set getInvalidConnections(Set connectionSet) throws ResourceException {
+        Set<JmsManagedConnection> invalid = new HashSet<>();
+        for (Object obj : connectionSet) {
+            if (obj instanceof JmsManagedConnection) {
+                JmsManagedConnection mc = (JmsManagedConnection) obj;
+                if (mc.isValid() == false) {
+                    invalid.add(mc);
+                }
+            }
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("Invalid connections: " + invalid);
+        }
+        return invalid;
+    }
+
     @Override
     public void setLogWriter(PrintWriter out) throws ResourceException {
     }
@@ -324,6 +485,495 @@ public class JmsManagedConnectionFactory implements ManagedConnectionFactory {
         return deleteTemporaryDestinations;
     }
 
+    /**
+     * Get the number of idle message producers cached by each managed connection.
+     *
+     * @return the number of idle message producers cached by each managed connection.
+     */
+    public Integer getProducerCacheSize() {
+        return producerCacheSize;
+    }
+
+    /**
+     * Set the number of idle message producers cached by each managed connection.
+     *
+     * @param producerCacheSize the number of idle message producers cached by each managed connection, 0 to close them.
+     */
+    public void setProducerCacheSize(Integer producerCacheSize) {
+        this.producerCacheSize = producerCacheSize;
+    }
+
+    /**
+     * Get the number of queues and topics cached by name.
+     *
+     * @return the number of queues and topics cached by name.
+     */
+    public Integer getDestinationCacheSize() {
+        return destinationCacheSize;
+    }
+
+    /**
+     * Set the number of queues and topics cached by name.
+     *
+     * @param destinationCacheSize the number of queues and topics cached by name, 0 to create them on each call.
+     */
+    public void setDestinationCacheSize(Integer destinationCacheSize) {
+        this.destinationCacheSize = destinationCacheSize;
+    }
+
+    /**
+     * Get the destination cache shared by the managed connections of this factory.
+     *
+     * @return the destination cache or null when the destinations are not cached.
+     */
+    public JmsDestinationCache getDestinationCache() {
+        JmsDestinationCache cache = destinationCache;
+        if (cache == null && destinationCacheSize != null && destinationCacheSize > 0) {
+            synchronized (this) {
+                cache = destinationCache;
+                if (cache == null) {
+                    cache = new JmsDestinationCache(destinationCacheSize);
+                    destinationCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Get the minimum size of the message bodies compressed on send.
+     *
+     * @return the minimum size of the message bodies compressed on send.
+     */
+    public Integer getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * Set the minimum size of the message bodies compressed on send.
+     *
+     * @param compressionThreshold the minimum size in bytes, or characters for a text message, 0 to never compress.
+     */
+    public void setCompressionThreshold(Integer compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /**
+     * Get the name of the codec compressing the message bodies.
+     *
+     * @return the name of the codec.
+     */
+    public String getCompressionCodec() {
+        return compressionCodec;
+    }
+
+    /**
+     * Set the name of the codec compressing the message bodies.
+     *
+     * @param compressionCodec the name of the codec, deflate, gzip or the name of a codec registered as a service.
+     */
+    public void setCompressionCodec(String compressionCodec) {
+        this.compressionCodec = compressionCodec;
+    }
+
+    /**
+     * Get the compressor of the messages sent through this factory.
+     *
+     * @return the compressor or null when the messages are not compressed.
+     * @throws JMSException when the codec is unknown.
+     */
+    public JmsMessageCompressor getCompressor() throws JMSException {
+        JmsMessageCompressor result = compressor;
+        if (result == null && compressionThreshold != null && compressionThreshold > 0) {
+            synchronized (this) {
+                result = compressor;
+                if (result == null) {
+                    String name = compressionCodec != null ? compressionCodec : DeflateCodec.NAME;
+                    JmsMessageCodec codec = JmsMessageCodecs.getCodec(name);
+                    if (codec == null) {
+                        throw new JMSException("Unknown compression codec " + name);
+                    }
+                    result = new JmsMessageCompressor(compressionThreshold, codec);
+                    compressor = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the load balancing policy.
+     *
+     * @return the load balancing policy.
+     */
+    public String getLoadBalancingPolicy() {
+        return loadBalancingPolicy;
+    }
+
+    /**
+     * Set the load balancing policy.
+     *
+     * @param loadBalancingPolicy round-robin, least-in-flight or weighted.
+     */
+    public void setLoadBalancingPolicy(String loadBalancingPolicy) {
+        this.loadBalancingPolicy = loadBalancingPolicy;
+    }
+
+    /**
+     * Get the weights of the connection factories.
+     *
+     * @return the comma-separated weights of the connection factories.
+     */
+    public String getConnectionFactoryWeights() {
+        return connectionFactoryWeights;
+    }
+
+    /**
+     * Set the weights of the connection factories.
+     *
+     * @param connectionFactoryWeights the comma-separated weights, in the order of the connection factories, 1 when missing.
+     */
+    public void setConnectionFactoryWeights(String connectionFactoryWeights) {
+        this.connectionFactoryWeights = connectionFactoryWeights;
+    }
+
+    /**
+     * Get the time a broker is skipped after a failure.
+     *
+     * @return the time a broker is skipped after a failure in milliseconds.
+     */
+    public Integer getBrokerRetryInterval() {
+        return brokerRetryInterval;
+    }
+
+    /**
+     * Set the time a broker is skipped after a failure.
+     *
+     * @param brokerRetryInterval the time in milliseconds.
+     */
+    public void setBrokerRetryInterval(Integer brokerRetryInterval) {
+        this.brokerRetryInterval = brokerRetryInterval;
+    }
+
+    /**
+     * Get the time between two validations of the idle managed connections.
+     *
+     * @return the time between two validations in milliseconds.
+     */
+    public Integer getBackgroundValidationMillis() {
+        return backgroundValidationMillis;
+    }
+
+    /**
+     * Set the time between two validations of the idle managed connections.
+     *
+     * @param backgroundValidationMillis the time in milliseconds, 0 to not validate the idle connections.
+     */
+    public void setBackgroundValidationMillis(Integer backgroundValidationMillis) {
+        this.backgroundValidationMillis = backgroundValidationMillis;
+    }
+
+    /**
+     * Get whether the sessions created in a transaction share its managed connection.
+     *
+     * @return whether the sessions created in a transaction share its managed connection.
+     */
+    public Boolean isTransactionScopedSessions() {
+        return transactionScopedSessions;
+    }
+
+    /**
+     * Set whether the sessions created in a transaction share its managed connection.
+     *
+     * @param transactionScopedSessions true to hand out the sessions of a transaction on the managed connection
+     *                                  allocated by its first session.
+     */
+    public void setTransactionScopedSessions(Boolean transactionScopedSessions) {
+        this.transactionScopedSessions = transactionScopedSessions;
+    }
+
+    /**
+     * @return the key of the managed connections bound to a transaction.
+     */
+    Object getTransactionKey() {
+        Object result = transactionKey;
+        if (result == null) {
+            synchronized (this) {
+                result = transactionKey;
+                if (result == null) {
+                    result = new Object();
+                    transactionKey = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of consecutive failed connections or sends opening the circuit breaker.
+     *
+     * @return the number of failures, 0 for no circuit breaker.
+     */
+    public Integer getCircuitBreakerFailureThreshold() {
+        return circuitBreakerFailureThreshold;
+    }
+
+    /**
+     * Set the number of consecutive failed connections or sends opening the circuit breaker.
+     *
+     * @param circuitBreakerFailureThreshold the number of failures, 0 for no circuit breaker.
+     */
+    public void setCircuitBreakerFailureThreshold(Integer circuitBreakerFailureThreshold) {
+        this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+    }
+
+    /**
+     * Get the time the circuit breaker stays open before probing the broker.
+     *
+     * @return the time in milliseconds.
+     */
+    public Integer getCircuitBreakerOpenMillis() {
+        return circuitBreakerOpenMillis;
+    }
+
+    /**
+     * Set the time the circuit breaker stays open before probing the broker.
+     *
+     * @param circuitBreakerOpenMillis the time in milliseconds.
+     */
+    public void setCircuitBreakerOpenMillis(Integer circuitBreakerOpenMillis) {
+        this.circuitBreakerOpenMillis = circuitBreakerOpenMillis;
+    }
+
+    /**
+     * Get the circuit breaker of the outbound allocations and sends, with its state and counters.
+     *
+     * @return the circuit breaker or null when it is disabled.
+     */
+    public JmsCircuitBreaker getCircuitBreaker() {
+        JmsCircuitBreaker result = circuitBreaker;
+        if (result == null && circuitBreakerFailureThreshold != null && circuitBreakerFailureThreshold > 0) {
+            synchronized (this) {
+                result = circuitBreaker;
+                if (result == null) {
+                    result = new JmsCircuitBreaker(getConnectionFactory(), circuitBreakerFailureThreshold,
+                            circuitBreakerOpenMillis != null ? circuitBreakerOpenMillis : 0);
+                    circuitBreaker = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the background validator of the idle managed connections.
+     *
+     * @return the validator or null when it is not started.
+     */
+    public JmsConnectionValidator getValidator() {
+        return validator;
+    }
+
+    /**
+     * @return the open managed connections.
+     */
+    Set<JmsManagedConnection> getManagedConnections() {
+        Set<JmsManagedConnection> result = managedConnections;
+        if (result == null) {
+            synchronized (this) {
+                result = managedConnections;
+                if (result == null) {
+                    result = ConcurrentHashMap.newKeySet();
+                    managedConnections = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forget a destroyed managed connection.
+     *
+     * @param mc the managed connection.
+     */
+    void removeManagedConnection(JmsManagedConnection mc) {
+        getManagedConnections().remove(mc);
+    }
+
+    /**
+     * Get the balancer of the managed connections over the configured connection factories.
+     *
+     * @return the balancer.
+     * @throws IllegalStateException when no connection factory is configured.
+     * @throws IllegalArgumentException when the policy or the weights are invalid.
+     */
+    public JmsBrokerBalancer getBrokerBalancer() {
+        JmsBrokerBalancer result = brokerBalancer;
+        if (result == null) {
+            synchronized (this) {
+                result = brokerBalancer;
+                if (result == null) {
+                    String connectionFactory = getConnectionFactory();
+                    if (connectionFactory == null) {
+                        throw new IllegalStateException("No configured 'connectionFactory'.");
+                    }
+                    result = new JmsBrokerBalancer(connectionFactory, connectionFactoryWeights, loadBalancingPolicy,
+                            brokerRetryInterval != null ? brokerRetryInterval : 0);
+                    brokerBalancer = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the partitioned queues.
+     *
+     * @return the semicolon-separated name=partitions pairs of the partitioned queues.
+     */
+    public String getPartitionedDestinations() {
+        return partitionedDestinations;
+    }
+
+    /**
+     * Set the partitioned queues.
+     *
+     * @param partitionedDestinations the semicolon-separated name=partitions pairs of the partitioned queues,
+     * the partitions of a queue are the queues name.0 to name.(partitions - 1).
+     */
+    public void setPartitionedDestinations(String partitionedDestinations) {
+        this.partitionedDestinations = partitionedDestinations;
+    }
+
+    /**
+     * Get the message property holding the partition key.
+     *
+     * @return the message property holding the partition key.
+     */
+    public String getPartitionKeyProperty() {
+        return partitionKeyProperty;
+    }
+
+    /**
+     * Set the message property holding the partition key.
+     *
+     * @param partitionKeyProperty the message property holding the partition key.
+     */
+    public void setPartitionKeyProperty(String partitionKeyProperty) {
+        this.partitionKeyProperty = partitionKeyProperty;
+    }
+
+    /**
+     * Get a partitioned queue.
+     *
+     * @param name the name of the logical queue.
+     * @return the partitioned queue or null when the queue is not partitioned.
+     * @throws IllegalArgumentException when the partitioned queues are invalid.
+     */
+    public JmsPartitionedQueue getPartitionedQueue(String name) {
+        if (partitionedDestinations == null || partitionedDestinations.trim().isEmpty()) {
+            return null;
+        }
+        Map<String, JmsPartitionedQueue> result = partitionedQueues;
+        if (result == null) {
+            synchronized (this) {
+                result = partitionedQueues;
+                if (result == null) {
+                    result = new HashMap<>();
+                    for (String entry : partitionedDestinations.split(";")) {
+                        if (entry.trim().isEmpty()) {
+                            continue;
+                        }
+                        int i = entry.indexOf('=');
+                        if (i < 0) {
+                            throw new IllegalArgumentException("Invalid partitioned destination " + entry);
+                        }
+                        String queue = entry.substring(0, i).trim();
+                        int partitions = Integer.parseInt(entry.substring(i + 1).trim());
+                        result.put(queue, new JmsPartitionedQueue(queue, partitions, partitionKeyProperty));
+                    }
+                    partitionedQueues = result;
+                }
+            }
+        }
+        return result.get(name);
+    }
+
+    /**
+     * Whether some queues are partitioned.
+     *
+     * @return true when partitioned destinations are configured.
+     */
+    boolean hasPartitionedQueues() {
+        return partitionedDestinations != null && !partitionedDestinations.isEmpty();
+    }
+
+    /**
+     * Drop a partition queue the provider reported as invalid.
+     *
+     * @param destination the destination.
+     */
+    void invalidatePartition(Destination destination) {
+        Map<String, JmsPartitionedQueue> queues = partitionedQueues;
+        if (queues != null) {
+            for (JmsPartitionedQueue queue : queues.values()) {
+                queue.invalidate(destination);
+            }
+        }
+    }
+
+    /**
+     * Get the request-reply facility sharing a single reply queue between all the requests sent through this factory.
+     *
+     * @return the request-reply facility.
+     */
+    public JmsRequestReply getRequestReply() {
+        JmsRequestReply result = requestReply;
+        if (result == null) {
+            synchronized (this) {
+                result = requestReply;
+                if (result == null) {
+                    result = new JmsRequestReply(this);
+                    requestReply = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public ResourceAdapter getResourceAdapter() {
+        return resourceAdapter;
+    }
+
+    @Override
+    public void setResourceAdapter(ResourceAdapter resourceAdapter) {
+        this.resourceAdapter = resourceAdapter;
+        if (resourceAdapter instanceof JmsResourceAdapter) {
+            ((JmsResourceAdapter) resourceAdapter).register(this);
+        }
+    }
+
+    /**
+     * Release the resources shared by the managed connections, when the resource adapter stops.
+     */
+    void stop() {
+        JmsRequestReply requestReply;
+        JmsConnectionValidator validator;
+        synchronized (this) {
+            requestReply = this.requestReply;
+            this.requestReply = null;
+            validator = this.validator;
+            this.validator = null;
+        }
+        if (requestReply != null) {
+            requestReply.close();
+        }
+        if (validator != null) {
+            validator.stop();
+        }
+    }
+
     private ConnectionRequestInfo getInfo(ConnectionRequestInfo info) {
         if (info == null) {
             // Create a default one
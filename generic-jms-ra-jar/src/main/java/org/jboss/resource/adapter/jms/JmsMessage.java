@@ -10,6 +10,8 @@ import jakarta.jms.Destination;
 import jakarta.jms.JMSException;
 import jakarta.jms.Message;
 
+import org.jboss.resource.adapter.jms.codec.JmsMessageCodecs;
+
 /**
  * A wrapper for a message
  *
@@ -26,11 +28,16 @@ public class JmsMessage implements Message {
      */
     JmsSession session;
 
+    /**
+     * Whether the body was rewritten, the codec property of the message then no longer describes its body
+     */
+    boolean bodyRewritten = false;
+
     /**
      * Create a new wrapper
      *
      * @param message the message
-     * @param session the session
+     * @param session the session, null for a message delivered to an endpoint
      */
     public JmsMessage(Message message, JmsSession session) {
         this.message = message;
@@ -39,18 +46,34 @@ public class JmsMessage implements Message {
 
     @Override
     public void acknowledge() throws JMSException {
-        session.getSession(); // Check for closed
+        if (session != null) {
+            session.getSession(); // Check for closed
+        }
         message.acknowledge();
     }
 
     @Override
     public void clearBody() throws JMSException {
         message.clearBody();
+        bodyRewritten = true;
     }
 
     @Override
     public void clearProperties() throws JMSException {
+        String codec = isCompressed() ? message.getStringProperty(JmsMessageCodecs.CODEC_PROPERTY) : null;
         message.clearProperties();
+        if (codec != null) {
+            // The body is still compressed
+            message.setStringProperty(JmsMessageCodecs.CODEC_PROPERTY, codec);
+        }
+    }
+
+    /**
+     * @return whether the body of the message is compressed
+     * @throws JMSException for any error
+     */
+    boolean isCompressed() throws JMSException {
+        return !bodyRewritten && JmsMessageCompressor.isCompressed(message);
     }
 
     @Override
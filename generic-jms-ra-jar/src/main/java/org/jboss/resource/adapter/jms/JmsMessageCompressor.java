@@ -0,0 +1,323 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Enumeration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+
+import org.jboss.logging.Logger;
+import org.jboss.resource.adapter.jms.codec.JmsMessageCodec;
+import org.jboss.resource.adapter.jms.codec.JmsMessageCodecs;
+
+/**
+ * Compresses the bodies of the text and bytes messages sent through a managed connection factory when they
+ * are larger than a threshold, and decompresses them on the receiving side.
+ * <p>
+ * A compressed message is a copy of the message, created with the sending session, whose body is compressed
+ * with a {@link JmsMessageCodec} and whose {@link JmsMessageCodecs#CODEC_PROPERTY} property names the codec.
+ * A text message must stay a text message for the provider, so its compressed body is Base64 encoded. The
+ * message of the application is left untouched except for the headers set by the send.
+ * <p>
+ * The message wrappers of the adapter decompress on first access to the body, whether the message was
+ * received with a consumer or delivered to an endpoint.
+ */
+public class JmsMessageCompressor {
+    private static final Logger log = Logger.getLogger(JmsMessageCompressor.class);
+
+    /**
+     * The minimum body size to compress, in bytes for a bytes message and in characters for a text message
+     */
+    private final int threshold;
+
+    /**
+     * The codec
+     */
+    private final JmsMessageCodec codec;
+
+    /**
+     * The number of compressed messages
+     */
+    private final AtomicLong compressedMessages = new AtomicLong();
+
+    /**
+     * The size of the bodies before compression
+     */
+    private final AtomicLong uncompressedBytes = new AtomicLong();
+
+    /**
+     * The size of the bodies after compression
+     */
+    private final AtomicLong compressedBytes = new AtomicLong();
+
+    /**
+     * Create a new compressor
+     *
+     * @param threshold the minimum body size to compress
+     * @param codec     the codec
+     */
+    public JmsMessageCompressor(int threshold, JmsMessageCodec codec) {
+        this.threshold = threshold;
+        this.codec = codec;
+    }
+
+    /**
+     * Compress a message about to be sent
+     *
+     * @param session the provider session sending the message
+     * @param message the message
+     * @return the compressed copy of the message, or the message itself when it is not compressed
+     * @throws JMSException for any error
+     */
+    Message compress(Session session, Message message) throws JMSException {
+        // Whether the message carries the codec property of a body it no longer has
+        boolean stale = false;
+        if (message instanceof JmsMessage) {
+            JmsMessage wrapper = (JmsMessage) message;
+            if (wrapper.isCompressed()) {
+                // A compressed message received from the adapter is sent again as it was received
+                return wrapper.message;
+            }
+            stale = isCompressed(wrapper.message);
+        } else if (isCompressed(message)) {
+            return message;
+        }
+
+        Message copy = null;
+        // The sizes of the body before and after compression, 0 when it is not compressed
+        int size = 0;
+        int compressedSize = 0;
+        if (message instanceof TextMessage) {
+            String text = ((TextMessage) message).getText();
+            if (text != null && text.length() >= threshold) {
+                byte[] body = text.getBytes(StandardCharsets.UTF_8);
+                String encoded = Base64.getEncoder().encodeToString(compress(body));
+                if (encoded.length() < text.length()) {
+                    size = body.length;
+                    compressedSize = encoded.length();
+                    copy = session.createTextMessage(encoded);
+                }
+            }
+            if (copy == null && stale) {
+                copy = session.createTextMessage(text);
+            }
+        } else if (message instanceof BytesMessage) {
+            BytesMessage bytes = (BytesMessage) message;
+            bytes.reset();
+            long length = bytes.getBodyLength();
+            if (length <= Integer.MAX_VALUE && (length >= threshold || stale)) {
+                byte[] body = new byte[(int) length];
+                bytes.readBytes(body);
+                bytes.reset();
+                byte[] compressed = length >= threshold ? compress(body) : body;
+                if (compressed.length < body.length) {
+                    size = body.length;
+                    compressedSize = compressed.length;
+                } else {
+                    compressed = body;
+                }
+                if (size > 0 || stale) {
+                    BytesMessage bytesCopy = session.createBytesMessage();
+                    bytesCopy.writeBytes(compressed);
+                    copy = bytesCopy;
+                }
+            }
+        }
+        if (copy == null) {
+            return message;
+        }
+
+        copyProperties(message, copy);
+        if (size > 0) {
+            copy.setStringProperty(JmsMessageCodecs.CODEC_PROPERTY, codec.getName());
+            compressedMessages.incrementAndGet();
+            uncompressedBytes.addAndGet(size);
+            compressedBytes.addAndGet(compressedSize);
+        }
+        return copy;
+    }
+
+    /**
+     * Copy the headers set by the send of the compressed copy back to the message of the application
+     *
+     * @param sent    the message that was sent
+     * @param message the message of the application
+     */
+    static void copySendHeaders(Message sent, Message message) {
+        if (sent == message) {
+            return;
+        }
+        try {
+            message.setJMSMessageID(sent.getJMSMessageID());
+            message.setJMSTimestamp(sent.getJMSTimestamp());
+            message.setJMSDestination(sent.getJMSDestination());
+            message.setJMSDeliveryMode(sent.getJMSDeliveryMode());
+            message.setJMSExpiration(sent.getJMSExpiration());
+            message.setJMSPriority(sent.getJMSPriority());
+            try {
+                message.setJMSDeliveryTime(sent.getJMSDeliveryTime());
+            } catch (AbstractMethodError e) {
+                // JMS 1.1 provider
+            }
+        } catch (Throwable t) {
+            log.trace("Unable to copy the send headers of " + sent + " to " + message, t);
+        }
+    }
+
+    /**
+     * @param message the message
+     * @return whether the body of the message is compressed
+     * @throws JMSException for any error
+     */
+    public static boolean isCompressed(Message message) throws JMSException {
+        return message.propertyExists(JmsMessageCodecs.CODEC_PROPERTY);
+    }
+
+    /**
+     * Wrap a message delivered to an endpoint so its body is decompressed on first access
+     *
+     * @param message the message
+     * @return the wrapped message, or the message itself when its body is not compressed
+     * @throws JMSException for any error
+     */
+    public static Message decompressing(Message message) throws JMSException {
+        if (message instanceof JmsMessage || !isCompressed(message)) {
+            return message;
+        }
+        if (message instanceof TextMessage) {
+            return new JmsTextMessage((TextMessage) message, null);
+        }
+        if (message instanceof BytesMessage) {
+            return new JmsBytesMessage((BytesMessage) message, null);
+        }
+        return message;
+    }
+
+    /**
+     * Get the text of a message
+     *
+     * @param message the message
+     * @return the decompressed text when the message is compressed, its text otherwise
+     * @throws JMSException for any error
+     */
+    static String decompress(TextMessage message) throws JMSException {
+        String text = message.getText();
+        JmsMessageCodec codec = getCodec(message);
+        if (codec == null || text == null) {
+            return text;
+        }
+        try {
+            return new String(codec.decompress(Base64.getDecoder().decode(text)), StandardCharsets.UTF_8);
+        } catch (IOException | IllegalArgumentException e) {
+            throw decompressionFailure(message, e);
+        }
+    }
+
+    /**
+     * Get the body of a compressed bytes message
+     *
+     * @param message the message
+     * @return the decompressed body, or null when the message is not compressed
+     * @throws JMSException for any error
+     */
+    static byte[] decompress(BytesMessage message) throws JMSException {
+        JmsMessageCodec codec = getCodec(message);
+        if (codec == null) {
+            return null;
+        }
+        message.reset();
+        long length = message.getBodyLength();
+        byte[] compressed = new byte[(int) length];
+        message.readBytes(compressed);
+        try {
+            return codec.decompress(compressed);
+        } catch (IOException e) {
+            throw decompressionFailure(message, e);
+        }
+    }
+
+    /**
+     * @return the number of compressed messages
+     */
+    public long getCompressedMessages() {
+        return compressedMessages.get();
+    }
+
+    /**
+     * @return the size of the compressed bodies before compression
+     */
+    public long getUncompressedBytes() {
+        return uncompressedBytes.get();
+    }
+
+    /**
+     * @return the size of the compressed bodies after compression
+     */
+    public long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+
+    private byte[] compress(byte[] body) throws JMSException {
+        try {
+            return codec.compress(body);
+        } catch (IOException e) {
+            JMSException jmse = new JMSException("Unable to compress with " + codec.getName() + ": " + e);
+            jmse.setLinkedException(e);
+            jmse.initCause(e);
+            throw jmse;
+        }
+    }
+
+    private static JmsMessageCodec getCodec(Message message) throws JMSException {
+        String name = message.getStringProperty(JmsMessageCodecs.CODEC_PROPERTY);
+        if (name == null) {
+            return null;
+        }
+        JmsMessageCodec codec = JmsMessageCodecs.getCodec(name);
+        if (codec == null) {
+            throw new JMSException("Unknown codec " + name + " for the body of " + message);
+        }
+        return codec;
+    }
+
+    private static JMSException decompressionFailure(Message message, Exception e) {
+        JMSException jmse = new JMSException("Unable to decompress the body of " + message + ": " + e);
+        jmse.setLinkedException(e);
+        jmse.initCause(e);
+        return jmse;
+    }
+
+    private static void copyProperties(Message message, Message copy) throws JMSException {
+        copy.setJMSCorrelationID(message.getJMSCorrelationID());
+        copy.setJMSReplyTo(message.getJMSReplyTo());
+        copy.setJMSType(message.getJMSType());
+        for (Enumeration<?> names = message.getPropertyNames(); names.hasMoreElements(); ) {
+            String name = (String) names.nextElement();
+            if (JmsMessageCodecs.CODEC_PROPERTY.equals(name)) {
+                // Describes the body of the message, not of the copy
+                continue;
+            }
+            try {
+                copy.setObjectProperty(name, message.getObjectProperty(name));
+            } catch (JMSException e) {
+                // A property set by the provider
+                log.trace("Not copying property " + name + " of " + message, e);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "(codec=" + codec.getName() + " threshold=" + threshold + " compressedMessages=" + compressedMessages + " uncompressedBytes=" + uncompressedBytes + " compressedBytes=" + compressedBytes + ')';
+    }
+}
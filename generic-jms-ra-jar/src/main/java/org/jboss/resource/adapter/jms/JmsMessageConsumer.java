@@ -15,6 +15,7 @@ import jakarta.jms.StreamMessage;
 import jakarta.jms.TextMessage;
 
 import org.jboss.logging.Logger;
+import org.jboss.resource.adapter.jms.tracing.JmsTracing;
 
 /**
  * A wrapper for a message consumer
@@ -92,6 +93,7 @@ public class JmsMessageConsumer implements MessageConsumer {
             if (message == null) {
                 return null;
             } else {
+                JmsTracing.end(JmsTracing.startReceive(message), false);
                 return wrapMessage(message);
             }
         } finally {
@@ -113,6 +115,7 @@ public class JmsMessageConsumer implements MessageConsumer {
             if (message == null) {
                 return null;
             } else {
+                JmsTracing.end(JmsTracing.startReceive(message), false);
                 return wrapMessage(message);
             }
         } finally {
@@ -134,6 +137,7 @@ public class JmsMessageConsumer implements MessageConsumer {
             if (message == null) {
                 return null;
             } else {
+                JmsTracing.end(JmsTracing.startReceive(message), false);
                 return wrapMessage(message);
             }
         } finally {
@@ -6,11 +6,15 @@ package org.jboss.resource.adapter.jms;
 
 import jakarta.jms.CompletionListener;
 import jakarta.jms.Destination;
+import jakarta.jms.InvalidDestinationException;
 import jakarta.jms.JMSException;
 import jakarta.jms.Message;
 import jakarta.jms.MessageProducer;
 
 import org.jboss.logging.Logger;
+import org.jboss.resource.adapter.jms.jfr.JmsSendEvent;
+import org.jboss.resource.adapter.jms.tracing.JmsSpan;
+import org.jboss.resource.adapter.jms.tracing.JmsTracing;
 
 /**
  * JmsMessageProducer.
@@ -30,6 +34,16 @@ public class JmsMessageProducer implements MessageProducer {
      */
     JmsSession session;
 
+    /**
+     * The key of the producer in the producer cache of the managed connection, null when it is not cached
+     */
+    JmsProducerCache.Key cacheKey;
+
+    /**
+     * The partitioned queue of the producer, null when its destination is not partitioned
+     */
+    JmsPartitionedQueue partitionedQueue;
+
     /**
      * Whether trace is enabled
      */
@@ -65,15 +79,38 @@ public class JmsMessageProducer implements MessageProducer {
     @Override
     public void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive)
             throws JMSException {
-        session.lock();
+        JmsPartitionedQueue partitioned = destination instanceof JmsPartitionedQueue ? (JmsPartitionedQueue) destination : null;
+        destination = route(destination, message);
+        session.lockForSend();
         try {
             if (trace) {
                 log.trace("send " + this + " destination=" + destination + " message=" + message + " deliveryMode=" + deliveryMode + " priority=" + priority + " ttl=" + timeToLive);
             }
-            producer.send(destination, message, deliveryMode, priority, timeToLive);
+            Message sent = prepare(message);
+            JmsSpan span = JmsTracing.startSend(destination, sent);
+            JmsSendEvent event = new JmsSendEvent();
+            event.begin();
+            Throwable failure = null;
+            try {
+                producer.send(destination, sent, deliveryMode, priority, timeToLive);
+            } catch (Throwable t) {
+                failure = t;
+                throw t;
+            } finally {
+                event.complete(destination, sent, failure != null);
+                JmsTracing.end(span, failure != null);
+                session.sent(failure);
+            }
+            if (partitioned != null) {
+                partitioned.sent(destination);
+            }
+            JmsMessageCompressor.copySendHeaders(sent, message);
             if (trace) {
                 log.trace("sent " + this + " result=" + message);
             }
+        } catch (InvalidDestinationException e) {
+            invalidateDestination(destination);
+            throw e;
         } finally {
             session.unlock();
         }
@@ -81,15 +118,38 @@ public class JmsMessageProducer implements MessageProducer {
 
     @Override
     public void send(Destination destination, Message message) throws JMSException {
-        session.lock();
+        JmsPartitionedQueue partitioned = destination instanceof JmsPartitionedQueue ? (JmsPartitionedQueue) destination : null;
+        destination = route(destination, message);
+        session.lockForSend();
         try {
             if (trace) {
                 log.trace("send " + this + " destination=" + destination + " message=" + message);
             }
-            producer.send(destination, message);
+            Message sent = prepare(message);
+            JmsSpan span = JmsTracing.startSend(destination, sent);
+            JmsSendEvent event = new JmsSendEvent();
+            event.begin();
+            Throwable failure = null;
+            try {
+                producer.send(destination, sent);
+            } catch (Throwable t) {
+                failure = t;
+                throw t;
+            } finally {
+                event.complete(destination, sent, failure != null);
+                JmsTracing.end(span, failure != null);
+                session.sent(failure);
+            }
+            if (partitioned != null) {
+                partitioned.sent(destination);
+            }
+            JmsMessageCompressor.copySendHeaders(sent, message);
             if (trace) {
                 log.trace("sent " + this + " result=" + message);
             }
+        } catch (InvalidDestinationException e) {
+            invalidateDestination(destination);
+            throw e;
         } finally {
             session.unlock();
         }
@@ -97,15 +157,37 @@ public class JmsMessageProducer implements MessageProducer {
 
     @Override
     public void send(Message message, int deliveryMode, int priority, long timeToLive) throws JMSException {
-        session.lock();
+        if (partitionedQueue != null) {
+            send(partitionedQueue, message, deliveryMode, priority, timeToLive);
+            return;
+        }
+        session.lockForSend();
         try {
             if (trace) {
                 log.trace("send " + this + " message=" + message + " deliveryMode=" + deliveryMode + " priority=" + priority + " ttl=" + timeToLive);
             }
-            producer.send(message, deliveryMode, priority, timeToLive);
+            Message sent = prepare(message);
+            JmsSpan span = JmsTracing.startSend(null, sent);
+            JmsSendEvent event = new JmsSendEvent();
+            event.begin();
+            Throwable failure = null;
+            try {
+                producer.send(sent, deliveryMode, priority, timeToLive);
+            } catch (Throwable t) {
+                failure = t;
+                throw t;
+            } finally {
+                event.complete(null, sent, failure != null);
+                JmsTracing.end(span, failure != null);
+                session.sent(failure);
+            }
+            JmsMessageCompressor.copySendHeaders(sent, message);
             if (trace) {
                 log.trace("sent " + this + " result=" + message);
             }
+        } catch (InvalidDestinationException e) {
+            invalidateDestination(null);
+            throw e;
         } finally {
             session.unlock();
         }
@@ -113,15 +195,37 @@ public class JmsMessageProducer implements MessageProducer {
 
     @Override
     public void send(Message message) throws JMSException {
-        session.lock();
+        if (partitionedQueue != null) {
+            send(partitionedQueue, message);
+            return;
+        }
+        session.lockForSend();
         try {
             if (trace) {
                 log.trace("send " + this + " message=" + message);
             }
-            producer.send(message);
+            Message sent = prepare(message);
+            JmsSpan span = JmsTracing.startSend(null, sent);
+            JmsSendEvent event = new JmsSendEvent();
+            event.begin();
+            Throwable failure = null;
+            try {
+                producer.send(sent);
+            } catch (Throwable t) {
+                failure = t;
+                throw t;
+            } finally {
+                event.complete(null, sent, failure != null);
+                JmsTracing.end(span, failure != null);
+                session.sent(failure);
+            }
+            JmsMessageCompressor.copySendHeaders(sent, message);
             if (trace) {
                 log.trace("sent " + this + " result=" + message);
             }
+        } catch (InvalidDestinationException e) {
+            invalidateDestination(null);
+            throw e;
         } finally {
             session.unlock();
         }
@@ -134,7 +238,7 @@ public class JmsMessageProducer implements MessageProducer {
 
     @Override
     public Destination getDestination() throws JMSException {
-        return producer.getDestination();
+        return partitionedQueue != null ? partitionedQueue : producer.getDestination();
     }
 
     @Override
@@ -197,25 +301,204 @@ public class JmsMessageProducer implements MessageProducer {
 
     @Override
     public void send(Message message, CompletionListener completionListener) throws JMSException {
-        producer.send(message, completionListener);
+        if (partitionedQueue != null) {
+            send(partitionedQueue, message, completionListener);
+            return;
+        }
+        sendAsync(null, null, message, completionListener, producer::send);
     }
 
     @Override
     public void send(Message message, int deliveryMode, int priority, long timeToLive, CompletionListener completionListener) throws JMSException {
-        producer.send(message, deliveryMode, priority, timeToLive, completionListener);
+        if (partitionedQueue != null) {
+            send(partitionedQueue, message, deliveryMode, priority, timeToLive, completionListener);
+            return;
+        }
+        sendAsync(null, null, message, completionListener,
+                (sent, listener) -> producer.send(sent, deliveryMode, priority, timeToLive, listener));
     }
 
     @Override
     public void send(Destination destination, Message message, CompletionListener completionListener) throws JMSException {
-        producer.send(destination, message, completionListener);
+        Destination routed = route(destination, message);
+        sendAsync(destination, routed, message, completionListener, (sent, listener) -> producer.send(routed, sent, listener));
     }
 
     @Override
     public void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive, CompletionListener completionListener) throws JMSException {
-        producer.send(destination, message, deliveryMode, priority, timeToLive, completionListener);
+        Destination routed = route(destination, message);
+        sendAsync(destination, routed, message, completionListener,
+                (sent, listener) -> producer.send(routed, sent, deliveryMode, priority, timeToLive, listener));
+    }
+
+    /**
+     * An asynchronous send of the provider producer
+     */
+    private interface AsyncSend {
+        void send(Message sent, CompletionListener listener) throws JMSException;
+    }
+
+    /**
+     * Send a message asynchronously, the send is recorded when the provider reports its completion
+     *
+     * @param target             the destination of the application, null for the destination of the producer
+     * @param destination        the destination selected by route(), null for the destination of the producer
+     * @param message            the message of the application
+     * @param completionListener the listener of the application
+     * @param send               the send of the provider producer
+     * @throws JMSException for any error starting the send
+     */
+    private void sendAsync(Destination target, Destination destination, Message message, CompletionListener completionListener,
+            AsyncSend send) throws JMSException {
+        session.lockForSend();
+        try {
+            if (trace) {
+                log.trace("send " + this + " destination=" + destination + " message=" + message + " completionListener=" + completionListener);
+            }
+            Message sent = prepare(message);
+            JmsPartitionedQueue partitioned = target instanceof JmsPartitionedQueue ? (JmsPartitionedQueue) target : null;
+            SendCompletion completion = new SendCompletion(destination, partitioned, message, sent, completionListener);
+            session.sendStarted();
+            try {
+                send.send(sent, completion);
+            } catch (JMSException | RuntimeException e) {
+                completion.end(e);
+                throw e;
+            }
+        } catch (InvalidDestinationException e) {
+            invalidateDestination(destination);
+            throw e;
+        } finally {
+            session.unlock();
+        }
+    }
+
+    /**
+     * Records the outcome of an asynchronous send like a synchronous one, then notifies the listener of the
+     * application with its own message
+     */
+    private class SendCompletion implements CompletionListener {
+        private final Destination destination;
+        private final JmsPartitionedQueue partitioned;
+        private final Message message;
+        private final Message sent;
+        private final CompletionListener listener;
+        private final JmsSpan span;
+        private final JmsSendEvent event = new JmsSendEvent();
+        private boolean ended = false;
+
+        SendCompletion(Destination destination, JmsPartitionedQueue partitioned, Message message, Message sent,
+                CompletionListener listener) {
+            this.destination = destination;
+            this.partitioned = partitioned;
+            this.message = message;
+            this.sent = sent;
+            this.listener = listener;
+            this.span = JmsTracing.startSend(destination, sent);
+            event.begin();
+        }
+
+        @Override
+        public void onCompletion(Message completed) {
+            end(null);
+            if (partitioned != null) {
+                partitioned.sent(destination);
+            }
+            JmsMessageCompressor.copySendHeaders(sent, message);
+            if (trace) {
+                log.trace("sent " + JmsMessageProducer.this + " result=" + message);
+            }
+            listener.onCompletion(message);
+        }
+
+        @Override
+        public void onException(Message failed, Exception exception) {
+            end(exception);
+            if (exception instanceof InvalidDestinationException) {
+                invalidateDestination(destination);
+            }
+            listener.onException(message, exception);
+        }
+
+        synchronized void end(Exception failure) {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            event.complete(destination, sent, failure != null);
+            JmsTracing.end(span, failure != null);
+            session.sendCompleted(failure);
+        }
+    }
+
+    /**
+     * Drop a destination the provider reported as invalid from the destination and producer caches
+     *
+     * @param destination the destination, null for the destination of the producer
+     */
+    void invalidateDestination(Destination destination) {
+        try {
+            if (destination == null) {
+                // The producer itself is closed with its handle instead of being cached
+                cacheKey = null;
+                destination = producer.getDestination();
+            }
+            session.invalidateDestination(destination);
+        } catch (Throwable t) {
+            log.trace("Unable to invalidate destination " + destination, t);
+        }
+    }
+
+    /**
+     * Check a message about to be sent and compress it when the managed connection factory compresses messages
+     *
+     * @param message the message
+     * @return the message to send
+     * @throws JMSException for any error
+     */
+    Message prepare(Message message) throws JMSException {
+        session.checkReplyTo(message);
+        JmsMessageCompressor compressor = session.getCompressor();
+        return compressor != null ? compressor.compress(session.getSession(), message) : message;
+    }
+
+    /**
+     * Select the partition of a message sent to a partitioned queue
+     *
+     * @param destination the destination
+     * @param message     the message
+     * @return the queue of the partition, or the destination when it is not partitioned
+     * @throws JMSException for any error
+     */
+    Destination route(Destination destination, Message message) throws JMSException {
+        if (destination instanceof JmsPartitionedQueue) {
+            return ((JmsPartitionedQueue) destination).route(session, message);
+        }
+        return destination;
+    }
+
+    /**
+     * Set the partitioned queue of a producer created for a partitioned queue
+     *
+     * @param partitionedQueue the partitioned queue
+     */
+    void setPartitionedQueue(JmsPartitionedQueue partitionedQueue) {
+        this.partitionedQueue = partitionedQueue;
+    }
+
+    /**
+     * Set the key of the producer in the producer cache of the managed connection
+     *
+     * @param cacheKey the key, null when the producer is closed with its handle
+     */
+    void setCacheKey(JmsProducerCache.Key cacheKey) {
+        this.cacheKey = cacheKey;
     }
 
     void closeProducer() throws JMSException {
+        if (cacheKey != null && session.releaseCachedProducer(cacheKey, producer)) {
+            return;
+        }
         producer.close();
     }
 }
@@ -0,0 +1,180 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import jakarta.jms.Destination;
+import jakarta.jms.InvalidDestinationException;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.Queue;
+import jakarta.jms.Session;
+
+/**
+ * A logical queue sharded into the physical queues name.0 to name.(partitions - 1).
+ * <p>
+ * The producers of the resource adapter send a message to the partition selected by the hash of its
+ * partition key property, so the messages sharing a key go to the same partition. The messages without a
+ * key are spread over the partitions in turn. The partition queues are created by name on first use and
+ * shared by all the sessions of the managed connection factory.
+ * <p>
+ * The logical queue only exists in the resource adapter: it cannot be consumed, browsed or used as a reply
+ * destination, the partitions are.
+ */
+public class JmsPartitionedQueue implements Queue {
+    /**
+     * The name of the logical queue
+     */
+    private final String name;
+
+    /**
+     * The message property holding the partition key
+     */
+    private final String keyProperty;
+
+    /**
+     * The partition queues, created on first use
+     */
+    private final AtomicReferenceArray<Queue> partitions;
+
+    /**
+     * The number of messages routed to each partition
+     */
+    private final AtomicLongArray routed;
+
+    /**
+     * The partition of the next message without a key
+     */
+    private final AtomicLong next = new AtomicLong();
+
+    /**
+     * Create a new partitioned queue
+     *
+     * @param name        the name of the logical queue
+     * @param partitions  the number of partitions
+     * @param keyProperty the message property holding the partition key
+     */
+    public JmsPartitionedQueue(String name, int partitions, String keyProperty) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("Invalid number of partitions " + partitions + " for " + name);
+        }
+        this.name = name;
+        this.keyProperty = keyProperty;
+        this.partitions = new AtomicReferenceArray<>(partitions);
+        this.routed = new AtomicLongArray(partitions);
+    }
+
+    @Override
+    public String getQueueName() {
+        return name;
+    }
+
+    /**
+     * @return the number of partitions
+     */
+    public int getPartitionCount() {
+        return partitions.length();
+    }
+
+    /**
+     * @param partition the partition
+     * @return the name of the queue of the partition
+     */
+    public String getPartitionName(int partition) {
+        return name + '.' + partition;
+    }
+
+    /**
+     * @param partition the partition
+     * @return the number of messages sent to the partition
+     */
+    public long getRoutedMessageCount(int partition) {
+        return routed.get(partition);
+    }
+
+    /**
+     * Select the partition of a message
+     *
+     * @param message the message
+     * @return the partition
+     * @throws JMSException for any error reading the partition key
+     */
+    public int partition(Message message) throws JMSException {
+        Object key = keyProperty != null ? message.getObjectProperty(keyProperty) : null;
+        if (key == null) {
+            return (int) (next.getAndIncrement() % partitions.length());
+        }
+        return Math.floorMod(key.toString().hashCode(), partitions.length());
+    }
+
+    /**
+     * Route a message to its partition, the message is counted once sent
+     *
+     * @param session the session sending the message
+     * @param message the message
+     * @return the queue of the partition
+     * @throws JMSException for any error
+     */
+    public Queue route(Session session, Message message) throws JMSException {
+        int partition = partition(message);
+        Queue queue = partitions.get(partition);
+        if (queue == null) {
+            queue = session.createQueue(getPartitionName(partition));
+            partitions.compareAndSet(partition, null, queue);
+        }
+        return queue;
+    }
+
+    /**
+     * Count a message sent to the queue of a partition
+     *
+     * @param queue the queue returned by {@link #route(Session, Message)}
+     */
+    public void sent(Destination queue) {
+        for (int i = 0; i < partitions.length(); ++i) {
+            if (partitions.get(i) == queue) {
+                routed.incrementAndGet(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reject a partitioned queue handed to the provider instead of one of its partitions
+     *
+     * @param destination the destination
+     * @throws InvalidDestinationException when the destination is a partitioned queue
+     */
+    static void checkNotPartitioned(Destination destination) throws InvalidDestinationException {
+        if (destination instanceof JmsPartitionedQueue) {
+            JmsPartitionedQueue queue = (JmsPartitionedQueue) destination;
+            throw new InvalidDestinationException("The partitioned queue " + queue.name + " can only be sent to, use its partitions "
+                    + queue.getPartitionName(0) + " to " + queue.getPartitionName(queue.getPartitionCount() - 1));
+        }
+    }
+
+    /**
+     * Drop a partition queue the provider reported as invalid
+     *
+     * @param destination the destination
+     */
+    public void invalidate(Destination destination) {
+        for (int i = 0; i < partitions.length(); ++i) {
+            Queue queue = partitions.get(i);
+            if (queue != null && queue.equals(destination)) {
+                partitions.compareAndSet(i, queue, null);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "(name=" + name + " partitions=" + partitions.length() + " keyProperty=" + keyProperty
+                + " routed=" + routed + ')';
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import jakarta.jms.Destination;
+import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.TemporaryQueue;
+import jakarta.jms.TemporaryTopic;
+
+import org.jboss.logging.Logger;
+
+/**
+ * The idle message producers of the session of a managed connection, by kind and destination.
+ * <p>
+ * Closing a producer handle returns its producer here, reset to the default settings, instead of closing
+ * it so the next handle sending to the same destination does not create a provider producer again.
+ * The least recently used producers are closed when the cache is full. The producers of temporary
+ * destinations are never cached as the destinations go away with the connection that created them, and
+ * the producers of a destination the provider reported as invalid are closed.
+ */
+public class JmsProducerCache {
+    private static final Logger log = Logger.getLogger(JmsProducerCache.class);
+
+    /**
+     * A producer created with Session.createProducer()
+     */
+    static final int PRODUCER = 0;
+
+    /**
+     * A sender created with QueueSession.createSender()
+     */
+    static final int SENDER = 1;
+
+    /**
+     * A publisher created with TopicSession.createPublisher()
+     */
+    static final int PUBLISHER = 2;
+
+    /**
+     * The maximum number of idle producers
+     */
+    private final int maxSize;
+
+    /**
+     * The idle producers, least recently used first
+     */
+    private final LinkedHashMap<Key, MessageProducer> producers = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Whether the cache was closed
+     */
+    private boolean closed = false;
+
+    /**
+     * The number of producers taken from the cache
+     */
+    private long hits = 0;
+
+    /**
+     * The number of producers created because none was cached
+     */
+    private long misses = 0;
+
+    /**
+     * Create a new producer cache
+     *
+     * @param maxSize the maximum number of idle producers
+     */
+    public JmsProducerCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Take an idle producer
+     *
+     * @param key the kind and destination of the producer
+     * @return the producer or null when none is cached
+     */
+    synchronized MessageProducer take(Key key) {
+        MessageProducer producer = closed ? null : producers.remove(key);
+        if (producer != null) {
+            ++hits;
+        } else {
+            ++misses;
+        }
+        return producer;
+    }
+
+    /**
+     * Return a producer to the cache
+     *
+     * @param key      the kind and destination of the producer
+     * @param producer the producer
+     * @return false when the producer was not cached and must be closed by the caller
+     */
+    boolean release(Key key, MessageProducer producer) {
+        try {
+            reset(producer);
+        } catch (Throwable t) {
+            log.trace("Unable to reset producer " + producer + ", closing it", t);
+            return false;
+        }
+
+        MessageProducer evicted = null;
+        synchronized (this) {
+            if (closed || producers.containsKey(key)) {
+                return false;
+            }
+            producers.put(key, producer);
+            if (producers.size() > maxSize) {
+                Iterator<MessageProducer> i = producers.values().iterator();
+                evicted = i.next();
+                i.remove();
+            }
+        }
+        if (evicted != null) {
+            close(evicted);
+        }
+        return true;
+    }
+
+    /**
+     * @param destination the destination of a producer
+     * @return whether the producers of the destination may be cached
+     */
+    static boolean isCacheable(Destination destination) {
+        return !(destination instanceof TemporaryQueue) && !(destination instanceof TemporaryTopic);
+    }
+
+    /**
+     * Close the idle producers of a destination the provider reported as invalid
+     *
+     * @param destination the destination
+     */
+    void invalidate(Destination destination) {
+        ArrayList<MessageProducer> invalid = new ArrayList<>();
+        synchronized (this) {
+            for (Iterator<Map.Entry<Key, MessageProducer>> i = producers.entrySet().iterator(); i.hasNext();) {
+                Map.Entry<Key, MessageProducer> entry = i.next();
+                if (Objects.equals(entry.getKey().destination, destination)) {
+                    invalid.add(entry.getValue());
+                    i.remove();
+                }
+            }
+        }
+        for (MessageProducer producer : invalid) {
+            close(producer);
+        }
+    }
+
+    /**
+     * Close the cached producers, the producers returned afterwards are not cached
+     */
+    void close() {
+        ArrayList<MessageProducer> idle;
+        synchronized (this) {
+            closed = true;
+            idle = new ArrayList<>(producers.values());
+            producers.clear();
+        }
+        for (MessageProducer producer : idle) {
+            close(producer);
+        }
+    }
+
+    /**
+     * @return the number of producers taken from the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of producers created because none was cached
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of idle producers
+     */
+    public synchronized int size() {
+        return producers.size();
+    }
+
+    private static void reset(MessageProducer producer) throws Exception {
+        producer.setDeliveryMode(Message.DEFAULT_DELIVERY_MODE);
+        producer.setPriority(Message.DEFAULT_PRIORITY);
+        producer.setTimeToLive(Message.DEFAULT_TIME_TO_LIVE);
+        producer.setDisableMessageID(false);
+        producer.setDisableMessageTimestamp(false);
+        try {
+            producer.setDeliveryDelay(Message.DEFAULT_DELIVERY_DELAY);
+        } catch (AbstractMethodError e) {
+            // JMS 1.1 provider
+        }
+    }
+
+    private static void close(MessageProducer producer) {
+        try {
+            producer.close();
+        } catch (Throwable t) {
+            log.trace("Error closing cached producer " + producer, t);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return super.toString() + "(maxSize=" + maxSize + " size=" + producers.size() + " hits=" + hits + " misses=" + misses + ')';
+    }
+
+    /**
+     * The kind and destination of a producer
+     */
+    static final class Key {
+        private final int kind;
+        private final Destination destination;
+
+        Key(int kind, Destination destination) {
+            this.kind = kind;
+            this.destination = destination;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return kind == other.kind && Objects.equals(destination, other.destination);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * kind + Objects.hashCode(destination);
+        }
+
+        @Override
+        public String toString() {
+            return "Key(kind=" + kind + " destination=" + destination + ')';
+        }
+    }
+}
@@ -4,12 +4,16 @@
  */
 package org.jboss.resource.adapter.jms;
 
+import jakarta.jms.InvalidDestinationException;
 import jakarta.jms.JMSException;
 import jakarta.jms.Message;
 import jakarta.jms.Queue;
 import jakarta.jms.QueueSender;
 
 import org.jboss.logging.Logger;
+import org.jboss.resource.adapter.jms.jfr.JmsSendEvent;
+import org.jboss.resource.adapter.jms.tracing.JmsSpan;
+import org.jboss.resource.adapter.jms.tracing.JmsTracing;
 
 /**
  * JmsQueueSender.
@@ -36,20 +40,43 @@ public class JmsQueueSender extends JmsMessageProducer implements QueueSender {
 
     @Override
     public Queue getQueue() throws JMSException {
-        return ((QueueSender) producer).getQueue();
+        return partitionedQueue != null ? partitionedQueue : ((QueueSender) producer).getQueue();
     }
 
     @Override
     public void send(Queue destination, Message message, int deliveryMode, int priority, long timeToLive) throws JMSException {
-        session.lock();
+        JmsPartitionedQueue partitioned = destination instanceof JmsPartitionedQueue ? (JmsPartitionedQueue) destination : null;
+        destination = (Queue) route(destination, message);
+        session.lockForSend();
         try {
             if (trace) {
                 log.trace("send " + this + " destination=" + destination + " message=" + message + " deliveryMode=" + deliveryMode + " priority=" + priority + " ttl=" + timeToLive);
             }
-            producer.send(destination, message, deliveryMode, priority, timeToLive);
+            Message sent = prepare(message);
+            JmsSpan span = JmsTracing.startSend(destination, sent);
+            JmsSendEvent event = new JmsSendEvent();
+            event.begin();
+            Throwable failure = null;
+            try {
+                producer.send(destination, sent, deliveryMode, priority, timeToLive);
+            } catch (Throwable t) {
+                failure = t;
+                throw t;
+            } finally {
+                event.complete(destination, sent, failure != null);
+                JmsTracing.end(span, failure != null);
+                session.sent(failure);
+            }
+            if (partitioned != null) {
+                partitioned.sent(destination);
+            }
+            JmsMessageCompressor.copySendHeaders(sent, message);
             if (trace) {
                 log.trace("sent " + this + " result=" + message);
             }
+        } catch (InvalidDestinationException e) {
+            invalidateDestination(destination);
+            throw e;
         } finally {
             session.unlock();
         }
@@ -57,15 +84,38 @@ public class JmsQueueSender extends JmsMessageProducer implements QueueSender {
 
     @Override
     public void send(Queue destination, Message message) throws JMSException {
-        session.lock();
+        JmsPartitionedQueue partitioned = destination instanceof JmsPartitionedQueue ? (JmsPartitionedQueue) destination : null;
+        destination = (Queue) route(destination, message);
+        session.lockForSend();
         try {
             if (trace) {
                 log.trace("send " + this + " destination=" + destination + " message=" + message);
             }
-            producer.send(destination, message);
+            Message sent = prepare(message);
+            JmsSpan span = JmsTracing.startSend(destination, sent);
+            JmsSendEvent event = new JmsSendEvent();
+            event.begin();
+            Throwable failure = null;
+            try {
+                producer.send(destination, sent);
+            } catch (Throwable t) {
+                failure = t;
+                throw t;
+            } finally {
+                event.complete(destination, sent, failure != null);
+                JmsTracing.end(span, failure != null);
+                session.sent(failure);
+            }
+            if (partitioned != null) {
+                partitioned.sent(destination);
+            }
+            JmsMessageCompressor.copySendHeaders(sent, message);
             if (trace) {
                 log.trace("sent " + this + " result=" + message);
             }
+        } catch (InvalidDestinationException e) {
+            invalidateDestination(destination);
+            throw e;
         } finally {
             session.unlock();
         }
@@ -0,0 +1,284 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.Destination;
+import jakarta.jms.ExceptionListener;
+import jakarta.jms.IllegalStateException;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageListener;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TemporaryQueue;
+import jakarta.jms.XAConnectionFactory;
+import javax.naming.Context;
+
+import org.jboss.logging.Logger;
+import org.jboss.resource.adapter.jms.inflow.JmsActivation;
+import org.jboss.resource.adapter.jms.util.SecurityActions;
+
+/**
+ * Request-reply over a single reply destination shared by all the requests of a managed connection factory.
+ * <p>
+ * The replies are received on a temporary queue by a consumer running on a dedicated, non transacted
+ * connection opened on first use. Each request gets a unique JMSCorrelationID and a pending future that the
+ * reply completes, or that fails once the request times out or the reply connection is lost. The responders
+ * are expected to copy the JMSCorrelationID of the request to the reply and send it to its JMSReplyTo.
+ * <p>
+ * The request is sent with the session of the caller, so within a transaction it only leaves when the
+ * transaction commits and the reply cannot be awaited in the same transaction. The futures are completed
+ * on the thread of the reply consumer: dependent stages doing any real work should use the async variants.
+ * <p>
+ * The facility of a managed connection factory is closed when the resource adapter stops.
+ */
+public class JmsRequestReply implements MessageListener, ExceptionListener {
+    private static final Logger log = Logger.getLogger(JmsRequestReply.class);
+
+    /**
+     * The managed connection factory
+     */
+    private final JmsManagedConnectionFactory mcf;
+
+    /**
+     * The prefix of the correlation ids
+     */
+    private final String prefix = UUID.randomUUID().toString() + '-';
+
+    /**
+     * The sequence of the correlation ids
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * The pending requests by correlation id
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<Message>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * The reply connection, guarded by this
+     */
+    private Connection connection;
+
+    /**
+     * The reply queue, guarded by this
+     */
+    private TemporaryQueue replyQueue;
+
+    /**
+     * Whether the facility is closed, guarded by this
+     */
+    private boolean closed = false;
+
+    /**
+     * Create a new request-reply facility
+     *
+     * @param mcf the managed connection factory
+     */
+    public JmsRequestReply(JmsManagedConnectionFactory mcf) {
+        this.mcf = mcf;
+    }
+
+    /**
+     * Send a request and return the future reply
+     *
+     * @param session     the session sending the request
+     * @param destination the destination of the request
+     * @param message     the request, its JMSReplyTo and JMSCorrelationID are overwritten
+     * @param timeout     the time to wait for the reply in milliseconds, there is no unbounded wait as a request
+     *                    whose reply never arrives would stay pending forever
+     * @return the future reply, failing with a {@link java.util.concurrent.TimeoutException} when no reply
+     * arrives in time
+     * @throws IllegalArgumentException when the timeout is not positive
+     * @throws JMSException for any error sending the request
+     */
+    public CompletableFuture<Message> request(Session session, Destination destination, Message message, long timeout)
+            throws JMSException {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("The reply timeout must be positive: " + timeout);
+        }
+        String correlationId = prefix + sequence.incrementAndGet();
+        CompletableFuture<Message> reply = new CompletableFuture<>();
+        Destination replyTo;
+        synchronized (this) {
+            // Register under the lock of close(), so a lost connection either fails the request or is replaced
+            replyTo = getReplyQueue();
+            pending.put(correlationId, reply);
+        }
+        reply.whenComplete((m, t) -> pending.remove(correlationId));
+        reply.orTimeout(timeout, TimeUnit.MILLISECONDS);
+
+        try {
+            message.setJMSReplyTo(replyTo);
+            message.setJMSCorrelationID(correlationId);
+            MessageProducer producer = session.createProducer(destination);
+            try {
+                producer.send(message);
+            } finally {
+                producer.close();
+            }
+        } catch (JMSException | RuntimeException e) {
+            reply.completeExceptionally(e);
+            throw e;
+        }
+        return reply;
+    }
+
+    /**
+     * @return the number of requests waiting for their reply
+     */
+    public int getPendingRequests() {
+        return pending.size();
+    }
+
+    @Override
+    public void onMessage(Message reply) {
+        String correlationId = null;
+        try {
+            correlationId = reply.getJMSCorrelationID();
+        } catch (JMSException e) {
+            log.debug("Unable to read the correlation id of " + reply, e);
+        }
+        CompletableFuture<Message> future = correlationId != null ? pending.get(correlationId) : null;
+        if (future != null) {
+            future.complete(reply);
+        } else {
+            log.debug("Discarding reply " + reply + " without pending request, correlationId=" + correlationId);
+        }
+    }
+
+    /**
+     * Fail the pending requests when the reply connection is lost, the next request opens a new one
+     */
+    @Override
+    public void onException(JMSException exception) {
+        log.warn("Reply connection failed, failing " + pending.size() + " pending requests", exception);
+        close(exception, false);
+    }
+
+    /**
+     * Close the reply connection and fail the pending requests, the next requests fail
+     */
+    public void close() {
+        close(new JMSException("The reply connection was closed"), true);
+    }
+
+    private void close(Exception cause, boolean permanent) {
+        Connection connection;
+        List<CompletableFuture<Message>> failed;
+        synchronized (this) {
+            connection = this.connection;
+            this.connection = null;
+            this.replyQueue = null;
+            closed |= permanent;
+            failed = new ArrayList<>(pending.values());
+        }
+        for (CompletableFuture<Message> future : failed) {
+            future.completeExceptionally(cause);
+        }
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (Throwable t) {
+                log.debug("Error closing the reply connection " + connection, t);
+            }
+        }
+    }
+
+    private Destination getReplyQueue() throws JMSException {
+        if (closed) {
+            throw new IllegalStateException("The request-reply facility of " + mcf + " is closed");
+        }
+        if (replyQueue == null) {
+            open();
+        }
+        return replyQueue;
+    }
+
+    private void open() throws JMSException {
+        ClassLoader oldTCCL = SecurityActions.getThreadContextClassLoader();
+        Connection connection = null;
+        try {
+            SecurityActions.setThreadContextClassLoader(JmsRequestReply.class.getClassLoader());
+            connection = createConnection();
+            connection.setExceptionListener(this);
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            TemporaryQueue queue = session.createTemporaryQueue();
+            MessageConsumer consumer = session.createConsumer(queue);
+            consumer.setMessageListener(this);
+            connection.start();
+
+            this.connection = connection;
+            this.replyQueue = queue;
+            log.debug("Opened reply queue " + queue + " on " + connection);
+        } catch (JMSException e) {
+            closeQuietly(connection);
+            throw e;
+        } catch (Exception e) {
+            closeQuietly(connection);
+            JMSException jmse = new JMSException("Unable to open the reply connection: " + e);
+            jmse.setLinkedException(e);
+            jmse.initCause(e);
+            throw jmse;
+        } finally {
+            SecurityActions.setThreadContextClassLoader(oldTCCL);
+        }
+    }
+
+    /**
+     * Create the reply connection
+     *
+     * @return the connection
+     * @throws Exception for any error
+     */
+    protected Connection createConnection() throws Exception {
+        Context context = JmsActivation.convertStringToContext(mcf.getJndiParameters());
+        Object factory;
+        try {
+            factory = context.lookup(mcf.getBrokerBalancer().select().get(0).getConnectionFactory());
+        } finally {
+            context.close();
+        }
+
+        String user = mcf.getUserName();
+        String password = mcf.getPassword();
+        if (factory instanceof ConnectionFactory) {
+            ConnectionFactory cf = (ConnectionFactory) factory;
+            return user != null ? cf.createConnection(user, password) : cf.createConnection();
+        } else {
+            XAConnectionFactory xacf = (XAConnectionFactory) factory;
+            return user != null ? xacf.createXAConnection(user, password) : xacf.createXAConnection();
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (Throwable t) {
+                log.trace("Ignored error closing the reply connection", t);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (this) {
+            return super.toString() + "(replyQueue=" + replyQueue + " closed=" + closed + " pending=" + pending.size() + ')';
+        }
+    }
+}
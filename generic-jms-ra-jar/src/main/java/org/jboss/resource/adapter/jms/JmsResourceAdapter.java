@@ -7,17 +7,25 @@ package org.jboss.resource.adapter.jms;
 import org.jboss.logging.Logger;
 import org.jboss.resource.adapter.jms.inflow.JmsActivation;
 import org.jboss.resource.adapter.jms.inflow.JmsActivationSpec;
+import org.jboss.resource.adapter.jms.inflow.JmsRateLimiter;
 
 import jakarta.resource.ResourceException;
 import jakarta.resource.spi.ActivationSpec;
 import jakarta.resource.spi.BootstrapContext;
 import jakarta.resource.spi.ResourceAdapter;
 import jakarta.resource.spi.ResourceAdapterInternalException;
+import jakarta.resource.spi.UnavailableException;
 import jakarta.resource.spi.endpoint.MessageEndpointFactory;
 import jakarta.resource.spi.work.WorkManager;
 import javax.transaction.xa.XAResource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -41,6 +49,21 @@ public class JmsResourceAdapter implements ResourceAdapter {
      */
     private ConcurrentHashMap<ActivationSpec, JmsActivation> activations = new ConcurrentHashMap<>();
 
+    /**
+     * The rate limiters shared by activations, by rate limit group
+     */
+    private final ConcurrentHashMap<String, JmsRateLimiter> rateLimiters = new ConcurrentHashMap<>();
+
+    /**
+     * The managed connection factories associated with this resource adapter
+     */
+    private final Set<JmsManagedConnectionFactory> factories = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+
+    /**
+     * The timer of the bootstrap context, created on first use and cancelled when the resource adapter stops
+     */
+    private Timer timer;
+
     /**
      * Get the work manager
      *
@@ -50,6 +73,45 @@ public class JmsResourceAdapter implements ResourceAdapter {
         return ctx.getWorkManager();
     }
 
+    /**
+     * Get the timer of the resource adapter
+     *
+     * @return the timer or null when the resource adapter is not started
+     * @throws UnavailableException when the bootstrap context cannot create a timer
+     */
+    public synchronized Timer getTimer() throws UnavailableException {
+        if (timer == null && ctx != null) {
+            timer = ctx.createTimer();
+        }
+        return timer;
+    }
+
+    /**
+     * Get the rate limiter shared by the activations of a rate limit group, the first activation defines the rate
+     *
+     * @param group the rate limit group
+     * @param rate  the number of messages per second
+     * @param burst the number of messages that can be delivered at once after an idle period
+     * @return the rate limiter
+     */
+    public JmsRateLimiter getRateLimiter(String group, int rate, int burst) {
+        JmsRateLimiter rateLimiter = rateLimiters.computeIfAbsent(group, g -> new JmsRateLimiter(rate, burst));
+        if (rateLimiter.getRate() != rate || rateLimiter.getBurst() != Math.max(burst, 1)) {
+            log.warn("Rate limit group " + group + " is already limited to " + rateLimiter.getRate() + " messages per second with a burst of "
+                    + rateLimiter.getBurst() + ", ignoring " + rate + " messages per second with a burst of " + burst);
+        }
+        return rateLimiter;
+    }
+
+    /**
+     * Register a managed connection factory, stopped with this resource adapter
+     *
+     * @param mcf the managed connection factory
+     */
+    void register(JmsManagedConnectionFactory mcf) {
+        factories.add(mcf);
+    }
+
     @Override
     public void endpointActivation(MessageEndpointFactory endpointFactory, ActivationSpec spec) throws ResourceException {
         JmsActivation activation = new JmsActivation(this, endpointFactory, (JmsActivationSpec) spec);
@@ -89,6 +151,28 @@ public class JmsResourceAdapter implements ResourceAdapter {
             }
             i.remove();
         }
+
+        List<JmsManagedConnectionFactory> stopped;
+        synchronized (factories) {
+            stopped = new ArrayList<>(factories);
+            factories.clear();
+        }
+        for (JmsManagedConnectionFactory mcf : stopped) {
+            try {
+                mcf.stop();
+            } catch (Exception ignored) {
+                log.debug("Ignored", ignored);
+            }
+        }
+
+        Timer timer;
+        synchronized (this) {
+            timer = this.timer;
+            this.timer = null;
+        }
+        if (timer != null) {
+            timer.cancel();
+        }
     }
 
     @Override
@@ -4,6 +4,7 @@
  */
 package org.jboss.resource.adapter.jms;
 
+import java.io.InputStream;
 import java.io.Serializable;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -57,6 +58,11 @@ public class JmsSession implements Session, QueueSession, TopicSession {
     private JmsManagedConnection lockedMC;
     private int lockCount;
 
+    /**
+     * The circuit breaker of the send holding the lock, until the outcome of the send is reported
+     */
+    private JmsCircuitBreaker pendingSend;
+
     /**
      * The connection request info
      */
@@ -117,10 +123,70 @@ public class JmsSession implements Session, QueueSession, TopicSession {
         }
     }
 
+    /**
+     * Lock the managed connection for a send, failing fast while the circuit breaker of the managed connection
+     * factory is open
+     *
+     * @throws JMSException for any error
+     */
+    protected void lockForSend() throws JMSException {
+        JmsManagedConnection mc = this.mc;
+        JmsCircuitBreaker breaker = mc != null ? mc.getManagedConnectionFactory().getCircuitBreaker() : null;
+        if (breaker != null) {
+            breaker.acquire();
+        }
+        try {
+            lock();
+        } catch (JMSException e) {
+            if (breaker != null) {
+                breaker.completed(e);
+            }
+            throw e;
+        }
+        pendingSend = breaker;
+    }
+
+    /**
+     * Record the outcome of a send in the circuit breaker of the managed connection factory
+     *
+     * @param failure the failure of the send, null when it succeeded
+     */
+    void sent(Throwable failure) {
+        pendingSend = null;
+        sendCompleted(failure);
+    }
+
+    /**
+     * Hand the report of the outcome of a send to the completion listener of an asynchronous send
+     */
+    void sendStarted() {
+        pendingSend = null;
+    }
+
+    /**
+     * Record the outcome of an asynchronous send in the circuit breaker of the managed connection factory,
+     * from the thread of its completion listener
+     *
+     * @param failure the failure of the send, null when it succeeded
+     */
+    void sendCompleted(Throwable failure) {
+        JmsManagedConnection mc = this.mc;
+        JmsCircuitBreaker breaker = mc != null ? mc.getManagedConnectionFactory().getCircuitBreaker() : null;
+        if (breaker != null) {
+            breaker.completed(failure);
+        }
+    }
+
     protected void unlock() {
         JmsManagedConnection mc = this.lockedMC;
         if (--lockCount == 0) {
             lockedMC = null;
+            JmsCircuitBreaker breaker = pendingSend;
+            if (breaker != null) {
+                // The send failed before reaching the provider
+                pendingSend = null;
+                breaker.inconclusive();
+            }
         }
 
         if (mc != null) {
@@ -343,7 +409,14 @@ public class JmsSession implements Session, QueueSession, TopicSession {
         if (trace) {
             log.trace("createTopic " + session + " topicName=" + topicName);
         }
-        Topic result = session.createTopic(topicName);
+        JmsDestinationCache cache = getDestinationCache();
+        Topic result = cache != null ? (Topic) cache.get(JmsConnectionFactory.TOPIC, topicName) : null;
+        if (result == null) {
+            result = session.createTopic(topicName);
+            if (cache != null) {
+                cache.put(JmsConnectionFactory.TOPIC, topicName, result);
+            }
+        }
         if (trace) {
             log.trace("createdTopic " + session + " topic=" + result);
         }
@@ -441,8 +514,13 @@ public class JmsSession implements Session, QueueSession, TopicSession {
             if (trace) {
                 log.trace("createPublisher " + session + " topic=" + topic);
             }
-            TopicPublisher result = session.createPublisher(topic);
+            JmsProducerCache.Key key = producerCacheKey(JmsProducerCache.PUBLISHER, topic);
+            TopicPublisher result = (TopicPublisher) takeCachedProducer(key);
+            if (result == null) {
+                result = session.createPublisher(topic);
+            }
             result = new JmsTopicPublisher(result, this);
+            ((JmsTopicPublisher) result).setCacheKey(key);
             if (trace) {
                 log.trace("createdPublisher " + session + " publisher=" + result);
             }
@@ -507,6 +585,7 @@ public class JmsSession implements Session, QueueSession, TopicSession {
         if (trace) {
             log.trace("createBrowser " + session + " queue=" + queue);
         }
+        JmsPartitionedQueue.checkNotPartitioned(queue);
         QueueBrowser result = session.createBrowser(queue);
         if (trace) {
             log.trace("createdBrowser " + session + " browser=" + result);
@@ -519,6 +598,7 @@ public class JmsSession implements Session, QueueSession, TopicSession {
         if (trace) {
             log.trace("createBrowser " + session + " queue=" + queue + " selector=" + messageSelector);
         }
+        JmsPartitionedQueue.checkNotPartitioned(queue);
         QueueBrowser result = session.createBrowser(queue, messageSelector);
         if (trace) {
             log.trace("createdBrowser " + session + " browser=" + result);
@@ -536,7 +616,19 @@ public class JmsSession implements Session, QueueSession, TopicSession {
         if (trace) {
             log.trace("createQueue " + session + " queueName=" + queueName);
         }
-        Queue result = session.createQueue(queueName);
+        JmsManagedConnection mc = this.mc;
+        JmsPartitionedQueue partitioned = mc != null ? mc.getManagedConnectionFactory().getPartitionedQueue(queueName) : null;
+        if (partitioned != null) {
+            return partitioned;
+        }
+        JmsDestinationCache cache = getDestinationCache();
+        Queue result = cache != null ? (Queue) cache.get(JmsConnectionFactory.QUEUE, queueName) : null;
+        if (result == null) {
+            result = session.createQueue(queueName);
+            if (cache != null) {
+                cache.put(JmsConnectionFactory.QUEUE, queueName, result);
+            }
+        }
         if (trace) {
             log.trace("createdQueue " + session + " queue=" + result);
         }
@@ -551,6 +643,7 @@ public class JmsSession implements Session, QueueSession, TopicSession {
             if (trace) {
                 log.trace("createReceiver " + session + " queue=" + queue);
             }
+            JmsPartitionedQueue.checkNotPartitioned(queue);
             QueueReceiver result = session.createReceiver(queue);
             result = new JmsQueueReceiver(result, this);
             if (trace) {
@@ -571,6 +664,7 @@ public class JmsSession implements Session, QueueSession, TopicSession {
             if (trace) {
                 log.trace("createReceiver " + session + " queue=" + queue + " selector=" + messageSelector);
             }
+            JmsPartitionedQueue.checkNotPartitioned(queue);
             QueueReceiver result = session.createReceiver(queue, messageSelector);
             result = new JmsQueueReceiver(result, this);
             if (trace) {
@@ -590,8 +684,17 @@ public class JmsSession implements Session, QueueSession, TopicSession {
             if (trace) {
                 log.trace("createSender " + session + " queue=" + queue);
             }
-            QueueSender result = session.createSender(queue);
+            JmsProducerCache.Key key = producerCacheKey(JmsProducerCache.SENDER, queue);
+            QueueSender result = (QueueSender) takeCachedProducer(key);
+            if (result == null) {
+                // The partitions are selected on each send
+                result = session.createSender(queue instanceof JmsPartitionedQueue ? null : queue);
+            }
             result = new JmsQueueSender(result, this);
+            ((JmsQueueSender) result).setCacheKey(key);
+            if (queue instanceof JmsPartitionedQueue) {
+                ((JmsQueueSender) result).setPartitionedQueue((JmsPartitionedQueue) queue);
+            }
             if (trace) {
                 log.trace("createdSender " + session + " sender=" + result);
             }
@@ -633,6 +736,7 @@ public class JmsSession implements Session, QueueSession, TopicSession {
             if (trace) {
                 log.trace("createConsumer " + session + " dest=" + destination);
             }
+            JmsPartitionedQueue.checkNotPartitioned(destination);
             MessageConsumer result = session.createConsumer(destination);
             result = new JmsMessageConsumer(result, this);
             if (trace) {
@@ -652,6 +756,7 @@ public class JmsSession implements Session, QueueSession, TopicSession {
             if (trace) {
                 log.trace("createConsumer " + session + " dest=" + destination + " messageSelector=" + messageSelector);
             }
+            JmsPartitionedQueue.checkNotPartitioned(destination);
             MessageConsumer result = session.createConsumer(destination, messageSelector);
             result = new JmsMessageConsumer(result, this);
             if (trace) {
@@ -673,6 +778,7 @@ public class JmsSession implements Session, QueueSession, TopicSession {
             if (trace) {
                 log.trace("createConsumer " + session + " dest=" + destination + " messageSelector=" + messageSelector + " noLocal=" + noLocal);
             }
+            JmsPartitionedQueue.checkNotPartitioned(destination);
             MessageConsumer result = session.createConsumer(destination, messageSelector, noLocal);
             result = new JmsMessageConsumer(result, this);
             if (trace) {
@@ -693,8 +799,17 @@ public class JmsSession implements Session, QueueSession, TopicSession {
             if (trace) {
                 log.trace("createProducer " + session + " dest=" + destination);
             }
-            MessageProducer result = getSession().createProducer(destination);
+            JmsProducerCache.Key key = producerCacheKey(JmsProducerCache.PRODUCER, destination);
+            MessageProducer result = takeCachedProducer(key);
+            if (result == null) {
+                // The partitions are selected on each send
+                result = session.createProducer(destination instanceof JmsPartitionedQueue ? null : destination);
+            }
             result = new JmsMessageProducer(result, this);
+            ((JmsMessageProducer) result).setCacheKey(key);
+            if (destination instanceof JmsPartitionedQueue) {
+                ((JmsMessageProducer) result).setPartitionedQueue((JmsPartitionedQueue) destination);
+            }
             if (trace) {
                 log.trace("createdProducer " + session + " producer=" + result);
             }
@@ -705,6 +820,37 @@ public class JmsSession implements Session, QueueSession, TopicSession {
         }
     }
 
+    /**
+     * Send a stream as a group of bytes messages of at most chunkSize bytes.
+     * <p>
+     * The chunks are sent with this session, so within a transaction they are all delivered when it commits
+     * or none of them are. Only two chunks are held in memory at any time.
+     *
+     * @param destination the destination
+     * @param in          the stream, read to its end but not closed
+     * @param chunkSize   the maximum size of a chunk in bytes
+     * @return the group id of the chunks
+     * @throws JMSException for any error
+     */
+    public String sendStream(Destination destination, InputStream in, int chunkSize) throws JMSException {
+        return JmsChunkedMessages.send(this, destination, in, chunkSize);
+    }
+
+    /**
+     * Receive a stream sent with {@link #sendStream(Destination, InputStream, int)}.
+     * <p>
+     * The first chunk is received here, the next ones as the stream is read and only one chunk is held in memory.
+     *
+     * @param consumer the consumer, created by this session
+     * @param timeout  the time to wait for each chunk in milliseconds
+     * @return the stream or null when no chunk arrived in time
+     * @throws JMSException for any error or when the message received is not the first chunk of a stream
+     */
+    public JmsChunkedInputStream receiveStream(MessageConsumer consumer, long timeout) throws JMSException {
+        Message first = consumer.receive(timeout);
+        return first != null ? new JmsChunkedInputStream(consumer, first, timeout) : null;
+    }
+
     @Override
     public int getAcknowledgeMode() throws JMSException {
         getSession(); // check closed
@@ -851,6 +997,10 @@ public class JmsSession implements Session, QueueSession, TopicSession {
     }
 
     // --- JmsManagedConnection api
+    JmsManagedConnection getManagedConnection() {
+        return mc;
+    }
+
     void setManagedConnection(final JmsManagedConnection mc) {
         if (this.mc != null) {
             this.mc.removeHandle(this);
@@ -886,10 +1036,12 @@ public class JmsSession implements Session, QueueSession, TopicSession {
         if (mc != null) {
             log.trace("Closing session " + this);
 
-            try {
-                mc.stop();
-            } catch (Throwable t) {
-                log.trace("Error stopping managed connection", t);
+            if (mc.isSharedWith(this) == false) {
+                try {
+                    mc.stop();
+                } catch (Throwable t) {
+                    log.trace("Error stopping managed connection", t);
+                }
             }
 
             synchronized (consumers) {
@@ -916,10 +1068,11 @@ public class JmsSession implements Session, QueueSession, TopicSession {
                 }
             }
 
-            mc.removeHandle(this);
-            ConnectionEvent ev = new ConnectionEvent(mc, ConnectionEvent.CONNECTION_CLOSED);
-            ev.setConnectionHandle(this);
-            mc.sendEvent(ev);
+            for (JmsSession closed : mc.closeHandle(this)) {
+                ConnectionEvent ev = new ConnectionEvent(mc, ConnectionEvent.CONNECTION_CLOSED);
+                ev.setConnectionHandle(closed);
+                mc.sendEvent(ev);
+            }
             mc = null;
         }
     }
@@ -942,6 +1095,106 @@ public class JmsSession implements Session, QueueSession, TopicSession {
         }
     }
 
+    /**
+     * Get the destination cache of the managed connection factory
+     *
+     * @return the destination cache or null when the destinations are not cached
+     */
+    JmsDestinationCache getDestinationCache() {
+        JmsManagedConnection mc = this.mc;
+        return mc != null ? mc.getManagedConnectionFactory().getDestinationCache() : null;
+    }
+
+    /**
+     * Get the message compressor of the managed connection factory
+     *
+     * @return the compressor or null when the messages are not compressed
+     * @throws JMSException when the codec is unknown
+     */
+    JmsMessageCompressor getCompressor() throws JMSException {
+        JmsManagedConnection mc = this.mc;
+        return mc != null ? mc.getManagedConnectionFactory().getCompressor() : null;
+    }
+
+    /**
+     * Reject a message replying to a partitioned queue, the provider cannot send to it
+     *
+     * @param message the message about to be sent
+     * @throws JMSException when the message replies to a partitioned queue
+     */
+    void checkReplyTo(Message message) throws JMSException {
+        JmsManagedConnection mc = this.mc;
+        if (mc != null && mc.getManagedConnectionFactory().hasPartitionedQueues()) {
+            JmsPartitionedQueue.checkNotPartitioned(message.getJMSReplyTo());
+        }
+    }
+
+    /**
+     * Drop a destination the provider reported as invalid from the destination and producer caches
+     *
+     * @param destination the destination
+     */
+    void invalidateDestination(Destination destination) {
+        JmsDestinationCache cache = getDestinationCache();
+        if (cache != null) {
+            cache.invalidate(destination);
+        }
+        JmsManagedConnection mc = this.mc;
+        if (mc != null) {
+            mc.getManagedConnectionFactory().invalidatePartition(destination);
+            JmsProducerCache producerCache = mc.getProducerCache();
+            if (producerCache != null) {
+                producerCache.invalidate(destination);
+            }
+        }
+    }
+
+    /**
+     * Get the key of a producer in the producer cache of the managed connection
+     *
+     * @param kind        the kind of producer
+     * @param destination the destination of the producer
+     * @return the key or null when the producer is not to be cached
+     */
+    private JmsProducerCache.Key producerCacheKey(int kind, Destination destination) {
+        if (mc == null || mc.getProducerCache() == null || JmsProducerCache.isCacheable(destination) == false) {
+            return null;
+        }
+        return new JmsProducerCache.Key(kind, destination);
+    }
+
+    /**
+     * Take an idle producer from the producer cache of the managed connection
+     *
+     * @param key the key of the producer, null when the managed connection does not cache its producers
+     * @return the producer or null when none is cached
+     */
+    private MessageProducer takeCachedProducer(JmsProducerCache.Key key) {
+        if (key == null) {
+            return null;
+        }
+        MessageProducer producer = mc.getProducerCache().take(key);
+        if (producer != null && trace) {
+            log.trace("Reusing cached producer " + producer + " for " + key);
+        }
+        return producer;
+    }
+
+    /**
+     * Return a producer to the producer cache of the managed connection
+     *
+     * @param key      the key of the producer
+     * @param producer the producer
+     * @return false when the producer was not cached and must be closed
+     */
+    boolean releaseCachedProducer(JmsProducerCache.Key key, MessageProducer producer) {
+        JmsManagedConnection mc = this.mc;
+        if (mc == null || mc.getProducerCache() == null) {
+            return false;
+        }
+        return mc.getProducerCache().release(key, producer);
+    }
+
     void removeProducer(MessageProducer producer) {
         synchronized (producers) {
             producers.remove(producer);
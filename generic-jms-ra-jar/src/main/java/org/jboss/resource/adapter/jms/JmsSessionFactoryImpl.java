@@ -4,8 +4,10 @@
  */
 package org.jboss.resource.adapter.jms;
 
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 
 import jakarta.jms.ConnectionConsumer;
 import jakarta.jms.ConnectionMetaData;
@@ -23,6 +25,7 @@ import jakarta.jms.Topic;
 import jakarta.jms.TopicSession;
 import javax.naming.Reference;
 import jakarta.resource.Referenceable;
+import jakarta.resource.ResourceException;
 import jakarta.resource.spi.ConnectionManager;
 import jakarta.resource.spi.ManagedConnectionFactory;
 
@@ -77,6 +80,11 @@ public class JmsSessionFactoryImpl implements JmsSessionFactory, Referenceable {
      */
     private final HashSet<JmsSession> sessions = new HashSet<>();
 
+    /**
+     * The number of sessions being allocated, guarded by the sessions
+     */
+    private int allocating = 0;
+
     /**
      * The temporary queues
      */
@@ -390,12 +398,20 @@ public class JmsSessionFactoryImpl implements JmsSessionFactory, Referenceable {
     }
 
     protected JmsSession allocateConnection(boolean transacted, int acknowledgeMode, int sessionType) throws JMSException {
+        JmsCircuitBreaker breaker = mcf.getCircuitBreaker();
+        if (breaker != null) {
+            breaker.acquire();
+        }
+        // Whether the outcome of the allocation was reported to the circuit breaker
+        boolean reported = false;
         try {
             synchronized (sessions) {
-                if (mcf.isStrict() && sessions.isEmpty() == false) {
+                if (mcf.isStrict() && (sessions.isEmpty() == false || allocating > 0)) {
                     throw new IllegalStateException("Only allowed one session per connection. See the J2EE spec, e.g. J2EE1.4 Section 6.6");
                 }
-
+                ++allocating;
+            }
+            try {
                 if (transacted) {
                     acknowledgeMode = Session.SESSION_TRANSACTED;
                 }
@@ -409,16 +425,44 @@ public class JmsSessionFactoryImpl implements JmsSessionFactory, Referenceable {
                 if (trace) {
                     log.trace("Allocating session for " + this + " with request info=" + info);
                 }
-                JmsSession session = (JmsSession) cm.allocateConnection(mcf, info);
+                // The pool wait and the connection setup happen outside the lock of the sessions
+                Map<JmsConnectionRequestInfo, JmsSession> bound = null;
+                if (mcf.isTransactionScopedSessions()) {
+                    bound = TransactionUtils.getTransactionResource(mcf.getTransactionKey(), HashMap::new);
+                }
+                JmsSession session = bound != null ? shareConnection(bound, info) : null;
+                if (session == null) {
+                    try {
+                        session = (JmsSession) cm.allocateConnection(mcf, info);
+                    } catch (Throwable t) {
+                        if (breaker != null) {
+                            breaker.completed(t);
+                            reported = true;
+                        }
+                        throw t;
+                    }
+                    if (bound != null) {
+                        bound.put(info, session);
+                    }
+                }
+                if (breaker != null) {
+                    // Also for a shared managed connection, which is only shared while it did not fail
+                    breaker.success();
+                    reported = true;
+                }
                 try {
                     if (trace) {
                         log.trace("Allocated  " + this + " session=" + session);
                     }
                     session.setJmsSessionFactory(this);
-                    if (started) {
-                        session.start();
+                    synchronized (sessions) {
+                        // The connection may have been closed during the allocation
+                        checkClosed();
+                        if (started) {
+                            session.start();
+                        }
+                        sessions.add(session);
                     }
-                    sessions.add(session);
                     return session;
                 } catch (Throwable t) {
                     try {
@@ -431,6 +475,10 @@ public class JmsSessionFactoryImpl implements JmsSessionFactory, Referenceable {
                         throw new RuntimeException("Unexpected error: ", t);
                     }
                 }
+            } finally {
+                synchronized (sessions) {
+                    --allocating;
+                }
             }
         } catch (Exception e) {
             log.error("could not create session", e);
@@ -439,6 +487,40 @@ public class JmsSessionFactoryImpl implements JmsSessionFactory, Referenceable {
             je.initCause(e);
             je.setLinkedException(e);
             throw je;
+        } finally {
+            if (breaker != null && reported == false) {
+                // The allocation failed before reaching the connection manager, e.g. a second session in strict mode
+                breaker.inconclusive();
+            }
+        }
+    }
+
+    /**
+     * Create a session on the managed connection the transaction already allocated for the same request info
+     *
+     * @param bound the sessions allocated by the connection manager in the transaction
+     * @param info  the request info
+     * @return the session or null when the transaction has no usable managed connection
+     */
+    private JmsSession shareConnection(Map<JmsConnectionRequestInfo, JmsSession> bound,
+            JmsConnectionRequestInfo info) {
+        JmsSession allocated = bound.get(info);
+        // Only while the allocated session is open, the connection manager may hand out the connection otherwise
+        JmsManagedConnection mc = allocated != null ? allocated.getManagedConnection() : null;
+        if (mc == null) {
+            bound.remove(info);
+            return null;
+        }
+        try {
+            JmsSession session = mc.shareHandle(info);
+            if (trace) {
+                log.trace("Sharing " + mc + " of the transaction with session=" + session);
+            }
+            return session;
+        } catch (ResourceException e) {
+            log.trace("Unable to share the managed connection of the transaction", e);
+            bound.remove(info);
+            return null;
         }
     }
 
@@ -13,6 +13,16 @@ import jakarta.jms.TextMessage;
  * @author <a href="mailto:adrian@jboss.com">Adrian Brock</a>
  */
 public class JmsTextMessage extends JmsMessage implements TextMessage {
+    /**
+     * The text, decompressed when the body is compressed
+     */
+    private String text;
+
+    /**
+     * Whether the text was read
+     */
+    private boolean read = false;
+
     /**
      * Create a new wrapper
      *
@@ -25,11 +35,32 @@ public class JmsTextMessage extends JmsMessage implements TextMessage {
 
     @Override
     public String getText() throws JMSException {
-        return ((TextMessage) message).getText();
+        if (!read) {
+            text = isCompressed() ? JmsMessageCompressor.decompress((TextMessage) message) : ((TextMessage) message).getText();
+            read = true;
+        }
+        return text;
     }
 
     @Override
     public void setText(String string) throws JMSException {
         ((TextMessage) message).setText(string);
+        bodyRewritten = true;
+        read = false;
+    }
+
+    @Override
+    public void clearBody() throws JMSException {
+        super.clearBody();
+        read = false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getBody(Class<T> c) throws JMSException {
+        if (isCompressed() && c.isAssignableFrom(String.class)) {
+            return (T) getText();
+        }
+        return super.getBody(c);
     }
 }
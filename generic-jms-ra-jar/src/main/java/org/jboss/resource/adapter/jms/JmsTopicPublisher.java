@@ -5,7 +5,11 @@
 package org.jboss.resource.adapter.jms;
 
 import org.jboss.logging.Logger;
+import org.jboss.resource.adapter.jms.jfr.JmsSendEvent;
+import org.jboss.resource.adapter.jms.tracing.JmsSpan;
+import org.jboss.resource.adapter.jms.tracing.JmsTracing;
 
+import jakarta.jms.InvalidDestinationException;
 import jakarta.jms.JMSException;
 import jakarta.jms.Message;
 import jakarta.jms.Topic;
@@ -41,7 +45,7 @@ public class JmsTopicPublisher extends JmsMessageProducer implements TopicPublis
 
     @Override
     public void publish(Message message, int deliveryMode, int priority, long timeToLive) throws JMSException {
-        session.lock();
+        session.lockForSend();
         try {
         } finally {
             session.unlock();
@@ -49,7 +53,22 @@ public class JmsTopicPublisher extends JmsMessageProducer implements TopicPublis
         if (trace) {
             log.trace("send " + this + " message=" + message + " deliveryMode=" + deliveryMode + " priority=" + priority + " ttl=" + timeToLive);
         }
-        ((TopicPublisher) producer).publish(message, deliveryMode, priority, timeToLive);
+        Message sent = prepare(message);
+        JmsSpan span = JmsTracing.startSend(null, sent);
+        JmsSendEvent event = new JmsSendEvent();
+        event.begin();
+        Throwable failure = null;
+        try {
+            ((TopicPublisher) producer).publish(sent, deliveryMode, priority, timeToLive);
+        } catch (Throwable t) {
+            failure = t;
+            throw t;
+        } finally {
+            event.complete(null, sent, failure != null);
+            JmsTracing.end(span, failure != null);
+            session.sent(failure);
+        }
+        JmsMessageCompressor.copySendHeaders(sent, message);
         if (trace) {
             log.trace("sent " + this + " result=" + message);
         }
@@ -57,15 +76,33 @@ public class JmsTopicPublisher extends JmsMessageProducer implements TopicPublis
 
     @Override
     public void publish(Message message) throws JMSException {
-        session.lock();
+        session.lockForSend();
         try {
             if (trace) {
                 log.trace("send " + this + " message=" + message);
             }
-            ((TopicPublisher) producer).publish(message);
+            Message sent = prepare(message);
+            JmsSpan span = JmsTracing.startSend(null, sent);
+            JmsSendEvent event = new JmsSendEvent();
+            event.begin();
+            Throwable failure = null;
+            try {
+                ((TopicPublisher) producer).publish(sent);
+            } catch (Throwable t) {
+                failure = t;
+                throw t;
+            } finally {
+                event.complete(null, sent, failure != null);
+                JmsTracing.end(span, failure != null);
+                session.sent(failure);
+            }
+            JmsMessageCompressor.copySendHeaders(sent, message);
             if (trace) {
                 log.trace("sent " + this + " result=" + message);
             }
+        } catch (InvalidDestinationException e) {
+            invalidateDestination(null);
+            throw e;
         } finally {
             session.unlock();
         }
@@ -74,15 +111,33 @@ public class JmsTopicPublisher extends JmsMessageProducer implements TopicPublis
     @Override
     public void publish(Topic destination, Message message, int deliveryMode, int priority, long timeToLive)
             throws JMSException {
-        session.lock();
+        session.lockForSend();
         try {
             if (trace) {
                 log.trace("send " + this + " destination=" + destination + " message=" + message + " deliveryMode=" + deliveryMode + " priority=" + priority + " ttl=" + timeToLive);
             }
-            ((TopicPublisher) producer).publish(destination, message, deliveryMode, priority, timeToLive);
+            Message sent = prepare(message);
+            JmsSpan span = JmsTracing.startSend(destination, sent);
+            JmsSendEvent event = new JmsSendEvent();
+            event.begin();
+            Throwable failure = null;
+            try {
+                ((TopicPublisher) producer).publish(destination, sent, deliveryMode, priority, timeToLive);
+            } catch (Throwable t) {
+                failure = t;
+                throw t;
+            } finally {
+                event.complete(destination, sent, failure != null);
+                JmsTracing.end(span, failure != null);
+                session.sent(failure);
+            }
+            JmsMessageCompressor.copySendHeaders(sent, message);
             if (trace) {
                 log.trace("sent " + this + " result=" + message);
             }
+        } catch (InvalidDestinationException e) {
+            invalidateDestination(destination);
+            throw e;
         } finally {
             session.unlock();
         }
@@ -90,15 +145,33 @@ public class JmsTopicPublisher extends JmsMessageProducer implements TopicPublis
 
     @Override
     public void publish(Topic destination, Message message) throws JMSException {
-        session.lock();
+        session.lockForSend();
         try {
             if (trace) {
                 log.trace("send " + this + " destination=" + destination + " message=" + message);
             }
-            ((TopicPublisher) producer).publish(destination, message);
+            Message sent = prepare(message);
+            JmsSpan span = JmsTracing.startSend(destination, sent);
+            JmsSendEvent event = new JmsSendEvent();
+            event.begin();
+            Throwable failure = null;
+            try {
+                ((TopicPublisher) producer).publish(destination, sent);
+            } catch (Throwable t) {
+                failure = t;
+                throw t;
+            } finally {
+                event.complete(destination, sent, failure != null);
+                JmsTracing.end(span, failure != null);
+                session.sent(failure);
+            }
+            JmsMessageCompressor.copySendHeaders(sent, message);
             if (trace) {
                 log.trace("sent " + this + " result=" + message);
             }
+        } catch (InvalidDestinationException e) {
+            invalidateDestination(destination);
+            throw e;
         } finally {
             session.unlock();
         }
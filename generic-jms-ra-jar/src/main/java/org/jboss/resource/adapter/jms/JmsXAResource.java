@@ -7,7 +7,9 @@ package org.jboss.resource.adapter.jms;
 import javax.transaction.xa.XAException;
 import javax.transaction.xa.XAResource;
 import javax.transaction.xa.Xid;
+
 import org.jboss.logging.Logger;
+import org.jboss.resource.adapter.jms.jfr.JmsXAEvent;
 
 /**
  * JmsXAResource.
@@ -40,61 +42,92 @@ public class JmsXAResource implements XAResource {
 
     @Override
     public void start(Xid xid, int flags) throws XAException {
+        JmsXAEvent event = new JmsXAEvent();
+        event.begin();
+        boolean failed = true;
         managedConnection.lock();
         try {
             xaResource.start(xid, flags);
+            failed = false;
         } finally {
             managedConnection.unlock();
+            event.complete("start", xid, failed);
         }
     }
 
     @Override
     public void end(Xid xid, int flags) throws XAException {
+        JmsXAEvent event = new JmsXAEvent();
+        event.begin();
+        boolean failed = true;
         managedConnection.lock();
         try {
             xaResource.end(xid, flags);
+            failed = false;
         } finally {
             managedConnection.unlock();
+            event.complete("end", xid, failed);
         }
     }
 
     @Override
     public int prepare(Xid xid) throws XAException {
+        JmsXAEvent event = new JmsXAEvent();
+        event.begin();
+        boolean failed = true;
         managedConnection.lock();
         try {
-            return xaResource.prepare(xid);
+            int result = xaResource.prepare(xid);
+            failed = false;
+            return result;
         } finally {
             managedConnection.unlock();
+            event.complete("prepare", xid, failed);
         }
     }
 
     @Override
     public void commit(Xid xid, boolean onePhase) throws XAException {
+        JmsXAEvent event = new JmsXAEvent();
+        event.begin();
+        boolean failed = true;
         managedConnection.lock();
         try {
             xaResource.commit(xid, onePhase);
+            failed = false;
         } finally {
             managedConnection.unlock();
+            event.complete("commit", xid, failed);
         }
     }
 
     @Override
     public void rollback(Xid xid) throws XAException {
+        JmsXAEvent event = new JmsXAEvent();
+        event.begin();
+        boolean failed = true;
         managedConnection.lock();
         try {
             xaResource.rollback(xid);
+            failed = false;
         } finally {
             managedConnection.unlock();
+            event.complete("rollback", xid, failed);
         }
     }
 
     @Override
     public void forget(Xid xid) throws XAException {
+        JmsXAEvent event = new JmsXAEvent();
+        event.begin();
+        boolean failed = true;
         managedConnection.lock();
         try {
             xaResource.forget(xid);
+            failed = false;
         } finally {
             managedConnection.unlock();
+            event.complete("forget", xid, failed);
         }
     }
 
@@ -0,0 +1,38 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.codec;
+
+import java.io.IOException;
+
+/**
+ * A compression algorithm for message bodies.
+ * <p>
+ * Additional codecs are registered with the {@link java.util.ServiceLoader} mechanism and selected by name,
+ * the name travels with each compressed message so the receiving side picks the same codec.
+ */
+public interface JmsMessageCodec {
+    /**
+     * @return the name of the codec, a valid message property value
+     */
+    String getName();
+
+    /**
+     * Compress a body
+     *
+     * @param body the body
+     * @return the compressed body
+     * @throws IOException for any error
+     */
+    byte[] compress(byte[] body) throws IOException;
+
+    /**
+     * Decompress a body
+     *
+     * @param body the compressed body
+     * @return the body
+     * @throws IOException for any error
+     */
+    byte[] decompress(byte[] body) throws IOException;
+}
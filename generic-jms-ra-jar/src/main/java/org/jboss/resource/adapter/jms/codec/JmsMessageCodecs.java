@@ -0,0 +1,70 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.codec;
+
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jboss.logging.Logger;
+
+/**
+ * The message codecs by name: the built-in deflate and gzip codecs and the codecs registered
+ * as {@link JmsMessageCodec} services.
+ */
+public final class JmsMessageCodecs {
+    private static final Logger log = Logger.getLogger(JmsMessageCodecs.class);
+
+    /**
+     * The message property holding the name of the codec of a compressed body
+     */
+    public static final String CODEC_PROPERTY = "GenericJmsRaCodec";
+
+    private static final ConcurrentHashMap<String, JmsMessageCodec> CODECS = new ConcurrentHashMap<>();
+
+    static {
+        register(new DeflateCodec());
+        register(new GzipCodec());
+        for (JmsMessageCodec codec : ServiceLoader.load(JmsMessageCodec.class, JmsMessageCodecs.class.getClassLoader())) {
+            register(codec);
+        }
+    }
+
+    private JmsMessageCodecs() {
+    }
+
+    /**
+     * Register a codec, replacing any codec with the same name
+     *
+     * @param codec the codec
+     */
+    public static void register(JmsMessageCodec codec) {
+        log.debug("Registering message codec " + codec.getName() + " " + codec);
+        CODECS.put(codec.getName(), codec);
+    }
+
+    /**
+     * Get a codec
+     *
+     * @param name the name of the codec
+     * @return the codec or null when there is no codec with this name
+     */
+    public static JmsMessageCodec getCodec(String name) {
+        JmsMessageCodec codec = CODECS.get(name);
+        if (codec == null) {
+            // A codec packaged with the application
+            ClassLoader tccl = Thread.currentThread().getContextClassLoader();
+            if (tccl != null) {
+                for (JmsMessageCodec candidate : ServiceLoader.load(JmsMessageCodec.class, tccl)) {
+                    if (name.equals(candidate.getName())) {
+                        register(candidate);
+                        codec = candidate;
+                        break;
+                    }
+                }
+            }
+        }
+        return codec;
+    }
+}
@@ -4,8 +4,9 @@
  */
 package org.jboss.resource.adapter.jms.inflow;
 
-import org.jboss.logging.Logger;
 import org.jboss.resource.adapter.jms.JmsResourceAdapter;
+import org.jboss.resource.adapter.jms.jfr.JmsReconnectEvent;
+import org.jboss.resource.adapter.jms.logging.JmsLogger;
 import org.jboss.resource.adapter.jms.util.SecurityActions;
 
 import jakarta.jms.Connection;
@@ -24,9 +25,12 @@ import javax.naming.NamingException;
 import jakarta.resource.ResourceException;
 import jakarta.resource.spi.endpoint.MessageEndpointFactory;
 import jakarta.resource.spi.work.Work;
+import jakarta.resource.spi.work.WorkException;
 import jakarta.resource.spi.work.WorkManager;
 import jakarta.transaction.TransactionManager;
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Objects;
 import java.util.Properties;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.jboss.resource.adapter.jms.util.Strings;
@@ -42,7 +46,7 @@ public class JmsActivation implements ExceptionListener {
     /**
      * The log
      */
-    private static final Logger log = Logger.getLogger(JmsActivation.class);
+    private static final JmsLogger log = JmsLogger.getLogger(JmsActivation.class);
 
     // this should work in AS7, not sure about any other container
     private static final String JNDI_NAME = "java:jboss/TransactionManager";
@@ -67,6 +71,11 @@ public class JmsActivation implements ExceptionListener {
      */
     protected MessageEndpointFactory endpointFactory;
 
+    /**
+     * The name of the activation
+     */
+    private final String activationName;
+
     /**
      * Whether delivery is active
      */
@@ -77,25 +86,45 @@ public class JmsActivation implements ExceptionListener {
      */
     private AtomicBoolean inFailure = new AtomicBoolean(false);
 
+    /**
+     * Serialises the setup and the teardown of the connections, of the whole activation or of a single connection
+     */
+    private final Object setupLock = new Object();
+
     /**
      * The destination
      */
     protected Destination destination;
 
+    /**
+     * The partitions of the destination, null when it is not partitioned
+     */
+    protected Destination[] partitions;
+
     /**
      * The destination type
      */
     protected boolean isTopic = false;
 
     /**
-     * The connection
+     * The connections
+     */
+    protected Connection[] connections;
+
+    /**
+     * The jndi names of the connection factories of the connections, by index
+     */
+    private String[] connectionFactories;
+
+    /**
+     * The server session pools, one per connection
      */
-    protected Connection connection;
+    protected JmsServerSessionPool[] pools;
 
     /**
-     * The server session pool
+     * Whether each connection is in its failure recovery loop
      */
-    protected JmsServerSessionPool pool;
+    private AtomicBoolean[] connectionInFailure;
 
     /**
      * Is the delivery transacted
@@ -107,6 +136,26 @@ public class JmsActivation implements ExceptionListener {
      */
     protected TransactionManager tm;
 
+    /**
+     * The rate limiter, null when the delivery rate is not limited
+     */
+    protected JmsRateLimiter rateLimiter;
+
+    /**
+     * The redelivery policy, null when the provider redelivers on its own terms
+     */
+    protected JmsRedeliveryPolicy redeliveryPolicy;
+
+    /**
+     * The dead letter destination
+     */
+    protected Destination deadLetterDestination;
+
+    /**
+     * The duplicate filter, null when duplicates are delivered
+     */
+    protected JmsDuplicateFilter duplicateFilter;
+
 
     static {
         try {
@@ -120,11 +169,27 @@ public class JmsActivation implements ExceptionListener {
         this.ra = ra;
         this.endpointFactory = endpointFactory;
         this.spec = spec;
+        this.activationName = activationName(endpointFactory, spec);
         try {
             this.isDeliveryTransacted = endpointFactory.isDeliveryTransacted(ONMESSAGE);
         } catch (Exception e) {
             throw new ResourceException(e);
         }
+        if (spec.getMaxDeliveryAttempts() > 0 || spec.getRedeliveryDelay() > 0) {
+            this.redeliveryPolicy = new JmsRedeliveryPolicy(spec);
+        }
+        if (spec.getDuplicateDetectionWindow() > 0) {
+            // Kept across reconnections, which is when the duplicates show up
+            this.duplicateFilter = new JmsDuplicateFilter(spec.getDuplicateDetectionWindow(), spec.getDuplicateDetectionProperty());
+        }
+        if (spec.getMaxMessagesPerSecond() > 0) {
+            String group = spec.getRateLimitGroup();
+            if (group != null) {
+                this.rateLimiter = ra.getRateLimiter(group, spec.getMaxMessagesPerSecond(), spec.getMaxMessagesBurst());
+            } else {
+                this.rateLimiter = new JmsRateLimiter(spec.getMaxMessagesPerSecond(), spec.getMaxMessagesBurst());
+            }
+        }
     }
 
     /**
@@ -134,6 +199,13 @@ public class JmsActivation implements ExceptionListener {
         return spec;
     }
 
+    /**
+     * @return the name of the activation, the name of the endpoint when the container provides it
+     */
+    public String getActivationName() {
+        return activationName;
+    }
+
     /**
      * @return the message endpoint factory
      */
@@ -148,6 +220,55 @@ public class JmsActivation implements ExceptionListener {
         return isDeliveryTransacted;
     }
 
+    /**
+     * @return the rate limiter or null when the delivery rate is not limited
+     */
+    public JmsRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * @return the redelivery policy or null when the provider redelivers on its own terms
+     */
+    public JmsRedeliveryPolicy getRedeliveryPolicy() {
+        return redeliveryPolicy;
+    }
+
+    /**
+     * @return the dead letter destination
+     */
+    public Destination getDeadLetterDestination() {
+        return deadLetterDestination;
+    }
+
+    /**
+     * @return the number of redelivered messages seen by the redelivery policy
+     */
+    public long getRedeliveredMessageCount() {
+        return redeliveryPolicy != null ? redeliveryPolicy.getRedeliveries() : 0;
+    }
+
+    /**
+     * @return the number of messages parked on the dead letter destination
+     */
+    public long getParkedMessageCount() {
+        return redeliveryPolicy != null ? redeliveryPolicy.getParkedMessages() : 0;
+    }
+
+    /**
+     * @return the duplicate filter or null when duplicates are delivered
+     */
+    public JmsDuplicateFilter getDuplicateFilter() {
+        return duplicateFilter;
+    }
+
+    /**
+     * @return the number of duplicate messages skipped
+     */
+    public long getDuplicateMessageCount() {
+        return duplicateFilter != null ? duplicateFilter.getDuplicates() : 0;
+    }
+
     /**
      * @return the work manager
      */
@@ -166,7 +287,7 @@ public class JmsActivation implements ExceptionListener {
                     log.trace("Got a transaction manager from jndi " + tm);
                 }
             } catch (NamingException e) {
-                log.debug("Unable to lookup: " + JNDI_NAME, e);
+                log.unableToLookup(JNDI_NAME, e);
             } finally {
                 SecurityActions.setThreadContextClassLoader(oldTCCL);
             }
@@ -175,10 +296,36 @@ public class JmsActivation implements ExceptionListener {
     }
 
     /**
-     * @return the connection
+     * @return the first connection
      */
     public Connection getConnection() {
-        return connection;
+        Connection[] connections = this.connections;
+        return connections != null ? connections[0] : null;
+    }
+
+    /**
+     * @return the number of connections used by this activation
+     */
+    public int getConnectionCount() {
+        Connection[] connections = this.connections;
+        return connections != null ? connections.length : 0;
+    }
+
+    /**
+     * @return the number of sessions allowed to deliver concurrently, which varies over time
+     * with adaptive concurrency
+     */
+    public int getConcurrencyLimit() {
+        JmsServerSessionPool[] pools = this.pools;
+        int limit = 0;
+        if (pools != null) {
+            for (JmsServerSessionPool pool : pools) {
+                if (pool != null) {
+                    limit += pool.getConcurrencyLimit();
+                }
+            }
+        }
+        return limit;
     }
 
     /**
@@ -188,6 +335,14 @@ public class JmsActivation implements ExceptionListener {
         return destination;
     }
 
+    /**
+     * @return the destinations consumed, the partitions of the destination when it is partitioned
+     */
+    public Destination[] getDestinations() {
+        Destination[] partitions = this.partitions;
+        return partitions != null ? partitions : new Destination[]{destination};
+    }
+
     /**
      * @return the destination type
      */
@@ -210,7 +365,9 @@ public class JmsActivation implements ExceptionListener {
      */
     public void stop() {
         deliveryActive.set(false);
-        teardown();
+        synchronized (setupLock) {
+            teardown();
+        }
     }
 
     /**
@@ -219,37 +376,152 @@ public class JmsActivation implements ExceptionListener {
      * @param failure the reason for the failure
      */
     public void handleFailure(Throwable failure) {
-        log.warn("Failure in jms activation " + spec, failure);
+        log.activationFailure(spec, failure);
         int reconnectCount = 0;
 
         // Only enter the failure loop once
         if (inFailure.getAndSet(true)) {
             return;
         }
+        JmsReconnectEvent event = new JmsReconnectEvent();
+        event.begin();
+        boolean reconnected = false;
         try {
             while (deliveryActive.get() && (reconnectCount < spec.getReconnectAttempts() || spec.getReconnectAttempts() == -1)) {
-                teardown();
+                synchronized (setupLock) {
+                    teardown();
+                }
 
                 try {
                     Thread.sleep(spec.getReconnectIntervalLong());
                 } catch (InterruptedException e) {
-                    log.debug("Interrupted trying to reconnect " + spec, e);
+                    Thread.currentThread().interrupt();
+                    log.interruptedReconnecting(spec, e);
                     break;
                 }
 
-                log.info("Attempting to reconnect " + spec);
+                synchronized (setupLock) {
+                    // stop() may have torn down the activation while sleeping
+                    if (deliveryActive.get() == false) {
+                        break;
+                    }
+                    log.attemptingReconnect(spec);
+                    try {
+                        setupActivation();
+                        log.reconnected();
+                        reconnected = true;
+                        break;
+                    } catch (Throwable t) {
+                        log.unableToReconnect(spec, t);
+                    }
+                }
+                ++reconnectCount;
+            }
+        } finally {
+            // Leaving failure recovery loop
+            inFailure.set(false);
+            event.complete(activationName, spec.getDestination(), -1, reconnectCount + (reconnected ? 1 : 0), reconnected);
+        }
+    }
+
+    /**
+     * Handles the failure of one connection by trying to reconnect it,
+     * the other connections of the activation keep delivering messages
+     *
+     * @param index      the index of the connection
+     * @param connection the failed connection
+     * @param failure    the reason for the failure
+     */
+    public void handleFailure(int index, Connection connection, Throwable failure) {
+        Connection[] connections;
+        AtomicBoolean[] connectionInFailure;
+        synchronized (setupLock) {
+            connections = this.connections;
+            connectionInFailure = this.connectionInFailure;
+            if (connections == null || connections[index] != connection) {
+                log.ignoringReplacedConnectionFailure(connection, failure);
+                return;
+            }
+        }
+        if (connections.length == 1) {
+            handleFailure(failure);
+            return;
+        }
+
+        log.connectionFailure(spec, index, failure);
+        int reconnectCount = 0;
+
+        // Only enter the failure loop once per connection
+        if (inFailure.get() || connectionInFailure[index].getAndSet(true)) {
+            return;
+        }
+        JmsReconnectEvent event = new JmsReconnectEvent();
+        event.begin();
+        boolean reconnected = false;
+        try {
+            while (reconnectCount < spec.getReconnectAttempts() || spec.getReconnectAttempts() == -1) {
+                synchronized (setupLock) {
+                    if (isCurrent(connections) == false) {
+                        break;
+                    }
+                    teardownSessionPool(index);
+                    teardownConnection(index);
+                }
+
                 try {
-                    setupActivation();
-                    log.info("Reconnected with messaging provider");
+                    Thread.sleep(spec.getReconnectIntervalLong());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.interruptedReconnecting(spec, e);
                     break;
-                } catch (Throwable t) {
-                    log.error("Unable to reconnect " + spec, t);
+                }
+
+                synchronized (setupLock) {
+                    // The activation may have been stopped or set up again while sleeping
+                    if (isCurrent(connections) == false) {
+                        break;
+                    }
+                    log.attemptingReconnect(index, spec);
+                    try {
+                        setupConnection(index);
+                        setupSessionPool(index);
+                        log.reconnected(index);
+                        reconnected = true;
+                        break;
+                    } catch (Throwable t) {
+                        log.unableToReconnect(index, spec, t);
+                    }
                 }
                 ++reconnectCount;
             }
         } finally {
             // Leaving failure recovery loop
-            inFailure.set(false);
+            connectionInFailure[index].set(false);
+            event.complete(activationName, spec.getDestination(), index, reconnectCount + (reconnected ? 1 : 0), reconnected);
+        }
+    }
+
+    /**
+     * @param connections the connections a reconnection started with
+     * @return whether the reconnection may go on: delivery is active, the activation is not reconnecting as a
+     * whole and its connections were not set up again in the meantime
+     */
+    private boolean isCurrent(Connection[] connections) {
+        return deliveryActive.get() && inFailure.get() == false && this.connections == connections;
+    }
+
+    /**
+     * Schedule the reconnection of a connection, off the thread of the provider reporting the failure
+     *
+     * @param index      the index of the connection
+     * @param connection the failed connection, null for a connection that could not be established
+     * @param failure    the reason for the failure
+     */
+    private void scheduleReconnect(int index, Connection connection, Throwable failure) {
+        try {
+            ra.getWorkManager().scheduleWork(new ReconnectConnection(index, connection, failure));
+        } catch (WorkException e) {
+            log.unableToScheduleWork(e);
         }
     }
 
@@ -268,11 +540,20 @@ public class JmsActivation implements ExceptionListener {
         if (destination != null) {
             buffer.append(" destination=").append(destination);
         }
-        if (connection != null) {
-            buffer.append(" connection=").append(connection);
+        Connection[] connections = this.connections;
+        if (connections != null) {
+            for (int i = 0; i < connections.length; ++i) {
+                buffer.append(" connection[").append(i).append("]=").append(connections[i]);
+                if (connectionFactories != null) {
+                    buffer.append(" connectionFactory[").append(i).append("]=").append(connectionFactories[i]);
+                }
+            }
         }
-        if (pool != null) {
-            buffer.append(" pool=").append(defaultToString(pool));
+        JmsServerSessionPool[] pools = this.pools;
+        if (pools != null) {
+            for (int i = 0; i < pools.length; ++i) {
+                buffer.append(" pool[").append(i).append("]=").append(defaultToString(pools[i]));
+            }
         }
         buffer.append(" isDeliveryTransacted=").append(isDeliveryTransacted);
         buffer.append(')');
@@ -291,18 +572,32 @@ public class JmsActivation implements ExceptionListener {
             // to ensure that the underlying initial context factory can be instantiated
             SecurityActions.setThreadContextClassLoader(JmsActivation.class.getClassLoader());
 
-            log.debug("Setting up " + spec);
-            Context ctx = convertStringToContext(spec.getJndiParameters());
-            log.debug("Using context " + ctx.getEnvironment() + " for " + spec);
-            try {
-                setupDestination(ctx);
-                setupConnection(ctx);
-            } finally {
-                ctx.close();
+            Throwable[] failures;
+            synchronized (setupLock) {
+                if (deliveryActive.get() == false) {
+                    // Stopped before the setup ran
+                    return;
+                }
+                log.settingUp(spec);
+                Context ctx = convertStringToContext(spec.getJndiParameters());
+                if (log.isDebugEnabled()) {
+                    log.usingContext(ctx.getEnvironment(), spec);
+                }
+                try {
+                    setupDestination(ctx);
+                    failures = setupConnections(ctx);
+                } finally {
+                    ctx.close();
+                }
+                setupSessionPools();
+            }
+            for (int i = 0; i < failures.length; ++i) {
+                if (failures[i] != null) {
+                    scheduleReconnect(i, null, failures[i]);
+                }
             }
-            setupSessionPool();
 
-            log.debug("Setup complete " + this);
+            log.setupComplete(this);
         } finally {
             SecurityActions.setThreadContextClassLoader(oldTCCL);
         }
@@ -337,13 +632,13 @@ public class JmsActivation implements ExceptionListener {
      * Teardown the activation
      */
     protected void teardown() {
-        log.debug("Tearing down " + spec);
+        log.tearingDown(spec);
 
-        teardownSessionPool();
-        teardownConnection();
+        teardownSessionPools();
+        teardownConnections();
         teardownDestination();
 
-        log.debug("Tearing down complete " + this);
+        log.tearingDownComplete(this);
     }
 
     /**
@@ -356,7 +651,7 @@ public class JmsActivation implements ExceptionListener {
         String destinationName = spec.getDestination();
 
         String destinationTypeString = spec.getDestinationType();
-        log.debug("Destination type defined as " + destinationTypeString);
+        log.destinationType(destinationTypeString);
 
         Class<?> destinationType;
         if (Topic.class.getName().equals(destinationTypeString)) {
@@ -367,13 +662,33 @@ public class JmsActivation implements ExceptionListener {
             destinationType = Destination.class;
         }
 
-        log.debug("Retrieving destination " + destinationName + " of type " + destinationType.getName());
-        destination = (Destination) lookup(ctx, destinationName, destinationType);
+        int partitionCount = spec.getPartitionCount();
+        if (partitionCount > 0) {
+            // The destination is only a logical name, the first partition stands for it
+            Destination[] result = new Destination[partitionCount];
+            for (int i = 0; i < partitionCount; ++i) {
+                String partitionName = destinationName + '.' + i;
+                log.retrievingDestination(partitionName, destinationType.getName());
+                result[i] = (Destination) lookup(ctx, partitionName, destinationType);
+                log.gotDestination(result[i], partitionName);
+            }
+            partitions = result;
+            destination = result[0];
+        } else {
+            log.retrievingDestination(destinationName, destinationType.getName());
+            destination = (Destination) lookup(ctx, destinationName, destinationType);
+            log.gotDestination(destination, destinationName);
+        }
         if (destination instanceof Topic) {
             isTopic = true;
         }
 
-        log.debug("Got destination " + destination + " from " + destinationName);
+        String deadLetterDestinationName = spec.getDeadLetterDestination();
+        if (deadLetterDestinationName != null) {
+            log.retrievingDeadLetterDestination(deadLetterDestinationName);
+            deadLetterDestination = (Destination) lookup(ctx, deadLetterDestinationName, Destination.class);
+            log.gotDeadLetterDestination(deadLetterDestination, deadLetterDestinationName);
+        }
     }
 
     /**
@@ -381,25 +696,109 @@ public class JmsActivation implements ExceptionListener {
      */
     protected void teardownDestination() {
         destination = null;
+        partitions = null;
+        deadLetterDestination = null;
     }
 
     /**
-     * Setup the Connection
+     * Setup the Connections
      *
      * @param ctx the naming context
+     * @return the failures of the connections to reconnect on their own by index, when the activation spans
+     * several brokers and some of them are reachable
      * @throws Exception for any error
      */
-    private void setupConnection(Context ctx) throws Exception {
-        log.debug("setup connection " + this);
+    private Throwable[] setupConnections(Context ctx) throws Exception {
+        // Each broker gets the same number of connections, the connections of the brokers are interleaved
+        String[] brokers = spec.getConnectionFactories();
+        int count = spec.getConnectionCount();
+        if (count * brokers.length > spec.getMaxSession()) {
+            count = Math.max(1, spec.getMaxSession() / brokers.length);
+        }
+        if (count > 1 && isTopic && spec.isShareSubscriptions() == false) {
+            log.singleTopicConnection(destination, count);
+            count = 1;
+        }
+        if (brokers.length > spec.getMaxSession()) {
+            log.sessionPerBroker(brokers.length, brokers.length, spec.getMaxSession());
+        }
+        count *= brokers.length;
+
+        connectionFactories = new String[count];
+        connections = new Connection[count];
+        pools = new JmsServerSessionPool[count];
+        connectionInFailure = new AtomicBoolean[count];
+        Throwable[] failures = new Throwable[count];
+        Exception failure = null;
+        for (int i = 0; i < count; ++i) {
+            connectionFactories[i] = brokers[i % brokers.length];
+            connectionInFailure[i] = new AtomicBoolean(false);
+            try {
+                setupConnection(ctx, i);
+            } catch (Exception e) {
+                if (brokers.length == 1) {
+                    throw e;
+                }
+                failures[i] = e;
+                failure = e;
+            }
+        }
+        if (failure != null && Arrays.stream(connections).allMatch(Objects::isNull)) {
+            throw failure;
+        }
+        return failures;
+    }
+
+    /**
+     * Setup the Connection at the given index
+     *
+     * @param index the index of the connection
+     * @throws Exception for any error
+     */
+    private void setupConnection(int index) throws Exception {
+        ClassLoader oldTCCL = SecurityActions.getThreadContextClassLoader();
+        try {
+            SecurityActions.setThreadContextClassLoader(JmsActivation.class.getClassLoader());
+            Context ctx = convertStringToContext(spec.getJndiParameters());
+            try {
+                setupConnection(ctx, index);
+            } finally {
+                ctx.close();
+            }
+        } finally {
+            SecurityActions.setThreadContextClassLoader(oldTCCL);
+        }
+    }
+
+    /**
+     * Setup the Connection at the given index
+     *
+     * @param ctx   the naming context
+     * @param index the index of the connection
+     * @throws Exception for any error
+     */
+    private void setupConnection(Context ctx, int index) throws Exception {
+        String connectionFactory = connectionFactories[index];
+        log.settingUpConnection(index, connectionFactory, this);
 
         String user = spec.getUser();
         char[] pass = spec.getPasswordChars();
         String clientID = spec.getClientId();
-        String connectionFactory = spec.getConnectionFactory();
 
-        connection = setupConnection(ctx, user, Strings.fromCharArray(pass), clientID, connectionFactory);
+        Connection result = setupConnection(ctx, user, Strings.fromCharArray(pass), clientID, connectionFactory);
+        try {
+            result.setExceptionListener(new ConnectionExceptionListener(index, result));
+        } catch (Throwable t) {
+            try {
+                result.close();
+            } catch (Exception e) {
+                log.trace("Ignored error closing connection", e);
+            }
+            throw t;
+        }
+        connections[index] = result;
 
-        log.debug("established connection " + this);
+        log.establishedConnection(index, this);
     }
 
     /**
@@ -414,10 +813,10 @@ public class JmsActivation implements ExceptionListener {
      * @throws Exception for any error
      */
     private Connection setupConnection(Context ctx, String user, String pass, String clientID, String connectionFactory) throws Exception {
-        log.debug("Attempting to lookup connection factory " + connectionFactory);
+        log.lookingUpConnectionFactory(connectionFactory);
         Object preliminaryObject = lookup(ctx, connectionFactory, Object.class);
-        log.debug("Got connection factory " + preliminaryObject + " from " + connectionFactory);
-        log.debug("Attempting to create connection with user " + user);
+        log.gotConnectionFactory(preliminaryObject, connectionFactory);
+        log.creatingConnection(user);
         Connection result;
         if (isDeliveryTransacted) {
             XAConnectionFactory xagcf = (XAConnectionFactory) preliminaryObject;
@@ -447,8 +846,7 @@ public class JmsActivation implements ExceptionListener {
             if (clientID != null) {
                 result.setClientID(clientID);
             }
-            result.setExceptionListener(this);
-            log.debug("Using generic connection " + result);
+            log.usingGenericConnection(result);
             return result;
         } catch (Throwable t) {
             try {
@@ -464,60 +862,155 @@ public class JmsActivation implements ExceptionListener {
     }
 
     /**
-     * Teardown the connection
+     * Teardown the connections
      */
-    protected void teardownConnection() {
+    protected void teardownConnections() {
+        Connection[] connections = this.connections;
+        if (connections != null) {
+            for (int i = 0; i < connections.length; ++i) {
+                teardownConnection(i);
+            }
+        }
+    }
+
+    /**
+     * Teardown the connection at the given index
+     *
+     * @param index the index of the connection
+     */
+    protected void teardownConnection(int index) {
+        Connection connection = connections[index];
         try {
             if (connection != null) {
-                log.debug("Closing the " + connection);
+                log.closing(connection);
                 connection.close();
             }
         } catch (Throwable t) {
-            log.debug("Error closing the connection " + connection, t);
+            log.errorClosingConnection(connection, t);
         }
-        connection = null;
+        connections[index] = null;
     }
 
     /**
-     * Setup the server session pool
+     * Setup the server session pools
      *
      * @throws Exception for any error
      */
-    protected void setupSessionPool() throws Exception {
-        pool = new JmsServerSessionPool(this);
-        log.debug("Created session pool " + pool);
+    protected void setupSessionPools() throws Exception {
+        for (int i = 0; i < pools.length; ++i) {
+            setupSessionPool(i);
+        }
+    }
+
+    /**
+     * Setup the server session pool of the connection at the given index.
+     * The sessions are spread evenly across the connections, each connection has at least one.
+     *
+     * @param index the index of the connection
+     * @throws Exception for any error
+     */
+    protected void setupSessionPool(int index) throws Exception {
+        Connection connection = connections[index];
+        if (connection == null) {
+            // Reconnected on its own
+            return;
+        }
+        int maxSession = spec.getMaxSession() / pools.length;
+        if (index < spec.getMaxSession() % pools.length || maxSession == 0) {
+            ++maxSession;
+        }
 
-        log.debug("Starting session pool " + pool);
+        JmsServerSessionPool pool = new JmsServerSessionPool(this, connection, maxSession);
+        pools[index] = pool;
+        log.createdSessionPool(pool);
+
+        log.startingSessionPool(pool);
         pool.start();
-        log.debug("Started session pool " + pool);
+        log.startedSessionPool(pool);
 
-        log.debug("Starting delivery " + connection);
+        log.startingDelivery(connection);
         connection.start();
-        log.debug("Started delivery " + connection);
+        log.startedDelivery(connection);
     }
 
     /**
-     * Teardown the server session pool
+     * Teardown the server session pools
      */
-    protected void teardownSessionPool() {
+    protected void teardownSessionPools() {
+        JmsServerSessionPool[] pools = this.pools;
+        if (pools != null) {
+            for (int i = 0; i < pools.length; ++i) {
+                teardownSessionPool(i);
+            }
+        }
+    }
+
+    /**
+     * Teardown the server session pool of the connection at the given index
+     *
+     * @param index the index of the connection
+     */
+    protected void teardownSessionPool(int index) {
+        Connection connection = connections[index];
         try {
             if (connection != null) {
-                log.debug("Stopping delivery " + connection);
+                log.stoppingDelivery(connection);
                 connection.stop();
             }
         } catch (Throwable t) {
-            log.debug("Error stopping delivery " + connection, t);
+            log.errorStoppingDelivery(connection, t);
         }
 
+        JmsServerSessionPool pool = pools[index];
         try {
             if (pool != null) {
-                log.debug("Stopping the session pool " + pool);
+                log.stoppingSessionPool(pool);
                 pool.stop();
             }
         } catch (Throwable t) {
-            log.debug("Error clearing the pool " + pool, t);
+            log.errorClearingPool(pool, t);
+        }
+        pools[index] = null;
+    }
+
+    /**
+     * Recovers a single connection of the activation
+     */
+    private class ConnectionExceptionListener implements ExceptionListener {
+        private final int index;
+        private final Connection connection;
+
+        ConnectionExceptionListener(int index, Connection connection) {
+            this.index = index;
+            this.connection = connection;
+        }
+
+        @Override
+        public void onException(JMSException exception) {
+            scheduleReconnect(index, connection, exception);
+        }
+    }
+
+    /**
+     * Reconnects a failed connection, or a connection that could not be established with the others
+     */
+    private class ReconnectConnection implements Work {
+        private final int index;
+        private final Connection connection;
+        private final Throwable failure;
+
+        ReconnectConnection(int index, Connection connection, Throwable failure) {
+            this.index = index;
+            this.connection = connection;
+            this.failure = failure;
+        }
+
+        public void run() {
+            handleFailure(index, connection, failure);
+        }
+
+        public void release() {
         }
-        pool = null;
     }
 
     /**
@@ -544,6 +1037,18 @@ public class JmsActivation implements ExceptionListener {
         }
     }
 
+    private static String activationName(MessageEndpointFactory endpointFactory, JmsActivationSpec spec) {
+        try {
+            String name = endpointFactory.getActivationName();
+            if (name != null) {
+                return name;
+            }
+        } catch (Throwable t) {
+            // A container before JCA 1.7
+        }
+        return spec.getDestination();
+    }
+
     private static Object lookup(Context context, String name, Class<?> clazz) throws Exception {
         Object result = context.lookup(name);
         Class<?> objectClass = result.getClass();
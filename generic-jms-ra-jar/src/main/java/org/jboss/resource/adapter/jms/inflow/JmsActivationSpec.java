@@ -4,6 +4,8 @@
  */
 package org.jboss.resource.adapter.jms.inflow;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import jakarta.jms.Destination;
@@ -32,6 +34,16 @@ public class JmsActivationSpec implements ActivationSpec {
      */
     private static final Logger log = Logger.getLogger(JmsActivationSpec.class);
 
+    /**
+     * The delivery engine relying on the connection consumer of the provider
+     */
+    public static final String CONNECTION_CONSUMER = "ConnectionConsumer";
+
+    /**
+     * The delivery engine running a message consumer per session in a receive loop
+     */
+    public static final String RECEIVE_LOOP = "ReceiveLoop";
+
     /**
      * The resource adapter
      */
@@ -72,6 +84,11 @@ public class JmsActivationSpec implements ActivationSpec {
      */
     private String subscriptionName;
 
+    /**
+     * Whether the topic subscription is shared
+     */
+    private boolean shareSubscriptions;
+
     /**
      * The reconnect interval in seconds
      */
@@ -102,6 +119,21 @@ public class JmsActivationSpec implements ActivationSpec {
      */
     private int maxSession = 15;
 
+    /**
+     * The number of connections
+     */
+    private int connectionCount = 1;
+
+    /**
+     * The number of partitions of the destination, 0 when it is not partitioned
+     */
+    private int partitionCount = 0;
+
+    /**
+     * The number of endpoints each session delivers its messages to concurrently
+     */
+    private int sessionParallelism = 1;
+
     //Default to -1 attempts (i.e. infinite)
     private int reconnectAttempts = -1;
 
@@ -117,6 +149,91 @@ public class JmsActivationSpec implements ActivationSpec {
 
     private String connectionFactory;
 
+    /**
+     * Whether messages sharing the same ordering key are delivered in order
+     */
+    private boolean keyedOrdering = false;
+
+    /**
+     * The message property holding the ordering key
+     */
+    private String orderingKeyProperty = "JMSXGroupID";
+
+    /**
+     * The delivery engine
+     */
+    private String deliveryEngine = CONNECTION_CONSUMER;
+
+    /**
+     * The receive timeout of the receive loop in milliseconds
+     */
+    private long receiveTimeout = 1000;
+
+    /**
+     * The maximum pause of an idle receive loop in milliseconds
+     */
+    private long maxIdleBackoff = 1000;
+
+    /**
+     * Whether the number of concurrent deliveries adapts to the delivery latency
+     */
+    private boolean adaptiveConcurrency = false;
+
+    /**
+     * The delivery latency above which the concurrency is reduced, in milliseconds
+     */
+    private long targetLatency = 1000;
+
+    /**
+     * The maximum number of messages delivered per second, 0 for no limit
+     */
+    private int maxMessagesPerSecond = 0;
+
+    /**
+     * The number of messages that can be delivered at once after an idle period
+     */
+    private int maxMessagesBurst = 1;
+
+    /**
+     * The name of the rate limit shared with other activations
+     */
+    private String rateLimitGroup;
+
+    /**
+     * The number of deliveries before a message is parked, 0 to never park
+     */
+    private int maxDeliveryAttempts = 0;
+
+    /**
+     * The delay before the first redelivery in milliseconds
+     */
+    private long redeliveryDelay = 0;
+
+    /**
+     * The factor applied to the delay after each redelivery
+     */
+    private double redeliveryMultiplier = 2.0;
+
+    /**
+     * The longest redelivery delay in milliseconds
+     */
+    private long maxRedeliveryDelay = 60000;
+
+    /**
+     * The JNDI name of the dead letter destination
+     */
+    private String deadLetterDestination;
+
+    /**
+     * The number of delivered message identifiers remembered to skip duplicates, 0 to deliver duplicates
+     */
+    private int duplicateDetectionWindow = 0;
+
+    /**
+     * The property identifying duplicate messages, null for JMSMessageID
+     */
+    private String duplicateDetectionProperty;
+
     public void setForceClearOnShutdown(boolean forceClear) {
         this.forceClearOnShutdown = forceClear;
     }
@@ -307,6 +424,23 @@ public class JmsActivationSpec implements ActivationSpec {
         this.subscriptionName = subscriptionName;
     }
 
+    /**
+     * @return whether the topic subscription is shared.
+     */
+    public boolean isShareSubscriptions() {
+        return shareSubscriptions;
+    }
+
+    /**
+     * Use a JMS 2.0 shared subscription so that several activations, possibly on other nodes,
+     * and several connections load-balance the messages of the subscription.
+     *
+     * @param shareSubscriptions whether the topic subscription is shared.
+     */
+    public void setShareSubscriptions(boolean shareSubscriptions) {
+        this.shareSubscriptions = shareSubscriptions;
+    }
+
     /**
      * @return the reconnectInterval.
      */
@@ -429,6 +563,50 @@ public class JmsActivationSpec implements ActivationSpec {
         return maxSession;
     }
 
+    /**
+     * @return the number of connections.
+     */
+    public int getConnectionCount() {
+        return connectionCount;
+    }
+
+    /**
+     * @param connectionCount The number of connections to open to each broker, the sessions are spread evenly across them.
+     */
+    public void setConnectionCount(int connectionCount) {
+        this.connectionCount = connectionCount;
+    }
+
+    /**
+     * @return the number of partitions of the destination, 0 when it is not partitioned.
+     */
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    /**
+     * @param partitionCount The number of partitions of the destination, the partitions destination.0 to
+     *                       destination.(partitionCount - 1) are consumed instead of the destination.
+     */
+    public void setPartitionCount(int partitionCount) {
+        this.partitionCount = partitionCount;
+    }
+
+    /**
+     * @return the number of endpoints each session delivers its messages to concurrently.
+     */
+    public int getSessionParallelism() {
+        return sessionParallelism;
+    }
+
+    /**
+     * @param sessionParallelism The number of endpoints each non transacted session delivers the messages it
+     *                           loaded to concurrently, 1 to deliver them one after the other.
+     */
+    public void setSessionParallelism(int sessionParallelism) {
+        this.sessionParallelism = sessionParallelism;
+    }
+
     @Override
     public ResourceAdapter getResourceAdapter() {
         return ra;
@@ -449,9 +627,78 @@ public class JmsActivationSpec implements ActivationSpec {
             throw new InvalidPropertyException("destination is mandatory");
         }
 
-        if (connectionFactory == null || "".equals(connectionFactory.trim())) {
+        if (getConnectionFactories().length == 0) {
             throw new InvalidPropertyException("connectionFactory is mandatory");
         }
+
+        if (shareSubscriptions && (subscriptionName == null || "".equals(subscriptionName.trim()))) {
+            throw new InvalidPropertyException("subscriptionName is mandatory for a shared subscription");
+        }
+
+        if (connectionCount < 1) {
+            throw new InvalidPropertyException("connectionCount must be at least 1");
+        }
+
+        if (partitionCount < 0) {
+            throw new InvalidPropertyException("partitionCount cannot be negative");
+        }
+
+        if (connectionCount > 1 && clientId != null) {
+            throw new InvalidPropertyException("clientID cannot be shared by " + connectionCount + " connections");
+        }
+
+        if (keyedOrdering && (orderingKeyProperty == null || "".equals(orderingKeyProperty.trim()))) {
+            throw new InvalidPropertyException("orderingKeyProperty is mandatory when keyedOrdering is enabled");
+        }
+
+        if (sessionParallelism < 1) {
+            throw new InvalidPropertyException("sessionParallelism must be at least 1");
+        }
+
+        if (sessionParallelism > 1 && keyedOrdering) {
+            throw new InvalidPropertyException("sessionParallelism cannot be combined with keyedOrdering");
+        }
+
+        if (keyedOrdering && connectionCount * getConnectionFactories().length > 1) {
+            // The order of the messages is only known within the connection consumer of a single connection
+            throw new InvalidPropertyException("keyedOrdering requires a single connection to a single broker");
+        }
+
+        if (sessionParallelism > 1 && isReceiveLoop()) {
+            throw new InvalidPropertyException("sessionParallelism is not supported by the " + RECEIVE_LOOP + " delivery engine");
+        }
+
+        if (keyedOrdering && isReceiveLoop()) {
+            throw new InvalidPropertyException("keyedOrdering is not supported by the " + RECEIVE_LOOP + " delivery engine");
+        }
+
+        if (adaptiveConcurrency && targetLatency < 1) {
+            throw new InvalidPropertyException("targetLatency must be at least 1 millisecond");
+        }
+
+        if (maxMessagesPerSecond < 0) {
+            throw new InvalidPropertyException("maxMessagesPerSecond cannot be negative");
+        }
+
+        if (maxMessagesPerSecond > 0 && maxMessagesBurst < 1) {
+            throw new InvalidPropertyException("maxMessagesBurst must be at least 1");
+        }
+
+        if (maxDeliveryAttempts > 0 && (deadLetterDestination == null || "".equals(deadLetterDestination.trim()))) {
+            throw new InvalidPropertyException("deadLetterDestination is mandatory when maxDeliveryAttempts is set");
+        }
+
+        if (redeliveryMultiplier < 1) {
+            throw new InvalidPropertyException("redeliveryMultiplier must be at least 1");
+        }
+
+        if (duplicateDetectionWindow < 0 || duplicateDetectionWindow > 1 << 24) {
+            throw new InvalidPropertyException("duplicateDetectionWindow must be between 0 and " + (1 << 24));
+        }
+
+        if (receiveTimeout < 1) {
+            throw new InvalidPropertyException("receiveTimeout must be at least 1 millisecond");
+        }
     }
 
     @Override
@@ -472,6 +719,7 @@ public class JmsActivationSpec implements ActivationSpec {
         if (subscriptionName != null) {
             buffer.append(" subscriptionName=").append(subscriptionName);
         }
+        buffer.append(" shareSubscriptions=").append(shareSubscriptions);
         buffer.append(" reconnectInterval=").append(reconnectInterval);
         buffer.append(" reconnectAttempts=").append(reconnectAttempts);
         buffer.append(" user=").append(user);
@@ -481,7 +729,45 @@ public class JmsActivationSpec implements ActivationSpec {
         buffer.append(" maxMessages=").append(maxMessages);
         buffer.append(" minSession=").append(minSession);
         buffer.append(" maxSession=").append(maxSession);
+        buffer.append(" connectionCount=").append(connectionCount);
+        buffer.append(" partitionCount=").append(partitionCount);
+        buffer.append(" sessionParallelism=").append(sessionParallelism);
         buffer.append(" connectionFactory=").append(connectionFactory);
+        if (keyedOrdering) {
+            buffer.append(" keyedOrdering=").append(keyedOrdering);
+            buffer.append(" orderingKeyProperty=").append(orderingKeyProperty);
+        }
+        if (adaptiveConcurrency) {
+            buffer.append(" adaptiveConcurrency=").append(adaptiveConcurrency);
+            buffer.append(" targetLatency=").append(targetLatency);
+        }
+        if (maxMessagesPerSecond > 0) {
+            buffer.append(" maxMessagesPerSecond=").append(maxMessagesPerSecond);
+            buffer.append(" maxMessagesBurst=").append(maxMessagesBurst);
+            if (rateLimitGroup != null) {
+                buffer.append(" rateLimitGroup=").append(rateLimitGroup);
+            }
+        }
+        if (maxDeliveryAttempts > 0 || redeliveryDelay > 0) {
+            buffer.append(" maxDeliveryAttempts=").append(maxDeliveryAttempts);
+            buffer.append(" redeliveryDelay=").append(redeliveryDelay);
+            buffer.append(" redeliveryMultiplier=").append(redeliveryMultiplier);
+            buffer.append(" maxRedeliveryDelay=").append(maxRedeliveryDelay);
+        }
+        if (deadLetterDestination != null) {
+            buffer.append(" deadLetterDestination=").append(deadLetterDestination);
+        }
+        if (duplicateDetectionWindow > 0) {
+            buffer.append(" duplicateDetectionWindow=").append(duplicateDetectionWindow);
+            if (duplicateDetectionProperty != null) {
+                buffer.append(" duplicateDetectionProperty=").append(duplicateDetectionProperty);
+            }
+        }
+        buffer.append(" deliveryEngine=").append(deliveryEngine);
+        if (isReceiveLoop()) {
+            buffer.append(" receiveTimeout=").append(receiveTimeout);
+            buffer.append(" maxIdleBackoff=").append(maxIdleBackoff);
+        }
 
         if (jndiParameters != null) {
             Properties properties = JmsActivation.convertStringToProperties(jndiParameters);
@@ -526,6 +812,22 @@ public class JmsActivationSpec implements ActivationSpec {
         return connectionFactory;
     }
 
+    /**
+     * @return the jndi names of the connection factories, one per broker, from the comma-separated connection factory.
+     */
+    public String[] getConnectionFactories() {
+        if (connectionFactory == null) {
+            return new String[0];
+        }
+        List<String> result = new ArrayList<>();
+        for (String name : connectionFactory.split(",")) {
+            if (!name.trim().isEmpty()) {
+                result.add(name.trim());
+            }
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
     /**
      * Standard JMS 2.0 resource adapter property to lookup the connection factory.
      *
@@ -543,4 +845,270 @@ public class JmsActivationSpec implements ActivationSpec {
     public String getConnectionFactoryLookup() {
         return getConnectionFactory();
     }
+
+    /**
+     * @return whether messages sharing the same ordering key are delivered in order.
+     */
+    public boolean isKeyedOrdering() {
+        return keyedOrdering;
+    }
+
+    /**
+     * Deliver the messages sharing the same ordering key in order while messages with different keys
+     * are delivered concurrently. The connection consumer is then created with one message per server session.
+     *
+     * @param keyedOrdering whether messages sharing the same ordering key are delivered in order.
+     */
+    public void setKeyedOrdering(boolean keyedOrdering) {
+        this.keyedOrdering = keyedOrdering;
+    }
+
+    /**
+     * @return the message property holding the ordering key.
+     */
+    public String getOrderingKeyProperty() {
+        return orderingKeyProperty;
+    }
+
+    /**
+     * @param orderingKeyProperty the message property holding the ordering key, JMSXGroupID by default.
+     */
+    public void setOrderingKeyProperty(String orderingKeyProperty) {
+        this.orderingKeyProperty = orderingKeyProperty;
+    }
+
+    /**
+     * @return the delivery engine.
+     */
+    public String getDeliveryEngine() {
+        return deliveryEngine;
+    }
+
+    /**
+     * @param deliveryEngine ConnectionConsumer (the default) to rely on the connection consumer of the provider,
+     *                       ReceiveLoop to run a message consumer per session in a receive loop.
+     */
+    public void setDeliveryEngine(String deliveryEngine) {
+        if (CONNECTION_CONSUMER.equalsIgnoreCase(deliveryEngine)) {
+            this.deliveryEngine = CONNECTION_CONSUMER;
+        } else if (RECEIVE_LOOP.equalsIgnoreCase(deliveryEngine)) {
+            this.deliveryEngine = RECEIVE_LOOP;
+        } else {
+            throw new IllegalArgumentException("Unsupported deliveryEngine: " + deliveryEngine);
+        }
+    }
+
+    /**
+     * @return whether the sessions receive their messages in a receive loop.
+     */
+    public boolean isReceiveLoop() {
+        return RECEIVE_LOOP.equals(deliveryEngine);
+    }
+
+    /**
+     * @return the receive timeout of the receive loop in milliseconds.
+     */
+    public long getReceiveTimeout() {
+        return receiveTimeout;
+    }
+
+    /**
+     * @param receiveTimeout the receive timeout of the receive loop in milliseconds.
+     */
+    public void setReceiveTimeout(long receiveTimeout) {
+        this.receiveTimeout = receiveTimeout;
+    }
+
+    /**
+     * @return the maximum pause of an idle receive loop in milliseconds.
+     */
+    public long getMaxIdleBackoff() {
+        return maxIdleBackoff;
+    }
+
+    /**
+     * @param maxIdleBackoff the maximum pause of an idle receive loop in milliseconds, 0 to never pause.
+     */
+    public void setMaxIdleBackoff(long maxIdleBackoff) {
+        this.maxIdleBackoff = maxIdleBackoff;
+    }
+
+    /**
+     * @return whether the number of concurrent deliveries adapts to the delivery latency.
+     */
+    public boolean isAdaptiveConcurrency() {
+        return adaptiveConcurrency;
+    }
+
+    /**
+     * Let the number of concurrent deliveries float between minSession and maxSession according to the
+     * delivery latency: it grows slowly while the deliveries complete within targetLatency and shrinks
+     * quickly when they take longer or fail.
+     *
+     * @param adaptiveConcurrency whether the number of concurrent deliveries adapts to the delivery latency.
+     */
+    public void setAdaptiveConcurrency(boolean adaptiveConcurrency) {
+        this.adaptiveConcurrency = adaptiveConcurrency;
+    }
+
+    /**
+     * @return the delivery latency above which the concurrency is reduced, in milliseconds.
+     */
+    public long getTargetLatency() {
+        return targetLatency;
+    }
+
+    /**
+     * @param targetLatency the delivery latency above which the concurrency is reduced, in milliseconds.
+     */
+    public void setTargetLatency(long targetLatency) {
+        this.targetLatency = targetLatency;
+    }
+
+    /**
+     * @return the maximum number of messages delivered per second, 0 for no limit.
+     */
+    public int getMaxMessagesPerSecond() {
+        return maxMessagesPerSecond;
+    }
+
+    /**
+     * @param maxMessagesPerSecond the maximum number of messages delivered per second, 0 for no limit.
+     */
+    public void setMaxMessagesPerSecond(int maxMessagesPerSecond) {
+        this.maxMessagesPerSecond = maxMessagesPerSecond;
+    }
+
+    /**
+     * @return the number of messages that can be delivered at once after an idle period.
+     */
+    public int getMaxMessagesBurst() {
+        return maxMessagesBurst;
+    }
+
+    /**
+     * @param maxMessagesBurst the number of messages that can be delivered at once after an idle period.
+     */
+    public void setMaxMessagesBurst(int maxMessagesBurst) {
+        this.maxMessagesBurst = maxMessagesBurst;
+    }
+
+    /**
+     * @return the name of the rate limit shared with other activations.
+     */
+    public String getRateLimitGroup() {
+        return rateLimitGroup;
+    }
+
+    /**
+     * The activations of the same resource adapter having the same rate limit group share a single rate limit,
+     * defined by the first one activated.
+     *
+     * @param rateLimitGroup the name of the rate limit shared with other activations.
+     */
+    public void setRateLimitGroup(String rateLimitGroup) {
+        this.rateLimitGroup = rateLimitGroup;
+    }
+
+    /**
+     * @return the number of deliveries before a message is parked, 0 to never park.
+     */
+    public int getMaxDeliveryAttempts() {
+        return maxDeliveryAttempts;
+    }
+
+    /**
+     * A message delivered this many times without success is moved to the dead letter destination
+     * instead of being delivered again.
+     *
+     * @param maxDeliveryAttempts the number of deliveries before a message is parked, 0 to never park.
+     */
+    public void setMaxDeliveryAttempts(int maxDeliveryAttempts) {
+        this.maxDeliveryAttempts = maxDeliveryAttempts;
+    }
+
+    /**
+     * @return the delay before the first redelivery in milliseconds.
+     */
+    public long getRedeliveryDelay() {
+        return redeliveryDelay;
+    }
+
+    /**
+     * @param redeliveryDelay the delay before the first redelivery in milliseconds, 0 for no delay.
+     */
+    public void setRedeliveryDelay(long redeliveryDelay) {
+        this.redeliveryDelay = redeliveryDelay;
+    }
+
+    /**
+     * @return the factor applied to the delay after each redelivery.
+     */
+    public double getRedeliveryMultiplier() {
+        return redeliveryMultiplier;
+    }
+
+    /**
+     * @param redeliveryMultiplier the factor applied to the delay after each redelivery.
+     */
+    public void setRedeliveryMultiplier(double redeliveryMultiplier) {
+        this.redeliveryMultiplier = redeliveryMultiplier;
+    }
+
+    /**
+     * @return the longest redelivery delay in milliseconds.
+     */
+    public long getMaxRedeliveryDelay() {
+        return maxRedeliveryDelay;
+    }
+
+    /**
+     * @param maxRedeliveryDelay the longest redelivery delay in milliseconds.
+     */
+    public void setMaxRedeliveryDelay(long maxRedeliveryDelay) {
+        this.maxRedeliveryDelay = maxRedeliveryDelay;
+    }
+
+    /**
+     * @return the JNDI name of the dead letter destination.
+     */
+    public String getDeadLetterDestination() {
+        return deadLetterDestination;
+    }
+
+    /**
+     * @param deadLetterDestination the JNDI name of the dead letter destination.
+     */
+    public void setDeadLetterDestination(String deadLetterDestination) {
+        this.deadLetterDestination = deadLetterDestination;
+    }
+
+    /**
+     * @return the number of delivered message identifiers remembered to skip duplicates.
+     */
+    public int getDuplicateDetectionWindow() {
+        return duplicateDetectionWindow;
+    }
+
+    /**
+     * @param duplicateDetectionWindow the number of delivered message identifiers remembered to skip duplicates,
+     *                                 0 to deliver duplicates.
+     */
+    public void setDuplicateDetectionWindow(int duplicateDetectionWindow) {
+        this.duplicateDetectionWindow = duplicateDetectionWindow;
+    }
+
+    /**
+     * @return the property identifying duplicate messages, null for JMSMessageID.
+     */
+    public String getDuplicateDetectionProperty() {
+        return duplicateDetectionProperty;
+    }
+
+    /**
+     * @param duplicateDetectionProperty the property identifying duplicate messages, JMSMessageID when not set.
+     */
+    public void setDuplicateDetectionProperty(String duplicateDetectionProperty) {
+        this.duplicateDetectionProperty = duplicateDetectionProperty;
+    }
 }
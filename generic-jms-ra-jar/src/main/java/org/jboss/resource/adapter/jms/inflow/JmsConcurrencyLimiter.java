@@ -0,0 +1,162 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.inflow;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Adapts the number of concurrent deliveries of a server session pool to the observed delivery latency.
+ * <p>
+ * The limit follows an additive increase, multiplicative decrease policy: every delivery completing
+ * within the target latency while the pool is saturated grows the limit by {@code 1 / limit}, i.e. by
+ * one session once a full limit of deliveries went well. A slow or failed delivery shrinks the limit
+ * by the backoff ratio, at most once per limit worth of deliveries so the deliveries already in flight
+ * when the latency rose do not shrink it again. The limit stays between the minimum and maximum
+ * number of sessions of the pool.
+ * <p>
+ * The methods are called with the monitor of the server session pool held.
+ */
+public class JmsConcurrencyLimiter {
+    /**
+     * The logger
+     */
+    private static final Logger log = Logger.getLogger(JmsConcurrencyLimiter.class);
+
+    /**
+     * The ratio applied to the limit when the latency is above the target
+     */
+    private static final double BACKOFF_RATIO = 0.9;
+
+    /**
+     * The lowest limit
+     */
+    private final int minLimit;
+
+    /**
+     * The highest limit
+     */
+    private final int maxLimit;
+
+    /**
+     * The target latency in nanoseconds
+     */
+    private final long targetLatency;
+
+    /**
+     * The current limit
+     */
+    private double limit;
+
+    /**
+     * The number of deliveries observed since the last decrease
+     */
+    private long sinceDecrease = 0;
+
+    /**
+     * The number of deliveries observed
+     */
+    private long samples = 0;
+
+    /**
+     * The number of times the limit was decreased
+     */
+    private long decreases = 0;
+
+    /**
+     * The last observed latency in nanoseconds
+     */
+    private long lastLatency = 0;
+
+    /**
+     * Create a new limiter starting at the highest limit
+     *
+     * @param minLimit      the lowest limit
+     * @param maxLimit      the highest limit
+     * @param targetLatency the target latency in milliseconds
+     */
+    public JmsConcurrencyLimiter(int minLimit, int maxLimit, long targetLatency) {
+        this.maxLimit = Math.max(maxLimit, 1);
+        this.minLimit = Math.max(Math.min(minLimit, this.maxLimit), 1);
+        this.targetLatency = targetLatency * 1000000L;
+        this.limit = this.maxLimit;
+    }
+
+    /**
+     * @return the number of deliveries allowed to run concurrently
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return the lowest limit
+     */
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    /**
+     * @return the highest limit
+     */
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * @return the number of deliveries observed
+     */
+    public long getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return the number of times the limit was decreased
+     */
+    public long getDecreases() {
+        return decreases;
+    }
+
+    /**
+     * @return the last observed latency in milliseconds
+     */
+    public long getLastLatency() {
+        return lastLatency / 1000000L;
+    }
+
+    /**
+     * Record a completed delivery
+     *
+     * @param latency  the latency of the delivery in nanoseconds
+     * @param failed   whether the delivery failed
+     * @param inFlight the number of deliveries in flight, including this one
+     */
+    public void onDelivery(long latency, boolean failed, int inFlight) {
+        ++samples;
+        ++sinceDecrease;
+        lastLatency = latency;
+        int before = (int) limit;
+        if (failed || latency > targetLatency) {
+            if (sinceDecrease >= before) {
+                limit = Math.max(limit * BACKOFF_RATIO, minLimit);
+                sinceDecrease = 0;
+                ++decreases;
+            }
+        } else if (inFlight >= before) {
+            // Only grow while the limit is actually what holds the deliveries back
+            limit = Math.min(limit + 1 / limit, maxLimit);
+        }
+        if (before != (int) limit && log.isDebugEnabled()) {
+            log.debug("Concurrency limit changed from " + before + " to " + (int) limit + " after a delivery of "
+                    + latency / 1000000L + "ms");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return JmsActivation.defaultToString(this) + "(limit=" + (int) limit + " minLimit=" + minLimit + " maxLimit="
+                + maxLimit + " targetLatency=" + targetLatency / 1000000L + "ms samples=" + samples + " decreases="
+                + decreases + ')';
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.inflow;
+
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+
+/**
+ * Remembers the identifiers of the last messages delivered by an activation so the copies redelivered
+ * after a failover can be skipped.
+ * <p>
+ * Only a 64-bit hash of each identifier is kept: a ring buffer holds the window in delivery order and
+ * an open addressing hash set, at most half full, answers the lookups. An entry costs 24 bytes whatever
+ * the length of the identifier and a lookup is a couple of array reads. When the window is full the
+ * oldest identifier is forgotten.
+ */
+public class JmsDuplicateFilter {
+    /**
+     * The property holding the identifier, null for JMSMessageID
+     */
+    private final String property;
+
+    /**
+     * The hashes in delivery order
+     */
+    private final long[] window;
+
+    /**
+     * The next slot of the window
+     */
+    private int next = 0;
+
+    /**
+     * The number of hashes in the window
+     */
+    private int size = 0;
+
+    /**
+     * The hash set, 0 marks a free slot
+     */
+    private final long[] table;
+
+    /**
+     * The mask giving the slot of a hash in the table
+     */
+    private final int mask;
+
+    /**
+     * The number of skipped duplicates
+     */
+    private long duplicates = 0;
+
+    /**
+     * Create a new duplicate filter
+     *
+     * @param windowSize the number of identifiers to remember
+     * @param property   the property holding the identifier, null for JMSMessageID
+     */
+    public JmsDuplicateFilter(int windowSize, String property) {
+        this.property = property;
+        this.window = new long[windowSize];
+        int capacity = Integer.highestOneBit(Math.max(windowSize, 1) * 2 - 1) << 1;
+        this.table = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Compute the key of a message
+     *
+     * @param message the message
+     * @return the key, 0 when the message has no identifier
+     * @throws JMSException for any error reading the identifier
+     */
+    public long key(Message message) throws JMSException {
+        String id = property == null ? message.getJMSMessageID() : message.getStringProperty(property);
+        return id == null ? 0 : hash(id);
+    }
+
+    /**
+     * @param key the key of a message
+     * @return whether the message was already delivered, counted as a skipped duplicate
+     */
+    public synchronized boolean isDuplicate(long key) {
+        if (key != 0 && indexOf(key) >= 0) {
+            ++duplicates;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Remember a delivered message
+     *
+     * @param key the key of the message
+     */
+    public synchronized void add(long key) {
+        if (key == 0 || indexOf(key) >= 0) {
+            return;
+        }
+        if (size == window.length) {
+            remove(window[next]);
+        } else {
+            ++size;
+        }
+        window[next] = key;
+        next = (next + 1) % window.length;
+
+        int i = (int) key & mask;
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = key;
+    }
+
+    /**
+     * @return the number of skipped duplicates
+     */
+    public synchronized long getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * @return the number of remembered identifiers
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private int indexOf(long key) {
+        int i = (int) key & mask;
+        while (table[i] != 0) {
+            if (table[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void remove(long key) {
+        int i = indexOf(key);
+        if (i < 0) {
+            return;
+        }
+        // Shift back the following entries of the probe sequence so no lookup stops early
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            long k = table[j];
+            if (k == 0) {
+                break;
+            }
+            int home = (int) k & mask;
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                table[i] = k;
+                i = j;
+            }
+        }
+        table[i] = 0;
+    }
+
+    /**
+     * A 64-bit FNV-1a hash of the identifier followed by a final mix, never 0
+     *
+     * @param id the identifier
+     * @return the hash
+     */
+    static long hash(String id) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); ++i) {
+            h ^= id.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return JmsActivation.defaultToString(this) + "(property=" + (property == null ? "JMSMessageID" : property)
+                + " window=" + window.length + " size=" + size + " duplicates=" + duplicates + ')';
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.inflow;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Keeps the messages sharing the same ordering key in provider order while
+ * messages with different keys are delivered concurrently by all the server sessions.
+ * <p>
+ * The connection consumer calls {@link jakarta.jms.ServerSession#start()} serially, in the order
+ * it dispatches the messages, so each server session takes a ticket at that point. When the
+ * session later delivers its message it first waits until every older ticket has declared its
+ * key, then queues up behind the older tickets holding the same key. Declaring a key is cheap so
+ * sessions with unrelated keys only wait for each other for a very short time.
+ * <p>
+ * This relies on the work manager running the scheduled work in submission order, which is the
+ * case for the thread pool backed work managers of the application servers.
+ */
+public class JmsKeyedOrdering {
+    /**
+     * The logger
+     */
+    private static final Logger log = Logger.getLogger(JmsKeyedOrdering.class);
+
+    /**
+     * The message property holding the ordering key
+     */
+    private final String keyProperty;
+
+    /**
+     * The next ticket handed out
+     */
+    private long nextTicket = 0;
+
+    /**
+     * The next ticket allowed to declare its key
+     */
+    private long nextDeclaration = 0;
+
+    /**
+     * The tickets waiting for or holding each key, oldest first
+     */
+    private final HashMap<String, ArrayDeque<Long>> keys = new HashMap<>();
+
+    /**
+     * The tickets whose thread was interrupted before their turn to declare, skipped when it comes
+     */
+    private final HashSet<Long> abandoned = new HashSet<>();
+
+    /**
+     * Whether the ordering was released
+     */
+    private boolean released = false;
+
+    /**
+     * Create a new keyed ordering
+     *
+     * @param keyProperty the message property holding the ordering key
+     */
+    public JmsKeyedOrdering(String keyProperty) {
+        this.keyProperty = keyProperty;
+    }
+
+    /**
+     * @return the message property holding the ordering key
+     */
+    public String getKeyProperty() {
+        return keyProperty;
+    }
+
+    /**
+     * Take the next ticket, must be called in provider dispatch order
+     *
+     * @return the ticket
+     */
+    public synchronized long nextTicket() {
+        return nextTicket++;
+    }
+
+    /**
+     * Wait for the turn of the ticket and declare the key of its message.
+     * Returns once all the older messages with the same key have been delivered.
+     * <p>
+     * The ticket is declared without key when the key cannot be read, so the younger tickets do not wait for it.
+     * When the thread is interrupted, the ticket gives up its place and the message must not be delivered.
+     *
+     * @param ticket  the ticket
+     * @param message the message about to be delivered
+     * @return the key to pass to {@link #exit(String, long)}, null for a message without key
+     * @throws JMSException         for any error reading the key, the ticket is then declared without key
+     * @throws InterruptedException when the thread is interrupted waiting for its turn
+     */
+    public String enter(long ticket, Message message) throws JMSException, InterruptedException {
+        String key = null;
+        ArrayDeque<Long> queue;
+        try {
+            key = message.getStringProperty(keyProperty);
+        } finally {
+            queue = declare(ticket, key);
+        }
+        if (queue != null) {
+            awaitTurn(key, queue, ticket);
+        }
+        return key;
+    }
+
+    /**
+     * Declare that the ticket has no message to deliver
+     *
+     * @param ticket the ticket
+     */
+    public synchronized void skip(long ticket) {
+        try {
+            awaitDeclaration(ticket);
+            declared();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Notify that the message of the ticket has been delivered
+     *
+     * @param key    the key returned by {@link #enter(long, Message)}
+     * @param ticket the ticket
+     */
+    public synchronized void exit(String key, long ticket) {
+        if (key == null) {
+            return;
+        }
+        ArrayDeque<Long> queue = keys.get(key);
+        if (queue != null) {
+            queue.remove(ticket);
+            if (queue.isEmpty()) {
+                keys.remove(key);
+            }
+            notifyAll();
+        }
+    }
+
+    /**
+     * Release all the waiting sessions, used when the pool is stopped
+     */
+    public synchronized void release() {
+        released = true;
+        notifyAll();
+    }
+
+    private synchronized ArrayDeque<Long> declare(long ticket, String key) throws InterruptedException {
+        awaitDeclaration(ticket);
+        ArrayDeque<Long> queue = null;
+        if (key != null) {
+            queue = keys.computeIfAbsent(key, k -> new ArrayDeque<>());
+            queue.addLast(ticket);
+        }
+        declared();
+        return queue;
+    }
+
+    private synchronized void awaitTurn(String key, ArrayDeque<Long> queue, long ticket) throws InterruptedException {
+        try {
+            while (released == false && queue.peekFirst() != ticket) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            exit(key, ticket);
+            throw e;
+        }
+    }
+
+    private void awaitDeclaration(long ticket) throws InterruptedException {
+        try {
+            while (released == false && nextDeclaration < ticket) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            abandoned.add(ticket);
+            throw e;
+        }
+        if (nextDeclaration > ticket && log.isTraceEnabled()) {
+            log.trace("Ticket " + ticket + " declared out of order, next declaration is " + nextDeclaration);
+        }
+    }
+
+    private void declared() {
+        ++nextDeclaration;
+        while (abandoned.remove(nextDeclaration)) {
+            ++nextDeclaration;
+        }
+        notifyAll();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return JmsActivation.defaultToString(this) + "(keyProperty=" + keyProperty + " nextTicket=" + nextTicket
+                + " nextDeclaration=" + nextDeclaration + " keys=" + keys.size() + ')';
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.inflow;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free token bucket limiting the rate of message deliveries.
+ * <p>
+ * The bucket is kept as a single timestamp, the time at which it would be empty: the bucket holds
+ * {@code (now - emptyAt) / interval} tokens, at most {@code burst}. Taking a token pushes the timestamp
+ * by one interval and the caller waits until the timestamp is no longer in the future, so concurrent
+ * callers are spaced by one interval each without any lock. A single instance may be shared by several
+ * activations to limit their combined rate.
+ */
+public class JmsRateLimiter {
+    /**
+     * The number of messages per second
+     */
+    private final int rate;
+
+    /**
+     * The number of messages that can be delivered at once after an idle period
+     */
+    private final int burst;
+
+    /**
+     * The time between two tokens in nanoseconds
+     */
+    private final long interval;
+
+    /**
+     * The time needed to fill the bucket in nanoseconds
+     */
+    private final long capacity;
+
+    /**
+     * The time at which the bucket is empty
+     */
+    private final AtomicLong emptyAt;
+
+    /**
+     * Create a new rate limiter with a full bucket
+     *
+     * @param rate  the number of messages per second
+     * @param burst the number of messages that can be delivered at once after an idle period
+     */
+    public JmsRateLimiter(int rate, int burst) {
+        this.rate = rate;
+        this.burst = Math.max(burst, 1);
+        this.interval = Math.max(1000000000L / rate, 1);
+        this.capacity = interval * this.burst;
+        this.emptyAt = new AtomicLong(System.nanoTime() - capacity);
+    }
+
+    /**
+     * @return the number of messages per second
+     */
+    public int getRate() {
+        return rate;
+    }
+
+    /**
+     * @return the number of messages that can be delivered at once after an idle period
+     */
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * Take a token, possibly ahead of time
+     *
+     * @return the number of nanoseconds the caller must wait before delivering, 0 when a token was available
+     */
+    public long reserve() {
+        while (true) {
+            long now = System.nanoTime();
+            long current = emptyAt.get();
+            // An idle bucket does not hold more than burst tokens
+            long next = Math.max(current, now - capacity) + interval;
+            if (emptyAt.compareAndSet(current, next)) {
+                return Math.max(next - now, 0);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return JmsActivation.defaultToString(this) + "(rate=" + rate + " burst=" + burst + ')';
+    }
+}
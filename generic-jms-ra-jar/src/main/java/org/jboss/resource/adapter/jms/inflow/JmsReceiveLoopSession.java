@@ -0,0 +1,343 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.inflow;
+
+import jakarta.jms.Destination;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Queue;
+import jakarta.jms.QueueBrowser;
+import jakarta.jms.Session;
+import jakarta.jms.Topic;
+import jakarta.resource.spi.work.WorkException;
+import jakarta.resource.spi.work.WorkManager;
+import jakarta.transaction.Status;
+import jakarta.transaction.SystemException;
+
+import org.jboss.resource.adapter.jms.jfr.JmsDeliveryEvent;
+import org.jboss.resource.adapter.jms.logging.JmsLogger;
+import org.jboss.resource.adapter.jms.tracing.JmsSpan;
+import org.jboss.resource.adapter.jms.tracing.JmsTracing;
+
+/**
+ * A server session receiving its messages with its own message consumer in a receive loop,
+ * for the providers without a usable connection consumer.
+ * <p>
+ * The loop runs as a long-lived work until the pool is stopped. Transacted deliveries receive
+ * a single message between {@code beforeDelivery} and {@code afterDelivery} so the receive is part
+ * of the transaction. Non transacted deliveries receive up to maxMessages messages at once and
+ * acknowledge them together once they have been delivered.
+ * <p>
+ * An idle transacted loop on a queue peeks at the queue with a browser before starting a transaction, so an
+ * empty queue does not cost a transaction per receive timeout. A topic cannot be peeked at.
+ * <p>
+ * A transacted loop cannot know the delivery count of a message before receiving it within the transaction,
+ * so it backs off once a delivery rolled back, before starting the transaction receiving the message again.
+ * The transaction never waits for the redelivery delay.
+ */
+public class JmsReceiveLoopSession extends JmsServerSession {
+    /**
+     * The log
+     */
+    private static final JmsLogger log = JmsLogger.getLogger(JmsReceiveLoopSession.class);
+
+    /**
+     * The first pause of an idle loop in milliseconds
+     */
+    private static final long MIN_IDLE_BACKOFF = 10;
+
+    /**
+     * The message consumer
+     */
+    MessageConsumer consumer;
+
+    /**
+     * The browser peeking at the queue of an idle transacted loop, created on first use
+     */
+    QueueBrowser browser;
+
+    /**
+     * The queue, null for a topic
+     */
+    Queue queue;
+
+    /**
+     * Whether the last receive returned no message
+     */
+    boolean idle = false;
+
+    /**
+     * The delay in milliseconds before the next transacted receive, set once a delivery rolled back
+     */
+    long redeliveryBackoff = 0;
+
+    /**
+     * Create a new receive loop session
+     *
+     * @param pool the server session pool
+     */
+    public JmsReceiveLoopSession(JmsServerSessionPool pool) {
+        super(pool);
+    }
+
+    @Override
+    int getAcknowledgeMode(JmsActivationSpec spec) {
+        // The messages are acknowledged once delivered, not when received
+        return Session.CLIENT_ACKNOWLEDGE;
+    }
+
+    @Override
+    void setupDelivery() throws Exception {
+        JmsActivation activation = pool.getActivation();
+        JmsActivationSpec spec = activation.getActivationSpec();
+        String selector = spec.getMessageSelector();
+        Destination destination = pool.nextDestination();
+        if (activation.isTopic()) {
+            Topic topic = (Topic) destination;
+            String subscriptionName = pool.getSubscriptionName(destination);
+            if (spec.isShareSubscriptions()) {
+                if (spec.isDurable()) {
+                    consumer = session.createSharedDurableConsumer(topic, subscriptionName, selector);
+                } else {
+                    consumer = session.createSharedConsumer(topic, subscriptionName, selector);
+                }
+            } else if (spec.isDurable()) {
+                consumer = session.createDurableSubscriber(topic, subscriptionName, selector, false);
+            } else {
+                consumer = session.createConsumer(topic, selector);
+            }
+        } else {
+            queue = (Queue) destination;
+            consumer = session.createConsumer(queue, selector);
+        }
+        log.createdConsumer(consumer);
+    }
+
+    /**
+     * Schedule the receive loop
+     *
+     * @throws WorkException when the work manager does not accept the loop
+     */
+    void startLoop() throws WorkException {
+        WorkManager workManager = pool.getActivation().getWorkManager();
+        workManager.scheduleWork(this, WorkManager.INDEFINITE, null, this);
+    }
+
+    @Override
+    public void start() throws JMSException {
+        throw new JMSException("A receive loop session is not driven by a connection consumer");
+    }
+
+    @Override
+    public void run() {
+        JmsActivation activation = pool.getActivation();
+        JmsActivationSpec spec = activation.getActivationSpec();
+        long receiveTimeout = spec.getReceiveTimeout();
+        long maxIdleBackoff = spec.getMaxIdleBackoff();
+        int maxMessages = Math.max(spec.getMaxMessagesInt(), 1);
+        long idleBackoff = 0;
+
+        log.startingReceiveLoop(this);
+        while (pool.isStopped() == false) {
+            if (redeliveryBackoff > 0) {
+                pool.delay(redeliveryBackoff * 1000000L);
+                redeliveryBackoff = 0;
+            }
+            if (pool.acquireLoopPermit() == false) {
+                break;
+            }
+            pool.throttle();
+            try {
+                int received;
+                try {
+                    if (activation.isDeliveryTransacted()) {
+                        received = receiveTransacted(receiveTimeout);
+                    } else {
+                        received = receiveBatch(receiveTimeout, maxMessages);
+                    }
+                } finally {
+                    pool.releaseLoopPermit();
+                }
+
+                if (received < 0) {
+                    // The queue was found empty without waiting in a receive
+                    pool.pause(receiveTimeout);
+                }
+                if (received > 0) {
+                    idleBackoff = 0;
+                } else if (maxIdleBackoff > 0) {
+                    idleBackoff = idleBackoff == 0 ? Math.min(MIN_IDLE_BACKOFF, maxIdleBackoff) : Math.min(idleBackoff * 2, maxIdleBackoff);
+                    pool.pause(idleBackoff);
+                }
+            } catch (Throwable t) {
+                if (pool.isStopped()) {
+                    log.errorInStoppedReceiveLoop(this, t);
+                } else {
+                    // A broken connection is handled by the exception listener which stops the pool
+                    log.errorInReceiveLoop(this, t);
+                    pool.pause(spec.getReconnectIntervalLong());
+                }
+            }
+        }
+        log.stoppedReceiveLoop(this);
+    }
+
+    /**
+     * Receive and deliver a message in the transaction started by the endpoint
+     *
+     * @param receiveTimeout the receive timeout in milliseconds
+     * @return the number of messages delivered, -1 when an idle queue was found empty without a transaction
+     * @throws Exception for any error
+     */
+    int receiveTransacted(long receiveTimeout) throws Exception {
+        if (idle && isQueueEmpty()) {
+            return -1;
+        }
+        final int timeout = pool.getActivation().getActivationSpec().getTransactionTimeout();
+
+        if (timeout > 0) {
+            if (log.isTraceEnabled()) {
+                log.trace("Setting transactionTimeout for JMSSessionPool to " + timeout);
+            }
+            tm.setTransactionTimeout(timeout);
+        }
+
+        JmsRedeliveryPolicy redelivery = pool.getActivation().getRedeliveryPolicy();
+        JmsDeliveryEvent event = new JmsDeliveryEvent();
+        event.begin();
+        endpoint.beforeDelivery(JmsActivation.ONMESSAGE);
+
+        int deliveryCount = 0;
+        long duplicateKey = 0;
+        boolean failed = false;
+        boolean committed = false;
+        JmsSpan span = null;
+        try {
+            Message message = consumer.receive(receiveTimeout);
+            idle = message == null;
+            if (message == null) {
+                return 0;
+            }
+            span = JmsTracing.startOnMessage(message);
+            deliveryCount = 1;
+            if (redelivery != null) {
+                // Only counted, the delay was applied before the transaction started
+                deliveryCount = redelivery.getDeliveryCount(message);
+                redelivery.onDelivery(deliveryCount);
+            }
+            duplicateKey = duplicateKey(message);
+            long start = System.nanoTime();
+            try {
+                dispatch(message, deliveryCount, duplicateKey);
+            } catch (Throwable t) {
+                failed = true;
+                try {
+                    log.deliveryError(message.getJMSMessageID(), t);
+                } catch (JMSException e) {
+                    log.deliveryError(t);
+                }
+            }
+            pool.deliveryCompleted(System.nanoTime() - start, failed);
+            completed(event, message, deliveryCount, failed);
+            return 1;
+        } finally {
+            boolean rollback = failed || isMarkedRollback();
+            try {
+                afterDelivery();
+                committed = rollback == false;
+            } finally {
+                JmsTracing.end(span, failed);
+                if (committed == false && redelivery != null && deliveryCount > 0) {
+                    // The message comes back with the next delivery count
+                    redeliveryBackoff = redelivery.getDelay(deliveryCount + 1);
+                }
+            }
+            if (failed == false) {
+                delivered(duplicateKey);
+            }
+        }
+    }
+
+    /**
+     * @return whether the delivery transaction will roll back although the endpoint did not throw
+     */
+    boolean isMarkedRollback() {
+        if (tm == null) {
+            return false;
+        }
+        try {
+            int status = tm.getStatus();
+            return status == Status.STATUS_MARKED_ROLLBACK || status == Status.STATUS_ROLLEDBACK;
+        } catch (SystemException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Peek at the queue outside of a transaction
+     *
+     * @return whether the queue has no message for the selector, false for a topic
+     * @throws JMSException for any error
+     */
+    boolean isQueueEmpty() throws JMSException {
+        if (queue == null) {
+            return false;
+        }
+        if (browser == null) {
+            browser = session.createBrowser(queue, pool.getActivation().getActivationSpec().getMessageSelector());
+        }
+        return browser.getEnumeration().hasMoreElements() == false;
+    }
+
+    /**
+     * Receive up to maxMessages messages, deliver them and acknowledge them together
+     *
+     * @param receiveTimeout the timeout of the first receive in milliseconds
+     * @param maxMessages    the maximum number of messages
+     * @return the number of messages delivered
+     * @throws JMSException for any error
+     */
+    int receiveBatch(long receiveTimeout, int maxMessages) throws JMSException {
+        Message message = consumer.receive(receiveTimeout);
+        Message last = null;
+        int received = 0;
+        while (message != null) {
+            deliver(message);
+            last = message;
+            if (++received == maxMessages || pool.isStopped()) {
+                break;
+            }
+            message = consumer.receiveNoWait();
+            if (message != null) {
+                // The received messages are held until acknowledged, their tokens delay the next receive instead
+                pool.reserve();
+            }
+        }
+        if (last != null) {
+            last.acknowledge();
+        }
+        return received;
+    }
+
+    @Override
+    public void teardown() {
+        try {
+            if (browser != null) {
+                browser.close();
+            }
+        } catch (Throwable t) {
+            log.errorClosingConsumer(browser, t);
+        }
+        try {
+            if (consumer != null) {
+                consumer.close();
+            }
+        } catch (Throwable t) {
+            log.errorClosingConsumer(consumer, t);
+        }
+        super.teardown();
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.inflow;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+
+import org.jboss.logging.Logger;
+
+/**
+ * The redelivery policy of an activation: redelivered messages are delayed with an exponential back-off
+ * and the messages which were delivered too many times are parked on the dead letter destination.
+ */
+public class JmsRedeliveryPolicy {
+    /**
+     * The logger
+     */
+    private static final Logger log = Logger.getLogger(JmsRedeliveryPolicy.class);
+
+    /**
+     * The JMS defined delivery count property
+     */
+    public static final String JMSX_DELIVERY_COUNT = "JMSXDeliveryCount";
+
+    /**
+     * The number of deliveries before a message is parked, 0 to never park
+     */
+    private final int maxDeliveryAttempts;
+
+    /**
+     * The delay before the first redelivery in milliseconds
+     */
+    private final long redeliveryDelay;
+
+    /**
+     * The factor applied to the delay after each redelivery
+     */
+    private final double redeliveryMultiplier;
+
+    /**
+     * The longest delay in milliseconds
+     */
+    private final long maxRedeliveryDelay;
+
+    /**
+     * The number of redelivered messages
+     */
+    private final AtomicLong redeliveries = new AtomicLong();
+
+    /**
+     * The number of parked messages
+     */
+    private final AtomicLong parkedMessages = new AtomicLong();
+
+    /**
+     * Create a new redelivery policy
+     *
+     * @param spec the activation spec
+     */
+    public JmsRedeliveryPolicy(JmsActivationSpec spec) {
+        this.maxDeliveryAttempts = spec.getMaxDeliveryAttempts();
+        this.redeliveryDelay = spec.getRedeliveryDelay();
+        this.redeliveryMultiplier = spec.getRedeliveryMultiplier();
+        this.maxRedeliveryDelay = spec.getMaxRedeliveryDelay();
+    }
+
+    /**
+     * Get the delivery count of a message, from JMSXDeliveryCount when the provider sets it
+     * or from JMSRedelivered otherwise
+     *
+     * @param message the message
+     * @return the delivery count, 1 for the first delivery
+     */
+    public int getDeliveryCount(Message message) {
+        try {
+            if (message.propertyExists(JMSX_DELIVERY_COUNT)) {
+                return Math.max(message.getIntProperty(JMSX_DELIVERY_COUNT), 1);
+            }
+            return message.getJMSRedelivered() ? 2 : 1;
+        } catch (JMSException | RuntimeException e) {
+            log.debug("Unable to read the delivery count of " + message, e);
+            return 1;
+        }
+    }
+
+    /**
+     * Record a delivery and compute how long it should be delayed
+     *
+     * @param deliveryCount the delivery count of the message
+     * @return the delay in milliseconds
+     */
+    public long onDelivery(int deliveryCount) {
+        if (deliveryCount >= 2) {
+            redeliveries.incrementAndGet();
+        }
+        return getDelay(deliveryCount);
+    }
+
+    /**
+     * Compute how long a delivery should be delayed, without recording it
+     *
+     * @param deliveryCount the delivery count of the message
+     * @return the delay in milliseconds
+     */
+    public long getDelay(int deliveryCount) {
+        if (deliveryCount < 2 || redeliveryDelay <= 0) {
+            return 0;
+        }
+        double delay = redeliveryDelay * Math.pow(redeliveryMultiplier, deliveryCount - 2);
+        return (long) Math.min(delay, maxRedeliveryDelay);
+    }
+
+    /**
+     * @param deliveryCount the delivery count of the message
+     * @return whether the message must be parked instead of being delivered
+     */
+    public boolean isExhausted(int deliveryCount) {
+        return maxDeliveryAttempts > 0 && deliveryCount > maxDeliveryAttempts;
+    }
+
+    /**
+     * Record a parked message
+     */
+    public void onParked() {
+        parkedMessages.incrementAndGet();
+    }
+
+    /**
+     * @return the number of redelivered messages
+     */
+    public long getRedeliveries() {
+        return redeliveries.get();
+    }
+
+    /**
+     * @return the number of parked messages
+     */
+    public long getParkedMessages() {
+        return parkedMessages.get();
+    }
+
+    @Override
+    public String toString() {
+        return JmsActivation.defaultToString(this) + "(maxDeliveryAttempts=" + maxDeliveryAttempts + " redeliveryDelay="
+                + redeliveryDelay + " redeliveryMultiplier=" + redeliveryMultiplier + " maxRedeliveryDelay="
+                + maxRedeliveryDelay + " redeliveries=" + redeliveries + " parkedMessages=" + parkedMessages + ')';
+    }
+}
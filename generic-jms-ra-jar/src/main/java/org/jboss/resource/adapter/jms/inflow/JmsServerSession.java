@@ -4,16 +4,17 @@
  */
 package org.jboss.resource.adapter.jms.inflow;
 
-import org.jboss.logging.Logger;
-
 import jakarta.jms.Connection;
+import jakarta.jms.Destination;
 import jakarta.jms.JMSException;
 import jakarta.jms.Message;
 import jakarta.jms.MessageListener;
+import jakarta.jms.MessageProducer;
 import jakarta.jms.ServerSession;
 import jakarta.jms.Session;
 import jakarta.jms.XAConnection;
 import jakarta.jms.XASession;
+import jakarta.resource.ResourceException;
 import jakarta.resource.spi.endpoint.MessageEndpoint;
 import jakarta.resource.spi.endpoint.MessageEndpointFactory;
 import jakarta.resource.spi.work.Work;
@@ -24,6 +25,12 @@ import jakarta.resource.spi.work.WorkManager;
 import jakarta.transaction.TransactionManager;
 import javax.transaction.xa.XAResource;
 
+import org.jboss.resource.adapter.jms.JmsMessageCompressor;
+import org.jboss.resource.adapter.jms.jfr.JmsDeliveryEvent;
+import org.jboss.resource.adapter.jms.logging.JmsLogger;
+import org.jboss.resource.adapter.jms.tracing.JmsSpan;
+import org.jboss.resource.adapter.jms.tracing.JmsTracing;
+
 /**
  * 
  * A generic jms session pool.
@@ -36,7 +43,7 @@ public class JmsServerSession implements ServerSession, MessageListener, Work, W
     /**
      * The log
      */
-    private static final Logger log = Logger.getLogger(JmsServerSession.class);
+    private static final JmsLogger log = JmsLogger.getLogger(JmsServerSession.class);
 
     /**
      * The session pool
@@ -60,6 +67,31 @@ public class JmsServerSession implements ServerSession, MessageListener, Work, W
 
     TransactionManager tm;
 
+    /**
+     * The keyed ordering ticket of the current delivery, -1 if none
+     */
+    long ticket = -1;
+
+    /**
+     * Whether the ticket has been declared to the keyed ordering
+     */
+    boolean declared;
+
+    /**
+     * The number of messages delivered since the session was started
+     */
+    int deliveries;
+
+    /**
+     * The time the session waits for the rate limiter token of its first message before running, in nanoseconds
+     */
+    long startDelay;
+
+    /**
+     * The fan-out of the messages to several endpoints, null when the session delivers them itself
+     */
+    JmsSessionFanOut fanOut;
+
     /**
      * Create a new JmsServerSession
      *
@@ -75,7 +107,7 @@ public class JmsServerSession implements ServerSession, MessageListener, Work, W
     public void setup() throws Exception {
         JmsActivation activation = pool.getActivation();
         JmsActivationSpec spec = activation.getActivationSpec();
-        Connection connection = activation.getConnection();
+        Connection connection = pool.getConnection();
         XAResource xaResource = null;
         tm = activation.getTransactionManager();
 
@@ -85,7 +117,7 @@ public class JmsServerSession implements ServerSession, MessageListener, Work, W
         // Create the session
         if (activation.isDeliveryTransacted) {
             if (connection instanceof XAConnection) {
-                log.debug("Delivery is transacted, and client JMS implementation properly implements jakarta.jms.XAConnection.");
+                log.deliveryTransacted();
                 xaSession = ((XAConnection) connection).createXASession();
                 session = xaSession.getSession();
                 xaResource = xaSession.getXAResource();
@@ -93,11 +125,35 @@ public class JmsServerSession implements ServerSession, MessageListener, Work, W
                 throw new Exception("Delivery is transacted, but client JMS implementation does not properly implement the necessary interfaces as described in section 8 of the JMS 1.1 specification.");
             }
         } else {
-            session = connection.createSession(false, spec.getAcknowledgeModeInt());
+            session = connection.createSession(false, getAcknowledgeMode(spec));
         }
 
         endpoint = endpointFactory.createEndpoint(xaResource);
+        if (spec.getSessionParallelism() > 1 && activation.isDeliveryTransacted == false) {
+            fanOut = new JmsSessionFanOut(this, endpointFactory, spec.getSessionParallelism());
+        }
+
+        setupDelivery();
+    }
+
+    /**
+     * @param spec the activation spec
+     * @return the acknowledgement mode of a non transacted session
+     */
+    int getAcknowledgeMode(JmsActivationSpec spec) {
+        if (spec.getSessionParallelism() > 1) {
+            // The messages are acknowledged once all their deliveries completed
+            return Session.CLIENT_ACKNOWLEDGE;
+        }
+        return spec.getAcknowledgeModeInt();
+    }
 
+    /**
+     * Setup the delivery of the messages to the session
+     *
+     * @throws Exception for any error
+     */
+    void setupDelivery() throws Exception {
         // Set the message listener
         session.setMessageListener(this);
     }
@@ -106,12 +162,15 @@ public class JmsServerSession implements ServerSession, MessageListener, Work, W
      * Stop the session
      */
     public void teardown() {
+        if (fanOut != null) {
+            fanOut.release();
+        }
         try {
             if (endpoint != null) {
                 endpoint.release();
             }
         } catch (Throwable t) {
-            log.debug("Error releasing endpoint " + endpoint, t);
+            log.errorReleasingEndpoint(endpoint, t);
         }
 
         try {
@@ -119,7 +178,7 @@ public class JmsServerSession implements ServerSession, MessageListener, Work, W
                 xaSession.close();
             }
         } catch (Throwable t) {
-            log.debug("Error closing xaSession " + xaSession, t);
+            log.errorClosingXASession(xaSession, t);
         }
 
         try {
@@ -127,35 +186,270 @@ public class JmsServerSession implements ServerSession, MessageListener, Work, W
                 session.close();
             }
         } catch (Throwable t) {
-            log.debug("Error closing session " + session, t);
+            log.errorClosingSession(session, t);
         }
     }
 
     @Override
     public void onMessage(Message message) {
+        // The token of the first message was taken when the session was handed out. The later messages are
+        // not delayed while the session holds them, their tokens delay the next sessions instead
+        if (deliveries++ > 0) {
+            pool.reserve();
+        }
+        if (fanOut != null) {
+            fanOut(message);
+            return;
+        }
+        JmsKeyedOrdering ordering = pool.getOrdering();
+        if (ordering != null && ticket >= 0 && declared == false) {
+            declared = true;
+            String key = null;
+            try {
+                key = ordering.enter(ticket, message);
+            } catch (InterruptedException e) {
+                // Not delivered out of order, the provider redelivers the message
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted waiting for the older messages with the same ordering key", e);
+            } catch (Throwable t) {
+                log.unableToReadOrderingKey(ordering.getKeyProperty(), t);
+            }
+            try {
+                deliver(message);
+            } finally {
+                ordering.exit(key, ticket);
+            }
+        } else {
+            deliver(message);
+        }
+    }
+
+    /**
+     * Hand the message to the fan-out, a message to park is delivered by the thread of the session
+     * as it uses the session
+     *
+     * @param message the message
+     */
+    void fanOut(Message message) {
+        int deliveryCount = delayRedelivery(message);
+        long duplicateKey = duplicateKey(message);
+        JmsRedeliveryPolicy redelivery = pool.getActivation().getRedeliveryPolicy();
+        if (redelivery != null && redelivery.isExhausted(deliveryCount)) {
+            if (deliver(message, endpoint, deliveryCount, duplicateKey) == false) {
+                fanOut.failed();
+            }
+            fanOut.acknowledgeLater(message);
+        } else {
+            fanOut.submit(message, deliveryCount, duplicateKey);
+        }
+    }
+
+    /**
+     * Deliver the message to the endpoint
+     *
+     * @param message the message
+     */
+    void deliver(Message message) {
+        deliver(message, endpoint, delayRedelivery(message), duplicateKey(message));
+    }
+
+    /**
+     * Deliver the message to an endpoint
+     *
+     * @param message       the message
+     * @param endpoint      the endpoint
+     * @param deliveryCount the delivery count of the message
+     * @param duplicateKey  the key of the message in the duplicate filter
+     * @return whether the message was delivered
+     */
+    boolean deliver(Message message, MessageEndpoint endpoint, int deliveryCount, long duplicateKey) {
+        JmsDeliveryEvent event = new JmsDeliveryEvent();
+        event.begin();
+        JmsSpan span = JmsTracing.startOnMessage(message);
+        long start = System.nanoTime();
+        boolean failed = false;
         try {
             final int timeout = pool.getActivation().getActivationSpec().getTransactionTimeout();
 
             if (timeout > 0) {
-                log.trace("Setting transactionTimeout for JMSSessionPool to " + timeout);
+                if (log.isTraceEnabled()) {
+                    log.trace("Setting transactionTimeout for JMSSessionPool to " + timeout);
+                }
                 tm.setTransactionTimeout(timeout);
             }
 
             endpoint.beforeDelivery(JmsActivation.ONMESSAGE);
 
             try {
-                MessageListener listener = (MessageListener) endpoint;
-                listener.onMessage(message);
+                dispatch(endpoint, message, deliveryCount, duplicateKey);
             } finally {
-                endpoint.afterDelivery();
+                afterDelivery(endpoint);
             }
+            delivered(duplicateKey);
         } catch (Throwable t) {
+            failed = true;
             try {
-               log.error("Unexpected error delivering message. JMSMessageID is " + message.getJMSMessageID(), t);
+               log.deliveryError(message.getJMSMessageID(), t);
             } catch (JMSException e) {
-               log.error("Unexpected error delivering message. JMSMessageID cannot be determined.", t);
+               log.deliveryError(t);
             }
         }
+        pool.deliveryCompleted(System.nanoTime() - start, failed);
+        completed(event, message, deliveryCount, failed);
+        JmsTracing.end(span, failed);
+        return failed == false;
+    }
+
+    /**
+     * Complete the delivery to the endpoint, where the container commits a transacted delivery
+     *
+     * @throws ResourceException for any error
+     */
+    void afterDelivery() throws ResourceException {
+        afterDelivery(endpoint);
+    }
+
+    /**
+     * Complete the delivery to an endpoint
+     *
+     * @param endpoint the endpoint
+     * @throws ResourceException for any error
+     */
+    void afterDelivery(MessageEndpoint endpoint) throws ResourceException {
+        JmsSpan span = JmsTracing.startCommit();
+        boolean failed = true;
+        try {
+            endpoint.afterDelivery();
+            failed = false;
+        } finally {
+            JmsTracing.end(span, failed);
+        }
+    }
+
+    /**
+     * Complete the flight recorder event of a delivery
+     *
+     * @param event         the event
+     * @param message       the message
+     * @param deliveryCount the delivery count of the message
+     * @param failed        whether the delivery failed
+     */
+    void completed(JmsDeliveryEvent event, Message message, int deliveryCount, boolean failed) {
+        JmsActivation activation = pool.getActivation();
+        event.complete(activation.getActivationName(), activation.getActivationSpec().getDestination(), message, deliveryCount, failed);
+    }
+
+    /**
+     * Apply the redelivery delay of the activation to a redelivered message
+     *
+     * @param message the message
+     * @return the delivery count of the message, 1 when there is no redelivery policy
+     */
+    int delayRedelivery(Message message) {
+        JmsRedeliveryPolicy redelivery = pool.getActivation().getRedeliveryPolicy();
+        if (redelivery == null) {
+            return 1;
+        }
+        int deliveryCount = redelivery.getDeliveryCount(message);
+        long delay = redelivery.onDelivery(deliveryCount);
+        if (delay > 0) {
+            if (log.isTraceEnabled()) {
+                log.trace("Delaying delivery " + deliveryCount + " of " + message + " by " + delay + "ms");
+            }
+            pool.delay(delay * 1000000L);
+        }
+        return deliveryCount;
+    }
+
+    /**
+     * @param message the message
+     * @return the key of the message in the duplicate filter of the activation, 0 when duplicates are not filtered
+     */
+    long duplicateKey(Message message) {
+        JmsDuplicateFilter duplicateFilter = pool.getActivation().getDuplicateFilter();
+        if (duplicateFilter == null) {
+            return 0;
+        }
+        try {
+            return duplicateFilter.key(message);
+        } catch (Throwable t) {
+            log.unableToReadDuplicateKey(message, t);
+            return 0;
+        }
+    }
+
+    /**
+     * Remember a message once its delivery completed, so its redelivered copies are skipped
+     *
+     * @param duplicateKey the key of the message in the duplicate filter
+     */
+    void delivered(long duplicateKey) {
+        if (duplicateKey != 0) {
+            pool.getActivation().getDuplicateFilter().add(duplicateKey);
+        }
+    }
+
+    /**
+     * Hand the message to the endpoint, park it once its delivery attempts are exhausted
+     * or skip it when it was already delivered
+     *
+     * @param message       the message
+     * @param deliveryCount the delivery count of the message
+     * @param duplicateKey  the key of the message in the duplicate filter
+     */
+    void dispatch(Message message, int deliveryCount, long duplicateKey) {
+        dispatch(endpoint, message, deliveryCount, duplicateKey);
+    }
+
+    /**
+     * Hand the message to an endpoint, park it once its delivery attempts are exhausted
+     * or skip it when it was already delivered
+     *
+     * @param endpoint      the endpoint
+     * @param message       the message
+     * @param deliveryCount the delivery count of the message
+     * @param duplicateKey  the key of the message in the duplicate filter
+     */
+    void dispatch(MessageEndpoint endpoint, Message message, int deliveryCount, long duplicateKey) {
+        if (duplicateKey != 0 && pool.getActivation().getDuplicateFilter().isDuplicate(duplicateKey)) {
+            log.skippingDuplicate(message);
+            return;
+        }
+        JmsRedeliveryPolicy redelivery = pool.getActivation().getRedeliveryPolicy();
+        if (redelivery != null && redelivery.isExhausted(deliveryCount)) {
+            Destination deadLetterDestination = pool.getActivation().getDeadLetterDestination();
+            try {
+                // The producer uses the delivery session so the message is moved within the delivery transaction
+                MessageProducer producer = session.createProducer(deadLetterDestination);
+                try {
+                    producer.send(message, message.getJMSDeliveryMode(), message.getJMSPriority(), Message.DEFAULT_TIME_TO_LIVE);
+                } finally {
+                    producer.close();
+                }
+                redelivery.onParked();
+                log.parkedMessage(message.getJMSMessageID(), deadLetterDestination, deliveryCount - 1);
+                return;
+            } catch (Throwable t) {
+                log.unableToParkMessage(deadLetterDestination, t);
+            }
+        }
+        MessageListener listener = (MessageListener) endpoint;
+        listener.onMessage(decompressing(message));
+    }
+
+    /**
+     * Wrap a message whose body is compressed so the endpoint reads the decompressed body
+     *
+     * @param message the message
+     * @return the message to deliver
+     */
+    private static Message decompressing(Message message) {
+        try {
+            return JmsMessageCompressor.decompressing(message);
+        } catch (JMSException e) {
+            log.unableToCheckCompression(message, e);
+            return message;
+        }
     }
 
     @Override
@@ -167,17 +461,51 @@ public class JmsServerSession implements ServerSession, MessageListener, Work, W
     public void start() throws JMSException {
         JmsActivation activation = pool.getActivation();
         WorkManager workManager = activation.getWorkManager();
+        JmsKeyedOrdering ordering = pool.getOrdering();
+        if (ordering != null) {
+            // start() is called in the order the connection consumer dispatches the messages
+            ticket = ordering.nextTicket();
+            declared = false;
+        }
+        deliveries = 0;
         try {
             workManager.scheduleWork(this, 0, null, this);
         } catch (WorkException e) {
-            log.error("Unable to schedule work", e);
+            releaseTicket();
+            log.unableToScheduleWork(e);
             throw new JMSException("Unable to schedule work: " + e.toString());
         }
     }
 
     @Override
     public void run() {
-        session.run();
+        try {
+            try {
+                // Waits on the work thread, the thread of the provider handing out the session never waits
+                pool.delay(startDelay);
+                startDelay = 0;
+                session.run();
+            } finally {
+                if (fanOut != null) {
+                    fanOut.complete();
+                }
+            }
+        } finally {
+            releaseTicket();
+        }
+    }
+
+    /**
+     * Let the younger deliveries go on if this session did not deliver any message
+     */
+    synchronized void releaseTicket() {
+        if (ticket >= 0) {
+            if (declared == false) {
+                declared = true;
+                pool.getOrdering().skip(ticket);
+            }
+            ticket = -1;
+        }
     }
 
     @Override
@@ -195,6 +523,7 @@ public class JmsServerSession implements ServerSession, MessageListener, Work, W
 
     @Override
     public void workRejected(WorkEvent e) {
+        releaseTicket();
         pool.returnServerSession(this);
     }
 
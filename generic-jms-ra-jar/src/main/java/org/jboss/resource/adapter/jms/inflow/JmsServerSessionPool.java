@@ -8,13 +8,15 @@ import java.util.ArrayList;
 
 import jakarta.jms.Connection;
 import jakarta.jms.ConnectionConsumer;
+import jakarta.jms.Destination;
 import jakarta.jms.JMSException;
 import jakarta.jms.Queue;
 import jakarta.jms.ServerSession;
 import jakarta.jms.ServerSessionPool;
 import jakarta.jms.Topic;
 
-import org.jboss.logging.Logger;
+import org.jboss.resource.adapter.jms.jfr.JmsServerSessionWaitEvent;
+import org.jboss.resource.adapter.jms.logging.JmsLogger;
 
 /**
  * A generic jms session pool.
@@ -25,7 +27,7 @@ public class JmsServerSessionPool implements ServerSessionPool {
     /**
      * The logger
      */
-    private static final Logger log = Logger.getLogger(JmsServerSessionPool.class);
+    private static final JmsLogger log = JmsLogger.getLogger(JmsServerSessionPool.class);
 
     /**
      * The activation
@@ -33,9 +35,24 @@ public class JmsServerSessionPool implements ServerSessionPool {
     JmsActivation activation;
 
     /**
-     * The consumer
+     * The connection
      */
-    ConnectionConsumer consumer;
+    Connection connection;
+
+    /**
+     * The number of sessions to create
+     */
+    int maxSession;
+
+    /**
+     * The consumers, one per destination
+     */
+    ConnectionConsumer[] consumers;
+
+    /**
+     * The index of the destination of the next receive loop
+     */
+    int nextDestination = 0;
 
     /**
      * The server sessions
@@ -45,20 +62,62 @@ public class JmsServerSessionPool implements ServerSessionPool {
     /**
      * Whether the pool is stopped
      */
-    boolean stopped = false;
+    volatile boolean stopped = false;
 
     /**
      * The number of sessions
      */
     int sessionCount = 0;
 
+    /**
+     * The keyed ordering, null when messages are delivered in any order
+     */
+    JmsKeyedOrdering ordering;
+
+    /**
+     * The adaptive concurrency limiter, null when all the sessions are used
+     */
+    JmsConcurrencyLimiter limiter;
+
+    /**
+     * The number of receive loops currently delivering
+     */
+    int loopsDelivering = 0;
+
     /**
      * Create a new session pool
      *
      * @param activation the jms activation
+     * @param connection the connection used by the sessions and the consumer
+     * @param maxSession the number of sessions to create
      */
-    public JmsServerSessionPool(JmsActivation activation) {
+    public JmsServerSessionPool(JmsActivation activation, Connection connection, int maxSession) {
         this.activation = activation;
+        this.connection = connection;
+        this.maxSession = maxSession;
+        JmsActivationSpec spec = activation.getActivationSpec();
+        if (spec.isKeyedOrdering()) {
+            ordering = new JmsKeyedOrdering(spec.getOrderingKeyProperty());
+        }
+        if (spec.isReceiveLoop() && activation.isTopic() && spec.isShareSubscriptions() == false && maxSession > 1) {
+            // Each consumer of an unshared subscription would get its own copy of the messages
+            log.singleReceiveLoop(maxSession);
+            this.maxSession = 1;
+        }
+        if (spec.getSessionParallelism() > 1 && activation.isDeliveryTransacted()) {
+            // The endpoints of a session cannot share its transaction
+            log.transactedSessionParallelism(spec.getSessionParallelism());
+        }
+        int destinations = activation.getDestinations().length;
+        if (spec.isReceiveLoop() && this.maxSession < destinations) {
+            log.partitionsWithoutReceiveLoop(this.maxSession, destinations);
+        }
+        if (spec.isAdaptiveConcurrency()) {
+            // This pool's share of minSession, rounded up
+            int maxSessionInt = Math.max(spec.getMaxSessionInt(), 1);
+            int minSession = (spec.getMinSessionInt() * this.maxSession + maxSessionInt - 1) / maxSessionInt;
+            limiter = new JmsConcurrencyLimiter(minSession, this.maxSession, spec.getTargetLatency());
+        }
     }
 
     /**
@@ -68,6 +127,40 @@ public class JmsServerSessionPool implements ServerSessionPool {
         return activation;
     }
 
+    /**
+     * @return the connection
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * @return the keyed ordering or null when messages are delivered in any order
+     */
+    public JmsKeyedOrdering getOrdering() {
+        return ordering;
+    }
+
+    /**
+     * @return the adaptive concurrency limiter or null when all the sessions are used
+     */
+    public JmsConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+
+    /**
+     * @return the number of sessions allowed to deliver concurrently
+     */
+    public int getConcurrencyLimit() {
+        JmsConcurrencyLimiter limiter = this.limiter;
+        if (limiter == null) {
+            return maxSession;
+        }
+        synchronized (serverSessions) {
+            return limiter.getLimit();
+        }
+    }
+
     /**
      * Start the server session pool
      *
@@ -75,7 +168,11 @@ public class JmsServerSessionPool implements ServerSessionPool {
      */
     public void start() throws Exception {
         setupSessions();
-        setupConsumer();
+        if (activation.getActivationSpec().isReceiveLoop()) {
+            startReceiveLoops();
+        } else {
+            setupConsumer();
+        }
     }
 
     /**
@@ -93,8 +190,10 @@ public class JmsServerSessionPool implements ServerSessionPool {
             log.trace("getServerSession");
         }
 
-        ServerSession result = null;
+        JmsServerSession result = null;
 
+        JmsServerSessionWaitEvent event = new JmsServerSessionWaitEvent();
+        event.begin();
         try {
             synchronized (serverSessions) {
                 while (true) {
@@ -102,8 +201,10 @@ public class JmsServerSessionPool implements ServerSessionPool {
 
                     if (stopped) {
                         throw new Exception("Cannot get a server session after the pool is stopped");
-                    } else if (sessionsSize > 0) {
+                    } else if (sessionsSize > 0 && (limiter == null || sessionCount - sessionsSize < limiter.getLimit())) {
                         result = serverSessions.remove(sessionsSize - 1);
+                        // The session waits for the token on its work thread, not on the thread of the provider
+                        result.startDelay = reserve();
                         break;
                     } else {
                         try {
@@ -115,6 +216,8 @@ public class JmsServerSessionPool implements ServerSessionPool {
             }
         } catch (Throwable t) {
             throw new JMSException("Unable to get a server session " + t);
+        } finally {
+            event.complete(activation.getActivationName(), activation.getActivationSpec().getDestination());
         }
 
         if (trace) {
@@ -124,6 +227,120 @@ public class JmsServerSessionPool implements ServerSessionPool {
         return result;
     }
 
+    /**
+     * @return whether the pool is stopped
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Wait for a token of the rate limiter, returns early when the pool is stopped
+     */
+    void throttle() {
+        delay(reserve());
+    }
+
+    /**
+     * Take a token of the rate limiter without waiting for it
+     *
+     * @return the time to wait for the token in nanoseconds, 0 when there is no rate limit
+     */
+    long reserve() {
+        JmsRateLimiter rateLimiter = activation.getRateLimiter();
+        return rateLimiter != null ? rateLimiter.reserve() : 0;
+    }
+
+    /**
+     * Wait for the given time, returns early when the pool is stopped
+     *
+     * @param delay the delay in nanoseconds
+     */
+    void delay(long delay) {
+        if (delay > 0) {
+            long deadline = System.nanoTime() + delay;
+            synchronized (serverSessions) {
+                while (stopped == false && delay > 0) {
+                    try {
+                        serverSessions.wait(delay / 1000000L, (int) (delay % 1000000L));
+                    } catch (InterruptedException ignored) {
+                    }
+                    delay = deadline - System.nanoTime();
+                }
+            }
+        }
+    }
+
+    /**
+     * Record a completed delivery for the adaptive concurrency limiter
+     *
+     * @param latency the latency of the delivery in nanoseconds
+     * @param failed  whether the delivery failed
+     */
+    void deliveryCompleted(long latency, boolean failed) {
+        if (limiter == null) {
+            return;
+        }
+        synchronized (serverSessions) {
+            int inFlight = activation.getActivationSpec().isReceiveLoop() ? loopsDelivering : sessionCount - serverSessions.size();
+            limiter.onDelivery(latency, failed, inFlight);
+            serverSessions.notifyAll();
+        }
+    }
+
+    /**
+     * Wait until the adaptive concurrency limiter lets one more receive loop deliver
+     *
+     * @return false when the pool is stopped
+     */
+    boolean acquireLoopPermit() {
+        if (limiter == null) {
+            return stopped == false;
+        }
+        synchronized (serverSessions) {
+            while (stopped == false && loopsDelivering >= limiter.getLimit()) {
+                try {
+                    serverSessions.wait();
+                } catch (InterruptedException ignored) {
+                }
+            }
+            if (stopped) {
+                return false;
+            }
+            ++loopsDelivering;
+            return true;
+        }
+    }
+
+    /**
+     * Release the permit taken with {@link #acquireLoopPermit()}
+     */
+    void releaseLoopPermit() {
+        if (limiter == null) {
+            return;
+        }
+        synchronized (serverSessions) {
+            --loopsDelivering;
+            serverSessions.notifyAll();
+        }
+    }
+
+    /**
+     * Pause the calling receive loop, returns early when the pool is stopped
+     *
+     * @param millis the maximum pause in milliseconds
+     */
+    void pause(long millis) {
+        synchronized (serverSessions) {
+            if (stopped == false) {
+                try {
+                    serverSessions.wait(millis);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }
+    }
+
     /**
      * Return the server session
      *
@@ -148,13 +365,12 @@ public class JmsServerSessionPool implements ServerSessionPool {
      */
     @SuppressWarnings("unchecked")
     protected void setupSessions() throws Exception {
-        JmsActivationSpec spec = activation.getActivationSpec();
         ArrayList<JmsServerSession> clonedSessions = null;
 
         // Create the sessions
         synchronized (serverSessions) {
-            for (int i = 0; i < spec.getMaxSession(); ++i) {
-                JmsServerSession session = new JmsServerSession(this);
+            for (int i = 0; i < maxSession; ++i) {
+                JmsServerSession session = createServerSession();
                 serverSessions.add(session);
             }
             sessionCount = serverSessions.size();
@@ -168,6 +384,41 @@ public class JmsServerSessionPool implements ServerSessionPool {
         }
     }
 
+    /**
+     * @return a new server session for the delivery engine of the activation
+     */
+    protected JmsServerSession createServerSession() {
+        if (activation.getActivationSpec().isReceiveLoop()) {
+            return new JmsReceiveLoopSession(this);
+        }
+        return new JmsServerSession(this);
+    }
+
+    /**
+     * Start a receive loop in each session, they are handed back to the pool once stopped
+     *
+     * @throws Exception for any error
+     */
+    protected void startReceiveLoops() throws Exception {
+        ArrayList<JmsServerSession> loops;
+        synchronized (serverSessions) {
+            loops = new ArrayList<>(serverSessions);
+            serverSessions.clear();
+        }
+        for (int i = 0; i < loops.size(); ++i) {
+            try {
+                ((JmsReceiveLoopSession) loops.get(i)).startLoop();
+            } catch (Exception e) {
+                // Hand back the sessions that are not running so they get torn down with the pool
+                for (int j = i; j < loops.size(); ++j) {
+                    returnServerSession(loops.get(j));
+                }
+                throw e;
+            }
+        }
+        log.startedReceiveLoops(loops.size());
+    }
+
     /**
      * Stop the sessions
      */
@@ -177,6 +428,11 @@ public class JmsServerSessionPool implements ServerSessionPool {
             stopped = true;
             serverSessions.notifyAll();
 
+            // Do not keep sessions waiting for their turn
+            if (ordering != null) {
+                ordering.release();
+            }
+
             // Stop inactive sessions
             for (int i = 0; i < serverSessions.size(); ++i) {
                 JmsServerSession session = serverSessions.get(i);
@@ -191,8 +447,10 @@ public class JmsServerSessionPool implements ServerSessionPool {
                 int forceClearAttempts = activation.getActivationSpec().getForceClearAttempts();
                 long forceClearInterval = activation.getActivationSpec().getForceClearOnShutdownInterval();
 
-                log.trace(this + " force clear behavior in effect. Waiting for " + forceClearInterval
-                        + " milliseconds for " + forceClearAttempts + " attempts.");
+                if (log.isTraceEnabled()) {
+                    log.trace(this + " force clear behavior in effect. Waiting for " + forceClearInterval
+                            + " milliseconds for " + forceClearAttempts + " attempts.");
+                }
 
                 while ((sessionCount > 0) && (attempts < forceClearAttempts)) {
                     try {
@@ -201,7 +459,9 @@ public class JmsServerSessionPool implements ServerSessionPool {
                         // Number of session didn't change
                         if (sessionCount == currentSessions) {
                             ++attempts;
-                            log.trace(this + " clear attempt failed " + attempts);
+                            if (log.isTraceEnabled()) {
+                                log.trace(this + " clear attempt failed " + attempts);
+                            }
                         }
                     } catch (InterruptedException ignore) {
                     }
@@ -224,41 +484,105 @@ public class JmsServerSessionPool implements ServerSessionPool {
      * @throws Exception for any error
      */
     protected void setupConsumer() throws Exception {
-        Connection connection = activation.getConnection();
         JmsActivationSpec spec = activation.getActivationSpec();
         String selector = spec.getMessageSelector();
         int maxMessages = spec.getMaxMessagesInt();
+        if (ordering != null && maxMessages != 1) {
+            // The ordering is tracked per server session, each one must carry a single message
+            log.keyedOrderingMaxMessages(maxMessages);
+            maxMessages = 1;
+        }
+        Destination[] destinations = activation.getDestinations();
+        consumers = new ConnectionConsumer[destinations.length];
+        for (int i = 0; i < destinations.length; ++i) {
+            consumers[i] = createConsumer(destinations[i], selector, maxMessages);
+        }
+    }
+
+    /**
+     * Create the connection consumer of a destination
+     *
+     * @param destination the destination
+     * @param selector    the message selector
+     * @param maxMessages the maximum number of messages loaded in a session
+     * @return the consumer
+     * @throws Exception for any error
+     */
+    private ConnectionConsumer createConsumer(Destination destination, String selector, int maxMessages) throws Exception {
+        JmsActivationSpec spec = activation.getActivationSpec();
+        ConnectionConsumer consumer;
         if (activation.isTopic()) {
-            Topic topic = (Topic) activation.getDestination();
-            String subscriptionName = spec.getSubscriptionName();
-            if (spec.isDurable()) {
+            Topic topic = (Topic) destination;
+            String subscriptionName = getSubscriptionName(destination);
+            if (spec.isShareSubscriptions()) {
+                if (spec.isDurable()) {
+                    consumer = connection.createSharedDurableConnectionConsumer(topic, subscriptionName, selector, this,
+                            maxMessages);
+                } else {
+                    consumer = connection.createSharedConnectionConsumer(topic, subscriptionName, selector, this,
+                            maxMessages);
+                }
+            } else if (spec.isDurable()) {
                 consumer = connection.createDurableConnectionConsumer(topic, subscriptionName, selector, this,
                         maxMessages);
             } else {
                 consumer = connection.createConnectionConsumer(topic, selector, this, maxMessages);
             }
         } else {
-            Queue queue = (Queue) activation.getDestination();
+            Queue queue = (Queue) destination;
             consumer = connection.createConnectionConsumer(queue, selector, this, maxMessages);
         }
-        log.debug("Created consumer " + consumer);
+        log.createdConsumer(consumer);
 
         if (consumer == null) {
             throw new JMSException("Consumer is null");
         }
+        return consumer;
     }
 
     /**
-     * Stop the connection consumer
+     * Stop the connection consumers
      */
     protected void teardownConsumer() {
-        try {
-            if (consumer != null) {
-                log.debug("Closing the " + consumer);
-                consumer.close();
+        ConnectionConsumer[] consumers = this.consumers;
+        if (consumers == null) {
+            return;
+        }
+        for (ConnectionConsumer consumer : consumers) {
+            try {
+                if (consumer != null) {
+                    log.closing(consumer);
+                    consumer.close();
+                }
+            } catch (Throwable t) {
+                log.errorClosingConsumer(consumer, t);
+            }
+        }
+    }
+
+    /**
+     * @return the destination of the next receive loop, the loops are spread over the partitions of the destination
+     */
+    Destination nextDestination() {
+        Destination[] destinations = activation.getDestinations();
+        return destinations[nextDestination++ % destinations.length];
+    }
+
+    /**
+     * @param destination the destination consumed
+     * @return the subscription name, followed by the partition for each partition of the topic
+     */
+    String getSubscriptionName(Destination destination) {
+        String subscriptionName = activation.getActivationSpec().getSubscriptionName();
+        Destination[] destinations = activation.getDestinations();
+        if (subscriptionName == null || destinations.length == 1) {
+            return subscriptionName;
+        }
+        for (int i = 0; i < destinations.length; ++i) {
+            if (destinations[i] == destination) {
+                return subscriptionName + '.' + i;
             }
-        } catch (Throwable t) {
-            log.debug("Error closing the consumer " + consumer, t);
         }
+        return subscriptionName;
     }
 }
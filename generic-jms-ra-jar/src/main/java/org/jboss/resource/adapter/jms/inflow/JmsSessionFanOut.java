@@ -0,0 +1,212 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.inflow;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.resource.spi.endpoint.MessageEndpoint;
+import jakarta.resource.spi.endpoint.MessageEndpointFactory;
+import jakarta.resource.spi.work.Work;
+import jakarta.resource.spi.work.WorkException;
+import jakarta.resource.spi.work.WorkManager;
+
+import org.jboss.resource.adapter.jms.logging.JmsLogger;
+
+/**
+ * Delivers the messages loaded in a server session to several endpoints concurrently.
+ * <p>
+ * The thread of the session hands each message to an idle endpoint, delivering on a work of the work manager,
+ * and waits for one when they are all busy. Once the session ran, the messages are acknowledged together after
+ * all their deliveries completed, so a message is never acknowledged before the messages received before it.
+ * When a delivery failed, the session is recovered instead, so the provider redelivers all the messages of the
+ * session. The session is only used by its own thread: the workers deliver to the endpoints, nothing else.
+ */
+class JmsSessionFanOut {
+    private static final JmsLogger log = JmsLogger.getLogger(JmsSessionFanOut.class);
+
+    /**
+     * The server session
+     */
+    private final JmsServerSession serverSession;
+
+    /**
+     * The idle endpoints
+     */
+    private final ConcurrentLinkedQueue<MessageEndpoint> idle = new ConcurrentLinkedQueue<>();
+
+    /**
+     * A permit per idle endpoint
+     */
+    private final Semaphore permits;
+
+    /**
+     * The number of endpoints
+     */
+    private final int parallelism;
+
+    /**
+     * The last message of the session, acknowledging it acknowledges the messages before it
+     */
+    private Message last;
+
+    /**
+     * Whether a delivery of the messages handed out failed
+     */
+    private volatile boolean failed;
+
+    /**
+     * Create a new fan-out
+     *
+     * @param serverSession   the server session
+     * @param endpointFactory the factory of the endpoints
+     * @param parallelism     the number of endpoints delivering concurrently
+     * @throws Exception for any error creating the endpoints
+     */
+    JmsSessionFanOut(JmsServerSession serverSession, MessageEndpointFactory endpointFactory, int parallelism)
+            throws Exception {
+        this.serverSession = serverSession;
+        this.parallelism = parallelism;
+        this.permits = new Semaphore(parallelism);
+        try {
+            for (int i = 0; i < parallelism; ++i) {
+                idle.add(endpointFactory.createEndpoint(null));
+            }
+        } catch (Exception e) {
+            release();
+            throw e;
+        }
+    }
+
+    /**
+     * Hand a message to an idle endpoint, waiting for one when they are all busy
+     *
+     * @param message       the message
+     * @param deliveryCount the delivery count of the message
+     * @param duplicateKey  the key of the message in the duplicate filter
+     */
+    void submit(Message message, int deliveryCount, long duplicateKey) {
+        permits.acquireUninterruptibly();
+        MessageEndpoint endpoint = idle.poll();
+        if (endpoint == null) {
+            // The endpoints were released by the teardown of the session, the provider redelivers the message
+            permits.release();
+            throw new IllegalStateException("The endpoints of " + serverSession + " were released");
+        }
+        acknowledgeLater(message);
+        Delivery delivery = new Delivery(endpoint, message, deliveryCount, duplicateKey);
+        try {
+            WorkManager workManager = serverSession.pool.getActivation().getWorkManager();
+            workManager.scheduleWork(delivery);
+        } catch (WorkException e) {
+            log.unableToScheduleWork(e);
+            delivery.run();
+        }
+    }
+
+    /**
+     * Acknowledge a message, delivered by a worker or the thread of the session, with the others once they are
+     * all delivered
+     *
+     * @param message the message
+     */
+    void acknowledgeLater(Message message) {
+        last = message;
+    }
+
+    /**
+     * Record the failed delivery of a message, the messages of the session are redelivered
+     */
+    void failed() {
+        failed = true;
+    }
+
+    /**
+     * Wait for the deliveries of the messages handed out and acknowledge them, or recover the session
+     * when a delivery failed
+     */
+    void complete() {
+        permits.acquireUninterruptibly(parallelism);
+        try {
+            Message message = last;
+            last = null;
+            if (failed) {
+                failed = false;
+                recover();
+            } else if (message != null) {
+                message.acknowledge();
+            }
+        } catch (JMSException e) {
+            log.unableToAcknowledge(e);
+        } finally {
+            permits.release(parallelism);
+        }
+    }
+
+    /**
+     * Recover the session, so the provider redelivers the messages the session did not acknowledge
+     */
+    private void recover() {
+        try {
+            serverSession.session.recover();
+        } catch (JMSException e) {
+            log.unableToRecover(e);
+        }
+    }
+
+    /**
+     * Wait for the deliveries in progress and release the endpoints
+     */
+    void release() {
+        permits.acquireUninterruptibly(parallelism);
+        try {
+            MessageEndpoint endpoint;
+            while ((endpoint = idle.poll()) != null) {
+                try {
+                    endpoint.release();
+                } catch (Throwable t) {
+                    log.errorReleasingEndpoint(endpoint, t);
+                }
+            }
+        } finally {
+            permits.release(parallelism);
+        }
+    }
+
+    /**
+     * The delivery of a message to an endpoint
+     */
+    private class Delivery implements Work {
+        private final MessageEndpoint endpoint;
+        private final Message message;
+        private final int deliveryCount;
+        private final long duplicateKey;
+
+        Delivery(MessageEndpoint endpoint, Message message, int deliveryCount, long duplicateKey) {
+            this.endpoint = endpoint;
+            this.message = message;
+            this.deliveryCount = deliveryCount;
+            this.duplicateKey = duplicateKey;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (serverSession.deliver(message, endpoint, deliveryCount, duplicateKey) == false) {
+                    failed();
+                }
+            } finally {
+                idle.offer(endpoint);
+                permits.release();
+            }
+        }
+
+        @Override
+        public void release() {
+        }
+    }
+}
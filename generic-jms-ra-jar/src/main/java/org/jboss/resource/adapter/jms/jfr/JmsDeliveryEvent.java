@@ -0,0 +1,59 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.jfr;
+
+import jakarta.jms.Message;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * The delivery of a message to a message endpoint, from beforeDelivery() to afterDelivery().
+ */
+@Name("org.jboss.resource.adapter.jms.Delivery")
+@Label("JMS Delivery")
+@Category({"Generic JMS RA", "Inflow"})
+@Description("Delivery of a message to a message endpoint")
+@Threshold("10 ms")
+public final class JmsDeliveryEvent extends Event {
+    @Label("Activation")
+    private String activation;
+
+    @Label("Destination")
+    private String destination;
+
+    @Label("Message ID")
+    private String messageId;
+
+    @Label("Delivery Count")
+    private int deliveryCount;
+
+    @Label("Failed")
+    private boolean failed;
+
+    /**
+     * End the event and commit it when it is recorded
+     *
+     * @param activation    the name of the activation
+     * @param destination   the destination of the activation
+     * @param message       the message
+     * @param deliveryCount the delivery count of the message, 0 when unknown
+     * @param failed        whether the delivery failed
+     */
+    public void complete(String activation, String destination, Message message, int deliveryCount, boolean failed) {
+        end();
+        if (shouldCommit()) {
+            this.activation = activation;
+            this.destination = destination;
+            this.messageId = JmsEvents.messageId(message);
+            this.deliveryCount = deliveryCount;
+            this.failed = failed;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.jfr;
+
+import jakarta.jms.Destination;
+import jakarta.jms.Message;
+
+/**
+ * Helpers computing the fields of the events, only called for the events that are recorded.
+ */
+final class JmsEvents {
+    private JmsEvents() {
+    }
+
+    static String messageId(Message message) {
+        try {
+            return message != null ? message.getJMSMessageID() : null;
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    static String destination(Message message) {
+        try {
+            Destination destination = message != null ? message.getJMSDestination() : null;
+            return destination != null ? destination.toString() : null;
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    static String identity(Object object) {
+        return object.getClass().getSimpleName() + '@' + Integer.toHexString(System.identityHashCode(object));
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A wait for the lock of a managed connection.
+ */
+@Name("org.jboss.resource.adapter.jms.LockWait")
+@Label("JMS Managed Connection Lock Wait")
+@Category({"Generic JMS RA", "Outbound"})
+@Description("Wait for the lock of a managed connection")
+@Threshold("1 ms")
+public final class JmsLockWaitEvent extends Event {
+    @Label("Managed Connection")
+    private String managedConnection;
+
+    @Label("Acquired")
+    private boolean acquired;
+
+    /**
+     * End the event and commit it when it is recorded
+     *
+     * @param managedConnection the managed connection
+     * @param acquired          whether the lock was acquired
+     */
+    public void complete(Object managedConnection, boolean acquired) {
+        end();
+        if (shouldCommit()) {
+            this.managedConnection = JmsEvents.identity(managedConnection);
+            this.acquired = acquired;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The recovery of an activation, or of one of its connections, from a failure.
+ */
+@Name("org.jboss.resource.adapter.jms.Reconnect")
+@Label("JMS Activation Reconnect")
+@Category({"Generic JMS RA", "Inflow"})
+@Description("Recovery of an activation from a connection failure")
+public final class JmsReconnectEvent extends Event {
+    @Label("Activation")
+    private String activation;
+
+    @Label("Destination")
+    private String destination;
+
+    @Label("Connection")
+    @Description("The index of the connection, -1 for all the connections of the activation")
+    private int connection;
+
+    @Label("Attempts")
+    private int attempts;
+
+    @Label("Reconnected")
+    private boolean reconnected;
+
+    /**
+     * End the event and commit it when it is recorded
+     *
+     * @param activation  the name of the activation
+     * @param destination the destination of the activation
+     * @param connection  the index of the connection, -1 for all the connections
+     * @param attempts    the number of reconnection attempts
+     * @param reconnected whether the activation reconnected
+     */
+    public void complete(String activation, String destination, int connection, int attempts, boolean reconnected) {
+        end();
+        if (shouldCommit()) {
+            this.activation = activation;
+            this.destination = destination;
+            this.connection = connection;
+            this.attempts = attempts;
+            this.reconnected = reconnected;
+            commit();
+        }
+    }
+}
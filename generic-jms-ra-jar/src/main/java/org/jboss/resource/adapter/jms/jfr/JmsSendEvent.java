@@ -0,0 +1,50 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.jfr;
+
+import jakarta.jms.Destination;
+import jakarta.jms.Message;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * The send of a message by the provider producer of a producer, sender or publisher handle.
+ */
+@Name("org.jboss.resource.adapter.jms.Send")
+@Label("JMS Send")
+@Category({"Generic JMS RA", "Outbound"})
+@Description("Send of a message through the JMS provider")
+@Threshold("10 ms")
+public final class JmsSendEvent extends Event {
+    @Label("Destination")
+    private String destination;
+
+    @Label("Message ID")
+    private String messageId;
+
+    @Label("Failed")
+    private boolean failed;
+
+    /**
+     * End the event and commit it when it is recorded
+     *
+     * @param destination the destination, null for the destination of the producer
+     * @param message     the message
+     * @param failed      whether the send failed
+     */
+    public void complete(Destination destination, Message message, boolean failed) {
+        end();
+        if (shouldCommit()) {
+            this.destination = destination != null ? destination.toString() : JmsEvents.destination(message);
+            this.messageId = JmsEvents.messageId(message);
+            this.failed = failed;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A wait of the connection consumer for a server session, including the wait for the rate limiter.
+ */
+@Name("org.jboss.resource.adapter.jms.ServerSessionWait")
+@Label("JMS Server Session Wait")
+@Category({"Generic JMS RA", "Inflow"})
+@Description("Wait of the connection consumer for a server session")
+@Threshold("1 ms")
+public final class JmsServerSessionWaitEvent extends Event {
+    @Label("Activation")
+    private String activation;
+
+    @Label("Destination")
+    private String destination;
+
+    /**
+     * End the event and commit it when it is recorded
+     *
+     * @param activation  the name of the activation
+     * @param destination the destination of the activation
+     */
+    public void complete(String activation, String destination) {
+        end();
+        if (shouldCommit()) {
+            this.activation = activation;
+            this.destination = destination;
+            commit();
+        }
+    }
+}
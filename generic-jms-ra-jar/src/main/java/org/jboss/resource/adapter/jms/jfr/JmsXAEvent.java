@@ -0,0 +1,50 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.jfr;
+
+import javax.transaction.xa.Xid;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A call to the XAResource of the provider, including the wait for the lock of the managed connection.
+ */
+@Name("org.jboss.resource.adapter.jms.XA")
+@Label("JMS XA Operation")
+@Category({"Generic JMS RA", "Transactions"})
+@Description("Call to the XAResource of the JMS provider")
+@Threshold("10 ms")
+public final class JmsXAEvent extends Event {
+    @Label("Operation")
+    private String operation;
+
+    @Label("Xid")
+    private String xid;
+
+    @Label("Failed")
+    private boolean failed;
+
+    /**
+     * End the event and commit it when it is recorded
+     *
+     * @param operation the operation
+     * @param xid       the xid
+     * @param failed    whether the operation failed
+     */
+    public void complete(String operation, Xid xid, boolean failed) {
+        end();
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.xid = String.valueOf(xid);
+            this.failed = failed;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.logging;
+
+import static org.jboss.logging.Logger.Level.DEBUG;
+import static org.jboss.logging.Logger.Level.ERROR;
+import static org.jboss.logging.Logger.Level.INFO;
+import static org.jboss.logging.Logger.Level.WARN;
+
+import org.jboss.logging.BasicLogger;
+import org.jboss.logging.Logger;
+import org.jboss.logging.annotations.Cause;
+import org.jboss.logging.annotations.LogMessage;
+import org.jboss.logging.annotations.Message;
+import org.jboss.logging.annotations.MessageLogger;
+
+/**
+ * The messages logged by the resource adapter.
+ * <p>
+ * The implementation is generated by the jboss-logging processor: the messages are only formatted when their
+ * level is enabled. The ids are grouped by area: 1-99 for the managed connections, 100-199 for the activations
+ * and 200-299 for the delivery to the endpoints.
+ */
+@MessageLogger(projectCode = "GENJMSRA", length = 4)
+public interface JmsLogger extends BasicLogger {
+
+    /**
+     * Get the logger of a class, keeping the class as the log category
+     *
+     * @param clazz the class
+     * @return the logger
+     */
+    static JmsLogger getLogger(Class<?> clazz) {
+        return Logger.getMessageLogger(JmsLogger.class, clazz.getName());
+    }
+
+    // -- Managed connections
+
+    @LogMessage(level = WARN)
+    @Message(id = 1, value = "Handling jms exception failure: %s")
+    void handlingFailure(Object managedConnection, @Cause Throwable cause);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 2, value = "xaSession=%s, Session=%s")
+    void connectionSessions(Object xaSession, Object session);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 3, value = "transacted=%s, ack=%d")
+    void connectionTransacted(boolean transacted, int ack);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 4, value = "using connection factory: %s")
+    void usingConnectionFactory(Object factory);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 5, value = "using username/password: %s/-- not shown --")
+    void usingUserName(String userName);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 6, value = "created XAConnection: %s")
+    void createdXAConnection(Object connection);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 7, value = "created %s connection: %s")
+    void createdConnection(String type, Object connection);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 8, value = "Session %s created with createSession()")
+    void createdSession(Object session);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 9, value = "Session %s created with createSession(%s, %d)")
+    void createdSession(Object session, boolean transacted, int ack);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 10, value = "Error closing session %s")
+    void errorClosingSession(Object session, @Cause Throwable cause);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 11, value = "Error closing xaSession %s")
+    void errorClosingXASession(Object session, @Cause Throwable cause);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 12, value = "Error unsetting the exception listener %s")
+    void errorUnsettingExceptionListener(Object managedConnection, @Cause Throwable cause);
+
+    @LogMessage(level = WARN)
+    @Message(id = 13, value = "Unable to connect to the broker of %s, failing over to the next one")
+    void brokerUnavailable(String connectionFactory, @Cause Throwable cause);
+
+    @LogMessage(level = WARN)
+    @Message(id = 14, value = "Connection %s failed its validation")
+    void failedValidation(Object managedConnection, @Cause Throwable cause);
+
+    @LogMessage(level = WARN)
+    @Message(id = 15, value = "Circuit breaker of %s opened after %d consecutive failures, failing fast for %d ms")
+    void circuitBreakerOpened(String name, int failures, long openMillis);
+
+    @LogMessage(level = INFO)
+    @Message(id = 16, value = "Circuit breaker of %s closed")
+    void circuitBreakerClosed(String name);
+
+    // -- Activations
+
+    @LogMessage(level = WARN)
+    @Message(id = 100, value = "Failure in jms activation %s")
+    void activationFailure(Object spec, @Cause Throwable cause);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 101, value = "Interrupted trying to reconnect %s")
+    void interruptedReconnecting(Object spec, @Cause Throwable cause);
+
+    @LogMessage(level = INFO)
+    @Message(id = 102, value = "Attempting to reconnect %s")
+    void attemptingReconnect(Object spec);
+
+    @LogMessage(level = INFO)
+    @Message(id = 103, value = "Reconnected with messaging provider")
+    void reconnected();
+
+    @LogMessage(level = ERROR)
+    @Message(id = 104, value = "Unable to reconnect %s")
+    void unableToReconnect(Object spec, @Cause Throwable cause);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 105, value = "Ignoring failure of replaced connection %s")
+    void ignoringReplacedConnectionFailure(Object connection, @Cause Throwable cause);
+
+    @LogMessage(level = WARN)
+    @Message(id = 106, value = "Failure in jms activation %s for connection %d")
+    void connectionFailure(Object spec, int index, @Cause Throwable cause);
+
+    @LogMessage(level = INFO)
+    @Message(id = 107, value = "Attempting to reconnect connection %d of %s")
+    void attemptingReconnect(int index, Object spec);
+
+    @LogMessage(level = INFO)
+    @Message(id = 108, value = "Reconnected connection %d with messaging provider")
+    void reconnected(int index);
+
+    @LogMessage(level = ERROR)
+    @Message(id = 109, value = "Unable to reconnect connection %d of %s")
+    void unableToReconnect(int index, Object spec, @Cause Throwable cause);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 110, value = "Setting up %s")
+    void settingUp(Object spec);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 111, value = "Using context %s for %s")
+    void usingContext(Object environment, Object spec);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 112, value = "Setup complete %s")
+    void setupComplete(Object activation);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 113, value = "Tearing down %s")
+    void tearingDown(Object spec);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 114, value = "Tearing down complete %s")
+    void tearingDownComplete(Object activation);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 115, value = "Destination type defined as %s")
+    void destinationType(String type);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 116, value = "Retrieving destination %s of type %s")
+    void retrievingDestination(String name, String type);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 117, value = "Got destination %s from %s")
+    void gotDestination(Object destination, String name);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 118, value = "Retrieving dead letter destination %s")
+    void retrievingDeadLetterDestination(String name);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 119, value = "Got dead letter destination %s from %s")
+    void gotDeadLetterDestination(Object destination, String name);
+
+    @LogMessage(level = WARN)
+    @Message(id = 120, value = "Each connection would receive its own copy of the messages of topic %s, using a single connection instead of %d")
+    void singleTopicConnection(Object topic, int count);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 121, value = "setup connection %d to %s %s")
+    void settingUpConnection(int index, String connectionFactory, Object activation);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 122, value = "established connection %d %s")
+    void establishedConnection(int index, Object activation);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 123, value = "Attempting to lookup connection factory %s")
+    void lookingUpConnectionFactory(String name);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 124, value = "Got connection factory %s from %s")
+    void gotConnectionFactory(Object factory, String name);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 125, value = "Attempting to create connection with user %s")
+    void creatingConnection(String user);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 126, value = "Using generic connection %s")
+    void usingGenericConnection(Object connection);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 127, value = "Closing the %s")
+    void closing(Object resource);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 128, value = "Error closing the connection %s")
+    void errorClosingConnection(Object connection, @Cause Throwable cause);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 129, value = "Created session pool %s")
+    void createdSessionPool(Object pool);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 130, value = "Starting session pool %s")
+    void startingSessionPool(Object pool);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 131, value = "Started session pool %s")
+    void startedSessionPool(Object pool);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 132, value = "Starting delivery %s")
+    void startingDelivery(Object connection);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 133, value = "Started delivery %s")
+    void startedDelivery(Object connection);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 134, value = "Stopping delivery %s")
+    void stoppingDelivery(Object connection);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 135, value = "Error stopping delivery %s")
+    void errorStoppingDelivery(Object connection, @Cause Throwable cause);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 136, value = "Stopping the session pool %s")
+    void stoppingSessionPool(Object pool);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 137, value = "Error clearing the pool %s")
+    void errorClearingPool(Object pool, @Cause Throwable cause);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 138, value = "Unable to lookup: %s")
+    void unableToLookup(String name, @Cause Throwable cause);
+
+    @LogMessage(level = WARN)
+    @Message(id = 139, value = "%d brokers need at least as many sessions, using %d sessions instead of %d")
+    void sessionPerBroker(int brokers, int sessions, int maxSession);
+
+    // -- Delivery
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 200, value = "Unshared topic subscription, using a single receive loop instead of %d")
+    void singleReceiveLoop(int maxSession);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 201, value = "Started %d receive loops")
+    void startedReceiveLoops(int count);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 202, value = "Keyed ordering is enabled, using maxMessages=1 instead of %d")
+    void keyedOrderingMaxMessages(int maxMessages);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 203, value = "Created consumer %s")
+    void createdConsumer(Object consumer);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 204, value = "Error closing the consumer %s")
+    void errorClosingConsumer(Object consumer, @Cause Throwable cause);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 205, value = "Delivery is transacted, and client JMS implementation properly implements jakarta.jms.XAConnection.")
+    void deliveryTransacted();
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 206, value = "Error releasing endpoint %s")
+    void errorReleasingEndpoint(Object endpoint, @Cause Throwable cause);
+
+    @LogMessage(level = WARN)
+    @Message(id = 207, value = "Unable to read the ordering key %s, delivering without ordering")
+    void unableToReadOrderingKey(String property, @Cause Throwable cause);
+
+    @LogMessage(level = ERROR)
+    @Message(id = 208, value = "Unexpected error delivering message. JMSMessageID is %s")
+    void deliveryError(String messageId, @Cause Throwable cause);
+
+    @LogMessage(level = ERROR)
+    @Message(id = 209, value = "Unexpected error delivering message. JMSMessageID cannot be determined.")
+    void deliveryError(@Cause Throwable cause);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 210, value = "Unable to read the identifier of %s, delivering it without duplicate detection")
+    void unableToReadDuplicateKey(Object message, @Cause Throwable cause);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 211, value = "Skipping already delivered message %s")
+    void skippingDuplicate(Object message);
+
+    @LogMessage(level = WARN)
+    @Message(id = 212, value = "Parked message %s on %s after %d delivery attempts")
+    void parkedMessage(String messageId, Object deadLetterDestination, int attempts);
+
+    @LogMessage(level = ERROR)
+    @Message(id = 213, value = "Unable to park message on %s, delivering it again")
+    void unableToParkMessage(Object deadLetterDestination, @Cause Throwable cause);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 214, value = "Unable to check the compression of %s")
+    void unableToCheckCompression(Object message, @Cause Throwable cause);
+
+    @LogMessage(level = ERROR)
+    @Message(id = 215, value = "Unable to schedule work")
+    void unableToScheduleWork(@Cause Throwable cause);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 216, value = "Starting receive loop %s")
+    void startingReceiveLoop(Object loop);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 217, value = "Error in stopped receive loop %s")
+    void errorInStoppedReceiveLoop(Object loop, @Cause Throwable cause);
+
+    @LogMessage(level = WARN)
+    @Message(id = 218, value = "Error in receive loop %s")
+    void errorInReceiveLoop(Object loop, @Cause Throwable cause);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 219, value = "Stopped receive loop %s")
+    void stoppedReceiveLoop(Object loop);
+
+    @LogMessage(level = WARN)
+    @Message(id = 220, value = "%d receive loops cannot consume all the %d partitions of the destination")
+    void partitionsWithoutReceiveLoop(int loops, int partitions);
+
+    @LogMessage(level = WARN)
+    @Message(id = 221, value = "Unable to acknowledge the messages delivered concurrently")
+    void unableToAcknowledge(@Cause Throwable cause);
+
+    @LogMessage(level = WARN)
+    @Message(id = 222, value = "Delivery is transacted, sessionParallelism=%d is ignored")
+    void transactedSessionParallelism(int sessionParallelism);
+
+    @LogMessage(level = WARN)
+    @Message(id = 223, value = "Unable to recover the session after a failed concurrent delivery")
+    void unableToRecover(@Cause Throwable cause);
+}
@@ -0,0 +1,22 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.tracing;
+
+/**
+ * A span started by a {@link JmsTracer}.
+ */
+public interface JmsSpan {
+    /**
+     * @return the context of the span, propagated to the messages sent within the span
+     */
+    JmsTraceContext getContext();
+
+    /**
+     * End the span
+     *
+     * @param failed whether the operation failed
+     */
+    void end(boolean failed);
+}
@@ -0,0 +1,151 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.tracing;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A W3C trace context: the trace id, the id of the span and the trace flags of a traceparent header,
+ * with the optional tracestate.
+ */
+public final class JmsTraceContext {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final String INVALID_TRACE_ID = "00000000000000000000000000000000";
+    private static final String INVALID_SPAN_ID = "0000000000000000";
+
+    private final String traceId;
+    private final String spanId;
+    private final boolean sampled;
+    private final String traceState;
+
+    /**
+     * Create a new trace context
+     *
+     * @param traceId    the trace id, 32 lowercase hex digits
+     * @param spanId     the span id, 16 lowercase hex digits
+     * @param sampled    whether the trace is sampled
+     * @param traceState the tracestate, may be null
+     */
+    public JmsTraceContext(String traceId, String spanId, boolean sampled, String traceState) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.sampled = sampled;
+        this.traceState = traceState;
+    }
+
+    /**
+     * Create the context of a new root span
+     *
+     * @param sampled whether the trace is sampled
+     * @return the context
+     */
+    public static JmsTraceContext newRoot(boolean sampled) {
+        return new JmsTraceContext(randomHex(16), randomHex(8), sampled, null);
+    }
+
+    /**
+     * Create the context of a child span, in the same trace as its parent
+     *
+     * @return the context
+     */
+    public JmsTraceContext newChild() {
+        return new JmsTraceContext(traceId, randomHex(8), sampled, traceState);
+    }
+
+    /**
+     * Parse a traceparent header
+     *
+     * @param traceparent the traceparent, may be null
+     * @param traceState  the tracestate, may be null
+     * @return the context or null when the traceparent is missing or invalid
+     */
+    public static JmsTraceContext parse(String traceparent, String traceState) {
+        // version "-" trace-id "-" parent-id "-" trace-flags, future versions may append fields
+        if (traceparent == null || traceparent.length() < 55 || traceparent.charAt(2) != '-'
+                || traceparent.charAt(35) != '-' || traceparent.charAt(52) != '-'
+                || (traceparent.length() > 55 && traceparent.charAt(55) != '-')) {
+            return null;
+        }
+        String version = traceparent.substring(0, 2);
+        String traceId = traceparent.substring(3, 35);
+        String spanId = traceparent.substring(36, 52);
+        String flags = traceparent.substring(53, 55);
+        if (!isHex(version) || "ff".equals(version) || (version.equals("00") && traceparent.length() != 55)
+                || !isHex(traceId) || !isHex(spanId) || !isHex(flags)
+                || INVALID_TRACE_ID.equals(traceId) || INVALID_SPAN_ID.equals(spanId)) {
+            return null;
+        }
+        boolean sampled = (Character.digit(flags.charAt(1), 16) & 1) != 0;
+        return new JmsTraceContext(traceId, spanId, sampled, traceState);
+    }
+
+    /**
+     * @return the trace id
+     */
+    public String getTraceId() {
+        return traceId;
+    }
+
+    /**
+     * @return the span id
+     */
+    public String getSpanId() {
+        return spanId;
+    }
+
+    /**
+     * @return whether the trace is sampled
+     */
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    /**
+     * @return the tracestate or null
+     */
+    public String getTraceState() {
+        return traceState;
+    }
+
+    /**
+     * @return the traceparent header of this context
+     */
+    public String toTraceparent() {
+        return "00-" + traceId + '-' + spanId + (sampled ? "-01" : "-00");
+    }
+
+    private static boolean isHex(String s) {
+        for (int i = 0; i < s.length(); ++i) {
+            char c = s.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String randomHex(int bytes) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[] chars = new char[bytes * 2];
+        boolean zero = true;
+        for (int i = 0; i < chars.length; i += 2) {
+            int b = random.nextInt(256);
+            zero &= b == 0;
+            chars[i] = HEX[b >>> 4];
+            chars[i + 1] = HEX[b & 0xf];
+        }
+        if (zero) {
+            // All zeroes is the invalid id
+            chars[chars.length - 1] = '1';
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public String toString() {
+        return toTraceparent();
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.tracing;
+
+/**
+ * A tracer recording the spans of the resource adapter, usually a bridge to a tracing library.
+ * <p>
+ * The tracer is found with the {@link java.util.ServiceLoader} mechanism in the class loader of the resource
+ * adapter; without a tracer nothing is traced and no trace context is propagated.
+ */
+public interface JmsTracer {
+    /**
+     * The span of the send of a message
+     */
+    String SEND = "send";
+
+    /**
+     * The span of the receipt of a message by a consumer
+     */
+    String RECEIVE = "receive";
+
+    /**
+     * The span of the delivery of a message to a message endpoint
+     */
+    String ON_MESSAGE = "onMessage";
+
+    /**
+     * The span of the completion of the delivery to a message endpoint, where the container commits
+     */
+    String COMMIT = "commit";
+
+    /**
+     * Start a span
+     *
+     * @param name        the name of the span
+     * @param parent      the parent context, null for a root span
+     * @param destination the destination, may be null
+     * @return the span, never null
+     */
+    JmsSpan startSpan(String name, JmsTraceContext parent, String destination);
+}
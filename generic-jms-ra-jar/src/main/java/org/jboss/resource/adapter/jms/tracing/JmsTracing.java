@@ -0,0 +1,195 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.tracing;
+
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+import jakarta.jms.Destination;
+import jakarta.jms.Message;
+
+import org.jboss.logging.Logger;
+
+/**
+ * The instrumentation points of the resource adapter: starts the spans with the {@link JmsTracer} and
+ * propagates the trace context in the traceparent and tracestate message properties.
+ * <p>
+ * The context of the span delivering a message to an endpoint is the current context of the delivery thread,
+ * so the messages the endpoint sends belong to the same trace. Without a tracer all the methods return
+ * immediately.
+ */
+public final class JmsTracing {
+    private static final Logger log = Logger.getLogger(JmsTracing.class);
+
+    /**
+     * The message property holding the W3C traceparent
+     */
+    public static final String TRACEPARENT_PROPERTY = "traceparent";
+
+    /**
+     * The message property holding the W3C tracestate
+     */
+    public static final String TRACESTATE_PROPERTY = "tracestate";
+
+    /**
+     * The tracer, null when there is none
+     */
+    private static final JmsTracer TRACER = loadTracer();
+
+    /**
+     * The trace context of the current thread
+     */
+    private static final ThreadLocal<JmsTraceContext> CURRENT = new ThreadLocal<>();
+
+    private JmsTracing() {
+    }
+
+    /**
+     * @return whether there is a tracer
+     */
+    public static boolean isEnabled() {
+        return TRACER != null;
+    }
+
+    /**
+     * @return the trace context of the current thread or null
+     */
+    public static JmsTraceContext current() {
+        return TRACER != null ? CURRENT.get() : null;
+    }
+
+    /**
+     * Start the span of a send and inject its context in the message
+     *
+     * @param destination the destination, null for the destination of the producer
+     * @param message     the message
+     * @return the span or null when nothing is traced
+     */
+    public static JmsSpan startSend(Destination destination, Message message) {
+        if (TRACER == null) {
+            return null;
+        }
+        JmsSpan span = TRACER.startSpan(JmsTracer.SEND, CURRENT.get(), destination != null ? destination.toString() : null);
+        inject(message, span.getContext());
+        return span;
+    }
+
+    /**
+     * Start the span of the receipt of a message, child of the context of the message
+     *
+     * @param message the message
+     * @return the span or null when nothing is traced
+     */
+    public static JmsSpan startReceive(Message message) {
+        if (TRACER == null) {
+            return null;
+        }
+        return TRACER.startSpan(JmsTracer.RECEIVE, extract(message), destination(message));
+    }
+
+    /**
+     * Start the span of the delivery of a message to an endpoint and make it current
+     *
+     * @param message the message
+     * @return the span or null when nothing is traced
+     */
+    public static JmsSpan startOnMessage(Message message) {
+        if (TRACER == null) {
+            return null;
+        }
+        JmsSpan span = TRACER.startSpan(JmsTracer.ON_MESSAGE, extract(message), destination(message));
+        CURRENT.set(span.getContext());
+        return span;
+    }
+
+    /**
+     * Start the span of the completion of a delivery, child of the current context
+     *
+     * @return the span or null when nothing is traced
+     */
+    public static JmsSpan startCommit() {
+        if (TRACER == null) {
+            return null;
+        }
+        return TRACER.startSpan(JmsTracer.COMMIT, CURRENT.get(), null);
+    }
+
+    /**
+     * End a span, the current context is cleared when the span is the delivery to an endpoint
+     *
+     * @param span   the span, may be null
+     * @param failed whether the operation failed
+     */
+    public static void end(JmsSpan span, boolean failed) {
+        if (span == null) {
+            return;
+        }
+        if (CURRENT.get() == span.getContext()) {
+            CURRENT.remove();
+        }
+        try {
+            span.end(failed);
+        } catch (Throwable t) {
+            log.debug("Error ending span " + span, t);
+        }
+    }
+
+    /**
+     * Extract the trace context of a message
+     *
+     * @param message the message
+     * @return the context or null
+     */
+    public static JmsTraceContext extract(Message message) {
+        try {
+            return JmsTraceContext.parse(message.getStringProperty(TRACEPARENT_PROPERTY), message.getStringProperty(TRACESTATE_PROPERTY));
+        } catch (Throwable t) {
+            log.trace("Unable to extract the trace context of " + message, t);
+            return null;
+        }
+    }
+
+    /**
+     * Inject a trace context in a message
+     *
+     * @param message the message
+     * @param context the context
+     */
+    public static void inject(Message message, JmsTraceContext context) {
+        try {
+            message.setStringProperty(TRACEPARENT_PROPERTY, context.toTraceparent());
+            if (context.getTraceState() != null) {
+                message.setStringProperty(TRACESTATE_PROPERTY, context.getTraceState());
+            }
+        } catch (Throwable t) {
+            // e.g. a received message sent again, its properties are read-only
+            log.trace("Unable to inject the trace context in " + message, t);
+        }
+    }
+
+    private static String destination(Message message) {
+        try {
+            Destination destination = message.getJMSDestination();
+            return destination != null ? destination.toString() : null;
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    private static JmsTracer loadTracer() {
+        try {
+            Iterator<JmsTracer> tracers = ServiceLoader.load(JmsTracer.class, JmsTracing.class.getClassLoader()).iterator();
+            if (tracers.hasNext()) {
+                JmsTracer tracer = tracers.next();
+                log.debug("Tracing with " + tracer);
+                return tracer;
+            }
+        } catch (ServiceConfigurationError e) {
+            log.warn("Unable to load the tracer", e);
+        }
+        return null;
+    }
+}
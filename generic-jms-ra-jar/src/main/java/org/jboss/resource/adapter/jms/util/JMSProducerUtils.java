@@ -14,8 +14,6 @@ import java.security.AccessController;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
 import jakarta.jms.JMSException;
-import static org.jboss.resource.adapter.jms.util.TibcojmsUtils.JMS_PRODUCER_CLASSNAME;
-import static org.jboss.resource.adapter.jms.util.TibcojmsUtils.closeProducer;
 
 /**
  * JMSProducer utility class.
@@ -24,19 +22,17 @@ import static org.jboss.resource.adapter.jms.util.TibcojmsUtils.closeProducer;
 public class JMSProducerUtils {
     
     public static void close(final Object jmsProducer) throws PrivilegedActionException, JMSException {
-        Class jmsProducerClass = jmsProducer.getClass();
-        if (JMS_PRODUCER_CLASSNAME.equals(jmsProducerClass.getName())) {
-            if (System.getSecurityManager() == null) {
-                closeProducer(jmsProducer);
-            } else {
-                AccessController.doPrivileged(new PrivilegedExceptionAction<Object>() {
-                    @Override
-                    public Object run() throws JMSException {
-                        closeProducer(jmsProducer);
-                        return null;
-                    }
-                });
-            }
+        final JmsProviderProfile profile = JmsProviderProfiles.getProfile(jmsProducer.getClass());
+        if (System.getSecurityManager() == null) {
+            profile.closeProducer(jmsProducer);
+        } else {
+            AccessController.doPrivileged(new PrivilegedExceptionAction<Object>() {
+                @Override
+                public Object run() throws JMSException {
+                    profile.closeProducer(jmsProducer);
+                    return null;
+                }
+            });
         }
     }
 }
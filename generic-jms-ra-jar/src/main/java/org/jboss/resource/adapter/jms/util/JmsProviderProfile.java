@@ -0,0 +1,51 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.util;
+
+import jakarta.jms.Connection;
+import jakarta.jms.JMSException;
+import jakarta.jms.Session;
+
+/**
+ * The special cases of a JMS provider.
+ * <p>
+ * The profiles are found with the {@link java.util.ServiceLoader} mechanism, in the class loader of the
+ * resource adapter and in the class loader of the provider objects, and are resolved once per provider class
+ * by {@link JmsProviderProfiles}. A profile is expected to prepare whatever it needs, for example method
+ * handles on the internals of the provider, when it is created rather than on each call.
+ */
+public interface JmsProviderProfile {
+    /**
+     * Whether this profile handles the objects of a provider class
+     *
+     * @param providerClass the class of a provider object
+     * @return true when this profile handles the class
+     */
+    boolean supports(Class<?> providerClass);
+
+    /**
+     * Close a JMSProducer, for providers whose JMSProducer holds resources that are otherwise only released
+     * with the JMSContext
+     *
+     * @param jmsProducer the producer
+     * @throws JMSException for any error
+     */
+    default void closeProducer(Object jmsProducer) throws JMSException {
+        // Nothing to do
+    }
+
+    /**
+     * Check that an idle connection still reaches the broker. The default creates and closes a session, a round
+     * trip to the broker with most providers, unlike the metadata of the connection which they answer locally
+     * even once the broker is gone. The connection may be in use by other threads at the same time, a provider
+     * with a cheaper round trip can use it instead
+     *
+     * @param connection the connection
+     * @throws JMSException when the connection is broken
+     */
+    default void ping(Connection connection) throws JMSException {
+        connection.createSession(false, Session.AUTO_ACKNOWLEDGE).close();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jboss.logging.Logger;
+
+/**
+ * The provider profiles and capability probes, computed once per provider class.
+ */
+public final class JmsProviderProfiles {
+    private static final Logger log = Logger.getLogger(JmsProviderProfiles.class);
+
+    /**
+     * The profile of the classes no profile supports
+     */
+    private static final JmsProviderProfile DEFAULT = new JmsProviderProfile() {
+        @Override
+        public boolean supports(Class<?> providerClass) {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "DefaultProviderProfile";
+        }
+    };
+
+    /**
+     * The built-in profiles and the profiles visible to the resource adapter
+     */
+    private static final List<JmsProviderProfile> PROFILES = new ArrayList<>();
+
+    static {
+        PROFILES.add(new TibcoProviderProfile());
+        load(ServiceLoader.load(JmsProviderProfile.class, JmsProviderProfiles.class.getClassLoader()), PROFILES);
+    }
+
+    /**
+     * The profile of each provider class
+     */
+    private static final ClassValue<JmsProviderProfile> PROFILE = new ClassValue<JmsProviderProfile>() {
+        @Override
+        protected JmsProviderProfile computeValue(Class<?> type) {
+            List<JmsProviderProfile> candidates = new ArrayList<>(PROFILES);
+            ClassLoader loader = SecurityActions.getClassLoader(type);
+            if (loader != null && loader != JmsProviderProfiles.class.getClassLoader()) {
+                load(ServiceLoader.load(JmsProviderProfile.class, loader), candidates);
+            }
+            for (JmsProviderProfile profile : candidates) {
+                if (profile.supports(type)) {
+                    log.debug("Using provider profile " + profile + " for " + type.getName());
+                    return profile;
+                }
+            }
+            return DEFAULT;
+        }
+    };
+
+    /**
+     * The public no-arg methods of each provider class, by name
+     */
+    private static final ClassValue<ConcurrentHashMap<String, Boolean>> METHODS = new ClassValue<ConcurrentHashMap<String, Boolean>>() {
+        @Override
+        protected ConcurrentHashMap<String, Boolean> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private JmsProviderProfiles() {
+    }
+
+    /**
+     * Get the profile of a provider class
+     *
+     * @param providerClass the class of a provider object
+     * @return the profile, never null
+     */
+    public static JmsProviderProfile getProfile(Class<?> providerClass) {
+        return PROFILE.get(providerClass);
+    }
+
+    /**
+     * Whether a provider class has a public method without parameters
+     *
+     * @param providerClass the class of a provider object
+     * @param method        the name of the method
+     * @return true when the class has the method
+     */
+    public static boolean hasMethod(Class<?> providerClass, String method) {
+        return METHODS.get(providerClass).computeIfAbsent(method, name -> {
+            try {
+                SecurityActions.getMethod(providerClass, name);
+                return Boolean.TRUE;
+            } catch (NoSuchMethodException | SecurityException e) {
+                return Boolean.FALSE;
+            }
+        });
+    }
+
+    private static void load(ServiceLoader<JmsProviderProfile> loader, List<JmsProviderProfile> profiles) {
+        try {
+            for (JmsProviderProfile profile : loader) {
+                profiles.add(profile);
+            }
+        } catch (ServiceConfigurationError e) {
+            log.warn("Unable to load the provider profiles", e);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.List;
+
+import jakarta.jms.JMSException;
+
+import org.jboss.logging.Logger;
+
+/**
+ * The Tibco EMS profile: a TibjmsJMSProducer is only released with its JMSContext, so closing it closes its
+ * message producer and removes it from the producers of the context.
+ * <p>
+ * The method handles on the internals of the producer and of the context are resolved once per producer class.
+ *
+ * @author Emmanuel Hugonnet (c) 2020 Red Hat, Inc.
+ */
+public class TibcoProviderProfile implements JmsProviderProfile {
+    private static final Logger log = Logger.getLogger(TibcoProviderProfile.class);
+
+    public static final String JMS_PRODUCER_CLASSNAME = "com.tibco.tibjms.TibjmsJMSProducer";
+    public static final String JMS_CONTEXT_CLASSNAME = "com.tibco.tibjms.TibjmsJMSContext";
+    public static final String JMS_XACONTEXT_CLASSNAME = "com.tibco.tibjms.TibjmsXAJMSContext";
+    public static final String JMS_MESSAGE_PRODUCER = "com.tibco.tibjms.TibjmsMessageProducer";
+
+    /**
+     * The handles of each producer class, null when the class does not have the expected internals
+     */
+    private final ClassValue<Handles> handles = new ClassValue<Handles>() {
+        @Override
+        protected Handles computeValue(Class<?> type) {
+            try {
+                return new Handles(type);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                log.debug("Not a Tibco JMSProducer " + type.getName(), e);
+                return null;
+            }
+        }
+    };
+
+    @Override
+    public boolean supports(Class<?> providerClass) {
+        return JMS_PRODUCER_CLASSNAME.equals(providerClass.getName());
+    }
+
+    @Override
+    public void closeProducer(Object jmsProducer) throws JMSException {
+        Handles h = handles.get(jmsProducer.getClass());
+        if (h == null) {
+            return;
+        }
+        Object messageProducer;
+        Object jmsContext;
+        Object lock;
+        List<?> producers;
+        try {
+            messageProducer = h.producer.invoke(jmsProducer);
+            jmsContext = h.context.invoke(jmsProducer);
+            lock = h.lock.invoke(jmsContext);
+            producers = (List<?>) h.producers.invoke(jmsContext);
+        } catch (Throwable t) {
+            log.info("Error closing Tibco JMSProducers", t);
+            return;
+        }
+        try {
+            h.close.invoke(messageProducer);
+        } catch (JMSException e) {
+            throw e;
+        } catch (Throwable t) {
+            JMSException jmsex = new JMSException(t.getMessage());
+            jmsex.setLinkedException(t instanceof Exception ? (Exception) t : new RuntimeException(t));
+            throw jmsex;
+        }
+        synchronized (lock) {
+            log.debugf("before  - producers.size=%d", producers.size());
+            producers.remove(jmsProducer);
+            log.debugf("after - producers.size=%d", producers.size());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TibcoProviderProfile";
+    }
+
+    /**
+     * The method handles on the internals of a producer class and of its context
+     */
+    private static final class Handles {
+        private final MethodHandle producer;
+        private final MethodHandle context;
+        private final MethodHandle lock;
+        private final MethodHandle producers;
+        private final MethodHandle close;
+
+        Handles(Class<?> producerClass) throws ReflectiveOperationException {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            ClassLoader loader = SecurityActions.getClassLoader(producerClass);
+            Class<?> contextClass = Class.forName(JMS_CONTEXT_CLASSNAME, false, loader);
+            Class<?> messageProducerClass = Class.forName(JMS_MESSAGE_PRODUCER, false, loader);
+            producer = getter(lookup, SecurityActions.getDeclaredField(producerClass, "_producer"));
+            context = getter(lookup, SecurityActions.getDeclaredField(producerClass, "_context"));
+            lock = getter(lookup, SecurityActions.getDeclaredField(contextClass, "_lock"));
+            producers = getter(lookup, SecurityActions.getDeclaredField(contextClass, "_producers"));
+            close = lookup.unreflect(SecurityActions.getMethod(messageProducerClass, "close"))
+                    .asType(MethodType.methodType(void.class, Object.class));
+        }
+
+        private static MethodHandle getter(MethodHandles.Lookup lookup, Field field) throws IllegalAccessException {
+            return lookup.unreflectGetter(field).asType(MethodType.methodType(Object.class, Object.class));
+        }
+    }
+}
@@ -5,6 +5,8 @@
 
 package org.jboss.resource.adapter.jms.util;
 
+import java.util.function.Supplier;
+
 import javax.naming.Context;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
@@ -28,6 +30,27 @@ public class TransactionUtils {
         return inTx;
     }
 
+    /**
+     * Get a resource bound to the active transaction, binding a new one when there is none.
+     *
+     * @param key     the key of the resource
+     * @param factory the factory of the resource
+     * @return the resource or null when there is no active transaction
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T getTransactionResource(Object key, Supplier<T> factory) {
+        TransactionSynchronizationRegistry tsr = getTransactionSynchronizationRegistry();
+        if (tsr.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            return null;
+        }
+        T resource = (T) tsr.getResource(key);
+        if (resource == null) {
+            resource = factory.get();
+            tsr.putResource(key, resource);
+        }
+        return resource;
+    }
+
     /**
      * lookup the transactionSynchronizationRegistry and cache it.
      */
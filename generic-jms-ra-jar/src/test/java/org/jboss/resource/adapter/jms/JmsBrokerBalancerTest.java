@@ -0,0 +1,112 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.jms.JMSException;
+import jakarta.resource.ResourceException;
+import jakarta.resource.spi.ManagedConnection;
+
+import org.junit.jupiter.api.Test;
+
+public class JmsBrokerBalancerTest {
+
+    private static String first(JmsBrokerBalancer balancer) {
+        return balancer.select().get(0).getConnectionFactory();
+    }
+
+    @Test
+    public void testRoundRobin() {
+        JmsBrokerBalancer balancer = new JmsBrokerBalancer("a, b,c", null, null, 1000);
+        assertEquals("a", first(balancer));
+        assertEquals("b", first(balancer));
+        assertEquals("c", first(balancer));
+        assertEquals("a", first(balancer));
+    }
+
+    @Test
+    public void testUnhealthyBrokersAreTriedLast() {
+        JmsBrokerBalancer balancer = new JmsBrokerBalancer("a,b,c", null, null, 60000);
+        balancer.getBrokers().get(0).failed();
+        for (int i = 0; i < 6; ++i) {
+            List<JmsBrokerBalancer.Broker> selected = balancer.select();
+            assertEquals("a", selected.get(2).getConnectionFactory());
+        }
+
+        // A connection marks it healthy again
+        balancer.getBrokers().get(0).connected();
+        assertTrue(balancer.getBrokers().get(0).isHealthy());
+    }
+
+    @Test
+    public void testLeastInFlight() {
+        JmsBrokerBalancer balancer = new JmsBrokerBalancer("a,b,c", null, JmsBrokerBalancer.LEAST_IN_FLIGHT, 1000);
+        balancer.getBrokers().get(0).connected();
+        balancer.getBrokers().get(2).connected();
+        for (int i = 0; i < 3; ++i) {
+            assertEquals("b", first(balancer));
+        }
+    }
+
+    @Test
+    public void testWeighted() {
+        JmsBrokerBalancer balancer = new JmsBrokerBalancer("a,b", "1,3", JmsBrokerBalancer.WEIGHTED, 1000);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 4000; ++i) {
+            counts.merge(first(balancer), 1, Integer::sum);
+        }
+        assertTrue(counts.get("b") > counts.get("a") * 2, counts.toString());
+    }
+
+    @Test
+    public void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new JmsBrokerBalancer("a", null, "random", 1000));
+        assertThrows(IllegalArgumentException.class, () -> new JmsBrokerBalancer("a,b", "1,0", null, 1000));
+        assertThrows(IllegalArgumentException.class, () -> new JmsBrokerBalancer(" , ", null, null, 1000));
+    }
+
+    @Test
+    public void testSingleBrokerStaysHealthy() {
+        JmsBrokerBalancer balancer = new JmsBrokerBalancer("a", null, null, 60000);
+        balancer.getBrokers().get(0).failed();
+        assertTrue(balancer.getBrokers().get(0).isHealthy());
+        assertEquals(1, balancer.getBrokers().get(0).getFailures());
+    }
+
+    @Test
+    public void testManagedConnectionFailsOver() throws Exception {
+        new StubProvider().bind("balancer/up");
+        JmsManagedConnectionFactory mcf = StubProvider.mcf("balancer/down,balancer/up");
+        mcf.setBrokerRetryInterval(60000);
+        List<JmsBrokerBalancer.Broker> brokers = mcf.getBrokerBalancer().getBrokers();
+
+        ManagedConnection mc = mcf.createManagedConnection(null, null);
+        assertEquals(1, brokers.get(0).getFailures());
+        assertEquals(0, brokers.get(0).getInFlight());
+        assertEquals(1, brokers.get(1).getInFlight());
+
+        mc.destroy();
+        assertEquals(0, brokers.get(1).getInFlight());
+    }
+
+    @Test
+    public void testFailedSetupIsNotInFlight() throws Exception {
+        StubProvider provider = new StubProvider().bind("balancer/broken");
+        provider.xaSessionFailure = new JMSException("No session");
+        JmsManagedConnectionFactory mcf = StubProvider.mcf("balancer/broken");
+        JmsBrokerBalancer.Broker broker = mcf.getBrokerBalancer().getBrokers().get(0);
+
+        assertThrows(ResourceException.class, () -> mcf.createManagedConnection(null, null));
+        assertEquals(0, broker.getInFlight());
+        assertEquals(1, provider.closedConnections.get());
+    }
+}
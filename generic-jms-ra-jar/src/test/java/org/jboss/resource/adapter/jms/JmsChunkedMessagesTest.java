@@ -0,0 +1,164 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import static org.jboss.resource.adapter.jms.StubObjects.stub;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import jakarta.jms.BytesMessage;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Queue;
+import jakarta.jms.Session;
+
+import org.junit.jupiter.api.Test;
+
+public class JmsChunkedMessagesTest {
+
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    /**
+     * The destination, holding a few chunks like a slow broker
+     */
+    private final BlockingQueue<Message> queue = new ArrayBlockingQueue<>(4);
+
+    private final Session session = stub(Session.class, Map.of(
+            "createBytesMessage", args -> StubMessages.create(BytesMessage.class),
+            "createProducer", args -> stub(MessageProducer.class, Map.of("send", sent -> {
+                BytesMessage message = (BytesMessage) sent[0];
+                message.reset();
+                queue.put(message);
+                return null;
+            }))));
+
+    private final MessageConsumer consumer = stub(MessageConsumer.class, Map.of(
+            "receive", args -> queue.poll((Long) args[0], TimeUnit.MILLISECONDS)));
+
+    /**
+     * A stream of generated bytes, never held in memory as a whole
+     */
+    private static final class GeneratedStream extends InputStream {
+        private final long size;
+        private final CRC32 crc = new CRC32();
+        private long position;
+
+        GeneratedStream(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public int read() {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position == size) {
+                return -1;
+            }
+            int count = (int) Math.min(len, size - position);
+            for (int i = 0; i < count; ++i) {
+                b[off + i] = (byte) ((position + i) * 31 >>> 3);
+            }
+            crc.update(b, off, count);
+            position += count;
+            return count;
+        }
+    }
+
+    private static long[] drain(InputStream in) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[8192];
+        long size = 0;
+        for (int read; (read = in.read(buffer)) >= 0; ) {
+            crc.update(buffer, 0, read);
+            size += read;
+        }
+        return new long[]{size, crc.getValue()};
+    }
+
+    private CompletableFuture<String> sendAsync(InputStream in) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return JmsChunkedMessages.send(session, stub(Queue.class), in, CHUNK_SIZE);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    @Test
+    public void testStreamLargerThanTheHeap() throws Exception {
+        long size = Runtime.getRuntime().maxMemory() * 2 + 12345;
+        GeneratedStream in = new GeneratedStream(size);
+        CompletableFuture<String> sent = sendAsync(in);
+
+        JmsChunkedInputStream stream = new JmsChunkedInputStream(consumer, queue.poll(10, TimeUnit.SECONDS), 10000);
+        long[] received = drain(stream);
+
+        assertEquals(stream.getGroupId(), sent.get(10, TimeUnit.SECONDS));
+        assertEquals(size, received[0]);
+        assertEquals(in.crc.getValue(), received[1]);
+        assertEquals(size / CHUNK_SIZE + 1, stream.getLastMessage().getIntProperty(JmsChunkedMessages.GROUP_SEQ_PROPERTY));
+    }
+
+    @Test
+    public void testEmptyStreamIsOneLastChunk() throws Exception {
+        JmsChunkedMessages.send(session, stub(Queue.class), new ByteArrayInputStream(new byte[0]), CHUNK_SIZE);
+        Message chunk = queue.poll();
+        assertTrue(chunk.getBooleanProperty(JmsChunkedMessages.LAST_CHUNK_PROPERTY));
+        assertEquals(-1, new JmsChunkedInputStream(consumer, chunk, 10).read());
+    }
+
+    @Test
+    public void testExactMultipleOfTheChunkSize() throws Exception {
+        byte[] body = new byte[10];
+        for (int i = 0; i < body.length; ++i) {
+            body[i] = (byte) i;
+        }
+        JmsChunkedMessages.send(session, stub(Queue.class), new ByteArrayInputStream(body), 5);
+        assertEquals(2, queue.size());
+
+        JmsChunkedInputStream stream = new JmsChunkedInputStream(consumer, queue.poll(), 10);
+        assertArrayEquals(body, stream.readAllBytes());
+    }
+
+    @Test
+    public void testMissingChunkFailsTheStream() throws Exception {
+        JmsChunkedMessages.send(session, stub(Queue.class), new ByteArrayInputStream(new byte[12]), 5);
+        Message first = queue.poll();
+        queue.poll();
+
+        JmsChunkedInputStream stream = new JmsChunkedInputStream(consumer, first, 10);
+        assertThrows(IOException.class, stream::readAllBytes);
+    }
+
+    @Test
+    public void testOtherStreamFailsTheStream() throws Exception {
+        JmsChunkedMessages.send(session, stub(Queue.class), new ByteArrayInputStream(new byte[6]), 5);
+        Message first = queue.poll();
+        queue.clear();
+        JmsChunkedMessages.send(session, stub(Queue.class), new ByteArrayInputStream(new byte[6]), 5);
+        queue.poll();
+
+        JmsChunkedInputStream stream = new JmsChunkedInputStream(consumer, first, 10);
+        assertThrows(IOException.class, stream::readAllBytes);
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.jms.IllegalStateException;
+import jakarta.jms.InvalidDestinationException;
+import jakarta.jms.JMSException;
+import jakarta.jms.MessageFormatException;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Queue;
+import jakarta.jms.ResourceAllocationException;
+import jakarta.jms.Session;
+import jakarta.resource.ResourceException;
+import jakarta.resource.spi.ConnectionRequestInfo;
+import jakarta.resource.spi.ManagedConnectionFactory;
+
+import org.junit.jupiter.api.Test;
+
+public class JmsCircuitBreakerTest {
+
+    private static JmsManagedConnectionFactory mcf(String name, int openMillis) {
+        JmsManagedConnectionFactory mcf = StubProvider.mcf(name);
+        mcf.setCircuitBreakerFailureThreshold(1);
+        mcf.setCircuitBreakerOpenMillis(openMillis);
+        return mcf;
+    }
+
+    private static void open(JmsCircuitBreaker breaker, long openMillis) throws InterruptedException {
+        breaker.failure();
+        assertEquals(JmsCircuitBreaker.State.OPEN, breaker.getState());
+        Thread.sleep(openMillis + 50);
+    }
+
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+        JmsCircuitBreaker breaker = new JmsCircuitBreaker("cf", 3, 60000);
+        breaker.failure();
+        breaker.failure();
+        breaker.success();
+        breaker.failure();
+        breaker.failure();
+        assertEquals(JmsCircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.failure();
+        assertEquals(JmsCircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1, breaker.getTrips());
+
+        assertThrows(ResourceAllocationException.class, breaker::acquire);
+        assertEquals(1, breaker.getRejected());
+    }
+
+    @Test
+    public void testProbeClosesOrOpensTheBreaker() throws Exception {
+        JmsCircuitBreaker breaker = new JmsCircuitBreaker("cf", 1, 100);
+        open(breaker, 100);
+        breaker.acquire();
+        assertEquals(JmsCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        // A single probe at a time
+        assertThrows(ResourceAllocationException.class, breaker::acquire);
+        breaker.failure();
+        assertEquals(JmsCircuitBreaker.State.OPEN, breaker.getState());
+
+        Thread.sleep(150);
+        breaker.acquire();
+        breaker.success();
+        assertEquals(JmsCircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getConsecutiveFailures());
+    }
+
+    @Test
+    public void testOnlyConnectionFailuresCount() {
+        JmsCircuitBreaker breaker = new JmsCircuitBreaker("cf", 1, 60000);
+        breaker.completed(new InvalidDestinationException("No such queue"));
+        breaker.completed(new MessageFormatException("Not a number"));
+        breaker.completed(new IllegalStateException("The session is closed"));
+        breaker.completed(new ResourceAllocationException("Unable to obtain lock"));
+        breaker.completed(new java.lang.IllegalArgumentException("Bad priority"));
+        assertEquals(JmsCircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getFailures());
+
+        assertTrue(JmsCircuitBreaker.isConnectionFailure(new ResourceException("Unable to connect")));
+        assertTrue(JmsCircuitBreaker.isConnectionFailure(new ResourceException("Unable to setup connection", new JMSException("Connection refused"))));
+        assertFalse(JmsCircuitBreaker.isConnectionFailure(new ResourceException(new InvalidDestinationException("No such queue"))));
+        assertFalse(JmsCircuitBreaker.isConnectionFailure(new jakarta.resource.spi.ResourceAllocationException("No managed connections available")));
+        breaker.completed(new JMSException("Connection lost"));
+        assertEquals(JmsCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testInconclusiveProbeLetsTheNextAttemptProbe() throws Exception {
+        JmsCircuitBreaker breaker = new JmsCircuitBreaker("cf", 1, 1000);
+        open(breaker, 1000);
+        breaker.acquire();
+        breaker.completed(new InvalidDestinationException("No such queue"));
+        assertEquals(JmsCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        // Without waiting for the open time again
+        breaker.acquire();
+        breaker.success();
+        assertEquals(JmsCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testApplicationSendErrorsDoNotOpenTheBreaker() throws Exception {
+        StubProvider provider = new StubProvider().bind("breaker/send");
+        JmsManagedConnectionFactory mcf = mcf("breaker/send", 60000);
+        JmsSessionFactoryImpl connection = new JmsSessionFactoryImpl(mcf, new StubConnectionManager(), JmsConnectionFactory.AGNOSTIC);
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageProducer producer = session.createProducer(StubObjects.stub(Queue.class));
+        JmsCircuitBreaker breaker = mcf.getCircuitBreaker();
+
+        provider.sendFailure = new InvalidDestinationException("No such queue");
+        assertThrows(InvalidDestinationException.class, () -> producer.send(StubMessages.message()));
+        provider.sendFailure = new MessageFormatException("Not a number");
+        assertThrows(MessageFormatException.class, () -> producer.send(StubMessages.message()));
+        assertEquals(JmsCircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getFailures());
+
+        provider.sendFailure = new JMSException("Connection lost");
+        assertThrows(JMSException.class, () -> producer.send(StubMessages.message()));
+        assertEquals(JmsCircuitBreaker.State.OPEN, breaker.getState());
+        provider.sendFailure = null;
+        assertThrows(ResourceAllocationException.class, () -> producer.send(StubMessages.message()));
+        connection.close();
+    }
+
+    @Test
+    public void testPoolTimeoutDoesNotOpenTheBreaker() throws Exception {
+        new StubProvider().bind("breaker/pool");
+        JmsManagedConnectionFactory mcf = mcf("breaker/pool", 60000);
+        StubConnectionManager cm = new StubConnectionManager() {
+            @Override
+            public Object allocateConnection(ManagedConnectionFactory mcf, ConnectionRequestInfo info) throws ResourceException {
+                allocations.incrementAndGet();
+                throw new jakarta.resource.spi.ResourceAllocationException("No managed connections available within configured blocking timeout");
+            }
+        };
+        JmsSessionFactoryImpl connection = new JmsSessionFactoryImpl(mcf, cm, JmsConnectionFactory.AGNOSTIC);
+
+        assertThrows(JMSException.class, () -> connection.createSession(false, Session.AUTO_ACKNOWLEDGE));
+        assertThrows(JMSException.class, () -> connection.createSession(false, Session.AUTO_ACKNOWLEDGE));
+        JmsCircuitBreaker breaker = mcf.getCircuitBreaker();
+        assertEquals(2, cm.allocations.get());
+        assertEquals(JmsCircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getFailures());
+        connection.close();
+    }
+
+    @Test
+    public void testLockTimeoutDoesNotOpenTheBreaker() throws Exception {
+        new StubProvider().bind("breaker/lock");
+        JmsManagedConnectionFactory mcf = mcf("breaker/lock", 60000);
+        mcf.setUseTryLock(1);
+        JmsSessionFactoryImpl connection = new JmsSessionFactoryImpl(mcf, new StubConnectionManager(), JmsConnectionFactory.AGNOSTIC);
+        JmsSession session = (JmsSession) connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageProducer producer = session.createProducer(StubObjects.stub(Queue.class));
+
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        JmsManagedConnection mc = session.getManagedConnection();
+        Thread holder = new Thread(() -> {
+            mc.lock();
+            try {
+                locked.countDown();
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                mc.unlock();
+            }
+        });
+        holder.start();
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+        try {
+            assertThrows(ResourceAllocationException.class, () -> producer.send(StubMessages.message()));
+        } finally {
+            done.countDown();
+            holder.join();
+        }
+        assertEquals(0, mcf.getCircuitBreaker().getFailures());
+        connection.close();
+    }
+
+    @Test
+    public void testStrictRejectionReportsTheProbe() throws Exception {
+        new StubProvider().bind("breaker/strict");
+        JmsManagedConnectionFactory mcf = mcf("breaker/strict", 300);
+        JmsSessionFactoryImpl connection = new JmsSessionFactoryImpl(mcf, new StubConnectionManager(), JmsConnectionFactory.AGNOSTIC);
+        connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        JmsCircuitBreaker breaker = mcf.getCircuitBreaker();
+        open(breaker, 300);
+
+        // The probe is a second session of the connection, rejected in strict mode before reaching the broker
+        assertThrows(JMSException.class, () -> connection.createSession(false, Session.AUTO_ACKNOWLEDGE));
+        assertEquals(JmsCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.acquire();
+        connection.close();
+    }
+
+    @Test
+    public void testSharedAllocationReportsSuccess() throws Exception {
+        new StubProvider().bind("breaker/shared");
+        JmsManagedConnectionFactory mcf = mcf("breaker/shared", 300);
+        mcf.setTransactionScopedSessions(true);
+        StubConnectionManager cm = new StubConnectionManager();
+        JmsSessionFactoryImpl first = new JmsSessionFactoryImpl(mcf, cm, JmsConnectionFactory.AGNOSTIC);
+        JmsSessionFactoryImpl second = new JmsSessionFactoryImpl(mcf, cm, JmsConnectionFactory.AGNOSTIC);
+        StubTransactions.begin();
+        try {
+            first.createSession();
+            JmsCircuitBreaker breaker = mcf.getCircuitBreaker();
+            open(breaker, 300);
+
+            second.createSession();
+            assertEquals(1, cm.allocations.get());
+            assertEquals(JmsCircuitBreaker.State.CLOSED, breaker.getState());
+            assertEquals(0, breaker.getConsecutiveFailures());
+            second.close();
+            first.close();
+        } finally {
+            StubTransactions.end();
+        }
+    }
+}
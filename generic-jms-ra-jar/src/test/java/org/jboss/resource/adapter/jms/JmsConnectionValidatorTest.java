@@ -0,0 +1,159 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.jms.Connection;
+import jakarta.jms.JMSException;
+import jakarta.jms.XAConnectionFactory;
+import jakarta.resource.spi.BootstrapContext;
+import jakarta.resource.spi.ConnectionEvent;
+import jakarta.resource.spi.ConnectionEventListener;
+import javax.naming.InitialContext;
+
+import org.jboss.resource.adapter.jms.util.JmsProviderProfiles;
+import org.junit.jupiter.api.Test;
+
+public class JmsConnectionValidatorTest {
+
+    private final Timer timer = new Timer(true);
+
+    private JmsResourceAdapter start() throws Exception {
+        JmsResourceAdapter ra = new JmsResourceAdapter();
+        ra.start(StubObjects.stub(BootstrapContext.class, Map.of("createTimer", args -> timer)));
+        return ra;
+    }
+
+    private static JmsManagedConnectionFactory mcf(String name, JmsResourceAdapter ra) {
+        JmsManagedConnectionFactory mcf = StubProvider.mcf(name);
+        mcf.setBackgroundValidationMillis(20);
+        mcf.setResourceAdapter(ra);
+        return mcf;
+    }
+
+    @Test
+    public void testBrokenIdleConnectionIsReported() throws Exception {
+        StubProvider provider = new StubProvider().bind("validator/broken");
+        JmsManagedConnectionFactory mcf = mcf("validator/broken", start());
+        JmsManagedConnection mc = (JmsManagedConnection) mcf.createManagedConnection(null, null);
+        CountDownLatch errors = new CountDownLatch(1);
+        mc.addConnectionEventListener(StubObjects.stub(ConnectionEventListener.class, Map.of("connectionErrorOccurred", args -> {
+            assertEquals(ConnectionEvent.CONNECTION_ERROR_OCCURRED, ((ConnectionEvent) args[0]).getId());
+            errors.countDown();
+            return null;
+        })));
+
+        provider.dropped = true;
+        assertTrue(errors.await(5, TimeUnit.SECONDS));
+        // The connection stays in the factory until the pool destroys it, the next validations do not count it again
+        Thread.sleep(100);
+        assertEquals(1, mcf.getValidator().getInvalidatedCount());
+        mc.destroy();
+    }
+
+    @Test
+    public void testValidationStopsWithTheResourceAdapter() throws Exception {
+        new StubProvider().bind("validator/stopped");
+        JmsResourceAdapter ra = start();
+        JmsManagedConnectionFactory mcf = mcf("validator/stopped", ra);
+        mcf.createManagedConnection(null, null).destroy();
+        assertNotNull(mcf.getValidator());
+
+        ra.stop();
+        assertNull(mcf.getValidator());
+        // The timer of the bootstrap context is cancelled, its thread is gone
+        assertThrows(IllegalStateException.class, () -> timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+            }
+        }, 0));
+    }
+
+    @Test
+    public void testNoValidationWithoutResourceAdapter() throws Exception {
+        new StubProvider().bind("validator/unmanaged");
+        JmsManagedConnectionFactory mcf = mcf("validator/unmanaged", null);
+        mcf.createManagedConnection(null, null).destroy();
+        assertNull(mcf.getValidator());
+    }
+
+    @Test
+    public void testValidationDoesNotWaitForTheLock() throws Exception {
+        StubProvider provider = new StubProvider().bind("validator/busy");
+        JmsManagedConnection mc = (JmsManagedConnection) StubProvider.mcf("validator/busy").createManagedConnection(null, null);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            mc.lock();
+            try {
+                locked.countDown();
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                mc.unlock();
+            }
+        });
+        holder.start();
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+        try {
+            int sessions = provider.sessions.get();
+            assertTrue(mc.isValid());
+            assertEquals(sessions + 1, provider.sessions.get());
+            provider.dropped = true;
+            assertFalse(mc.isValid());
+        } finally {
+            done.countDown();
+            holder.join();
+        }
+        mc.destroy();
+    }
+
+    @Test
+    public void testDroppedConnectionStillAnswersItsMetaData() throws Exception {
+        StubProvider provider = new StubProvider().bind("validator/dropped");
+        Connection connection = ((XAConnectionFactory) new InitialContext().lookup("validator/dropped")).createXAConnection();
+        provider.dropped = true;
+
+        // The metadata is no proof that the broker is there, the ping needs a round trip
+        assertNotNull(connection.getMetaData());
+        assertThrows(JMSException.class, () -> JmsProviderProfiles.getProfile(connection.getClass()).ping(connection));
+    }
+
+    @Test
+    public void testDeserializedFactoryTracksConnections() throws Exception {
+        new StubProvider().bind("validator/serialized");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(StubProvider.mcf("validator/serialized"));
+        }
+        JmsManagedConnectionFactory mcf;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            mcf = (JmsManagedConnectionFactory) in.readObject();
+        }
+
+        assertNotNull(mcf.getTransactionKey());
+        JmsManagedConnection mc = (JmsManagedConnection) mcf.createManagedConnection(null, null);
+        assertTrue(mcf.getManagedConnections().contains(mc));
+        mc.destroy();
+        assertTrue(mcf.getManagedConnections().isEmpty());
+    }
+}
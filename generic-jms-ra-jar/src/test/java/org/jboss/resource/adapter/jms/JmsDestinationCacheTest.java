@@ -0,0 +1,105 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import jakarta.jms.Destination;
+import jakarta.jms.InvalidDestinationException;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Queue;
+import jakarta.jms.Session;
+import jakarta.jms.Topic;
+
+import org.junit.jupiter.api.Test;
+
+public class JmsDestinationCacheTest {
+
+    @Test
+    public void testHitsAndMisses() {
+        JmsDestinationCache cache = new JmsDestinationCache(10);
+        Queue queue = StubObjects.stub(Queue.class);
+        assertNull(cache.get(JmsConnectionFactory.QUEUE, "orders"));
+        cache.put(JmsConnectionFactory.QUEUE, "orders", queue);
+        assertSame(queue, cache.get(JmsConnectionFactory.QUEUE, "orders"));
+        assertSame(queue, cache.get(JmsConnectionFactory.QUEUE, "orders"));
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // Nothing to cache without a name or a destination
+        cache.put(JmsConnectionFactory.QUEUE, null, queue);
+        cache.put(JmsConnectionFactory.QUEUE, "none", null);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        JmsDestinationCache cache = new JmsDestinationCache(2);
+        Queue a = StubObjects.stub(Queue.class);
+        Queue b = StubObjects.stub(Queue.class);
+        Queue c = StubObjects.stub(Queue.class);
+        cache.put(JmsConnectionFactory.QUEUE, "a", a);
+        cache.put(JmsConnectionFactory.QUEUE, "b", b);
+        // Using a makes b the least recently used
+        assertSame(a, cache.get(JmsConnectionFactory.QUEUE, "a"));
+        cache.put(JmsConnectionFactory.QUEUE, "c", c);
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get(JmsConnectionFactory.QUEUE, "b"));
+        assertSame(a, cache.get(JmsConnectionFactory.QUEUE, "a"));
+        assertSame(c, cache.get(JmsConnectionFactory.QUEUE, "c"));
+    }
+
+    @Test
+    public void testKeyedByTypeAndName() {
+        JmsDestinationCache cache = new JmsDestinationCache(10);
+        Queue queue = StubObjects.stub(Queue.class);
+        Topic topic = StubObjects.stub(Topic.class);
+        cache.put(JmsConnectionFactory.QUEUE, "events", queue);
+        cache.put(JmsConnectionFactory.TOPIC, "events", topic);
+
+        assertEquals(2, cache.size());
+        assertSame(queue, cache.get(JmsConnectionFactory.QUEUE, "events"));
+        assertSame(topic, cache.get(JmsConnectionFactory.TOPIC, "events"));
+
+        cache.invalidate(queue);
+        assertNull(cache.get(JmsConnectionFactory.QUEUE, "events"));
+        assertSame(topic, cache.get(JmsConnectionFactory.TOPIC, "events"));
+    }
+
+    @Test
+    public void testInvalidDestinationDropsTheCachedQueue() throws Exception {
+        StubProvider provider = new StubProvider().bind("destinations/invalid");
+        JmsManagedConnectionFactory mcf = StubProvider.mcf("destinations/invalid");
+        mcf.setDestinationCacheSize(10);
+        JmsSessionFactoryImpl connection = new JmsSessionFactoryImpl(mcf, new StubConnectionManager(), JmsConnectionFactory.AGNOSTIC);
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        JmsDestinationCache cache = mcf.getDestinationCache();
+
+        Queue queue = session.createQueue("orders");
+        assertSame(queue, session.createQueue("orders"));
+        assertEquals(1, cache.getHits());
+
+        // Sent through a producer bound to the queue
+        MessageProducer producer = session.createProducer(queue);
+        provider.sendFailure = new InvalidDestinationException("Queue deleted");
+        assertThrows(InvalidDestinationException.class, () -> producer.send(StubMessages.message()));
+        assertEquals(0, cache.size());
+        provider.sendFailure = null;
+        Queue recreated = session.createQueue("orders");
+        assertNotSame(queue, recreated);
+
+        // Sent through an anonymous producer
+        MessageProducer anonymous = session.createProducer(null);
+        provider.sendFailure = new InvalidDestinationException("Queue deleted");
+        assertThrows(InvalidDestinationException.class, () -> anonymous.send((Destination) recreated, StubMessages.message()));
+        assertEquals(0, cache.size());
+        connection.close();
+    }
+}
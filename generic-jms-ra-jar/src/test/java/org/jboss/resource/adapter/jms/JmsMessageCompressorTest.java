@@ -0,0 +1,141 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import static org.jboss.resource.adapter.jms.StubObjects.stub;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import jakarta.jms.BytesMessage;
+import jakarta.jms.Message;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+
+import org.jboss.resource.adapter.jms.codec.DeflateCodec;
+import org.jboss.resource.adapter.jms.codec.GzipCodec;
+import org.jboss.resource.adapter.jms.codec.JmsMessageCodecs;
+import org.junit.jupiter.api.Test;
+
+public class JmsMessageCompressorTest {
+
+    private static final String TEXT = "{\"status\":\"PENDING\",\"tags\":[\"priority\"]}".repeat(100);
+
+    private final Session session = stub(Session.class, Map.of(
+            "createTextMessage", args -> StubMessages.text((String) args[0]),
+            "createBytesMessage", args -> StubMessages.create(BytesMessage.class)));
+
+    private final JmsMessageCompressor compressor = new JmsMessageCompressor(1024, new DeflateCodec());
+
+    private static byte[] body(BytesMessage message) throws Exception {
+        message.reset();
+        byte[] body = new byte[(int) message.getBodyLength()];
+        message.readBytes(body);
+        return body;
+    }
+
+    @Test
+    public void testCodecsRoundTrip() throws Exception {
+        byte[] body = TEXT.getBytes(StandardCharsets.UTF_8);
+        for (String name : new String[]{DeflateCodec.NAME, GzipCodec.NAME}) {
+            byte[] compressed = JmsMessageCodecs.getCodec(name).compress(body);
+            assertTrue(compressed.length < body.length / 10, name);
+            assertArrayEquals(body, JmsMessageCodecs.getCodec(name).decompress(compressed), name);
+        }
+    }
+
+    @Test
+    public void testTextIsDecompressedOnReceipt() throws Exception {
+        TextMessage message = StubMessages.text(TEXT);
+        message.setStringProperty("p", "v");
+        Message sent = compressor.compress(session, message);
+
+        assertNotSame(message, sent);
+        assertEquals(DeflateCodec.NAME, sent.getStringProperty(JmsMessageCodecs.CODEC_PROPERTY));
+        assertEquals("v", sent.getStringProperty("p"));
+        assertTrue(((TextMessage) sent).getText().length() < TEXT.length());
+        assertEquals(TEXT, new JmsTextMessage((TextMessage) sent, null).getText());
+        assertEquals(1, compressor.getCompressedMessages());
+    }
+
+    @Test
+    public void testSmallTextIsNotCompressed() throws Exception {
+        TextMessage message = StubMessages.text("small");
+        assertSame(message, compressor.compress(session, message));
+    }
+
+    @Test
+    public void testBytesAreDecompressedOnReceipt() throws Exception {
+        byte[] body = TEXT.getBytes(StandardCharsets.UTF_8);
+        Message sent = compressor.compress(session, StubMessages.bytes(body));
+
+        assertTrue(JmsMessageCompressor.isCompressed(sent));
+        JmsBytesMessage received = new JmsBytesMessage((BytesMessage) sent, null);
+        assertEquals(body.length, received.getBodyLength());
+        assertArrayEquals(body, body(received));
+    }
+
+    @Test
+    public void testRewrittenTextIsNotDecompressed() throws Exception {
+        Message sent = compressor.compress(session, StubMessages.text(TEXT));
+        JmsTextMessage received = new JmsTextMessage((TextMessage) sent, null);
+        assertEquals(TEXT, received.getText());
+
+        received.setText("plain");
+        assertEquals("plain", received.getText());
+        assertEquals("plain", received.getBody(String.class));
+
+        // Sent again, the rewritten body is not tagged as compressed
+        Message resent = compressor.compress(session, received);
+        assertNotSame(sent, resent);
+        assertFalse(JmsMessageCompressor.isCompressed(resent));
+        assertEquals("plain", ((TextMessage) resent).getText());
+    }
+
+    @Test
+    public void testClearedTextIsNotDecompressed() throws Exception {
+        Message sent = compressor.compress(session, StubMessages.text(TEXT));
+        JmsTextMessage received = new JmsTextMessage((TextMessage) sent, null);
+
+        received.clearBody();
+        assertNull(received.getText());
+    }
+
+    @Test
+    public void testRewrittenBytesAreNotDecompressed() throws Exception {
+        Message sent = compressor.compress(session, StubMessages.bytes(TEXT.getBytes(StandardCharsets.UTF_8)));
+        JmsBytesMessage received = new JmsBytesMessage((BytesMessage) sent, null);
+
+        received.clearBody();
+        received.writeBytes(new byte[]{1, 2, 3});
+        assertArrayEquals(new byte[]{1, 2, 3}, body(received));
+
+        Message resent = compressor.compress(session, received);
+        assertFalse(JmsMessageCompressor.isCompressed(resent));
+        assertArrayEquals(new byte[]{1, 2, 3}, body((BytesMessage) resent));
+    }
+
+    @Test
+    public void testClearedPropertiesKeepTheCodec() throws Exception {
+        Message sent = compressor.compress(session, StubMessages.text(TEXT));
+        JmsTextMessage received = new JmsTextMessage((TextMessage) sent, null);
+
+        received.clearProperties();
+        assertEquals(TEXT, received.getText());
+    }
+
+    @Test
+    public void testCompressedMessageIsResentAsReceived() throws Exception {
+        Message sent = compressor.compress(session, StubMessages.text(TEXT));
+        assertSame(sent, compressor.compress(session, new JmsTextMessage((TextMessage) sent, null)));
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.jms.InvalidDestinationException;
+import jakarta.jms.InvalidDestinationRuntimeException;
+import jakarta.jms.JMSContext;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Queue;
+import jakarta.jms.Session;
+
+import org.junit.jupiter.api.Test;
+
+public class JmsPartitionedQueueTest {
+
+    private static final String KEY = "partitionKey";
+
+    private final List<String> created = Collections.synchronizedList(new ArrayList<>());
+
+    private Session session() {
+        Map<String, StubObjects.Answer> answers = new HashMap<>();
+        answers.put("createQueue", args -> {
+            created.add((String) args[0]);
+            return StubObjects.stub(Queue.class);
+        });
+        return StubObjects.stub(Session.class, answers);
+    }
+
+    private static Message keyed(String key) throws JMSException {
+        Message message = StubMessages.message();
+        message.setStringProperty(KEY, key);
+        return message;
+    }
+
+    @Test
+    public void testSameKeySamePartition() throws Exception {
+        JmsPartitionedQueue queue = new JmsPartitionedQueue("orders", 8, KEY);
+        for (String key : new String[]{"a", "b", "customer-42", ""}) {
+            int partition = queue.partition(keyed(key));
+            assertEquals(Math.floorMod(key.hashCode(), 8), partition);
+            for (int i = 0; i < 10; ++i) {
+                assertEquals(partition, queue.partition(keyed(key)));
+            }
+        }
+    }
+
+    @Test
+    public void testMessagesWithoutKeyAreSpreadInTurn() throws Exception {
+        JmsPartitionedQueue queue = new JmsPartitionedQueue("orders", 3, KEY);
+        for (int i = 0; i < 9; ++i) {
+            assertEquals(i % 3, queue.partition(StubMessages.message()));
+        }
+        JmsPartitionedQueue unkeyed = new JmsPartitionedQueue("orders", 3, null);
+        assertEquals(0, unkeyed.partition(keyed("a")));
+        assertEquals(1, unkeyed.partition(keyed("a")));
+    }
+
+    @Test
+    public void testPartitionQueuesAreCreatedOnce() throws Exception {
+        JmsPartitionedQueue queue = new JmsPartitionedQueue("orders", 2, KEY);
+        Session session = session();
+        Queue first = queue.route(session, StubMessages.message());
+        Queue second = queue.route(session, StubMessages.message());
+        assertSame(first, queue.route(session, StubMessages.message()));
+        assertSame(second, queue.route(session, StubMessages.message()));
+        assertNotSame(first, second);
+
+        assertEquals(List.of("orders.0", "orders.1"), created);
+        // Counted once sent, not when routed
+        assertEquals(0, queue.getRoutedMessageCount(0));
+        queue.sent(first);
+        queue.sent(first);
+        queue.sent(second);
+        assertEquals(2, queue.getRoutedMessageCount(0));
+        assertEquals(1, queue.getRoutedMessageCount(1));
+    }
+
+    private static JmsManagedConnectionFactory partitioned(String name) {
+        JmsManagedConnectionFactory mcf = StubProvider.mcf(name);
+        mcf.setPartitionedDestinations("orders=2");
+        mcf.setPartitionKeyProperty(KEY);
+        return mcf;
+    }
+
+    @Test
+    public void testFailedSendIsNotCounted() throws Exception {
+        StubProvider provider = new StubProvider().bind("partitions/send");
+        JmsSessionFactoryImpl connection = new JmsSessionFactoryImpl(partitioned("partitions/send"), new StubConnectionManager(),
+                JmsConnectionFactory.AGNOSTIC);
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        JmsPartitionedQueue queue = (JmsPartitionedQueue) session.createQueue("orders");
+        int partition = Math.floorMod("a".hashCode(), 2);
+
+        MessageProducer producer = session.createProducer(queue);
+        producer.send(keyed("a"));
+        session.createProducer(null).send(queue, keyed("a"));
+        assertEquals(2, queue.getRoutedMessageCount(partition));
+
+        provider.sendFailure = new JMSException("Connection lost");
+        assertThrows(JMSException.class, () -> producer.send(keyed("a")));
+        assertEquals(2, queue.getRoutedMessageCount(partition));
+        assertEquals(2, provider.sent.size());
+        connection.close();
+    }
+
+    @Test
+    public void testLogicalQueueIsOnlySentTo() throws Exception {
+        new StubProvider().bind("partitions/consume");
+        JmsManagedConnectionFactory mcf = partitioned("partitions/consume");
+        JmsSessionFactoryImpl connection = new JmsSessionFactoryImpl(mcf, new StubConnectionManager(), JmsConnectionFactory.AGNOSTIC);
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue("orders");
+
+        InvalidDestinationException rejected = assertThrows(InvalidDestinationException.class, () -> session.createConsumer(queue));
+        assertTrue(rejected.getMessage().contains("orders.0 to orders.1"), rejected.getMessage());
+        assertThrows(InvalidDestinationException.class, () -> session.createConsumer(queue, "a = 1"));
+        assertThrows(InvalidDestinationException.class, () -> session.createBrowser(queue));
+
+        // A reply to the logical queue could never be sent by the replier
+        Message request = keyed("a");
+        request.setJMSReplyTo(queue);
+        assertThrows(InvalidDestinationException.class, () -> session.createProducer(StubObjects.stub(Queue.class)).send(request));
+
+        JMSContext context = new JmsConnectionFactoryImpl(mcf, new StubConnectionManager()).createContext();
+        assertThrows(InvalidDestinationRuntimeException.class, () -> context.createConsumer(queue));
+        assertThrows(InvalidDestinationRuntimeException.class, () -> context.createBrowser(queue));
+        context.close();
+        connection.close();
+    }
+
+    @Test
+    public void testInvalidatedPartitionIsCreatedAgain() throws Exception {
+        JmsPartitionedQueue queue = new JmsPartitionedQueue("orders", 1, KEY);
+        Session session = session();
+        Queue stale = queue.route(session, StubMessages.message());
+        queue.invalidate(StubObjects.stub(Queue.class));
+        assertSame(stale, queue.route(session, StubMessages.message()));
+
+        queue.invalidate(stale);
+        assertNotSame(stale, queue.route(session, StubMessages.message()));
+        assertEquals(List.of("orders.0", "orders.0"), created);
+    }
+
+    @Test
+    public void testAtLeastOnePartition() {
+        assertThrows(IllegalArgumentException.class, () -> new JmsPartitionedQueue("orders", 0, KEY));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.HashSet;
+import java.util.Set;
+
+import jakarta.jms.Destination;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Queue;
+import jakarta.jms.TemporaryQueue;
+import jakarta.jms.TemporaryTopic;
+
+import org.junit.jupiter.api.Test;
+
+public class JmsProducerCacheTest {
+
+    private final Set<MessageProducer> closed = new HashSet<>();
+
+    private static <T> T stub(Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(JmsProducerCacheTest.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return type.getSimpleName();
+                        default:
+                            return null;
+                    }
+                }));
+    }
+
+    private MessageProducer producer() {
+        MessageProducer[] self = new MessageProducer[1];
+        self[0] = (MessageProducer) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{MessageProducer.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "close":
+                            closed.add(self[0]);
+                            return null;
+                        default:
+                            return null;
+                    }
+                });
+        return self[0];
+    }
+
+    private static JmsProducerCache.Key key(Destination destination) {
+        return new JmsProducerCache.Key(JmsProducerCache.PRODUCER, destination);
+    }
+
+    @Test
+    public void testReleasedProducerIsReused() {
+        JmsProducerCache cache = new JmsProducerCache(4);
+        Queue queue = stub(Queue.class);
+        MessageProducer producer = producer();
+
+        assertNull(cache.take(key(queue)));
+        assertTrue(cache.release(key(queue), producer));
+        assertSame(producer, cache.take(key(queue)));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsClosed() {
+        JmsProducerCache cache = new JmsProducerCache(1);
+        MessageProducer first = producer();
+        MessageProducer second = producer();
+
+        cache.release(key(stub(Queue.class)), first);
+        cache.release(key(stub(Queue.class)), second);
+        assertEquals(1, cache.size());
+        assertTrue(closed.contains(first));
+        assertFalse(closed.contains(second));
+    }
+
+    @Test
+    public void testInvalidDestinationEvictsItsProducers() {
+        JmsProducerCache cache = new JmsProducerCache(4);
+        Queue invalid = stub(Queue.class);
+        Queue valid = stub(Queue.class);
+        MessageProducer producer = producer();
+        MessageProducer sender = producer();
+        MessageProducer other = producer();
+        cache.release(key(invalid), producer);
+        cache.release(new JmsProducerCache.Key(JmsProducerCache.SENDER, invalid), sender);
+        cache.release(key(valid), other);
+
+        cache.invalidate(invalid);
+
+        assertEquals(1, cache.size());
+        assertTrue(closed.contains(producer));
+        assertTrue(closed.contains(sender));
+        assertFalse(closed.contains(other));
+        assertNull(cache.take(key(invalid)));
+        assertSame(other, cache.take(key(valid)));
+    }
+
+    @Test
+    public void testTemporaryDestinationsAreNotCached() {
+        assertFalse(JmsProducerCache.isCacheable(stub(TemporaryQueue.class)));
+        assertFalse(JmsProducerCache.isCacheable(stub(TemporaryTopic.class)));
+        assertTrue(JmsProducerCache.isCacheable(stub(Queue.class)));
+        assertTrue(JmsProducerCache.isCacheable(null));
+    }
+
+    @Test
+    public void testClosedCacheRefusesProducers() {
+        JmsProducerCache cache = new JmsProducerCache(4);
+        MessageProducer idle = producer();
+        cache.release(key(null), idle);
+        cache.close();
+        assertTrue(closed.contains(idle));
+        assertFalse(cache.release(key(null), producer()));
+    }
+}
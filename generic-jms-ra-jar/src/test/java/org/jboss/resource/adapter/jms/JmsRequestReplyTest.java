@@ -0,0 +1,137 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import static org.jboss.resource.adapter.jms.StubObjects.stub;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.jms.Connection;
+import jakarta.jms.IllegalStateException;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Queue;
+import jakarta.jms.Session;
+import jakarta.jms.TemporaryQueue;
+import jakarta.jms.TextMessage;
+
+import org.junit.jupiter.api.Test;
+
+public class JmsRequestReplyTest {
+
+    private final AtomicInteger opened = new AtomicInteger();
+    private final AtomicInteger closed = new AtomicInteger();
+    private final TemporaryQueue replyQueue = stub(TemporaryQueue.class);
+    private final Queue requestQueue = stub(Queue.class);
+
+    private final JmsRequestReply requestReply = new JmsRequestReply(new JmsManagedConnectionFactory()) {
+        @Override
+        protected Connection createConnection() {
+            opened.incrementAndGet();
+            Session session = stub(Session.class, Map.of(
+                    "createTemporaryQueue", args -> replyQueue,
+                    "createConsumer", args -> stub(MessageConsumer.class)));
+            return stub(Connection.class, Map.of(
+                    "createSession", args -> session,
+                    "close", args -> closed.incrementAndGet()));
+        }
+    };
+
+    /**
+     * @param responder the replies of the requests sent by the session, null for no reply
+     */
+    private Session caller(Map<String, StubObjects.Answer> responder) {
+        MessageProducer producer = stub(MessageProducer.class, responder);
+        return stub(Session.class, Map.of("createProducer", args -> producer));
+    }
+
+    @Test
+    public void testReplyCompletesTheRequest() throws Exception {
+        Session session = caller(Map.of("send", args -> {
+            Message request = (Message) args[0];
+            assertSame(replyQueue, request.getJMSReplyTo());
+            Message reply = StubMessages.text("pong");
+            reply.setJMSCorrelationID(request.getJMSCorrelationID());
+            requestReply.onMessage(reply);
+            return null;
+        }));
+
+        CompletableFuture<Message> reply = requestReply.request(session, requestQueue, StubMessages.text("ping"), 5000);
+        assertEquals("pong", ((TextMessage) reply.get(5, TimeUnit.SECONDS)).getText());
+        assertEquals(0, requestReply.getPendingRequests());
+        assertEquals(1, opened.get());
+    }
+
+    @Test
+    public void testCloseFailsPendingAndLaterRequests() throws Exception {
+        Session session = caller(Map.of());
+        CompletableFuture<Message> reply = requestReply.request(session, requestQueue, StubMessages.message(), 60000);
+
+        requestReply.close();
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> reply.get(5, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof JMSException);
+        assertEquals(1, closed.get());
+
+        assertThrows(IllegalStateException.class, () -> requestReply.request(session, requestQueue, StubMessages.message(), 60000));
+        assertEquals(1, opened.get());
+    }
+
+    @Test
+    public void testTimeoutMustBePositive() throws Exception {
+        Session session = caller(Map.of());
+        assertThrows(IllegalArgumentException.class, () -> requestReply.request(session, requestQueue, StubMessages.message(), 0));
+        assertThrows(IllegalArgumentException.class, () -> requestReply.request(session, requestQueue, StubMessages.message(), -1));
+        // Rejected before opening the reply connection or registering the request
+        assertEquals(0, opened.get());
+        assertEquals(0, requestReply.getPendingRequests());
+    }
+
+    @Test
+    public void testLostConnectionIsReopened() throws Exception {
+        Session session = caller(Map.of());
+        CompletableFuture<Message> reply = requestReply.request(session, requestQueue, StubMessages.message(), 60000);
+
+        requestReply.onException(new JMSException("lost"));
+        assertThrows(ExecutionException.class, () -> reply.get(5, TimeUnit.SECONDS));
+
+        requestReply.request(session, requestQueue, StubMessages.message(), 60000);
+        assertEquals(2, opened.get());
+        assertEquals(1, requestReply.getPendingRequests());
+    }
+
+    @Test
+    public void testCloseRacingRequestsLeavesNothingPending() throws Exception {
+        Session session = caller(Map.of());
+        CompletableFuture<?>[] requests = new CompletableFuture<?>[4];
+        for (int i = 0; i < requests.length; ++i) {
+            requests[i] = CompletableFuture.runAsync(() -> {
+                try {
+                    while (true) {
+                        requestReply.request(session, requestQueue, StubMessages.message(), 60000);
+                    }
+                } catch (IllegalStateException expected) {
+                    // closed
+                } catch (JMSException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }
+        Thread.sleep(50);
+        requestReply.close();
+        CompletableFuture.allOf(requests).get(5, TimeUnit.SECONDS);
+        // Every request registered before the close was failed by it
+        assertEquals(0, requestReply.getPendingRequests());
+    }
+}
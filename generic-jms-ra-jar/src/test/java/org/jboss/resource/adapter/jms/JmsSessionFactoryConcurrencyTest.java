@@ -0,0 +1,145 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.jms.JMSException;
+import jakarta.jms.Session;
+import jakarta.resource.ResourceException;
+import jakarta.resource.spi.ConnectionRequestInfo;
+import jakarta.resource.spi.ManagedConnectionFactory;
+
+import org.junit.jupiter.api.Test;
+
+public class JmsSessionFactoryConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    private static JmsManagedConnectionFactory mcf(String name) {
+        new StubProvider().bind(name);
+        JmsManagedConnectionFactory mcf = StubProvider.mcf(name);
+        mcf.setStrict(false);
+        return mcf;
+    }
+
+    private static CompletableFuture<Session> createSessionAsync(JmsSessionFactoryImpl connection) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            } catch (JMSException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    @Test
+    public void testAllocationsRunInParallel() throws Exception {
+        // Each allocation waits in the connection manager until all of them are there
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        StubConnectionManager cm = new StubConnectionManager() {
+            @Override
+            public Object allocateConnection(ManagedConnectionFactory mcf, ConnectionRequestInfo info) throws ResourceException {
+                try {
+                    barrier.await(5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new ResourceException(e);
+                }
+                return super.allocateConnection(mcf, info);
+            }
+        };
+        JmsSessionFactoryImpl connection = new JmsSessionFactoryImpl(mcf("concurrency/parallel"), cm, JmsConnectionFactory.AGNOSTIC);
+        List<CompletableFuture<Session>> sessions = new ArrayList<>();
+        for (int i = 0; i < THREADS; ++i) {
+            sessions.add(createSessionAsync(connection));
+        }
+        HashSet<Session> created = new HashSet<>();
+        for (CompletableFuture<Session> session : sessions) {
+            created.add(session.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(THREADS, created.size());
+        assertEquals(THREADS, cm.created.get());
+
+        connection.close();
+        assertEquals(THREADS, cm.closed.get());
+    }
+
+    @Test
+    public void testCloseDoesNotWaitForAnAllocation() throws Exception {
+        CountDownLatch allocating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        StubConnectionManager cm = new StubConnectionManager() {
+            @Override
+            public Object allocateConnection(ManagedConnectionFactory mcf, ConnectionRequestInfo info) throws ResourceException {
+                allocating.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new ResourceException(e);
+                }
+                return super.allocateConnection(mcf, info);
+            }
+        };
+        JmsSessionFactoryImpl connection = new JmsSessionFactoryImpl(mcf("concurrency/close"), cm, JmsConnectionFactory.AGNOSTIC);
+        CompletableFuture<Session> session = createSessionAsync(connection);
+        assertTrue(allocating.await(5, TimeUnit.SECONDS));
+
+        // Neither start() nor close() waits for the allocation in progress
+        CompletableFuture.runAsync(() -> {
+            try {
+                connection.start();
+                connection.close();
+            } catch (JMSException e) {
+                throw new RuntimeException(e);
+            }
+        }).get(5, TimeUnit.SECONDS);
+        release.countDown();
+
+        // The session allocated for the closed connection is closed instead of leaking
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> session.get(5, TimeUnit.SECONDS));
+        assertTrue(failure.getCause().getCause() instanceof JMSException, failure.toString());
+        assertEquals(1, cm.allocations.get());
+        assertEquals(1, cm.closed.get());
+    }
+
+    @Test
+    public void testCloseRacingAllocationsLeaksNoSession() throws Exception {
+        StubConnectionManager cm = new StubConnectionManager();
+        JmsManagedConnectionFactory mcf = mcf("concurrency/race");
+        for (int i = 0; i < 200; ++i) {
+            JmsSessionFactoryImpl connection = new JmsSessionFactoryImpl(mcf, cm, JmsConnectionFactory.AGNOSTIC);
+            CountDownLatch start = new CountDownLatch(1);
+            List<CompletableFuture<Session>> sessions = new ArrayList<>();
+            for (int j = 0; j < 2; ++j) {
+                sessions.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        start.await();
+                        return connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+                    } catch (Exception e) {
+                        return null;
+                    }
+                }));
+            }
+            start.countDown();
+            connection.close();
+            for (CompletableFuture<Session> session : sessions) {
+                session.get(5, TimeUnit.SECONDS);
+            }
+            // Every allocated session was closed, by close() or by the allocation that found the connection closed
+            assertEquals(cm.allocations.get(), cm.closed.get(), "iteration " + i);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import jakarta.jms.Session;
+import jakarta.resource.spi.ConnectionEvent;
+import jakarta.resource.spi.ConnectionEventListener;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class JmsTransactionScopedSessionsTest {
+
+    private final StubConnectionManager cm = new StubConnectionManager();
+
+    private StubProvider provider;
+
+    private JmsManagedConnectionFactory mcf(String name, boolean transactionScopedSessions) {
+        provider = new StubProvider().bind(name);
+        JmsManagedConnectionFactory mcf = StubProvider.mcf(name);
+        mcf.setTransactionScopedSessions(transactionScopedSessions);
+        return mcf;
+    }
+
+    private JmsSession createSession(JmsManagedConnectionFactory mcf) throws Exception {
+        return (JmsSession) new JmsSessionFactoryImpl(mcf, cm, JmsConnectionFactory.AGNOSTIC).createSession();
+    }
+
+    @AfterEach
+    public void end() {
+        StubTransactions.end();
+    }
+
+    @Test
+    public void testSessionsOfATransactionShareOneBranch() throws Exception {
+        JmsManagedConnectionFactory mcf = mcf("scoped/shared", true);
+        StubTransactions.begin();
+        JmsSession first = createSession(mcf);
+        JmsSession second = createSession(mcf);
+        JmsSession third = createSession(mcf);
+
+        assertSame(first.getManagedConnection(), second.getManagedConnection());
+        assertSame(first.getManagedConnection(), third.getManagedConnection());
+        assertEquals(1, cm.allocations.get());
+        assertEquals(1, provider.branches.get());
+        assertEquals(1, provider.connections.get());
+    }
+
+    @Test
+    public void testSessionsAreNotSharedByDefault() throws Exception {
+        JmsManagedConnectionFactory mcf = mcf("scoped/unshared", false);
+        StubTransactions.begin();
+        JmsSession first = createSession(mcf);
+        JmsSession second = createSession(mcf);
+
+        assertNotSame(first.getManagedConnection(), second.getManagedConnection());
+        assertEquals(2, cm.allocations.get());
+        assertEquals(2, provider.branches.get());
+    }
+
+    @Test
+    public void testAllocatedSessionClosedFirst() throws Exception {
+        JmsManagedConnectionFactory mcf = mcf("scoped/allocated-first", true);
+        StubTransactions.begin();
+        JmsSession allocated = createSession(mcf);
+        JmsSession shared = createSession(mcf);
+
+        // The connection manager gets the connection back once the shared session is closed too
+        allocated.close();
+        assertEquals(0, cm.closed.get());
+        shared.close();
+        assertEquals(1, cm.closed.get());
+        assertEquals(1, cm.free.size());
+    }
+
+    @Test
+    public void testSharedSessionClosedFirst() throws Exception {
+        JmsManagedConnectionFactory mcf = mcf("scoped/shared-first", true);
+        StubTransactions.begin();
+        JmsSession allocated = createSession(mcf);
+        JmsSession shared = createSession(mcf);
+
+        shared.close();
+        assertEquals(0, cm.closed.get());
+        allocated.close();
+        assertEquals(1, cm.closed.get());
+        assertEquals(1, cm.free.size());
+    }
+
+    @Test
+    public void testClosedConnectionIsAllocatedAgain() throws Exception {
+        JmsManagedConnectionFactory mcf = mcf("scoped/closed", true);
+        StubTransactions.begin();
+        createSession(mcf).close();
+        JmsSession next = createSession(mcf);
+
+        // Back in the pool, the connection is allocated and enlisted again instead of being shared
+        assertEquals(2, cm.allocations.get());
+        assertEquals(2, provider.branches.get());
+        assertEquals(1, cm.created.get());
+        next.close();
+    }
+
+    @Test
+    public void testEveryDeferredCloseIsReported() throws Exception {
+        JmsManagedConnectionFactory mcf = mcf("scoped/deferred", true);
+        JmsManagedConnection mc = (JmsManagedConnection) mcf.createManagedConnection(null, null);
+        List<Object> closed = new CopyOnWriteArrayList<>();
+        mc.addConnectionEventListener(StubObjects.stub(ConnectionEventListener.class, Map.of("connectionClosed", args -> {
+            closed.add(((ConnectionEvent) args[0]).getConnectionHandle());
+            return null;
+        })));
+        JmsConnectionRequestInfo info = new JmsConnectionRequestInfo(true, Session.SESSION_TRANSACTED, JmsConnectionFactory.AGNOSTIC);
+        // Two handles of a connection manager tracking the connections by transaction, and a shared one
+        JmsSession first = (JmsSession) mc.getConnection(null, info);
+        JmsSession second = (JmsSession) mc.getConnection(null, info);
+        JmsSession shared = mc.shareHandle(info);
+        JmsSessionFactoryImpl connection = new JmsSessionFactoryImpl(mcf, cm, JmsConnectionFactory.AGNOSTIC);
+        for (JmsSession handle : List.of(first, second, shared)) {
+            handle.setJmsSessionFactory(connection);
+        }
+
+        first.close();
+        second.close();
+        assertEquals(List.of(), closed);
+        shared.close();
+        assertEquals(List.of(first, second), closed);
+        mc.destroy();
+    }
+}
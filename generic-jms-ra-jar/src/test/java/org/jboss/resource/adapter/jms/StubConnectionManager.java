@@ -0,0 +1,103 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.transaction.xa.XAResource;
+
+import jakarta.resource.ResourceException;
+import jakarta.resource.spi.ConnectionEvent;
+import jakarta.resource.spi.ConnectionEventListener;
+import jakarta.resource.spi.ConnectionManager;
+import jakarta.resource.spi.ConnectionRequestInfo;
+import jakarta.resource.spi.ManagedConnection;
+import jakarta.resource.spi.ManagedConnectionFactory;
+import jakarta.transaction.Status;
+
+/**
+ * A pooling connection manager standing in for the one of an application server in the tests.
+ * <p>
+ * A free managed connection is matched before a new one is created, and the XA resource of the managed
+ * connection is enlisted on each allocation made in a {@link StubTransactions transaction}. A closed
+ * connection is cleaned up and returned to the pool, a failed one is destroyed.
+ */
+public class StubConnectionManager implements ConnectionManager, ConnectionEventListener {
+
+    public final AtomicInteger allocations = new AtomicInteger();
+    public final AtomicInteger created = new AtomicInteger();
+    public final AtomicInteger closed = new AtomicInteger();
+    public final AtomicInteger destroyed = new AtomicInteger();
+
+    /**
+     * The free managed connections
+     */
+    public final List<ManagedConnection> free = new ArrayList<>();
+
+    @Override
+    public Object allocateConnection(ManagedConnectionFactory mcf, ConnectionRequestInfo info) throws ResourceException {
+        allocations.incrementAndGet();
+        ManagedConnection mc;
+        synchronized (free) {
+            mc = mcf.matchManagedConnections(new HashSet<>(free), null, info);
+            free.remove(mc);
+        }
+        if (mc == null) {
+            mc = mcf.createManagedConnection(null, info);
+            mc.addConnectionEventListener(this);
+            created.incrementAndGet();
+        }
+        if (StubTransactions.REGISTRY.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            try {
+                mc.getXAResource().start(null, XAResource.TMNOFLAGS);
+            } catch (Exception e) {
+                throw new ResourceException(e);
+            }
+        }
+        return mc.getConnection(null, info);
+    }
+
+    @Override
+    public void connectionClosed(ConnectionEvent event) {
+        closed.incrementAndGet();
+        ManagedConnection mc = (ManagedConnection) event.getSource();
+        try {
+            mc.cleanup();
+        } catch (ResourceException e) {
+            throw new RuntimeException(e);
+        }
+        synchronized (free) {
+            free.add(mc);
+        }
+    }
+
+    @Override
+    public void connectionErrorOccurred(ConnectionEvent event) {
+        ManagedConnection mc = (ManagedConnection) event.getSource();
+        synchronized (free) {
+            free.remove(mc);
+        }
+        try {
+            mc.destroy();
+        } catch (ResourceException ignored) {
+        }
+        destroyed.incrementAndGet();
+    }
+
+    @Override
+    public void localTransactionStarted(ConnectionEvent event) {
+    }
+
+    @Override
+    public void localTransactionCommitted(ConnectionEvent event) {
+    }
+
+    @Override
+    public void localTransactionRolledback(ConnectionEvent event) {
+    }
+}
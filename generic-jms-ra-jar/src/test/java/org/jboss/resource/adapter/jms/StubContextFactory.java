@@ -0,0 +1,50 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.naming.Context;
+import javax.naming.NameNotFoundException;
+import javax.naming.spi.InitialContextFactory;
+
+/**
+ * The initial context of the tests, set in jndi.properties, looking up the objects bound in a map.
+ * <p>
+ * The transaction synchronization registry is bound to {@link StubTransactions}.
+ */
+public class StubContextFactory implements InitialContextFactory {
+
+    private static final Map<String, Object> BINDINGS = new ConcurrentHashMap<>();
+
+    static {
+        BINDINGS.put("java:comp/TransactionSynchronizationRegistry", StubTransactions.REGISTRY);
+    }
+
+    /**
+     * @param name   the jndi name
+     * @param object the object, null to unbind the name
+     */
+    public static void bind(String name, Object object) {
+        if (object != null) {
+            BINDINGS.put(name, object);
+        } else {
+            BINDINGS.remove(name);
+        }
+    }
+
+    @Override
+    public Context getInitialContext(Hashtable<?, ?> environment) {
+        return StubObjects.stub(Context.class, Map.of("lookup", args -> {
+            Object object = BINDINGS.get(args[0].toString());
+            if (object == null) {
+                throw new NameNotFoundException(args[0].toString());
+            }
+            return object;
+        }));
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.TextMessage;
+
+/**
+ * In-memory messages standing in for the messages of a provider in the tests.
+ * <p>
+ * The properties, the headers, the text body and the bytes body are kept in memory, the other methods
+ * return the default value of their type.
+ */
+public final class StubMessages {
+
+    private StubMessages() {
+    }
+
+    /**
+     * @return a message without body
+     */
+    public static Message message() {
+        return create(Message.class);
+    }
+
+    /**
+     * @param text the text
+     * @return a text message
+     */
+    public static TextMessage text(String text) throws JMSException {
+        TextMessage message = create(TextMessage.class);
+        message.setText(text);
+        return message;
+    }
+
+    /**
+     * @param body the body
+     * @return a bytes message, reset for reading
+     */
+    public static BytesMessage bytes(byte[] body) throws JMSException {
+        BytesMessage message = create(BytesMessage.class);
+        message.writeBytes(body);
+        message.reset();
+        return message;
+    }
+
+    /**
+     * @param type the type of message
+     * @return a message of the type
+     */
+    public static <T extends Message> T create(Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(StubMessages.class.getClassLoader(), new Class<?>[]{type},
+                new Handler()));
+    }
+
+    /**
+     * @param message a stub message
+     * @return the number of calls to acknowledge()
+     */
+    public static int acknowledged(Message message) {
+        return handler(message).acknowledged;
+    }
+
+    /**
+     * Make the reads of a property of a stub message fail
+     *
+     * @param message  the stub message
+     * @param property the property
+     */
+    public static void failOn(Message message, String property) {
+        handler(message).failing.put(property, Boolean.TRUE);
+    }
+
+    private static Handler handler(Message message) {
+        return (Handler) Proxy.getInvocationHandler(message);
+    }
+
+    private static final class Handler implements InvocationHandler {
+        private final Map<String, Object> properties = new HashMap<>();
+        private final Map<String, Object> headers = new HashMap<>();
+        private final Map<String, Boolean> failing = new HashMap<>();
+        private Object body;
+        private ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private int position;
+        private int acknowledged;
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "StubMessage" + headers + properties;
+                case "acknowledge":
+                    ++acknowledged;
+                    return null;
+                case "setText":
+                case "setObject":
+                    body = args[0];
+                    return null;
+                case "getText":
+                case "getObject":
+                case "getBody":
+                    return body;
+                case "clearBody":
+                    body = null;
+                    bytes = new ByteArrayOutputStream();
+                    position = 0;
+                    return null;
+                case "writeBytes":
+                    bytes.write((byte[]) args[0], args.length > 1 ? (Integer) args[1] : 0,
+                            args.length > 1 ? (Integer) args[2] : ((byte[]) args[0]).length);
+                    return null;
+                case "reset":
+                    position = 0;
+                    return null;
+                case "getBodyLength":
+                    return (long) bytes.size();
+                case "readBytes": {
+                    byte[] content = bytes.toByteArray();
+                    byte[] target = (byte[]) args[0];
+                    int length = Math.min(args.length > 1 ? (Integer) args[1] : target.length, content.length - position);
+                    if (length <= 0) {
+                        return -1;
+                    }
+                    System.arraycopy(content, position, target, 0, length);
+                    position += length;
+                    return length;
+                }
+                case "clearProperties":
+                    properties.clear();
+                    return null;
+                case "propertyExists":
+                    return properties.containsKey(args[0]);
+                case "getPropertyNames":
+                    return Collections.enumeration(properties.keySet());
+                default:
+                    break;
+            }
+            if (name.endsWith("Property")) {
+                String property = (String) args[0];
+                if (name.startsWith("set")) {
+                    properties.put(property, args[1]);
+                    return null;
+                }
+                if (failing.containsKey(property)) {
+                    throw new JMSException("Unable to read " + property);
+                }
+                Object value = properties.get(property);
+                if ("getStringProperty".equals(name)) {
+                    return value != null ? value.toString() : null;
+                }
+                return value != null || !method.getReturnType().isPrimitive() ? value : defaultValue(method.getReturnType());
+            }
+            if (name.startsWith("setJMS")) {
+                headers.put(name.substring(3), args[0]);
+                return null;
+            }
+            if (name.startsWith("getJMS")) {
+                Object value = headers.get(name.substring(3));
+                return value != null ? value : defaultValue(method.getReturnType());
+            }
+            return defaultValue(method.getReturnType());
+        }
+
+        private static Object defaultValue(Class<?> type) {
+            if (type == boolean.class) {
+                return false;
+            } else if (type == int.class) {
+                return 0;
+            } else if (type == long.class) {
+                return 0L;
+            } else if (type == short.class) {
+                return (short) 0;
+            } else if (type == byte.class) {
+                return (byte) 0;
+            } else if (type == double.class) {
+                return 0d;
+            } else if (type == float.class) {
+                return 0f;
+            } else if (type == char.class) {
+                return (char) 0;
+            }
+            return null;
+        }
+    }
+}
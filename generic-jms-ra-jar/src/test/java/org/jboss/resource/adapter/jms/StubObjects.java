@@ -0,0 +1,81 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+
+/**
+ * Proxies standing in for the objects of a provider or of the application server in the tests.
+ * <p>
+ * The methods with an answer run it, equals and hashCode use the identity, the other methods return the
+ * default value of their type.
+ */
+public final class StubObjects {
+
+    /**
+     * The answer of a stubbed method
+     */
+    public interface Answer {
+        Object answer(Object[] args) throws Throwable;
+    }
+
+    private StubObjects() {
+    }
+
+    /**
+     * @param type the type of the stub
+     * @return a stub without answers
+     */
+    public static <T> T stub(Class<T> type) {
+        return stub(type, Map.of());
+    }
+
+    /**
+     * @param type    the type of the stub
+     * @param answers the answers by method name
+     * @return the stub
+     */
+    public static <T> T stub(Class<T> type, Map<String, Answer> answers) {
+        return type.cast(Proxy.newProxyInstance(StubObjects.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    Answer answer = answers.get(method.getName());
+                    if (answer != null) {
+                        return answer.answer(args != null ? args : new Object[0]);
+                    }
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "Stub" + type.getSimpleName() + '@' + Integer.toHexString(System.identityHashCode(proxy));
+                        default:
+                            return defaultValue(method.getReturnType());
+                    }
+                }));
+    }
+
+    static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == double.class) {
+            return 0d;
+        } else if (type == float.class) {
+            return 0f;
+        } else if (type == char.class) {
+            return (char) 0;
+        }
+        return null;
+    }
+}
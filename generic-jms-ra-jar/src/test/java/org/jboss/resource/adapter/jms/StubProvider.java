@@ -0,0 +1,180 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import static org.jboss.resource.adapter.jms.StubObjects.stub;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.jms.ConnectionMetaData;
+import jakarta.jms.ExceptionListener;
+import jakarta.jms.JMSContext;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Queue;
+import jakarta.jms.Session;
+import jakarta.jms.TemporaryQueue;
+import jakarta.jms.XAConnection;
+import jakarta.jms.XAConnectionFactory;
+import jakarta.jms.XAJMSContext;
+import jakarta.jms.XASession;
+import javax.transaction.xa.XAResource;
+
+/**
+ * An in-memory XA JMS provider for the tests, bound in the {@link StubContextFactory}: it counts the connections,
+ * sessions and XA branches, records the sent messages and fails the operations on demand.
+ */
+public class StubProvider {
+
+    public final AtomicInteger connections = new AtomicInteger();
+    public final AtomicInteger closedConnections = new AtomicInteger();
+    public final AtomicInteger sessions = new AtomicInteger();
+    public final AtomicInteger metaDataCalls = new AtomicInteger();
+    public final AtomicInteger branches = new AtomicInteger();
+    public final List<Message> sent = new CopyOnWriteArrayList<>();
+    public final List<ExceptionListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * The failure of the connections, null to connect
+     */
+    public volatile JMSException connectFailure;
+
+    /**
+     * The failure of the session creations, null to create them
+     */
+    public volatile JMSException sessionFailure;
+
+    /**
+     * The failure of the XA session creations, null to create them
+     */
+    public volatile JMSException xaSessionFailure;
+
+    /**
+     * The failure of the sends, null to send
+     */
+    public volatile JMSException sendFailure;
+
+    /**
+     * The failure of the metadata calls, null to answer them
+     */
+    public volatile JMSException metaDataFailure;
+
+    /**
+     * Whether the broker is gone: the sessions cannot be created any more while the metadata, answered locally by
+     * the providers, still is
+     */
+    public volatile boolean dropped;
+
+    /**
+     * Bind the connection factory of the provider
+     *
+     * @param name the jndi name
+     * @return this provider
+     */
+    public StubProvider bind(String name) {
+        StubContextFactory.bind(name, stub(XAConnectionFactory.class, Map.of(
+                "createXAConnection", args -> connect(),
+                "createXAContext", args -> stub(XAJMSContext.class, Map.of("getContext", contextArgs -> stub(JMSContext.class))))));
+        return this;
+    }
+
+    /**
+     * Create a managed connection factory over the bound connection factories
+     *
+     * @param connectionFactories the comma-separated jndi names of the connection factories
+     * @return the managed connection factory
+     */
+    public static JmsManagedConnectionFactory mcf(String connectionFactories) {
+        JmsManagedConnectionFactory mcf = new JmsManagedConnectionFactory();
+        mcf.setConnectionFactory(connectionFactories);
+        return mcf;
+    }
+
+    /**
+     * Report a connection failure to the exception listeners
+     */
+    public void fail() {
+        for (ExceptionListener listener : listeners) {
+            listener.onException(new JMSException("Connection lost"));
+        }
+    }
+
+    private XAConnection connect() throws JMSException {
+        if (connectFailure != null) {
+            throw connectFailure;
+        }
+        connections.incrementAndGet();
+        Map<String, StubObjects.Answer> answers = new HashMap<>();
+        answers.put("createSession", args -> createSession());
+        answers.put("createXASession", args -> {
+            if (xaSessionFailure != null) {
+                throw xaSessionFailure;
+            }
+            return createSession();
+        });
+        answers.put("setExceptionListener", args -> {
+            if (args[0] != null) {
+                listeners.add((ExceptionListener) args[0]);
+            }
+            return null;
+        });
+        answers.put("getMetaData", args -> {
+            metaDataCalls.incrementAndGet();
+            if (metaDataFailure != null) {
+                throw metaDataFailure;
+            }
+            return stub(ConnectionMetaData.class);
+        });
+        answers.put("close", args -> closedConnections.incrementAndGet());
+        return stub(XAConnection.class, answers);
+    }
+
+    private XASession createSession() throws JMSException {
+        if (dropped) {
+            throw new JMSException("Connection lost");
+        }
+        if (sessionFailure != null) {
+            throw sessionFailure;
+        }
+        sessions.incrementAndGet();
+        Map<String, StubObjects.Answer> answers = new HashMap<>();
+        answers.put("createProducer", args -> {
+            Object destination = args[0];
+            return stub(MessageProducer.class, Map.of(
+                    "send", sendArgs -> send(sendArgs),
+                    "getDestination", sendArgs -> destination));
+        });
+        answers.put("createConsumer", args -> stub(MessageConsumer.class));
+        answers.put("createQueue", args -> stub(Queue.class));
+        answers.put("createTemporaryQueue", args -> stub(TemporaryQueue.class));
+        answers.put("createMessage", args -> StubMessages.message());
+        answers.put("createTextMessage", args -> StubMessages.text(args.length > 0 ? (String) args[0] : null));
+        answers.put("getAcknowledgeMode", args -> Session.AUTO_ACKNOWLEDGE);
+        XAResource xaResource = stub(XAResource.class, Map.of("start", args -> branches.incrementAndGet()));
+        answers.put("getXAResource", args -> xaResource);
+        XASession[] session = new XASession[1];
+        answers.put("getSession", args -> session[0]);
+        session[0] = stub(XASession.class, answers);
+        return session[0];
+    }
+
+    private Object send(Object[] args) throws JMSException {
+        if (sendFailure != null) {
+            throw sendFailure;
+        }
+        for (Object arg : args) {
+            if (arg instanceof Message) {
+                sent.add((Message) arg);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import jakarta.transaction.Status;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * The transactions of the tests: a transaction is active on a thread between {@link #begin()} and
+ * {@link #end()}, its resources are kept in a map.
+ */
+public final class StubTransactions {
+
+    private static final ThreadLocal<Map<Object, Object>> CURRENT = new ThreadLocal<>();
+
+    /**
+     * The transaction synchronization registry
+     */
+    static final TransactionSynchronizationRegistry REGISTRY = StubObjects.stub(TransactionSynchronizationRegistry.class, Map.of(
+            "getTransactionStatus", args -> CURRENT.get() != null ? Status.STATUS_ACTIVE : Status.STATUS_NO_TRANSACTION,
+            "getResource", args -> CURRENT.get().get(args[0]),
+            "putResource", args -> CURRENT.get().put(args[0], args[1])));
+
+    private StubTransactions() {
+    }
+
+    /**
+     * Begin a transaction on the current thread
+     */
+    public static void begin() {
+        CURRENT.set(new HashMap<>());
+    }
+
+    /**
+     * End the transaction of the current thread
+     */
+    public static void end() {
+        CURRENT.remove();
+    }
+}
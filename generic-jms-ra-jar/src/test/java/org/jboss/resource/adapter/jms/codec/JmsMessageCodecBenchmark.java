@@ -0,0 +1,98 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.codec;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The CPU cost and the bytes on the wire of the codecs for JSON bodies.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.jboss.resource.adapter.jms.codec.JmsMessageCodecBenchmark}, or from the IDE. The sizes
+ * on the wire are printed before the benchmarks run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JmsMessageCodecBenchmark {
+
+    @Param({"deflate", "gzip"})
+    public String codecName;
+
+    @Param({"51200", "204800"})
+    public int size;
+
+    private JmsMessageCodec codec;
+    private byte[] body;
+    private byte[] compressed;
+
+    @Setup
+    public void setup() throws IOException {
+        codec = JmsMessageCodecs.getCodec(codecName);
+        body = json(size);
+        compressed = codec.compress(body);
+    }
+
+    @Benchmark
+    public byte[] compress() throws IOException {
+        return codec.compress(body);
+    }
+
+    @Benchmark
+    public byte[] decompress() throws IOException {
+        return codec.decompress(compressed);
+    }
+
+    /**
+     * @param size the size in bytes
+     * @return a JSON array of records, as repetitive as the payloads of a typical application
+     */
+    static byte[] json(int size) {
+        Random random = new Random(size);
+        StringBuilder json = new StringBuilder(size + 256).append('[');
+        for (int i = 0; json.length() < size; ++i) {
+            json.append(i > 0 ? "," : "")
+                    .append("{\"id\":").append(i)
+                    .append(",\"customer\":\"customer-").append(random.nextInt(1000))
+                    .append("\",\"status\":\"").append(random.nextBoolean() ? "SHIPPED" : "PENDING")
+                    .append("\",\"amount\":").append(random.nextInt(100000) / 100.0)
+                    .append(",\"tags\":[\"priority\",\"region-").append(random.nextInt(16)).append("\"]}");
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (String name : new String[]{DeflateCodec.NAME, GzipCodec.NAME}) {
+            JmsMessageCodec codec = JmsMessageCodecs.getCodec(name);
+            for (int size : new int[]{51200, 204800}) {
+                byte[] body = json(size);
+                int compressed = codec.compress(body).length;
+                System.out.printf("%s %d bytes -> %d bytes on the wire (%.1fx), %d as Base64 text%n", name, body.length,
+                        compressed, (double) body.length / compressed, (compressed + 2) / 3 * 4);
+            }
+        }
+        new Runner(new OptionsBuilder().include(JmsMessageCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+}
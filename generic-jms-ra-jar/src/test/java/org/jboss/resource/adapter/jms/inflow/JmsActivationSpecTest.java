@@ -0,0 +1,78 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.inflow;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import jakarta.resource.spi.InvalidPropertyException;
+
+import org.junit.jupiter.api.Test;
+
+public class JmsActivationSpecTest {
+
+    private static JmsActivationSpec spec(String connectionFactory) {
+        JmsActivationSpec spec = new JmsActivationSpec();
+        spec.setDestination("queue/in");
+        spec.setConnectionFactory(connectionFactory);
+        return spec;
+    }
+
+    @Test
+    public void testSingleConnectionFactory() throws Exception {
+        JmsActivationSpec spec = spec("java:/cf");
+        assertArrayEquals(new String[]{"java:/cf"}, spec.getConnectionFactories());
+        spec.validate();
+    }
+
+    @Test
+    public void testConnectionFactoryList() throws Exception {
+        JmsActivationSpec spec = spec(" java:/cf1 ,java:/cf2,, java:/cf3 ");
+        assertArrayEquals(new String[]{"java:/cf1", "java:/cf2", "java:/cf3"}, spec.getConnectionFactories());
+        spec.validate();
+    }
+
+    @Test
+    public void testConnectionFactoryIsMandatory() {
+        assertEquals(0, spec(null).getConnectionFactories().length);
+        assertThrows(InvalidPropertyException.class, () -> spec(null).validate());
+        assertThrows(InvalidPropertyException.class, () -> spec(" , ").validate());
+    }
+
+    @Test
+    public void testSharedSubscriptionNeedsAName() throws Exception {
+        JmsActivationSpec spec = spec("java:/cf");
+        spec.setShareSubscriptions(true);
+        assertThrows(InvalidPropertyException.class, spec::validate);
+        spec.setSubscriptionName(" ");
+        assertThrows(InvalidPropertyException.class, spec::validate);
+        spec.setSubscriptionName("orders");
+        spec.validate();
+    }
+
+    @Test
+    public void testClientIdCannotBeSharedByConnections() throws Exception {
+        JmsActivationSpec spec = spec("java:/cf");
+        spec.setConnectionCount(2);
+        spec.validate();
+        spec.setClientId("client");
+        assertThrows(InvalidPropertyException.class, spec::validate);
+    }
+
+    @Test
+    public void testKeyedOrderingNeedsASingleConnection() throws Exception {
+        JmsActivationSpec spec = spec("java:/cf");
+        spec.setKeyedOrdering(true);
+        spec.validate();
+
+        spec.setConnectionCount(2);
+        assertThrows(InvalidPropertyException.class, spec::validate);
+
+        spec.setConnectionCount(1);
+        spec.setConnectionFactory("java:/cf1,java:/cf2");
+        assertThrows(InvalidPropertyException.class, spec::validate);
+    }
+}
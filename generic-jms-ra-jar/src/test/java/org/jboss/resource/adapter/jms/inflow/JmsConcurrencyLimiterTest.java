@@ -0,0 +1,151 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.inflow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import jakarta.jms.Connection;
+import jakarta.jms.Queue;
+import jakarta.jms.ServerSession;
+import jakarta.resource.spi.endpoint.MessageEndpointFactory;
+
+import org.jboss.resource.adapter.jms.JmsResourceAdapter;
+import org.jboss.resource.adapter.jms.StubObjects;
+import org.junit.jupiter.api.Test;
+
+public class JmsConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(200);
+
+    @Test
+    public void testDecreaseOncePerWindow() {
+        JmsConcurrencyLimiter limiter = new JmsConcurrencyLimiter(1, 20, 100);
+        assertEquals(20, limiter.getLimit());
+
+        // A full window of slow deliveries shrinks the limit by 10%, once
+        for (int i = 0; i < 19; ++i) {
+            limiter.onDelivery(SLOW, false, 20);
+        }
+        assertEquals(20, limiter.getLimit());
+        assertEquals(0, limiter.getDecreases());
+        limiter.onDelivery(SLOW, false, 20);
+        assertEquals(18, limiter.getLimit());
+        assertEquals(1, limiter.getDecreases());
+
+        // The deliveries still in flight when the latency rose do not shrink it again
+        for (int i = 0; i < 17; ++i) {
+            limiter.onDelivery(SLOW, false, 20);
+        }
+        assertEquals(18, limiter.getLimit());
+        assertEquals(1, limiter.getDecreases());
+
+        // A failure counts as a slow delivery
+        limiter.onDelivery(FAST, true, 20);
+        assertEquals(16, limiter.getLimit());
+        assertEquals(2, limiter.getDecreases());
+        assertEquals(38, limiter.getSamples());
+        assertEquals(10, limiter.getLastLatency());
+    }
+
+    @Test
+    public void testIncreaseUnderSaturation() {
+        JmsConcurrencyLimiter limiter = new JmsConcurrencyLimiter(1, 20, 100);
+        for (int i = 0; i < 20; ++i) {
+            limiter.onDelivery(SLOW, false, 20);
+        }
+        assertEquals(18, limiter.getLimit());
+
+        // Fast deliveries do not grow the limit while it is not what holds them back
+        for (int i = 0; i < 100; ++i) {
+            limiter.onDelivery(FAST, false, 17);
+        }
+        assertEquals(18, limiter.getLimit());
+
+        // Saturated, it grows by about one session per limit worth of fast deliveries
+        int deliveries = 0;
+        while (limiter.getLimit() == 18) {
+            limiter.onDelivery(FAST, false, 18);
+            ++deliveries;
+        }
+        assertEquals(19, limiter.getLimit());
+        assertTrue(deliveries >= 18 && deliveries <= 20, "deliveries " + deliveries);
+        assertEquals(1, limiter.getDecreases());
+    }
+
+    @Test
+    public void testClamp() {
+        JmsConcurrencyLimiter limiter = new JmsConcurrencyLimiter(5, 6, 100);
+        for (int i = 0; i < 1000; ++i) {
+            limiter.onDelivery(SLOW, false, 6);
+        }
+        assertEquals(5, limiter.getLimit());
+        for (int i = 0; i < 1000; ++i) {
+            limiter.onDelivery(FAST, false, 6);
+        }
+        assertEquals(6, limiter.getLimit());
+
+        limiter = new JmsConcurrencyLimiter(0, 0, 100);
+        assertEquals(1, limiter.getMinLimit());
+        assertEquals(1, limiter.getMaxLimit());
+        assertEquals(1, limiter.getLimit());
+
+        limiter = new JmsConcurrencyLimiter(10, 5, 100);
+        assertEquals(5, limiter.getMinLimit());
+        assertEquals(5, limiter.getMaxLimit());
+    }
+
+    @Test
+    public void testPoolStopsAtTheLimit() throws Exception {
+        JmsActivationSpec spec = new JmsActivationSpec();
+        spec.setDestination("queue");
+        spec.setConnectionFactory("java:/cf");
+        JmsActivation activation = new JmsActivation(new JmsResourceAdapter(), StubObjects.stub(MessageEndpointFactory.class), spec);
+        activation.destination = StubObjects.stub(Queue.class);
+        JmsServerSessionPool pool = new JmsServerSessionPool(activation, StubObjects.stub(Connection.class), 3);
+
+        // Three sessions, but the limiter only lets two run
+        pool.limiter = new JmsConcurrencyLimiter(1, 3, 100);
+        for (int i = 0; i < 3; ++i) {
+            pool.limiter.onDelivery(SLOW, false, 3);
+        }
+        assertEquals(2, pool.limiter.getLimit());
+        synchronized (pool.serverSessions) {
+            for (int i = 0; i < 3; ++i) {
+                pool.serverSessions.add(new JmsServerSession(pool));
+            }
+            pool.sessionCount = 3;
+        }
+
+        ServerSession first = pool.getServerSession();
+        assertNotNull(pool.getServerSession());
+        CompletableFuture<ServerSession> third = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.getServerSession();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertThrows(TimeoutException.class, () -> third.get(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, pool.serverSessions.size());
+
+        // A session coming back makes room under the limit again
+        pool.returnServerSession((JmsServerSession) first);
+        ServerSession next = third.get(5, TimeUnit.SECONDS);
+        assertNotNull(next);
+        assertSame(first, next);
+        assertFalse(pool.serverSessions.isEmpty());
+    }
+}
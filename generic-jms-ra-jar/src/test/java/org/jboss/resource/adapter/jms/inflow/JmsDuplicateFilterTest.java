@@ -0,0 +1,129 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.inflow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.jms.Message;
+
+import org.jboss.resource.adapter.jms.StubMessages;
+import org.junit.jupiter.api.Test;
+
+public class JmsDuplicateFilterTest {
+
+    @Test
+    public void testRedeliveredMessageIsSkipped() throws Exception {
+        JmsDuplicateFilter filter = new JmsDuplicateFilter(16, null);
+        Message message = StubMessages.message();
+        message.setJMSMessageID("ID:1");
+        long key = filter.key(message);
+
+        assertFalse(filter.isDuplicate(key));
+        filter.add(key);
+        assertTrue(filter.isDuplicate(key));
+        assertEquals(1, filter.getDuplicates());
+    }
+
+    @Test
+    public void testIdentifierProperty() throws Exception {
+        JmsDuplicateFilter filter = new JmsDuplicateFilter(16, "businessId");
+        Message message = StubMessages.message();
+        assertEquals(0, filter.key(message));
+        // A message without identifier is never a duplicate
+        filter.add(0);
+        assertFalse(filter.isDuplicate(0));
+
+        message.setStringProperty("businessId", "order-1");
+        assertEquals(JmsDuplicateFilter.hash("order-1"), filter.key(message));
+    }
+
+    @Test
+    public void testOldestIdentifierIsForgotten() {
+        JmsDuplicateFilter filter = new JmsDuplicateFilter(3, null);
+        for (int i = 0; i < 4; ++i) {
+            filter.add(JmsDuplicateFilter.hash("ID:" + i));
+        }
+        assertEquals(3, filter.size());
+        assertFalse(filter.isDuplicate(JmsDuplicateFilter.hash("ID:0")));
+        for (int i = 1; i < 4; ++i) {
+            assertTrue(filter.isDuplicate(JmsDuplicateFilter.hash("ID:" + i)));
+        }
+    }
+
+    @Test
+    public void testMatchesSlidingWindowModel() {
+        // Colliding keys exercise the removal from the probe sequences of the table
+        int windowSize = 50;
+        JmsDuplicateFilter filter = new JmsDuplicateFilter(windowSize, null);
+        ArrayDeque<Long> model = new ArrayDeque<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; ++i) {
+            long key = 1 + random.nextInt(200) * 128L;
+            assertEquals(model.contains(key), filter.isDuplicate(key), "key " + key + " at step " + i);
+            if (model.contains(key) == false) {
+                if (model.size() == windowSize) {
+                    model.removeFirst();
+                }
+                model.addLast(key);
+            }
+            filter.add(key);
+            assertEquals(model.size(), filter.size());
+        }
+    }
+
+    @Test
+    public void testConcurrentSessions() throws Exception {
+        int sessions = 8;
+        int messages = 10_000;
+        JmsDuplicateFilter filter = new JmsDuplicateFilter(sessions * messages, null);
+        ExecutorService executor = Executors.newFixedThreadPool(sessions);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int s = 0; s < sessions; ++s) {
+                int session = s;
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int m = 0; m < messages; ++m) {
+                        long key = JmsDuplicateFilter.hash("ID:" + session + ':' + m);
+                        if (filter.isDuplicate(key) == false) {
+                            filter.add(key);
+                        }
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        }
+        assertEquals(sessions * messages, filter.size());
+        assertEquals(0, filter.getDuplicates());
+
+        Set<Long> redelivered = new HashSet<>();
+        for (int s = 0; s < sessions; ++s) {
+            redelivered.add(JmsDuplicateFilter.hash("ID:" + s + ":0"));
+        }
+        for (long key : redelivered) {
+            assertTrue(filter.isDuplicate(key));
+        }
+        assertEquals(sessions, filter.getDuplicates());
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.inflow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+
+import org.jboss.resource.adapter.jms.StubMessages;
+import org.junit.jupiter.api.Test;
+
+public class JmsKeyedOrderingTest {
+
+    private static final String KEY = "JMSXGroupID";
+
+    private static Message keyed(String key) throws JMSException {
+        Message message = StubMessages.message();
+        message.setStringProperty(KEY, key);
+        return message;
+    }
+
+    private static CompletableFuture<String> enterAsync(JmsKeyedOrdering ordering, long ticket, Message message) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return ordering.enter(ticket, message);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    @Test
+    public void testSameKeyWaitsForOlderDelivery() throws Exception {
+        JmsKeyedOrdering ordering = new JmsKeyedOrdering(KEY);
+        long first = ordering.nextTicket();
+        long second = ordering.nextTicket();
+
+        assertEquals("a", ordering.enter(first, keyed("a")));
+        CompletableFuture<String> blocked = enterAsync(ordering, second, keyed("a"));
+        assertThrows(TimeoutException.class, () -> blocked.get(200, TimeUnit.MILLISECONDS));
+
+        ordering.exit("a", first);
+        assertEquals("a", blocked.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testOtherKeyDoesNotWait() throws Exception {
+        JmsKeyedOrdering ordering = new JmsKeyedOrdering(KEY);
+        long first = ordering.nextTicket();
+        long second = ordering.nextTicket();
+
+        ordering.enter(first, keyed("a"));
+        assertEquals("b", enterAsync(ordering, second, keyed("b")).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testUnreadableKeyDeclaresTheTicket() throws Exception {
+        JmsKeyedOrdering ordering = new JmsKeyedOrdering(KEY);
+        long first = ordering.nextTicket();
+        long second = ordering.nextTicket();
+
+        Message broken = keyed("a");
+        StubMessages.failOn(broken, KEY);
+        assertThrows(JMSException.class, () -> ordering.enter(first, broken));
+
+        // The younger tickets must not wait for the declaration of the broken one
+        assertEquals("a", enterAsync(ordering, second, keyed("a")).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testInterruptedTicketIsSkipped() throws Exception {
+        JmsKeyedOrdering ordering = new JmsKeyedOrdering(KEY);
+        long first = ordering.nextTicket();
+        long second = ordering.nextTicket();
+        long third = ordering.nextTicket();
+
+        CompletableFuture<Boolean> interrupted = new CompletableFuture<>();
+        Thread waiting = new Thread(() -> {
+            try {
+                ordering.enter(second, keyed("b"));
+                interrupted.complete(false);
+            } catch (InterruptedException e) {
+                interrupted.complete(true);
+            } catch (JMSException e) {
+                interrupted.completeExceptionally(e);
+            }
+        });
+        waiting.start();
+        Thread.sleep(100);
+        waiting.interrupt();
+        assertTrue(interrupted.get(5, TimeUnit.SECONDS));
+
+        ordering.skip(first);
+        // The interrupted ticket gave up its place
+        assertNull(enterAsync(ordering, third, StubMessages.message()).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testReleaseWakesUpWaitingSessions() throws Exception {
+        JmsKeyedOrdering ordering = new JmsKeyedOrdering(KEY);
+        ordering.nextTicket();
+        long second = ordering.nextTicket();
+
+        CompletableFuture<String> blocked = enterAsync(ordering, second, keyed("a"));
+        assertThrows(TimeoutException.class, () -> blocked.get(200, TimeUnit.MILLISECONDS));
+        ordering.release();
+        assertEquals("a", blocked.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.inflow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class JmsRateLimiterTest {
+
+    @Test
+    public void testBurstIsAvailableAtOnce() {
+        JmsRateLimiter limiter = new JmsRateLimiter(10, 3);
+        for (int i = 0; i < 3; ++i) {
+            assertEquals(0, limiter.reserve());
+        }
+        assertTrue(limiter.reserve() > 0);
+    }
+
+    @Test
+    public void testReservationsAheadOfTimeAreSpacedByTheInterval() {
+        // 100 per second: one token every 10 ms
+        JmsRateLimiter limiter = new JmsRateLimiter(100, 1);
+        limiter.reserve();
+        long first = limiter.reserve();
+        long second = limiter.reserve();
+        long third = limiter.reserve();
+        // Tokens taken without waiting for them push the wait of the next callers
+        assertTrue(first > 0 && first <= 10_000_000L, "first=" + first);
+        assertTrue(Math.abs(second - first - 10_000_000L) < 2_000_000L, "second=" + second);
+        assertTrue(Math.abs(third - second - 10_000_000L) < 2_000_000L, "third=" + third);
+    }
+}
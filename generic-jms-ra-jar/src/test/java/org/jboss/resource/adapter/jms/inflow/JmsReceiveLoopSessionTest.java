@@ -0,0 +1,134 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.inflow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageListener;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Queue;
+import jakarta.jms.Session;
+import jakarta.resource.spi.endpoint.MessageEndpoint;
+import jakarta.resource.spi.endpoint.MessageEndpointFactory;
+import jakarta.transaction.Status;
+import jakarta.transaction.TransactionManager;
+
+import org.jboss.resource.adapter.jms.JmsResourceAdapter;
+import org.jboss.resource.adapter.jms.StubMessages;
+import org.jboss.resource.adapter.jms.StubObjects;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class JmsReceiveLoopSessionTest {
+
+    /**
+     * The endpoint of a message driven bean
+     */
+    public interface ListenerEndpoint extends MessageEndpoint, MessageListener {
+    }
+
+    /**
+     * What happened to the delivery transaction, in order
+     */
+    private final List<String> events = new CopyOnWriteArrayList<>();
+
+    private final Message message = StubMessages.message();
+
+    private boolean failing;
+
+    private JmsActivation activation;
+
+    private JmsReceiveLoopSession loop;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        JmsActivationSpec spec = new JmsActivationSpec();
+        spec.setDestination("queue/in");
+        spec.setConnectionFactory("java:/cf");
+        spec.setDeadLetterDestination("queue/dlq");
+        spec.setMaxDeliveryAttempts(3);
+        spec.setRedeliveryDelay(1000);
+        spec.setRedeliveryMultiplier(2);
+        spec.setMaxRedeliveryDelay(60000);
+        activation = new JmsActivation(new JmsResourceAdapter(), StubObjects.stub(MessageEndpointFactory.class), spec);
+        activation.destination = StubObjects.stub(Queue.class);
+        activation.deadLetterDestination = StubObjects.stub(Queue.class);
+
+        Map<String, StubObjects.Answer> endpointAnswers = new HashMap<>();
+        endpointAnswers.put("beforeDelivery", args -> events.add("beforeDelivery"));
+        endpointAnswers.put("afterDelivery", args -> events.add("afterDelivery"));
+        endpointAnswers.put("onMessage", args -> {
+            events.add("onMessage");
+            if (failing) {
+                throw new RuntimeException("Delivery failed");
+            }
+            return null;
+        });
+        Map<String, StubObjects.Answer> producerAnswers = new HashMap<>();
+        producerAnswers.put("send", args -> events.add("park"));
+        Map<String, StubObjects.Answer> sessionAnswers = new HashMap<>();
+        sessionAnswers.put("createProducer", args -> args[0] == activation.deadLetterDestination
+                ? StubObjects.stub(MessageProducer.class, producerAnswers) : null);
+        Map<String, StubObjects.Answer> consumerAnswers = new HashMap<>();
+        consumerAnswers.put("receive", args -> message);
+
+        loop = new JmsReceiveLoopSession(new JmsServerSessionPool(activation, null, 1));
+        loop.endpoint = StubObjects.stub(ListenerEndpoint.class, endpointAnswers);
+        loop.session = StubObjects.stub(Session.class, sessionAnswers);
+        loop.consumer = StubObjects.stub(MessageConsumer.class, consumerAnswers);
+    }
+
+    @Test
+    public void testExhaustedMessageParkedWithinTheTransaction() throws Exception {
+        message.setIntProperty(JmsRedeliveryPolicy.JMSX_DELIVERY_COUNT, 4);
+
+        assertEquals(1, loop.receiveTransacted(100));
+        assertEquals(List.of("beforeDelivery", "park", "afterDelivery"), events);
+        assertEquals(1, activation.getParkedMessageCount());
+        assertEquals(0, loop.redeliveryBackoff);
+    }
+
+    @Test
+    public void testBackOffOutsideTheTransaction() throws Exception {
+        message.setIntProperty(JmsRedeliveryPolicy.JMSX_DELIVERY_COUNT, 2);
+        failing = true;
+
+        long start = System.nanoTime();
+        assertEquals(1, loop.receiveTransacted(100));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // The redelivery is counted but the transaction does not wait for its delay
+        assertEquals(List.of("beforeDelivery", "onMessage", "afterDelivery"), events);
+        assertTrue(elapsed < 1000, "elapsed " + elapsed);
+        assertEquals(1, activation.getRedeliveredMessageCount());
+        // The loop waits before the transaction receiving the third delivery
+        assertEquals(2000, loop.redeliveryBackoff);
+    }
+
+    @Test
+    public void testBackOffOnceMarkedRollback() throws Exception {
+        Map<String, StubObjects.Answer> tmAnswers = new HashMap<>();
+        int[] status = {Status.STATUS_ACTIVE};
+        tmAnswers.put("getStatus", args -> status[0]);
+        loop.tm = StubObjects.stub(TransactionManager.class, tmAnswers);
+
+        assertEquals(1, loop.receiveTransacted(100));
+        assertEquals(0, loop.redeliveryBackoff);
+
+        // The bean rolled back without throwing
+        status[0] = Status.STATUS_MARKED_ROLLBACK;
+        assertEquals(1, loop.receiveTransacted(100));
+        assertEquals(1000, loop.redeliveryBackoff);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.inflow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import jakarta.jms.Message;
+
+import org.jboss.resource.adapter.jms.StubMessages;
+import org.junit.jupiter.api.Test;
+
+public class JmsRedeliveryPolicyTest {
+
+    private static JmsRedeliveryPolicy policy(int maxDeliveryAttempts, long redeliveryDelay, double multiplier, long maxRedeliveryDelay) {
+        JmsActivationSpec spec = new JmsActivationSpec();
+        spec.setMaxDeliveryAttempts(maxDeliveryAttempts);
+        spec.setRedeliveryDelay(redeliveryDelay);
+        spec.setRedeliveryMultiplier(multiplier);
+        spec.setMaxRedeliveryDelay(maxRedeliveryDelay);
+        return new JmsRedeliveryPolicy(spec);
+    }
+
+    @Test
+    public void testBackOffCurve() {
+        JmsRedeliveryPolicy policy = policy(0, 100, 2, 1000);
+        assertEquals(0, policy.onDelivery(1));
+        assertEquals(100, policy.onDelivery(2));
+        assertEquals(200, policy.onDelivery(3));
+        assertEquals(400, policy.onDelivery(4));
+        assertEquals(800, policy.onDelivery(5));
+        assertEquals(1000, policy.onDelivery(6));
+        assertEquals(1000, policy.onDelivery(100));
+        // The first delivery is not a redelivery
+        assertEquals(6, policy.getRedeliveries());
+
+        // Computing a delay does not record a redelivery
+        assertEquals(400, policy.getDelay(4));
+        assertEquals(6, policy.getRedeliveries());
+    }
+
+    @Test
+    public void testNoDelay() {
+        JmsRedeliveryPolicy policy = policy(3, 0, 2, 1000);
+        assertEquals(0, policy.onDelivery(2));
+        assertEquals(0, policy.getDelay(10));
+        assertEquals(1, policy.getRedeliveries());
+    }
+
+    @Test
+    public void testIsExhausted() {
+        JmsRedeliveryPolicy policy = policy(3, 0, 2, 1000);
+        assertFalse(policy.isExhausted(1));
+        assertFalse(policy.isExhausted(3));
+        assertTrue(policy.isExhausted(4));
+
+        // 0 never parks
+        policy = policy(0, 100, 2, 1000);
+        assertFalse(policy.isExhausted(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testDeliveryCount() throws Exception {
+        JmsRedeliveryPolicy policy = policy(3, 0, 2, 1000);
+        Message message = StubMessages.message();
+        assertEquals(1, policy.getDeliveryCount(message));
+        message.setJMSRedelivered(true);
+        assertEquals(2, policy.getDeliveryCount(message));
+        message.setIntProperty(JmsRedeliveryPolicy.JMSX_DELIVERY_COUNT, 5);
+        assertEquals(5, policy.getDeliveryCount(message));
+
+        // An unreadable count is a first delivery
+        StubMessages.failOn(message, JmsRedeliveryPolicy.JMSX_DELIVERY_COUNT);
+        assertEquals(1, policy.getDeliveryCount(message));
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.inflow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionConsumer;
+import jakarta.jms.Queue;
+import jakarta.jms.Topic;
+import jakarta.resource.spi.endpoint.MessageEndpointFactory;
+
+import org.jboss.resource.adapter.jms.JmsResourceAdapter;
+import org.jboss.resource.adapter.jms.StubObjects;
+import org.junit.jupiter.api.Test;
+
+public class JmsServerSessionPoolTest {
+
+    /**
+     * The connection consumer factory methods called, with the subscription name when they take one
+     */
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+
+    private StubObjects.Answer record(String method) {
+        return args -> {
+            calls.add(args.length > 4 ? method + ':' + args[1] : method);
+            return StubObjects.stub(ConnectionConsumer.class);
+        };
+    }
+
+    private JmsServerSessionPool pool(boolean topic, boolean shared, boolean durable) throws Exception {
+        JmsActivationSpec spec = new JmsActivationSpec();
+        spec.setDestination("dest");
+        spec.setConnectionFactory("java:/cf");
+        spec.setShareSubscriptions(shared);
+        spec.setSubscriptionDurability(durable ? "Durable" : "NonDurable");
+        spec.setSubscriptionName("subscription");
+        JmsActivation activation = new JmsActivation(new JmsResourceAdapter(), StubObjects.stub(MessageEndpointFactory.class), spec);
+        activation.isTopic = topic;
+        activation.destination = topic ? StubObjects.stub(Topic.class) : StubObjects.stub(Queue.class);
+
+        Connection connection = StubObjects.stub(Connection.class, Map.of(
+                "createConnectionConsumer", record("createConnectionConsumer"),
+                "createDurableConnectionConsumer", record("createDurableConnectionConsumer"),
+                "createSharedConnectionConsumer", record("createSharedConnectionConsumer"),
+                "createSharedDurableConnectionConsumer", record("createSharedDurableConnectionConsumer")));
+        return new JmsServerSessionPool(activation, connection, 1);
+    }
+
+    @Test
+    public void testQueueConsumer() throws Exception {
+        pool(false, true, true).setupConsumer();
+        assertEquals(List.of("createConnectionConsumer"), calls);
+    }
+
+    @Test
+    public void testUnsharedTopicConsumers() throws Exception {
+        pool(true, false, false).setupConsumer();
+        pool(true, false, true).setupConsumer();
+        assertEquals(List.of("createConnectionConsumer", "createDurableConnectionConsumer:subscription"), calls);
+    }
+
+    @Test
+    public void testSharedTopicConsumers() throws Exception {
+        pool(true, true, false).setupConsumer();
+        pool(true, true, true).setupConsumer();
+        assertEquals(List.of("createSharedConnectionConsumer:subscription", "createSharedDurableConnectionConsumer:subscription"),
+                calls);
+    }
+}
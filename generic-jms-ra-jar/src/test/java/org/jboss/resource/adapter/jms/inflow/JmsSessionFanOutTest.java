@@ -0,0 +1,155 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.inflow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.jms.Message;
+import jakarta.jms.Session;
+import jakarta.resource.spi.BootstrapContext;
+import jakarta.resource.spi.endpoint.MessageEndpoint;
+import jakarta.resource.spi.endpoint.MessageEndpointFactory;
+import jakarta.resource.spi.work.Work;
+import jakarta.resource.spi.work.WorkManager;
+
+import org.jboss.resource.adapter.jms.JmsResourceAdapter;
+import org.jboss.resource.adapter.jms.StubMessages;
+import org.jboss.resource.adapter.jms.StubObjects;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class JmsSessionFanOutTest {
+
+    private static final int PARALLELISM = 2;
+
+    private final AtomicInteger released = new AtomicInteger();
+    private final AtomicInteger recovered = new AtomicInteger();
+    private final Set<Message> failing = ConcurrentHashMap.newKeySet();
+    private final Map<Message, CountDownLatch> blocking = new ConcurrentHashMap<>();
+
+    private MessageEndpointFactory endpointFactory;
+    private JmsServerSession serverSession;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        Map<String, StubObjects.Answer> workAnswers = new HashMap<>();
+        workAnswers.put("scheduleWork", args -> {
+            new Thread((Work) args[0]).start();
+            return null;
+        });
+        WorkManager workManager = StubObjects.stub(WorkManager.class, workAnswers);
+        Map<String, StubObjects.Answer> contextAnswers = new HashMap<>();
+        contextAnswers.put("getWorkManager", args -> workManager);
+        JmsResourceAdapter ra = new JmsResourceAdapter();
+        ra.start(StubObjects.stub(BootstrapContext.class, contextAnswers));
+
+        Map<String, StubObjects.Answer> endpointAnswers = new HashMap<>();
+        endpointAnswers.put("release", args -> released.incrementAndGet());
+        Map<String, StubObjects.Answer> factoryAnswers = new HashMap<>();
+        factoryAnswers.put("createEndpoint", args -> StubObjects.stub(MessageEndpoint.class, endpointAnswers));
+        endpointFactory = StubObjects.stub(MessageEndpointFactory.class, factoryAnswers);
+
+        JmsActivationSpec spec = new JmsActivationSpec();
+        spec.setDestination("queue/in");
+        spec.setConnectionFactory("java:/cf");
+        spec.setSessionParallelism(PARALLELISM);
+        JmsActivation activation = new JmsActivation(ra, endpointFactory, spec);
+
+        serverSession = new JmsServerSession(new JmsServerSessionPool(activation, null, 1)) {
+            @Override
+            boolean deliver(Message message, MessageEndpoint endpoint, int deliveryCount, long duplicateKey) {
+                CountDownLatch latch = blocking.get(message);
+                if (latch != null) {
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return failing.contains(message) == false;
+            }
+        };
+        Map<String, StubObjects.Answer> sessionAnswers = new HashMap<>();
+        sessionAnswers.put("recover", args -> recovered.incrementAndGet());
+        serverSession.session = StubObjects.stub(Session.class, sessionAnswers);
+        serverSession.fanOut = new JmsSessionFanOut(serverSession, endpointFactory, PARALLELISM);
+    }
+
+    @Test
+    public void testMessagesAcknowledgedOnceAllDelivered() {
+        Message[] messages = {StubMessages.message(), StubMessages.message(), StubMessages.message()};
+        for (Message message : messages) {
+            serverSession.fanOut.submit(message, 1, 0);
+        }
+        serverSession.fanOut.complete();
+
+        // Acknowledging the last message acknowledges the ones before it
+        assertEquals(0, StubMessages.acknowledged(messages[0]));
+        assertEquals(0, StubMessages.acknowledged(messages[1]));
+        assertEquals(1, StubMessages.acknowledged(messages[2]));
+        assertEquals(0, recovered.get());
+    }
+
+    @Test
+    public void testFailedDeliveryRecoversTheSession() {
+        Message failed = StubMessages.message();
+        Message delivered = StubMessages.message();
+        failing.add(failed);
+        serverSession.fanOut.submit(failed, 1, 0);
+        serverSession.fanOut.submit(delivered, 1, 0);
+        serverSession.fanOut.complete();
+
+        assertEquals(1, recovered.get());
+        assertEquals(0, StubMessages.acknowledged(failed));
+        assertEquals(0, StubMessages.acknowledged(delivered));
+
+        // The next run of the session acknowledges again
+        Message next = StubMessages.message();
+        serverSession.fanOut.submit(next, 1, 0);
+        serverSession.fanOut.complete();
+        assertEquals(1, StubMessages.acknowledged(next));
+        assertEquals(1, recovered.get());
+    }
+
+    @Test
+    public void testReleaseWaitsForTheDeliveriesInProgress() throws Exception {
+        Message message = StubMessages.message();
+        CountDownLatch latch = new CountDownLatch(1);
+        blocking.put(message, latch);
+        serverSession.fanOut.submit(message, 1, 0);
+
+        CompletableFuture<Void> release = CompletableFuture.runAsync(serverSession.fanOut::release);
+        assertThrows(TimeoutException.class, () -> release.get(200, TimeUnit.MILLISECONDS));
+        assertEquals(0, released.get());
+
+        latch.countDown();
+        release.get(5, TimeUnit.SECONDS);
+        assertEquals(PARALLELISM, released.get());
+    }
+
+    @Test
+    public void testSubmitAfterReleaseIsRejected() {
+        serverSession.fanOut.release();
+        assertEquals(PARALLELISM, released.get());
+        Message message = StubMessages.message();
+        assertThrows(IllegalStateException.class, () -> serverSession.fanOut.submit(message, 1, 0));
+
+        // The permit was given back, the session still completes
+        serverSession.fanOut.complete();
+        assertEquals(0, StubMessages.acknowledged(message));
+        assertEquals(0, recovered.get());
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.jfr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import jakarta.jms.Message;
+import jakarta.jms.Queue;
+import javax.transaction.xa.Xid;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.jboss.resource.adapter.jms.StubMessages;
+import org.jboss.resource.adapter.jms.StubObjects;
+import org.junit.jupiter.api.Test;
+
+public class JmsEventsTest {
+
+    private static final List<Class<? extends Event>> EVENTS = List.of(JmsDeliveryEvent.class, JmsLockWaitEvent.class,
+            JmsReconnectEvent.class, JmsSendEvent.class, JmsServerSessionWaitEvent.class, JmsXAEvent.class);
+
+    private interface Emitter {
+        void emit() throws Exception;
+    }
+
+    /**
+     * @param threshold the threshold of the events, null for the thresholds of their annotations
+     * @param emitter   emits the events
+     * @return the recorded events of the adapter
+     */
+    private static List<RecordedEvent> record(Duration threshold, Emitter emitter) throws Exception {
+        Path file = Files.createTempFile("jms-events", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (Class<? extends Event> event : EVENTS) {
+                if (threshold != null) {
+                    recording.enable(event).withThreshold(threshold);
+                } else {
+                    recording.enable(event);
+                }
+            }
+            recording.start();
+            emitter.emit();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(e -> e.getEventType().getName().startsWith("org.jboss.resource.adapter.jms."))
+                    .collect(Collectors.toList());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testEventFields() throws Exception {
+        Message message = StubMessages.message();
+        message.setJMSMessageID("ID:1");
+        Queue queue = StubObjects.stub(Queue.class);
+        Xid xid = StubObjects.stub(Xid.class);
+
+        List<RecordedEvent> events = record(Duration.ZERO, () -> {
+            JmsSendEvent send = new JmsSendEvent();
+            send.begin();
+            send.complete(queue, message, true);
+
+            JmsDeliveryEvent delivery = new JmsDeliveryEvent();
+            delivery.begin();
+            delivery.complete("activation", "queue", message, 2, false);
+
+            JmsReconnectEvent reconnect = new JmsReconnectEvent();
+            reconnect.begin();
+            reconnect.complete("activation", "queue", -1, 3, true);
+
+            JmsXAEvent xa = new JmsXAEvent();
+            xa.begin();
+            xa.complete("prepare", xid, false);
+
+            JmsLockWaitEvent lock = new JmsLockWaitEvent();
+            lock.begin();
+            lock.complete(this, false);
+
+            JmsServerSessionWaitEvent wait = new JmsServerSessionWaitEvent();
+            wait.begin();
+            wait.complete("activation", "queue");
+        });
+
+        assertEquals(6, events.size());
+        RecordedEvent send = events.get(0);
+        assertEquals("org.jboss.resource.adapter.jms.Send", send.getEventType().getName());
+        assertEquals(queue.toString(), send.getString("destination"));
+        assertEquals("ID:1", send.getString("messageId"));
+        assertTrue(send.getBoolean("failed"));
+
+        RecordedEvent delivery = events.get(1);
+        assertEquals("activation", delivery.getString("activation"));
+        assertEquals(2, delivery.getInt("deliveryCount"));
+        assertFalse(delivery.getBoolean("failed"));
+
+        RecordedEvent reconnect = events.get(2);
+        assertEquals(-1, reconnect.getInt("connection"));
+        assertEquals(3, reconnect.getInt("attempts"));
+        assertTrue(reconnect.getBoolean("reconnected"));
+
+        RecordedEvent xa = events.get(3);
+        assertEquals("prepare", xa.getString("operation"));
+        assertEquals(xid.toString(), xa.getString("xid"));
+
+        RecordedEvent lock = events.get(4);
+        assertTrue(lock.getString("managedConnection").startsWith(getClass().getSimpleName() + '@'));
+        assertFalse(lock.getBoolean("acquired"));
+
+        assertEquals("queue", events.get(5).getString("destination"));
+    }
+
+    @Test
+    public void testFastEventsAreBelowTheThreshold() throws Exception {
+        List<RecordedEvent> events = record(null, () -> {
+            JmsSendEvent send = new JmsSendEvent();
+            send.begin();
+            send.complete(null, StubMessages.message(), false);
+        });
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void testSlowEventsAreRecorded() throws Exception {
+        List<RecordedEvent> events = record(null, () -> {
+            JmsSendEvent send = new JmsSendEvent();
+            send.begin();
+            Thread.sleep(20);
+            send.complete(null, StubMessages.message(), false);
+        });
+        assertEquals(1, events.size());
+        assertTrue(events.get(0).getDuration().toMillis() >= 10);
+    }
+
+    @Test
+    public void testEventsAreNotBuiltWhenDisabled() {
+        JmsSendEvent send = new JmsSendEvent();
+        send.begin();
+        // Reading the message id would fail, it is only read for the recorded events
+        send.complete(null, null, false);
+        assertFalse(send.shouldCommit());
+    }
+}
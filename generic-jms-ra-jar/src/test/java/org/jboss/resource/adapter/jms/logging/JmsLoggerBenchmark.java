@@ -0,0 +1,93 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.logging;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.resource.adapter.jms.inflow.JmsServerSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The garbage produced by the logging of the connection and delivery paths when debug is off.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.jboss.resource.adapter.jms.logging.JmsLoggerBenchmark}, or from the IDE. The bytes
+ * allocated per operation are printed once the benchmarks ran: the typed messages and the guarded trace calls
+ * allocate nothing, the unguarded concatenation is the baseline they replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JmsLoggerBenchmark {
+
+    private static final JmsLogger log = JmsLogger.getLogger(JmsServerSession.class);
+
+    private Object session;
+    private Object message;
+    private int timeout;
+    private int ack;
+
+    @Setup
+    public void setup() {
+        if (log.isDebugEnabled()) {
+            throw new IllegalStateException("Debug must be off for " + log);
+        }
+        session = new Object();
+        message = new Object();
+        // A real transaction timeout is outside of the cache of the boxed integers
+        timeout = 300;
+        ack = 2;
+    }
+
+    @Benchmark
+    public void typedMessages() {
+        log.createdSession(session, true, ack);
+        log.connectionTransacted(true, ack);
+        log.skippingDuplicate(message);
+        log.createdConsumer(session);
+    }
+
+    @Benchmark
+    public void guardedTrace() {
+        if (log.isTraceEnabled()) {
+            log.trace("Setting transactionTimeout for JMSSessionPool to " + timeout);
+        }
+    }
+
+    @Benchmark
+    public void unguardedTrace() {
+        log.trace("Setting transactionTimeout for JMSSessionPool to " + timeout);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(JmsLoggerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+        for (RunResult result : results) {
+            Result<?> allocated = result.getSecondaryResults().get("gc.alloc.rate.norm");
+            System.out.printf("%s allocates %.1f bytes/op%n", result.getParams().getBenchmark(),
+                    allocated != null ? allocated.getScore() : Double.NaN);
+        }
+    }
+}
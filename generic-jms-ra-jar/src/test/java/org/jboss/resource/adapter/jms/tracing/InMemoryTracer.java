@@ -0,0 +1,68 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.tracing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A tracer keeping the ended spans in memory, registered for the tests with the ServiceLoader.
+ */
+public class InMemoryTracer implements JmsTracer {
+
+    /**
+     * An ended span
+     */
+    public static final class Span implements JmsSpan {
+        public final String name;
+        public final JmsTraceContext parent;
+        public final String destination;
+        private final JmsTraceContext context;
+        public boolean failed;
+
+        Span(String name, JmsTraceContext parent, String destination) {
+            this.name = name;
+            this.parent = parent;
+            this.destination = destination;
+            this.context = parent != null ? parent.newChild() : JmsTraceContext.newRoot(true);
+        }
+
+        @Override
+        public JmsTraceContext getContext() {
+            return context;
+        }
+
+        @Override
+        public void end(boolean failed) {
+            this.failed = failed;
+            synchronized (ENDED) {
+                ENDED.add(this);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return name + '(' + context + " parent=" + parent + ')';
+        }
+    }
+
+    private static final List<Span> ENDED = new ArrayList<>();
+
+    /**
+     * @return the spans ended since the last call, in their order
+     */
+    public static List<Span> drain() {
+        synchronized (ENDED) {
+            List<Span> spans = new ArrayList<>(ENDED);
+            ENDED.clear();
+            return spans;
+        }
+    }
+
+    @Override
+    public JmsSpan startSpan(String name, JmsTraceContext parent, String destination) {
+        return new Span(name, parent, destination);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ *  Copyright The WildFly Authors
+ *  SPDX-License-Identifier: Apache-2.0
+ */
+package org.jboss.resource.adapter.jms.tracing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import jakarta.jms.Message;
+import jakarta.jms.Queue;
+
+import org.jboss.resource.adapter.jms.StubMessages;
+import org.jboss.resource.adapter.jms.StubObjects;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class JmsTracingTest {
+
+    private static final String TRACEPARENT = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+    @BeforeEach
+    public void clear() {
+        InMemoryTracer.drain();
+    }
+
+    @Test
+    public void testTracerIsLoaded() {
+        assertTrue(JmsTracing.isEnabled());
+    }
+
+    @Test
+    public void testContextFlowsFromSendToDeliveryToNestedSend() throws Exception {
+        Queue queue = StubObjects.stub(Queue.class);
+        Message request = StubMessages.message();
+        JmsTracing.end(JmsTracing.startSend(queue, request), false);
+
+        // Delivered to an endpoint, which sends a reply and completes
+        JmsSpan onMessage = JmsTracing.startOnMessage(request);
+        assertSame(onMessage.getContext(), JmsTracing.current());
+        Message reply = StubMessages.message();
+        JmsTracing.end(JmsTracing.startSend(null, reply), false);
+        JmsTracing.end(JmsTracing.startCommit(), false);
+        JmsTracing.end(onMessage, true);
+        assertNull(JmsTracing.current());
+
+        List<InMemoryTracer.Span> spans = InMemoryTracer.drain();
+        assertEquals(4, spans.size());
+        InMemoryTracer.Span send = spans.get(0);
+        InMemoryTracer.Span nested = spans.get(1);
+        InMemoryTracer.Span commit = spans.get(2);
+        InMemoryTracer.Span delivery = spans.get(3);
+
+        assertEquals(JmsTracer.SEND, send.name);
+        assertNull(send.parent);
+        assertEquals(queue.toString(), send.destination);
+        assertEquals(send.getContext().toTraceparent(), request.getStringProperty(JmsTracing.TRACEPARENT_PROPERTY));
+
+        assertEquals(JmsTracer.ON_MESSAGE, delivery.name);
+        assertEquals(send.getContext().getSpanId(), delivery.parent.getSpanId());
+        assertTrue(delivery.failed);
+
+        assertEquals(delivery.getContext().getSpanId(), nested.parent.getSpanId());
+        assertEquals(nested.getContext().toTraceparent(), reply.getStringProperty(JmsTracing.TRACEPARENT_PROPERTY));
+        assertEquals(delivery.getContext().getSpanId(), commit.parent.getSpanId());
+
+        for (InMemoryTracer.Span span : spans) {
+            assertEquals(send.getContext().getTraceId(), span.getContext().getTraceId(), span.name);
+        }
+    }
+
+    @Test
+    public void testReceiveContinuesTheTraceOfTheMessage() throws Exception {
+        Message message = StubMessages.message();
+        message.setStringProperty(JmsTracing.TRACEPARENT_PROPERTY, TRACEPARENT);
+        message.setStringProperty(JmsTracing.TRACESTATE_PROPERTY, "vendor=value");
+
+        JmsSpan receive = JmsTracing.startReceive(message);
+        assertNull(JmsTracing.current());
+        JmsTracing.end(receive, false);
+
+        InMemoryTracer.Span span = InMemoryTracer.drain().get(0);
+        assertEquals(JmsTracer.RECEIVE, span.name);
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", span.getContext().getTraceId());
+        assertEquals("00f067aa0ba902b7", span.parent.getSpanId());
+        assertNotEquals("00f067aa0ba902b7", span.getContext().getSpanId());
+        assertEquals("vendor=value", span.getContext().getTraceState());
+    }
+
+    @Test
+    public void testInvalidTraceparentStartsANewTrace() throws Exception {
+        Message message = StubMessages.message();
+        message.setStringProperty(JmsTracing.TRACEPARENT_PROPERTY, "00-00000000000000000000000000000000-00f067aa0ba902b7-01");
+        JmsTracing.end(JmsTracing.startReceive(message), false);
+        assertNull(InMemoryTracer.drain().get(0).parent);
+    }
+
+    @Test
+    public void testParse() {
+        JmsTraceContext context = JmsTraceContext.parse(TRACEPARENT, null);
+        assertEquals(TRACEPARENT, context.toTraceparent());
+        assertTrue(context.isSampled());
+        assertFalse(JmsTraceContext.parse(TRACEPARENT.replace("-01", "-00"), null).isSampled());
+        // Future versions may append fields, version 00 may not
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", JmsTraceContext.parse("01" + TRACEPARENT.substring(2) + "-extra", null).getTraceId());
+        assertNull(JmsTraceContext.parse(TRACEPARENT + "-extra", null));
+        assertNull(JmsTraceContext.parse("ff" + TRACEPARENT.substring(2), null));
+        assertNull(JmsTraceContext.parse(TRACEPARENT.toUpperCase(), null));
+        assertNull(JmsTraceContext.parse(null, null));
+    }
+}